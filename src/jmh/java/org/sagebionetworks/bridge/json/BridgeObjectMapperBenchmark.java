@@ -0,0 +1,118 @@
+package org.sagebionetworks.bridge.json;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.models.accounts.ConsentStatus;
+import org.sagebionetworks.bridge.models.accounts.SharingScope;
+import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
+import org.sagebionetworks.bridge.models.accounts.UserSession;
+import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
+
+/**
+ * Round trips of the objects we serialize most often: participants through the API, and sessions
+ * through the Redis cache (using the same writers as the CacheProvider).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BridgeObjectMapperBenchmark {
+
+    StudyParticipant participant;
+    UserSession session;
+    String participantJson;
+    String sessionJson;
+
+    @Setup
+    public void setup() throws Exception {
+        participant = new StudyParticipant.Builder()
+                .withId("userId")
+                .withHealthCode("healthCode")
+                .withFirstName("FirstName")
+                .withLastName("LastName")
+                .withEmail("bridge-testing+benchmark@sagebase.org")
+                .withEmailVerified(true)
+                .withExternalIds(ImmutableMap.of("study0", "extId0", "study1", "extId1"))
+                .withSharingScope(SharingScope.ALL_QUALIFIED_RESEARCHERS)
+                .withNotifyByEmail(true)
+                .withDataGroups(ImmutableSet.of("group0", "group1", "group2"))
+                .withAttributes(ImmutableMap.of("can_be_recontacted", "true", "zip", "98119"))
+                .withLanguages(ImmutableList.of("en", "fr"))
+                .withRoles(ImmutableSet.of(Roles.DEVELOPER))
+                .withStudyIds(ImmutableSet.of("study0", "study1"))
+                .withTimeZone(DateTimeZone.forOffsetHours(-7))
+                .withCreatedOn(DateTime.parse("2022-02-01T09:00:00.000Z"))
+                .withClientTimeZone("America/Los_Angeles")
+                .build();
+
+        ImmutableMap.Builder<SubpopulationGuid, ConsentStatus> statuses = new ImmutableMap.Builder<>();
+        for (int i=0; i < 3; i++) {
+            SubpopulationGuid guid = SubpopulationGuid.create("subpop" + i);
+            statuses.put(guid, new ConsentStatus.Builder().withName("Consent " + i).withGuid(guid)
+                    .withRequired(true).withConsented(true).withSignedMostRecentConsent(true)
+                    .withSignedOn(1643706000000L).build());
+        }
+        session = new UserSession(participant);
+        session.setAppId("benchmark-app");
+        session.setSessionToken("sessionToken");
+        session.setInternalSessionToken("internalSessionToken");
+        session.setReauthToken("reauthToken");
+        session.setAuthenticated(true);
+        session.setConsentStatuses(statuses.build());
+
+        participantJson = StudyParticipant.API_WITH_HEALTH_CODE_WRITER.writeValueAsString(participant);
+        sessionJson = StudyParticipant.CACHE_WRITER.writeValueAsString(session);
+    }
+
+    @Benchmark
+    public String writeParticipant() throws Exception {
+        return StudyParticipant.API_WITH_HEALTH_CODE_WRITER.writeValueAsString(participant);
+    }
+
+    @Benchmark
+    public StudyParticipant readParticipant() throws Exception {
+        return BridgeObjectMapper.get().readValue(participantJson, StudyParticipant.class);
+    }
+
+    @Benchmark
+    public StudyParticipant roundTripParticipant() throws Exception {
+        String json = StudyParticipant.API_WITH_HEALTH_CODE_WRITER.writeValueAsString(participant);
+        return BridgeObjectMapper.get().readValue(json, StudyParticipant.class);
+    }
+
+    @Benchmark
+    public String writeSession() throws Exception {
+        return StudyParticipant.CACHE_WRITER.writeValueAsString(session);
+    }
+
+    @Benchmark
+    public UserSession readSession() throws Exception {
+        return BridgeObjectMapper.get().readValue(sessionJson, UserSession.class);
+    }
+
+    @Benchmark
+    public UserSession roundTripSession() throws Exception {
+        String json = StudyParticipant.CACHE_WRITER.writeValueAsString(session);
+        return BridgeObjectMapper.get().readValue(json, UserSession.class);
+    }
+}
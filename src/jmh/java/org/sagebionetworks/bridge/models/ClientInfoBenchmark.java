@@ -0,0 +1,44 @@
+package org.sagebionetworks.bridge.models;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a lookup of a User-Agent header in the parsed ClientInfo cache (the path taken on 
+ * every request) with parsing the header directly (the path taken on a cache miss).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientInfoBenchmark {
+
+    @Param({
+        "Asthma/26 (Unknown iPhone; iPhone OS/9.1) BridgeSDK/4",
+        "Mobile Toolbox/37 (Samsung SM-G973U; Android/11) BridgeJavaSDK/10",
+        "Unknown Client"
+    })
+    String userAgent;
+
+    @Benchmark
+    public ClientInfo fromUserAgentCache() {
+        return ClientInfo.fromUserAgentCache(userAgent);
+    }
+
+    @Benchmark
+    public ClientInfo parseUserAgentString() {
+        return ClientInfo.parseUserAgentString(userAgent);
+    }
+}
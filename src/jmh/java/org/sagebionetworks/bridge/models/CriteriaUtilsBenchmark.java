@@ -0,0 +1,68 @@
+package org.sagebionetworks.bridge.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CriteriaUtilsBenchmark {
+
+    private static final List<String> LANGUAGES = ImmutableList.of("en", "fr", "de", "es");
+    private static final String USER_AGENT = "Asthma/26 (Unknown iPhone; iPhone OS/9.1) BridgeSDK/4";
+
+    /** The number of criteria-filtered objects (e.g. app configs or subpopulations) in an app. */
+    @Param({"10", "100", "1000"})
+    int criteriaCount;
+
+    List<HasCriteria> objects;
+    CriteriaContext context;
+
+    @Setup
+    public void setup() {
+        objects = new ArrayList<>();
+        for (int i=0; i < criteriaCount; i++) {
+            Criteria criteria = Criteria.create();
+            criteria.setKey("object:" + i);
+            criteria.setLanguage(LANGUAGES.get(i % LANGUAGES.size()));
+            criteria.setMinAppVersion(OperatingSystem.IOS, i % 30);
+            criteria.setMaxAppVersion(OperatingSystem.IOS, 20 + (i % 30));
+            criteria.setAllOfGroups(ImmutableSet.of("group" + (i % 5)));
+            criteria.setNoneOfGroups(ImmutableSet.of("group" + ((i + 1) % 7)));
+            criteria.setAllOfStudyIds(ImmutableSet.of("study" + (i % 3)));
+            objects.add(() -> criteria);
+        }
+        context = new CriteriaContext.Builder()
+                .withAppId("benchmark-app")
+                .withUserId("userId")
+                .withClientInfo(ClientInfo.fromUserAgentCache(USER_AGENT))
+                .withLanguages(ImmutableList.of("fr", "en"))
+                .withUserDataGroups(ImmutableSet.of("group0", "group1", "group2"))
+                .withUserStudyIds(ImmutableSet.of("study0", "study1"))
+                .build();
+    }
+
+    @Benchmark
+    public List<HasCriteria> filterByCriteria() {
+        return CriteriaUtils.filterByCriteria(context, objects, null);
+    }
+}
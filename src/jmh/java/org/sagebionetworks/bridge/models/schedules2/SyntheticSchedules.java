@@ -0,0 +1,209 @@
+package org.sagebionetworks.bridge.models.schedules2;
+
+import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.IMMUTABLE;
+import static org.sagebionetworks.bridge.models.schedules2.PerformanceOrder.SEQUENTIAL;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalTime;
+import org.joda.time.Period;
+
+import com.google.common.collect.ImmutableList;
+
+import org.sagebionetworks.bridge.models.activities.ActivityEventObjectType;
+import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceState;
+import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
+
+/**
+ * Builds schedules (and the participant state used to report on them) that are sized like our
+ * largest studies: hundreds of sessions, several years long, with many study bursts. The output
+ * is deterministic for a given set of parameters so benchmark runs can be compared.
+ */
+public final class SyntheticSchedules {
+
+    public static final String APP_ID = "benchmark-app";
+    public static final String STUDY_START_EVENT_ID = "timeline_retrieved";
+    public static final DateTime CREATED_ON = DateTime.parse("2022-01-01T00:00:00.000Z");
+    public static final DateTime STUDY_START = DateTime.parse("2022-02-01T09:00:00.000Z");
+
+    private static final String BURST_ID_PREFIX = "burst";
+    private static final String CUSTOM_EVENT_PREFIX = "custom:event";
+    private static final int CUSTOM_EVENT_COUNT = 5;
+    private static final int ASSESSMENTS_PER_SESSION = 3;
+    private static final long SEED = 20220201L;
+
+    private SyntheticSchedules() {}
+
+    /**
+     * A schedule with the given number of sessions and study bursts, lasting the given number of
+     * years. Sessions rotate through four shapes: weekly recurring sessions from the start of the
+     * study, daily sessions within each study burst, monthly sessions triggered by custom events,
+     * and one-time sessions with multiple time windows.
+     */
+    public static Schedule2 createSchedule(int sessionCount, int durationYears, int burstCount) {
+        int durationWeeks = durationYears * 52;
+
+        List<StudyBurst> bursts = new ArrayList<>();
+        // Spread the bursts evenly over the duration of the study
+        int burstIntervalWeeks = Math.max(1, durationWeeks / Math.max(1, burstCount));
+        for (int i=0; i < burstCount; i++) {
+            StudyBurst burst = new StudyBurst();
+            burst.setIdentifier(BURST_ID_PREFIX + i);
+            burst.setOriginEventId(STUDY_START_EVENT_ID);
+            burst.setUpdateType(IMMUTABLE);
+            burst.setDelay(Period.weeks(1 + (i % burstIntervalWeeks)));
+            burst.setInterval(Period.weeks(burstIntervalWeeks));
+            burst.setOccurrences(Math.max(1, durationWeeks / burstIntervalWeeks - 1));
+            bursts.add(burst);
+        }
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i=0; i < sessionCount; i++) {
+            Session session = new Session();
+            session.setGuid("session" + i);
+            session.setName("Session " + i);
+            session.setSymbol(Integer.toString(i % 10));
+            session.setPerformanceOrder(SEQUENTIAL);
+            session.setAssessments(createAssessments(i));
+
+            switch (i % 4) {
+            case 0:
+                session.setStartEventIds(ImmutableList.of(STUDY_START_EVENT_ID));
+                session.setDelay(Period.days(i % 7));
+                session.setInterval(Period.weeks(1));
+                session.setTimeWindows(ImmutableList.of(createWindow(i, 0, "09:00", "P1D")));
+                break;
+            case 1:
+                if (burstCount > 0) {
+                    session.setStudyBurstIds(ImmutableList.of(BURST_ID_PREFIX + (i % burstCount)));
+                } else {
+                    session.setStartEventIds(ImmutableList.of(STUDY_START_EVENT_ID));
+                }
+                session.setInterval(Period.days(1));
+                session.setOccurrences(7);
+                session.setTimeWindows(ImmutableList.of(createWindow(i, 0, "08:00", "PT12H")));
+                break;
+            case 2:
+                session.setStartEventIds(ImmutableList.of(CUSTOM_EVENT_PREFIX + (i % CUSTOM_EVENT_COUNT)));
+                session.setInterval(Period.months(1));
+                session.setTimeWindows(ImmutableList.of(createWindow(i, 0, "10:00", "P3D")));
+                break;
+            default:
+                session.setStartEventIds(ImmutableList.of(STUDY_START_EVENT_ID));
+                session.setDelay(Period.days(i % 30));
+                session.setTimeWindows(ImmutableList.of(createWindow(i, 0, "08:00", "PT4H"),
+                        createWindow(i, 1, "12:00", "PT4H"), createWindow(i, 2, "18:00", "PT4H")));
+                break;
+            }
+            sessions.add(session);
+        }
+
+        Schedule2 schedule = new Schedule2();
+        schedule.setAppId(APP_ID);
+        schedule.setGuid("syntheticSchedule");
+        schedule.setName("Synthetic Schedule");
+        schedule.setOwnerId("sage-bionetworks");
+        schedule.setDuration(Period.weeks(durationWeeks));
+        schedule.setStudyBursts(bursts);
+        schedule.setSessions(sessions);
+        schedule.setCreatedOn(CREATED_ON);
+        schedule.setModifiedOn(CREATED_ON);
+        return schedule;
+    }
+
+    /**
+     * Events for a participant who is enrolled in the schedule: the study start event, all the
+     * custom events, and every study burst occurrence.
+     */
+    public static List<StudyActivityEvent> createEvents(Schedule2 schedule) {
+        List<StudyActivityEvent> events = new ArrayList<>();
+        events.add(createEvent(STUDY_START_EVENT_ID, STUDY_START, ActivityEventObjectType.TIMELINE_RETRIEVED));
+        for (int i=0; i < CUSTOM_EVENT_COUNT; i++) {
+            events.add(createEvent(CUSTOM_EVENT_PREFIX + i, STUDY_START.plusDays(i * 10),
+                    ActivityEventObjectType.CUSTOM));
+        }
+        for (StudyBurst burst : schedule.getStudyBursts()) {
+            DateTime timestamp = STUDY_START.plus(burst.getDelay());
+            for (int i=1; i <= burst.getOccurrences(); i++) {
+                String eventId = String.format("study_burst:%s:%02d", burst.getIdentifier(), i);
+                events.add(createEvent(eventId, timestamp, ActivityEventObjectType.STUDY_BURST));
+                timestamp = timestamp.plus(burst.getInterval());
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Adherence records for the given fraction of the session instances in the timeline, some
+     * finished, some only started, and some declined.
+     */
+    public static List<AdherenceRecord> createAdherenceRecords(List<TimelineMetadata> metadata, double fraction) {
+        Random random = new Random(SEED);
+        List<AdherenceRecord> records = new ArrayList<>();
+        metadata.stream().map(TimelineMetadata::getSessionInstanceGuid).distinct().forEach((guid) -> {
+            if (random.nextDouble() < fraction) {
+                AdherenceRecord record = new AdherenceRecord();
+                record.setAppId(APP_ID);
+                record.setInstanceGuid(guid);
+                record.setStartedOn(STUDY_START);
+                int outcome = random.nextInt(3);
+                if (outcome == 0) {
+                    record.setFinishedOn(STUDY_START.plusHours(1));
+                } else if (outcome == 1) {
+                    record.setDeclined(true);
+                }
+                records.add(record);
+            }
+        });
+        return records;
+    }
+
+    /**
+     * The state of a participant who is the given number of days into the study.
+     */
+    public static AdherenceState createAdherenceState(Schedule2 schedule, List<TimelineMetadata> metadata,
+            int daysIntoStudy, double fraction) {
+        return new AdherenceState.Builder()
+                .withStudyStartEventId(STUDY_START_EVENT_ID)
+                .withMetadata(metadata)
+                .withEvents(createEvents(schedule))
+                .withAdherenceRecords(createAdherenceRecords(metadata, fraction))
+                .withNow(STUDY_START.plusDays(daysIntoStudy))
+                .withClientTimeZone("America/Los_Angeles")
+                .build();
+    }
+
+    private static List<AssessmentReference> createAssessments(int sessionIndex) {
+        ImmutableList.Builder<AssessmentReference> builder = new ImmutableList.Builder<>();
+        for (int i=0; i < ASSESSMENTS_PER_SESSION; i++) {
+            AssessmentReference ref = new AssessmentReference();
+            ref.setAppId(APP_ID);
+            ref.setGuid("assessment" + ((sessionIndex + i) % 25));
+            ref.setIdentifier("assessment" + ((sessionIndex + i) % 25));
+            builder.add(ref);
+        }
+        return builder.build();
+    }
+
+    private static TimeWindow createWindow(int sessionIndex, int windowIndex, String startTime, String expiration) {
+        TimeWindow window = new TimeWindow();
+        window.setGuid("win" + sessionIndex + "_" + windowIndex);
+        window.setStartTime(LocalTime.parse(startTime));
+        window.setExpiration(Period.parse(expiration));
+        return window;
+    }
+
+    private static StudyActivityEvent createEvent(String eventId, DateTime timestamp, ActivityEventObjectType type) {
+        return new StudyActivityEvent.Builder()
+                .withAppId(APP_ID)
+                .withEventId(eventId)
+                .withTimestamp(timestamp)
+                .withObjectType(type)
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package org.sagebionetworks.bridge.models.schedules2.adherence;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.models.schedules2.Schedule2;
+import org.sagebionetworks.bridge.models.schedules2.SyntheticSchedules;
+import org.sagebionetworks.bridge.models.schedules2.adherence.eventstream.EventStreamAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.eventstream.EventStreamAdherenceReportGenerator;
+import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdherenceReportGenerator;
+import org.sagebionetworks.bridge.models.schedules2.timelines.Scheduler;
+import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
+
+/**
+ * The report generators accumulate event streams in the AdherenceState they are given, so a
+ * fresh copy of the state is built before each invocation (outside of the measured time).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AdherenceReportBenchmark {
+
+    @Param({"50", "200"})
+    int sessionCount;
+
+    @Param({"1", "3"})
+    int durationYears;
+
+    @Param({"12"})
+    int burstCount;
+
+    /** How far the participant is into the study. */
+    @Param({"180"})
+    int daysIntoStudy;
+
+    /** The fraction of session instances with an adherence record. */
+    @Param({"0.75"})
+    double adherenceFraction;
+
+    Schedule2 schedule;
+    AdherenceState template;
+    AdherenceState state;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        schedule = SyntheticSchedules.createSchedule(sessionCount, durationYears, burstCount);
+        List<TimelineMetadata> metadata = Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata();
+        template = SyntheticSchedules.createAdherenceState(schedule, metadata, daysIntoStudy, adherenceFraction);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        state = template.toBuilder().build();
+    }
+
+    @Benchmark
+    public EventStreamAdherenceReport eventStreamReport() {
+        return EventStreamAdherenceReportGenerator.INSTANCE.generate(state, schedule);
+    }
+
+    @Benchmark
+    public StudyAdherenceReport studyReport() {
+        return StudyAdherenceReportGenerator.INSTANCE.generate(state, schedule);
+    }
+}
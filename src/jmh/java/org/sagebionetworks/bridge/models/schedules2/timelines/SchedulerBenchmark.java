@@ -0,0 +1,48 @@
+package org.sagebionetworks.bridge.models.schedules2.timelines;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.sagebionetworks.bridge.models.schedules2.Schedule2;
+import org.sagebionetworks.bridge.models.schedules2.SyntheticSchedules;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    @Param({"50", "200"})
+    int sessionCount;
+
+    @Param({"1", "3"})
+    int durationYears;
+
+    @Param({"12"})
+    int burstCount;
+
+    Schedule2 schedule;
+
+    @Setup
+    public void setup() {
+        schedule = SyntheticSchedules.createSchedule(sessionCount, durationYears, burstCount);
+    }
+
+    @Benchmark
+    public Timeline calculateTimeline() {
+        return Scheduler.INSTANCE.calculateTimeline(schedule);
+    }
+}
@@ -96,6 +96,12 @@ public class BridgeConstants {
     // 3 minutes
     public static final int APP_LINKS_EXPIRE_IN_SECONDS = 3* 60;
     
+    // 1 hr. Indices are only changed through the report service, which removes them from the cache
+    public static final int REPORT_INDEX_EXPIRE_IN_SECONDS = 60 * 60;
+    
+    // 2 days. The state is only valid for one local day, so it rarely outlives this anyway
+    public static final int WEEKLY_ADHERENCE_STATE_EXPIRE_IN_SECONDS = 2 * 24 * 60 * 60;
+    
     public static final String SCHEDULE_STRATEGY_PACKAGE = "org.sagebionetworks.bridge.models.schedules.";
 
     public static final String ASSETS_HOST = "assets.sagebridge.org";
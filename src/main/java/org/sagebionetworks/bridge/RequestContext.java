@@ -39,13 +39,25 @@ public class RequestContext {
     }
 
     public static RequestContext updateFromSession(UserSession session, SponsorService sponsorService) {
+        StudyParticipant participant = session.getParticipant();
+        Set<String> orgSponsoredStudies = null;
+        if (participant.getOrgMembership() != null) {
+            orgSponsoredStudies = sponsorService.getSponsoredStudyIds(
+                    session.getAppId(), participant.getOrgMembership());
+        }
+        return updateFromSession(session, orgSponsoredStudies);
+    }
+    
+    /**
+     * Update the context from the session when the studies sponsored by the caller's organization have already been 
+     * retrieved (they are ignored if the caller is not a member of an organization).
+     */
+    public static RequestContext updateFromSession(UserSession session, Set<String> orgSponsoredStudies) {
         RequestContext.Builder builder = get().toBuilder();
         builder.withCallerAppId(session.getAppId());
 
         StudyParticipant participant = session.getParticipant();
         if (participant.getOrgMembership() != null) {
-            Set<String> orgSponsoredStudies = sponsorService.getSponsoredStudyIds(
-                    session.getAppId(), participant.getOrgMembership());
             builder.withOrgSponsoredStudies(orgSponsoredStudies);
         }
         builder.withCallerLanguages(participant.getLanguages());
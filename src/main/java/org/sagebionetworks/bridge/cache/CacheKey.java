@@ -6,6 +6,7 @@ import java.util.Objects;
 import org.sagebionetworks.bridge.models.ThrottleRequestType;
 import org.sagebionetworks.bridge.models.accounts.Phone;
 import org.sagebionetworks.bridge.models.accounts.SignIn;
+import org.sagebionetworks.bridge.models.reports.ReportDataKey;
 import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 
 import com.google.common.base.Joiner;
@@ -20,7 +21,7 @@ public final class CacheKey {
     
     private static final String[] PUBLIC_KEYS = new String[] { "emailVerificationStatus", 
             "AppConfigList", "channel-throttling", "lock", "App", "Subpopulation", 
-            "SubpopulationList", "view" };
+            "SubpopulationList", "TimelineList", "view" };
     
     public final static boolean isPublic(String key) {
         for (String suffix : PUBLIC_KEYS) {
@@ -45,6 +46,10 @@ public final class CacheKey {
     public static final CacheKey tagList() {
         return new CacheKey("TagList");
     }
+    /** The index of a report, keyed by the index key (app and report type) and the report identifier. */
+    public static final CacheKey reportIndex(ReportDataKey key) {
+        return new CacheKey(key.getIndexKeyString(), key.getIdentifier(), "ReportIndex");
+    }
     public static final CacheKey reauthTokenLookupKey(String userId, String appId) {
         return new CacheKey(userId, appId, "ReauthToken");
     }
@@ -54,6 +59,20 @@ public final class CacheKey {
     public static final CacheKey appConfigList(String appId) {
         return new CacheKey(appId, "AppConfigList");
     }
+    /**
+     * Marks the references of one revision of an app config as resolved; it is a member of the app's AppConfigList 
+     * set so it is removed along with the cached views of the app's configs.
+     */
+    public static final CacheKey resolvedAppConfig(String appId, String guid, long modifiedOn) {
+        return new CacheKey(appId, guid, Long.toString(modifiedOn), "ResolvedAppConfig");
+    }
+    /** The set of cached timeline views for all the revisions and languages of a schedule. */
+    public static final CacheKey timelineList(String scheduleGuid) {
+        return new CacheKey(scheduleGuid, "TimelineList");
+    }
+    public static final CacheKey weeklyAdherenceReportState(String appId, String studyId, String userId) {
+        return new CacheKey(appId, studyId, userId, "WeeklyAdherenceReportState");
+    }
     /**
      * Cache key for mapping a used channel sign-in token to the cached session token, used for when a second channel
      * sign-in call is made within the grace period.
@@ -65,6 +84,9 @@ public final class CacheKey {
     public static CacheKey channelThrottling(ThrottleRequestType throttleType, String userId) {
         return new CacheKey(userId, throttleType.name().toLowerCase(), "channel-throttling");
     }
+    public static CacheKey participantFileRateLimit(String userId) {
+        return new CacheKey(userId, "participant-file-rate-limit");
+    }
     public static final CacheKey emailSignInRequest(SignIn signIn) {
         return new CacheKey(signIn.getEmail(), signIn.getAppId(), "signInRequest");
     }
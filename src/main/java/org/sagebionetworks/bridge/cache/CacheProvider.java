@@ -1,12 +1,16 @@
 package org.sagebionetworks.bridge.cache;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNumeric;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Resource;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
@@ -18,19 +22,28 @@ import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.redis.JedisTransaction;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
- * A wrapper around our use of Redis.
+ * A wrapper around our use of Redis. Reads of a few hot key types are served from an in-process
+ * NearCache when possible; writes and deletes through this class keep that tier consistent.
+ * DateTime values (the etag timestamps) are stored as epoch milliseconds rather than as JSON.
  */
 @Component
 public class CacheProvider {
     private static final String LOCAL_SERVICE_ERROR = "Cannot find cache service, have you started Redis? (original message: %s)";
     private JedisOps jedisOps;
+    private JedisPool jedisPool;
+    private NearCache nearCache = new NearCache();
     private int sessionExpireInSeconds;
 
     @Resource(name = "jedisOps")
@@ -38,6 +51,17 @@ public class CacheProvider {
         this.jedisOps = jedisOps;
     }
 
+    /** JedisOps does not expose MGET, so batch reads borrow a connection from the pool directly. */
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    @Autowired
+    final void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
     @Resource(name = "sessionExpireInSeconds")
     final void setSessionExpireInSeconds(@SuppressWarnings("SameParameterValue") int sessionExpireInSeconds) {
         this.sessionExpireInSeconds = sessionExpireInSeconds;
@@ -258,10 +282,9 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         checkNotNull(clazz);
         try {
-            String ser = jedisOps.get(cacheKey.toString());
+            String ser = getString(cacheKey.toString());
             if (ser != null) {
-                JsonNode node = adjustJsonWithStudyIdentifier(ser);                
-                return BridgeObjectMapper.get().treeToValue(node, clazz);
+                return deserialize(ser, clazz);
             }
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
@@ -270,11 +293,59 @@ public class CacheProvider {
         return null;
     }
     
+    /**
+     * Get the objects under several keys in one round trip to Redis (keys held in the near cache 
+     * are not requested). The list that is returned is in the order of the keys, with a null entry 
+     * for any key that has no value.
+     */
+    public <T> List<T> getObjects(List<CacheKey> cacheKeys, Class<T> clazz) {
+        checkNotNull(cacheKeys);
+        checkNotNull(clazz);
+        try {
+            List<String> sers = new ArrayList<>(cacheKeys.size());
+            List<Integer> missingIndices = new ArrayList<>();
+            for (int i=0; i < cacheKeys.size(); i++) {
+                String ser = nearCache.get(cacheKeys.get(i).toString());
+                sers.add(ser);
+                if (ser == null) {
+                    missingIndices.add(i);
+                }
+            }
+            if (!missingIndices.isEmpty()) {
+                String[] missingKeys = new String[missingIndices.size()];
+                long[] versions = new long[missingKeys.length];
+                for (int i=0; i < missingKeys.length; i++) {
+                    missingKeys[i] = cacheKeys.get(missingIndices.get(i)).toString();
+                    versions[i] = nearCache.getVersion(missingKeys[i]);
+                }
+                List<String> values;
+                try (Jedis jedis = jedisPool.getResource()) {
+                    values = jedis.mget(missingKeys);
+                }
+                for (int i=0; i < missingKeys.length; i++) {
+                    String ser = values.get(i);
+                    if (ser != null) {
+                        sers.set(missingIndices.get(i), ser);
+                        nearCache.put(missingKeys[i], ser, 0, versions[i]);
+                    }
+                }
+            }
+            List<T> results = new ArrayList<>(sers.size());
+            for (String ser : sers) {
+                results.add((ser == null) ? null : deserialize(ser, clazz));
+            }
+            return results;
+        } catch (Throwable e) {
+            promptToStartRedisIfLocal(e);
+            throw new BridgeServiceException(e);
+        }
+    }
+    
     public <T> T getObject(CacheKey cacheKey, TypeReference<T> typeRef) {
         checkNotNull(cacheKey);
         checkNotNull(typeRef);
         try {
-            String ser = jedisOps.get(cacheKey.toString());
+            String ser = getString(cacheKey.toString());
             if (ser != null) {
                 JsonNode node = adjustJsonWithStudyIdentifier(ser);
                 return BridgeObjectMapper.get().readValue(node.toString(), typeRef);
@@ -287,15 +358,24 @@ public class CacheProvider {
     }
     
     /**
-     * Get the object, resetting its expiration period.
+     * Get the object, resetting its expiration period. The expiration is not reset when the object
+     * is served from the near cache.
      */
     public <T> T getObject(CacheKey cacheKey, Class<T> clazz, int expireInSeconds) {
         checkNotNull(cacheKey);
         checkNotNull(clazz);
         try {
-            String ser = jedisOps.get(cacheKey.toString());
+            String key = cacheKey.toString();
+            String ser = nearCache.get(key);
+            if (ser == null) {
+                long version = nearCache.getVersion(key);
+                ser = jedisOps.get(key);
+                if (ser != null) {
+                    jedisOps.expire(key, expireInSeconds);
+                    nearCache.put(key, ser, expireInSeconds, version);
+                }
+            }
             if (ser != null) {
-                jedisOps.expire(cacheKey.toString(), expireInSeconds);
                 return BridgeObjectMapper.get().readValue(ser, clazz);
             }
         } catch (Throwable e) {
@@ -323,11 +403,12 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         checkNotNull(object);
         try {
-            String ser = BridgeObjectMapper.get().writeValueAsString(object);
+            String ser = serialize(object);
             String result = jedisOps.set(cacheKey.toString(), ser);
             if (!"OK".equals(result)) {
                 throw new BridgeServiceException(object.getClass().getSimpleName() + " storage error");
             }
+            nearCache.invalidate(cacheKey.toString());
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -341,11 +422,12 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         checkNotNull(object);
         try {
-            String ser = BridgeObjectMapper.get().writeValueAsString(object);
+            String ser = serialize(object);
             String result = jedisOps.setex(cacheKey.toString(), expireInSeconds, ser);
             if (!"OK".equals(result)) {
                 throw new BridgeServiceException(object.getClass().getSimpleName() + " storage error");
             }
+            nearCache.invalidate(cacheKey.toString());
         } catch (Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -359,6 +441,7 @@ public class CacheProvider {
         checkNotNull(cacheKey);
         try {
             jedisOps.del(cacheKey.toString());
+            nearCache.invalidate(cacheKey.toString());
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
             throw new BridgeServiceException(e);
@@ -389,6 +472,7 @@ public class CacheProvider {
                     transaction.del(cacheKeyOfSet.toString());
                     transaction.exec();
                 }
+                nearCache.invalidate(members.toArray(new String[members.size()]));
             }
         } catch(Throwable e) {
             promptToStartRedisIfLocal(e);
@@ -396,6 +480,41 @@ public class CacheProvider {
         }        
     }
 
+    private String serialize(Object object) throws JsonProcessingException {
+        if (object instanceof DateTime) {
+            return Long.toString(((DateTime)object).getMillis());
+        }
+        return BridgeObjectMapper.get().writeValueAsString(object);
+    }
+    
+    /**
+     * Timestamps written before they were stored as epoch milliseconds are still JSON strings, and 
+     * fall through to the object mapper.
+     */
+    private <T> T deserialize(String ser, Class<T> clazz) throws Exception {
+        if (clazz == DateTime.class && isNumeric(ser)) {
+            return clazz.cast(new DateTime(Long.parseLong(ser), DateTimeZone.UTC));
+        }
+        JsonNode node = adjustJsonWithStudyIdentifier(ser);
+        return BridgeObjectMapper.get().treeToValue(node, clazz);
+    }
+    
+    /**
+     * Read a serialized value, from the near cache if it holds the key, and otherwise from Redis
+     * (retaining the value in the near cache if it is of a type held there).
+     */
+    private String getString(String key) {
+        String ser = nearCache.get(key);
+        if (ser == null) {
+            long version = nearCache.getVersion(key);
+            ser = jedisOps.get(key);
+            if (ser != null) {
+                nearCache.put(key, ser, 0, version);
+            }
+        }
+        return ser;
+    }
+
     private void promptToStartRedisIfLocal(Throwable e) {
         if (BridgeConfigFactory.getConfig().isLocal()) {
             throw new BridgeServiceException(String.format(LOCAL_SERVICE_ERROR, e.getMessage()));
@@ -0,0 +1,327 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+/**
+ * An in-process (L1) tier in front of Redis for a small set of hot, rarely written keys (apps and
+ * etag timestamps). The serialized Redis value is held rather than the deserialized object, so
+ * callers always receive a new instance they can safely mutate. Entries expire after the shorter
+ * of the configured local TTL and the TTL they were given in Redis. Writes and deletes through the
+ * CacheProvider are broadcast on a Redis pub/sub channel so that every server drops its local copy;
+ * if the subscription is lost, the whole local tier is cleared because invalidation messages may
+ * have been missed.
+ * 
+ * Every invalidation of a key advances that key's version. A value read from Redis is only held if
+ * the key was not invalidated after the read started, so a read that is in flight during a write
+ * cannot put the old value back. Versions are kept in a fixed number of stripes by key hash, so
+ * memory does not grow with the number of keys written; a write only discards concurrent reads of
+ * the few other keys in its stripe. Sessions are not held here: a session that has been signed out must stop
+ * authenticating on every server at once, not when a local copy expires.
+ */
+@Component
+public class NearCache {
+    private static final Logger LOG = LoggerFactory.getLogger(NearCache.class);
+
+    static final String INVALIDATION_CHANNEL = "near-cache-invalidation";
+    static final String CONFIG_KEY_ENABLED = "near.cache.enabled";
+    static final String CONFIG_KEY_MAX_SIZE = "near.cache.max.size";
+    static final String CONFIG_KEY_TTL_SECONDS = "near.cache.ttl.seconds";
+    static final long RESUBSCRIBE_DELAY_MILLIS = 5000L;
+    static final String HITS = "hits";
+    static final String MISSES = "misses";
+    static final String EVICTIONS = "evictions";
+    static final int VERSION_STRIPES = 1024;
+
+    private static final Joiner KEY_JOINER = Joiner.on("\n");
+    private static final Splitter KEY_SPLITTER = Splitter.on("\n").omitEmptyStrings();
+
+    /** The CacheKey types (the trailing elements of the key) that are eligible for local caching. */
+    static final ImmutableList<String> CACHED_TYPES = ImmutableList.of("App", "Etag");
+
+    private final Map<String, TypeStatistics> statistics = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private JedisPool jedisPool;
+    private boolean enabled;
+    private long ttlMillis;
+    private Cache<String, Entry> cache;
+    private ExecutorService subscriberExecutor;
+    private volatile boolean running;
+    private final JedisPubSub subscriber = new InvalidationSubscriber();
+
+    @Resource(name = "jedisPool")
+    final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        configure(Boolean.valueOf(bridgeConfig.get(CONFIG_KEY_ENABLED)),
+                bridgeConfig.getInt(CONFIG_KEY_MAX_SIZE),
+                bridgeConfig.getInt(CONFIG_KEY_TTL_SECONDS));
+    }
+
+    final void configure(boolean enabled, int maxSize, int ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .<String, Entry>removalListener(this::onRemoval)
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        subscriberExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("near-cache-subscriber").setDaemon(true).build());
+        subscriberExecutor.execute(this::listenForInvalidations);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        running = false;
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+        if (subscriberExecutor != null) {
+            subscriberExecutor.shutdownNow();
+        }
+    }
+
+    /** Is this key of a type that is held in the local tier? */
+    public boolean isCacheable(String key) {
+        return enabled && getType(key) != null;
+    }
+
+    /**
+     * Return the serialized value held locally for this key, or null if it is not held (or it is
+     * not of a type that is cached locally).
+     */
+    public String get(String key) {
+        checkNotNull(key);
+        String type = getType(key);
+        if (!enabled || type == null) {
+            return null;
+        }
+        TypeStatistics stats = statistics(type);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.expiresOn < DateTimeUtils.currentTimeMillis()) {
+            cache.invalidate(key);
+            stats.evictions.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            stats.misses.incrementAndGet();
+            return null;
+        }
+        stats.hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * The current invalidation version of this key. Read this before reading the key from Redis, and
+     * pass it to {@link #put(String, String, int, long)} with the value that was read.
+     */
+    public long getVersion(String key) {
+        checkNotNull(key);
+        return versions.get(stripe(key));
+    }
+
+    /**
+     * Hold the serialized value for this key locally, unless the key has been invalidated since the
+     * given version was read (in which case the value may already be out of date, and it is not held). If
+     * the value was given an expiration in Redis, that expiration is honored when it is shorter than
+     * the local TTL (zero or less indicates that the Redis value does not expire).
+     */
+    public void put(String key, String value, int expireInSeconds, long readVersion) {
+        checkNotNull(key);
+        checkNotNull(value);
+        int stripe = stripe(key);
+        if (!isCacheable(key) || versions.get(stripe) != readVersion) {
+            return;
+        }
+        long ttl = ttlMillis;
+        if (expireInSeconds > 0) {
+            ttl = Math.min(ttl, TimeUnit.SECONDS.toMillis(expireInSeconds));
+        }
+        cache.put(key, new Entry(value, DateTimeUtils.currentTimeMillis() + ttl));
+        // An invalidation between the check above and the put may not have seen this entry.
+        if (versions.get(stripe) != readVersion) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Remove these keys from the local tier of this server, and publish their invalidation to all
+     * other servers.
+     */
+    public void invalidate(String... keys) {
+        if (!enabled) {
+            return;
+        }
+        ImmutableList.Builder<String> builder = new ImmutableList.Builder<>();
+        for (String key : keys) {
+            if (isCacheable(key)) {
+                versions.incrementAndGet(stripe(key));
+                cache.invalidate(key);
+                builder.add(key);
+            }
+        }
+        ImmutableList<String> published = builder.build();
+        if (!published.isEmpty()) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                jedis.publish(INVALIDATION_CHANNEL, KEY_JOINER.join(published));
+            } catch (Exception e) {
+                // Other servers fall back to the local TTL to pick up the change
+                LOG.warn("Could not publish near cache invalidation for " + published, e);
+            }
+        }
+    }
+
+    /**
+     * Hit, miss, and eviction counts for each CacheKey type held in the local tier, since this
+     * server started.
+     */
+    public Map<String, Map<String, Long>> getStatistics() {
+        ImmutableMap.Builder<String, Map<String, Long>> builder = new ImmutableMap.Builder<>();
+        for (Map.Entry<String, TypeStatistics> entry : statistics.entrySet()) {
+            TypeStatistics stats = entry.getValue();
+            builder.put(entry.getKey(), ImmutableMap.of(HITS, stats.hits.get(),
+                    MISSES, stats.misses.get(), EVICTIONS, stats.evictions.get()));
+        }
+        return builder.build();
+    }
+
+    void invalidateLocally(String message) {
+        for (String key : KEY_SPLITTER.split(message)) {
+            versions.incrementAndGet(stripe(key));
+            cache.invalidate(key);
+        }
+    }
+
+    void listenForInvalidations() {
+        while (running) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                // Blocks until the subscriber is unsubscribed or the connection fails.
+                jedis.subscribe(subscriber, INVALIDATION_CHANNEL);
+            } catch (Exception e) {
+                LOG.warn("Near cache invalidation subscription failed, clearing local cache", e);
+            }
+            // Any message published while we were not subscribed has been lost.
+            for (int i = 0; i < VERSION_STRIPES; i++) {
+                versions.incrementAndGet(i);
+            }
+            cache.invalidateAll();
+            if (running) {
+                try {
+                    Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void onRemoval(RemovalNotification<String, Entry> notification) {
+        if (notification.wasEvicted()) {
+            String type = getType(notification.getKey());
+            if (type != null) {
+                statistics(type).evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private TypeStatistics statistics(String type) {
+        return statistics.computeIfAbsent(type, (t) -> new TypeStatistics());
+    }
+
+    static int stripe(String key) {
+        return Math.floorMod(key.hashCode(), VERSION_STRIPES);
+    }
+
+    static String getType(String key) {
+        if (key != null) {
+            for (String type : CACHED_TYPES) {
+                if (key.endsWith(":" + type)) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expiresOn;
+        Entry(String value, long expiresOn) {
+            this.value = value;
+            this.expiresOn = expiresOn;
+        }
+    }
+
+    private static final class TypeStatistics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+    }
+
+    private final class InvalidationSubscriber extends JedisPubSub {
+        @Override
+        public void onMessage(String channel, String message) {
+            invalidateLocally(message);
+        }
+        @Override
+        public void onPMessage(String pattern, String channel, String message) {
+        }
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+        }
+        @Override
+        public void onUnsubscribe(String channel, int subscribedChannels) {
+        }
+        @Override
+        public void onPUnsubscribe(String pattern, int subscribedChannels) {
+        }
+        @Override
+        public void onPSubscribe(String pattern, int subscribedChannels) {
+        }
+    }
+}
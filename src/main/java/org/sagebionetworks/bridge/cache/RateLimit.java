@@ -0,0 +1,72 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.util.Objects;
+
+/**
+ * The settings of a token bucket enforced by the {@link TokenBucketRateLimiter}. A bucket starts with
+ * initialTokens, holds at most maximumTokens, and has refillAmount tokens added every
+ * refillIntervalSeconds. The name identifies the limit in the limiter's statistics.
+ */
+public final class RateLimit {
+    private final String name;
+    private final long initialTokens;
+    private final long maximumTokens;
+    private final long refillIntervalSeconds;
+    private final long refillAmount;
+
+    public RateLimit(String name, long initialTokens, long maximumTokens, long refillIntervalSeconds,
+            long refillAmount) {
+        checkArgument(isNotBlank(name));
+        checkArgument(refillIntervalSeconds > 0);
+        checkArgument(refillAmount > 0);
+        this.name = name;
+        this.initialTokens = initialTokens;
+        this.maximumTokens = maximumTokens;
+        this.refillIntervalSeconds = refillIntervalSeconds;
+        this.refillAmount = refillAmount;
+    }
+
+    public String getName() {
+        return name;
+    }
+    public long getInitialTokens() {
+        return initialTokens;
+    }
+    public long getMaximumTokens() {
+        return maximumTokens;
+    }
+    public long getRefillIntervalSeconds() {
+        return refillIntervalSeconds;
+    }
+    public long getRefillAmount() {
+        return refillAmount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, initialTokens, maximumTokens, refillIntervalSeconds, refillAmount);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RateLimit other = (RateLimit) obj;
+        return Objects.equals(name, other.name) && initialTokens == other.initialTokens
+                && maximumTokens == other.maximumTokens && refillIntervalSeconds == other.refillIntervalSeconds
+                && refillAmount == other.refillAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit [name=" + name + ", initialTokens=" + initialTokens + ", maximumTokens=" + maximumTokens
+                + ", refillIntervalSeconds=" + refillIntervalSeconds + ", refillAmount=" + refillAmount + "]";
+    }
+}
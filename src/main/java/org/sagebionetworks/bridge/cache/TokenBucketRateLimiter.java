@@ -0,0 +1,168 @@
+package org.sagebionetworks.bridge.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.sagebionetworks.bridge.util.ByteRateLimiter;
+
+/**
+ * Token bucket rate limiting that is shared by all servers. Each bucket is a hash in Redis that is
+ * refilled and consumed atomically by a Lua script, so a user whose requests are spread across servers
+ * gets the same budget as one whose requests go to a single server. If Redis cannot be reached, the
+ * limit is enforced on this server with a bounded, expiring set of local buckets.
+ */
+@Component
+public class TokenBucketRateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    static final String ALLOWED = "allowed";
+    static final String DENIED = "denied";
+    static final String LOCAL_FALLBACKS = "localFallbacks";
+
+    static final long LOCAL_MAXIMUM_SIZE = 10000;
+    static final long LOCAL_EXPIRE_AFTER_ACCESS_HOURS = 24;
+
+    // KEYS[1] is the bucket. ARGV is initialTokens, maximumTokens, refillIntervalMillis, refillAmount,
+    // tokens to consume, and the current time in milliseconds. Returns 1 if the tokens were consumed.
+    // The bucket expires once it would have refilled completely, after which a new bucket is equivalent.
+    static final String TOKEN_BUCKET_SCRIPT = String.join("\n",
+            "local key = KEYS[1]",
+            "local initialTokens = tonumber(ARGV[1])",
+            "local maximumTokens = tonumber(ARGV[2])",
+            "local refillInterval = tonumber(ARGV[3])",
+            "local refillAmount = tonumber(ARGV[4])",
+            "local cost = tonumber(ARGV[5])",
+            "local now = tonumber(ARGV[6])",
+            "if redis.call('TYPE', key).ok ~= 'hash' then",
+            "  redis.call('DEL', key)",
+            "end",
+            "local state = redis.call('HMGET', key, 'tokens', 'refilledOn')",
+            "local tokens = tonumber(state[1])",
+            "local refilledOn = tonumber(state[2])",
+            "if tokens == nil or refilledOn == nil then",
+            "  tokens = initialTokens",
+            "  refilledOn = now",
+            "elseif now > refilledOn then",
+            "  local refills = math.floor((now - refilledOn) / refillInterval)",
+            "  tokens = math.min(maximumTokens, tokens + refills * refillAmount)",
+            "  refilledOn = refilledOn + refills * refillInterval",
+            "end",
+            "local allowed = 0",
+            "if tokens >= cost then",
+            "  tokens = tokens - cost",
+            "  allowed = 1",
+            "end",
+            "redis.call('HMSET', key, 'tokens', string.format('%.0f', tokens), 'refilledOn', "
+                    + "string.format('%.0f', refilledOn))",
+            "local refillsToFull = math.max(0, math.ceil((maximumTokens - tokens) / refillAmount))",
+            "redis.call('PEXPIRE', key, string.format('%.0f', (refillsToFull + 1) * refillInterval))",
+            "return allowed");
+
+    private final Map<String, LimitStatistics> statistics = new ConcurrentHashMap<>();
+    private final Cache<String, ByteRateLimiter> localBuckets = CacheBuilder.newBuilder()
+            .maximumSize(LOCAL_MAXIMUM_SIZE)
+            .expireAfterAccess(LOCAL_EXPIRE_AFTER_ACCESS_HOURS, TimeUnit.HOURS)
+            .build();
+    private JedisPool jedisPool;
+
+    @Resource(name = "jedisPool")
+    public final void setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * Consume the given number of tokens from the bucket stored under this key, if the bucket holds
+     * that many tokens. Returns true if the tokens were consumed, and false if the request should be
+     * rejected (in which case no tokens are consumed).
+     */
+    public boolean tryConsume(CacheKey key, RateLimit rateLimit, long tokens) {
+        checkNotNull(key);
+        checkNotNull(rateLimit);
+        checkArgument(tokens >= 0);
+
+        LimitStatistics stats = statistics.computeIfAbsent(rateLimit.getName(), (name) -> new LimitStatistics());
+        boolean allowed;
+        try {
+            allowed = tryConsumeInRedis(key, rateLimit, tokens);
+        } catch (JedisException e) {
+            LOG.warn("Could not reach Redis to rate limit " + rateLimit.getName() + ", limiting locally", e);
+            stats.localFallbacks.incrementAndGet();
+            allowed = tryConsumeLocally(key, rateLimit, tokens);
+        }
+        if (allowed) {
+            stats.allowed.addAndGet(tokens);
+        } else {
+            stats.denied.addAndGet(tokens);
+        }
+        return allowed;
+    }
+
+    /**
+     * The tokens allowed and denied, and the number of times Redis could not be reached, for each
+     * rate limit, since this server started.
+     */
+    public Map<String, Map<String, Long>> getStatistics() {
+        ImmutableMap.Builder<String, Map<String, Long>> builder = new ImmutableMap.Builder<>();
+        for (Map.Entry<String, LimitStatistics> entry : statistics.entrySet()) {
+            LimitStatistics stats = entry.getValue();
+            builder.put(entry.getKey(), ImmutableMap.of(ALLOWED, stats.allowed.get(), DENIED,
+                    stats.denied.get(), LOCAL_FALLBACKS, stats.localFallbacks.get()));
+        }
+        return builder.build();
+    }
+
+    private boolean tryConsumeInRedis(CacheKey key, RateLimit rateLimit, long tokens) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(TOKEN_BUCKET_SCRIPT, ImmutableList.of(key.toString()), ImmutableList.of(
+                    Long.toString(rateLimit.getInitialTokens()),
+                    Long.toString(rateLimit.getMaximumTokens()),
+                    Long.toString(TimeUnit.SECONDS.toMillis(rateLimit.getRefillIntervalSeconds())),
+                    Long.toString(rateLimit.getRefillAmount()),
+                    Long.toString(tokens),
+                    Long.toString(DateTimeUtils.currentTimeMillis())));
+            return Long.valueOf(1L).equals(result);
+        }
+    }
+
+    private boolean tryConsumeLocally(CacheKey key, RateLimit rateLimit, long tokens) {
+        ByteRateLimiter bucket;
+        try {
+            bucket = localBuckets.get(key.toString(), () -> new ByteRateLimiter(rateLimit.getInitialTokens(),
+                    rateLimit.getMaximumTokens(), rateLimit.getRefillIntervalSeconds(), rateLimit.getRefillAmount()));
+        } catch (ExecutionException e) {
+            throw new BridgeServiceException(e.getCause());
+        }
+        synchronized (bucket) {
+            return bucket.tryConsumeBytes(tokens);
+        }
+    }
+
+    private static final class LimitStatistics {
+        private final AtomicLong allowed = new AtomicLong();
+        private final AtomicLong denied = new AtomicLong();
+        private final AtomicLong localFallbacks = new AtomicLong();
+    }
+}
@@ -12,15 +12,21 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.sql.DataSource;
 
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.PredefinedClientConfigurations;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
@@ -103,7 +109,6 @@ import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
 import org.sagebionetworks.bridge.dynamodb.DynamoUploadDedupe;
 import org.sagebionetworks.bridge.dynamodb.DynamoUploadSchema;
 import org.sagebionetworks.bridge.dynamodb.DynamoUtils;
-import org.sagebionetworks.bridge.file.FileHelper;
 import org.sagebionetworks.bridge.heartbeat.HeartbeatLogger;
 import org.sagebionetworks.bridge.hibernate.AccountPersistenceExceptionConverter;
 import org.sagebionetworks.bridge.hibernate.HibernateAccount;
@@ -149,6 +154,8 @@ import org.sagebionetworks.bridge.synapse.SynapseHelper;
 import org.sagebionetworks.bridge.upload.DecryptHandler;
 import org.sagebionetworks.bridge.upload.InitRecordHandler;
 import org.sagebionetworks.bridge.upload.S3DownloadHandler;
+import org.sagebionetworks.bridge.upload.SpillingFileHelper;
+import org.sagebionetworks.bridge.upload.StreamingUnzipHandler;
 import org.sagebionetworks.bridge.upload.StrictValidationHandler;
 import org.sagebionetworks.bridge.upload.TranscribeConsentHandler;
 import org.sagebionetworks.bridge.upload.UnzipHandler;
@@ -189,7 +196,10 @@ public class SpringConfig {
     @Bean
     @Order(1)
     public FilterRegistrationBean<RequestFilter> requestFilterRegistration(RequestFilter filter) {
-        return filterRegistration(filter);
+        // Also filter the dispatch that writes the result of an asynchronous request, to restore its context
+        FilterRegistrationBean<RequestFilter> registrationBean = filterRegistration(filter);
+        registrationBean.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registrationBean;
     }
 
     @Bean
@@ -201,7 +211,10 @@ public class SpringConfig {
     @Bean
     @Order(3)
     public FilterRegistrationBean<MetricsFilter> metricsFilterRegistration(MetricsFilter filter) {
-        return filterRegistration(filter);
+        // Status and latency of an asynchronous request are recorded when its result is dispatched
+        FilterRegistrationBean<MetricsFilter> registrationBean = filterRegistration(filter);
+        registrationBean.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registrationBean;
     }
 
     // This will replace Spring Boot's default configuration using Jackson2ObjectMapperBuilder.
@@ -234,7 +247,14 @@ public class SpringConfig {
     }
     
     @Bean(name = "snsClient")
-    public AmazonSNS snsClient() {
+    @Resource(name = "bridgeConfig")
+    public AmazonSNS snsClient(BridgeConfig bridgeConfig) {
+        // An endpoint can be configured to point the server at a local SNS stand-in for development and testing.
+        String endpoint = bridgeConfig.get("sns.endpoint");
+        if (endpoint != null) {
+            return AmazonSNSClientBuilder.standard()
+                    .withEndpointConfiguration(new EndpointConfiguration(endpoint, US_EAST_1.getName())).build();
+        }
         return AmazonSNSClientBuilder.standard()
                 .withRegion(US_EAST_1).build();
     }
@@ -289,6 +309,76 @@ public class SpringConfig {
         return Executors.newFixedThreadPool(bridgeConfig.getPropertyAsInt("async.worker.thread.count"));
     }
 
+    @Bean(name = "uploadValidationExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ThreadPoolExecutor uploadValidationExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded, so that a burst of uploads is rejected (and retried by the caller) rather than queued in memory.
+        int threadCount = bridgeConfig.getPropertyAsInt("upload.validation.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("upload.validation.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = "scheduledActivityQueryExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ExecutorService scheduledActivityQueryExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded; queries that cannot be queued run on the request thread that is waiting for them.
+        int threadCount = bridgeConfig.getPropertyAsInt("scheduled.activity.query.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("scheduled.activity.query.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Bean(name = "sessionAssemblyExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ExecutorService sessionAssemblyExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded; work that cannot be queued runs on the sign-in request thread that is waiting for it.
+        int threadCount = bridgeConfig.getPropertyAsInt("session.assembly.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("session.assembly.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Bean(name = "passwordHashExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ThreadPoolExecutor passwordHashExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded, so that a burst of sign ins is rejected rather than tying up request threads on hashing.
+        int threadCount = bridgeConfig.getPropertyAsInt("password.hash.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("password.hash.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = "pushNotificationExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ThreadPoolExecutor pushNotificationExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded, so that a large send fails the registrations it cannot queue rather than growing without limit.
+        int threadCount = bridgeConfig.getPropertyAsInt("push.notification.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("push.notification.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = "participantFileExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ThreadPoolExecutor participantFileExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded; lookups that cannot be queued are made on the request thread instead.
+        int threadCount = bridgeConfig.getPropertyAsInt("participant-file.size.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("participant-file.size.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(name = "adherenceReportExecutorService")
+    @Resource(name = "bridgeConfig")
+    public ThreadPoolExecutor adherenceReportExecutorService(BridgeConfig bridgeConfig) {
+        // Bounded; reports that cannot be queued are calculated on the worker's request thread instead.
+        int threadCount = bridgeConfig.getPropertyAsInt("adherence.report.thread.count");
+        int queueSize = bridgeConfig.getPropertyAsInt("adherence.report.queue.size");
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     @Bean(name = "supportEmail")
     @Resource(name = "bridgeConfig")
     public String supportEmail(BridgeConfig bridgeConfig) {
@@ -562,13 +652,19 @@ public class SpringConfig {
     @Bean(name = "uploadValidationHandlerList")
     @Autowired
     public List<UploadValidationHandler> uploadValidationHandlerList(S3DownloadHandler s3DownloadHandler,
-            DecryptHandler decryptHandler, UnzipHandler unzipHandler,
+            DecryptHandler decryptHandler, UnzipHandler unzipHandler, StreamingUnzipHandler streamingUnzipHandler,
             InitRecordHandler initRecordHandler, UploadFormatHandler uploadFormatHandler,
             StrictValidationHandler strictValidationHandler, TranscribeConsentHandler transcribeConsentHandler,
             UploadRawZipHandler uploadRawZipHandler, UploadArtifactsHandler uploadArtifactsHandler) {
-        return ImmutableList.of(s3DownloadHandler, decryptHandler, unzipHandler,
-                initRecordHandler, uploadFormatHandler, strictValidationHandler, transcribeConsentHandler,
-                uploadRawZipHandler, uploadArtifactsHandler);
+        ImmutableList.Builder<UploadValidationHandler> builder = ImmutableList.builder();
+        if (Boolean.valueOf(bridgeConfig().get("upload.validation.streaming.enabled"))) {
+            // Download, decrypt, and unzip in one pass, without writing the upload to disk.
+            builder.add(streamingUnzipHandler);
+        } else {
+            builder.add(s3DownloadHandler, decryptHandler, unzipHandler);
+        }
+        return builder.add(initRecordHandler, uploadFormatHandler, strictValidationHandler, transcribeConsentHandler,
+                uploadRawZipHandler, uploadArtifactsHandler).build();
     }
 
     @Bean(name = "uploadSchemaDdbMapper")
@@ -584,8 +680,8 @@ public class SpringConfig {
     }
 
     @Bean
-    public FileHelper fileHelper() {
-        return new FileHelper();
+    public SpillingFileHelper fileHelper() {
+        return new SpillingFileHelper(bridgeConfig().getPropertyAsInt("upload.validation.in.memory.max.bytes"));
     }
     
     private String databaseURL() {
@@ -1,14 +1,17 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import org.sagebionetworks.bridge.models.accounts.ExternalIdentifierInfo;
+import org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm;
 
 /**
  * DAO to retrieve personally identifiable account information, including authentication 
@@ -38,12 +41,26 @@ public interface AccountDao {
      */
     void updateAccount(Account account);
     
+    /**
+     * Replace the password hash of an account, but only if the stored algorithm and hash are still the expected 
+     * ones. This does not change the account's version, so it does not conflict with an update to an account loaded 
+     * before the hash was replaced. Returns true if the hash was replaced.
+     */
+    boolean updatePasswordHash(String userId, PasswordAlgorithm expectedAlgorithm, String expectedHash,
+            PasswordAlgorithm algorithm, String hash);
+    
     /**
      * Get an account in the context of an app by the user's ID, email address, health code,
      * phone number, or Synapse user ID. 
      */
     Optional<Account> getAccount(AccountId accountId);
     
+    /**
+     * Get the accounts with these user IDs in an app, with one query. User IDs that do not match an 
+     * account in the app are ignored.
+     */
+    List<Account> getAccounts(String appId, Collection<String> userIds);
+    
     /**
      * Delete an account along with the authentication credentials.
      */
@@ -59,6 +76,22 @@ public interface AccountDao {
      */
     PagedResourceList<AccountSummary> getPagedAccountSummaries(String appId, AccountSummarySearch search);
     
+    /**
+     * Get a page of lightweight account summaries, ordered by creation time, starting after the account identified 
+     * by the offset key. Unlike offset paging, the cost of retrieving a page does not grow with its depth. The 
+     * offsetBy value of the search is ignored.
+     * @param appId
+     *      retrieve participants in this app
+     * @param search
+     *      the parameters to filter the search of user account summaries, and the page size.
+     * @param offsetKey
+     *      the nextPageOffsetKey of the prior page, or null to retrieve the first page
+     * @param includeTotal
+     *      if true, also count the total number of matching accounts (an additional, expensive query).
+     */
+    ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByCursor(String appId,
+            AccountSummarySearch search, String offsetKey, boolean includeTotal);
+    
     /**
      * Get a page of external IDs associated to the indicated study. These are really accounts, but 
      * older APIs continue to view these as paged external ID records.  
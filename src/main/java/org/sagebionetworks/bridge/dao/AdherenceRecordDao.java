@@ -1,5 +1,9 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordsSearch;
@@ -9,6 +13,13 @@ public interface AdherenceRecordDao {
     void updateAdherenceRecord(AdherenceRecord record);
     
     PagedResourceList<AdherenceRecord> getAdherenceRecords(AdherenceRecordsSearch search);
+    
+    /**
+     * Get all the session adherence records of a batch of participants in a study with one 
+     * query, mapped by user ID. Unlike a search, these records are not limited to each 
+     * participant’s current event timestamps; the caller must filter them.
+     */
+    Map<String, List<AdherenceRecord>> getSessionAdherenceRecords(String studyId, Collection<String> userIds);
 
     void deleteAdherenceRecordPermanently(AdherenceRecord record);
 
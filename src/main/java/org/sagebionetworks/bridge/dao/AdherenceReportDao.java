@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatistics;
@@ -9,6 +11,14 @@ public interface AdherenceReportDao {
 
     void saveWeeklyAdherenceReport(WeeklyAdherenceReport report);
     
+    /**
+     * Save a batch of weekly adherence reports, replacing any existing reports (and their 
+     * searchable labels and rows) for the same participants.
+     */
+    void saveWeeklyAdherenceReports(List<WeeklyAdherenceReport> reports);
+    
+    WeeklyAdherenceReport getWeeklyAdherenceReport(String appId, String studyId, String userId);
+    
     PagedResourceList<WeeklyAdherenceReport> getWeeklyAdherenceReports(String appId, String studyId,
             AdherenceReportSearch search);
     
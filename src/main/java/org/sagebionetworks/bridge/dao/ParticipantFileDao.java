@@ -45,6 +45,13 @@ public interface ParticipantFileDao {
      */
     void deleteParticipantFile(String userId, String fileId);
 
+    /**
+     * Internal API to record the size of a file's uploaded object. Only the size is written, and only if the file
+     * has not been replaced since it was read (its createdOn is unchanged); otherwise this throws a
+     * ConcurrentModificationException.
+     */
+    void updateParticipantFileSize(ParticipantFile file);
+
     /** Internal API to delete a list of files. */
     void batchDeleteParticipantFiles(List<ParticipantFile> fileIdList);
 }
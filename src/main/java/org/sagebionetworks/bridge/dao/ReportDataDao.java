@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
@@ -38,6 +40,15 @@ public interface ReportDataDao {
      */
     void saveReportData(ReportData reportData);
     
+    /**
+     * Writes a list of report data records to the backing store in batches. The records should not 
+     * include more than one record for the same report and date.
+     *
+     * @param reportData
+     *         report data objects
+     */
+    void saveReportDataBatch(List<ReportData> reportData);
+    
     /***
      * Delete all records regardless of date for a report. This can be used as part of testing, 
      * and in development, but there will be too many records in production to do a deletion.
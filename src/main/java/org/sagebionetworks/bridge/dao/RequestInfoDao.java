@@ -1,5 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.List;
+
 import org.sagebionetworks.bridge.models.RequestInfo;
 
 public interface RequestInfoDao {
@@ -11,6 +13,12 @@ public interface RequestInfoDao {
      */    
     public void updateRequestInfo(RequestInfo requestInfo);
     
+    /**
+     * Merge a batch of request info objects into the persisted records, with the same semantics as 
+     * updateRequestInfo (fields that are null in an object do not change the persisted value).
+     */
+    public void updateRequestInfos(List<RequestInfo> requestInfos);
+    
     public RequestInfo getRequestInfo(String userId);
     
     public void removeRequestInfo(String userId);
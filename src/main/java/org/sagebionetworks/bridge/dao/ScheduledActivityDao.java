@@ -1,6 +1,7 @@
 package org.sagebionetworks.bridge.dao;
 
 import java.util.List;
+import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -17,6 +18,13 @@ public interface ScheduledActivityDao {
     ForwardCursorPagedResourceList<ScheduledActivity> getActivityHistoryV2(String healthCode, String activityGuid,
             DateTime scheduledOnStart, DateTime scheduledOnEnd, String offsetKey, int pageSize);
     
+    /**
+     * Get the first page of historical scheduled activities for each of the activity GUIDs, as one list. The 
+     * queries for the different GUIDs are run in parallel.
+     */
+    List<ScheduledActivity> getActivityHistoriesV2(String healthCode, Set<String> activityGuids,
+            DateTime scheduledOnStart, DateTime scheduledOnEnd, int pageSize);
+    
     /**
      * Get paged results of historical scheduled activities by a GUID constructed from the task, compound
      * activity or survey that is referred to by the scheduled activity.
@@ -1,6 +1,8 @@
 package org.sagebionetworks.bridge.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
@@ -36,6 +38,14 @@ public interface StudyActivityEventDao {
      */
     List<StudyActivityEvent> getRecentStudyActivityEvents(String userId, String studyId);
     
+    /**
+     * Get the recent events of a batch of participants in this study with one query, mapped 
+     * by user ID. The events for each participant are the same as those returned by 
+     * {@link #getRecentStudyActivityEvents(String, String)}; participants with no events 
+     * recorded in the study have no entry in the map. The lists in the map are mutable.
+     */
+    Map<String, List<StudyActivityEvent>> getRecentStudyActivityEvents(Collection<String> userIds, String studyId);
+    
     /**
      * Get all timestamps (in a paginated API) for a specific event ID. Note that 
      * for immutable events there should only ever be one timestamp. Returns an 
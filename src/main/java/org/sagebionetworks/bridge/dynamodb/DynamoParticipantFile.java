@@ -23,6 +23,7 @@ public class DynamoParticipantFile implements ParticipantFile {
     private String uploadUrl;
     private String downloadUrl;
     private DateTime expiresOn;
+    private Long fileSize;
 
     public DynamoParticipantFile() {
     }
@@ -123,6 +124,21 @@ public class DynamoParticipantFile implements ParticipantFile {
         this.appId = appId;
     }
 
+    /**
+     * The size of the uploaded object in bytes. Null for files that were uploaded before sizes
+     * were recorded, or whose size has not yet been looked up.
+     */
+    @Override
+    @DynamoDBAttribute(attributeName = "fileSize")
+    public Long getFileSize() {
+        return this.fileSize;
+    }
+
+    @Override
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
     @Override
     @DynamoDBIgnore
     @JsonSerialize(using = DateTimeSerializer.class)
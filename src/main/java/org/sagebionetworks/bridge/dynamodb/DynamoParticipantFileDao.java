@@ -1,12 +1,19 @@
 package org.sagebionetworks.bridge.dynamodb;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.dao.ParticipantFileDao;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.files.ParticipantFile;
@@ -27,6 +34,11 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @Component
 public class DynamoParticipantFileDao implements ParticipantFileDao {
+    // Only the non-null attributes of the object are written, as an UpdateItem.
+    static final DynamoDBMapperConfig UPDATE_SKIP_NULL_ATTRIBUTES_CONFIG = DynamoDBMapperConfig.builder()
+            .withSaveBehavior(SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES).build();
+    private static final DateTimeMarshaller DATE_TIME_MARSHALLER = new DateTimeMarshaller();
+
     private DynamoDBMapper mapper;
 
     @Resource(name = "participantFileDdbMapper")
@@ -114,6 +126,33 @@ public class DynamoParticipantFileDao implements ParticipantFileDao {
         }
     }
 
+    @Override
+    public void updateParticipantFileSize(ParticipantFile file) {
+        checkNotNull(file);
+        checkArgument(isNotBlank(file.getUserId()));
+        checkArgument(isNotBlank(file.getFileId()));
+        checkNotNull(file.getFileSize());
+
+        DynamoParticipantFile update = new DynamoParticipantFile(file.getUserId(), file.getFileId());
+        update.setFileSize(file.getFileSize());
+
+        // The file must still exist, and must not have been re-uploaded (which sets a new createdOn) since it was
+        // read. Files created before createdOn was recorded do not have one.
+        ExpectedAttributeValue createdOnExpected = (file.getCreatedOn() == null)
+                ? new ExpectedAttributeValue().withComparisonOperator(ComparisonOperator.NULL)
+                : new ExpectedAttributeValue().withComparisonOperator(ComparisonOperator.EQ)
+                        .withAttributeValueList(new AttributeValue(DATE_TIME_MARSHALLER.convert(file.getCreatedOn())));
+        DynamoDBSaveExpression saveExpression = new DynamoDBSaveExpression()
+                .withExpectedEntry("fileId", new ExpectedAttributeValue()
+                        .withComparisonOperator(ComparisonOperator.NOT_NULL))
+                .withExpectedEntry("createdOn", createdOnExpected);
+        try {
+            mapper.save(update, saveExpression, UPDATE_SKIP_NULL_ATTRIBUTES_CONFIG);
+        } catch (ConditionalCheckFailedException e) {
+            throw new ConcurrentModificationException("Participant file has changed since it was read.");
+        }
+    }
+
     @Override
     public void batchDeleteParticipantFiles(List<ParticipantFile> fileList) {
         checkNotNull(fileList);
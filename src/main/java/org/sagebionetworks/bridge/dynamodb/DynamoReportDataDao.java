@@ -135,6 +135,23 @@ public class DynamoReportDataDao implements ReportDataDao {
         }
         mapper.save(reportData);
     }
+    
+    @Override
+    public void saveReportDataBatch(List<ReportData> reportData) {
+        checkNotNull(reportData);
+        
+        for (ReportData oneReport : reportData) {
+            DateTime dateTime = oneReport.getDateTime();
+            if (dateTime != null) {
+                oneReport.setDateTime(dateTime.withZone(DateTimeZone.UTC));
+            }
+        }
+        if (!reportData.isEmpty()) {
+            // The mapper writes these with BatchWriteItem, 25 records at a time, retrying unprocessed items
+            List<FailedBatch> failures = mapper.batchSave(reportData);
+            BridgeUtils.ifFailuresThrowException(failures);
+        }
+    }
 
     @Override
     public void deleteReportData(ReportDataKey key) {
@@ -89,6 +89,7 @@ public final class DynamoScheduledActivity implements ScheduledActivity, BridgeE
     @DynamoDBAttribute
     @DynamoDBTypeConverted(converter = LocalDateTimeMarshaller.class)
     @JsonIgnore
+    @Override
     public LocalDateTime getLocalScheduledOn() {
         return localScheduledOn;
     }
@@ -105,6 +106,7 @@ public final class DynamoScheduledActivity implements ScheduledActivity, BridgeE
     @DynamoDBAttribute
     @DynamoDBTypeConverted(converter = LocalDateTimeMarshaller.class)
     @JsonIgnore
+    @Override
     public LocalDateTime getLocalExpiresOn() {
         return localExpiresOn;
     }
@@ -9,6 +9,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.Resource;
 
@@ -16,6 +21,7 @@ import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
@@ -57,6 +63,8 @@ public class DynamoScheduledActivityDao implements ScheduledActivityDao {
     
     private DynamoIndexHelper referentIndex;
     
+    private ExecutorService queryExecutorService;
+    
     @Resource(name = "activityDdbMapper")
     final void setDdbMapper(DynamoDBMapper mapper) {
         this.mapper = mapper;
@@ -67,6 +75,11 @@ public class DynamoScheduledActivityDao implements ScheduledActivityDao {
         this.referentIndex = index;
     }
     
+    @Resource(name = "scheduledActivityQueryExecutorService")
+    final void setQueryExecutorService(ExecutorService queryExecutorService) {
+        this.queryExecutorService = queryExecutorService;
+    }
+    
     @Override
     public ForwardCursorPagedResourceList<ScheduledActivity> getActivityHistoryV2(String healthCode,
             String activityGuid, DateTime scheduledOnStart, DateTime scheduledOnEnd, String offsetKey, int pageSize) {
@@ -124,6 +137,43 @@ public class DynamoScheduledActivityDao implements ScheduledActivityDao {
                 .withRequestParam(ResourceList.SCHEDULED_ON_END, scheduledOnEnd);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public List<ScheduledActivity> getActivityHistoriesV2(String healthCode, Set<String> activityGuids,
+            DateTime scheduledOnStart, DateTime scheduledOnEnd, int pageSize) {
+        checkNotNull(activityGuids);
+        
+        if (activityGuids.isEmpty()) {
+            return ImmutableList.of();
+        }
+        // One query doesn't need to be handed off to the pool.
+        if (activityGuids.size() == 1) {
+            String activityGuid = Iterables.getOnlyElement(activityGuids);
+            return getActivityHistoryV2(healthCode, activityGuid, scheduledOnStart, scheduledOnEnd, null, pageSize)
+                    .getItems();
+        }
+        List<Callable<List<ScheduledActivity>>> tasks = new ArrayList<>();
+        for (String activityGuid : activityGuids) {
+            tasks.add(() -> getActivityHistoryV2(healthCode, activityGuid, scheduledOnStart, scheduledOnEnd, null,
+                    pageSize).getItems());
+        }
+        List<ScheduledActivity> results = new ArrayList<>();
+        try {
+            for (Future<List<ScheduledActivity>> future : queryExecutorService.invokeAll(tasks)) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        }
+        return results;
+    }
+    
     /** {@inheritDoc} */
     @Override
     public ForwardCursorPagedResourceList<ScheduledActivity> getActivityHistoryV3(final String healthCode,
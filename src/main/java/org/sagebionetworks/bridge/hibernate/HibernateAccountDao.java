@@ -19,6 +19,7 @@ import static org.sagebionetworks.bridge.models.ResourceList.IN_USE;
 import static org.sagebionetworks.bridge.models.ResourceList.LANGUAGE;
 import static org.sagebionetworks.bridge.models.ResourceList.NONE_OF_GROUPS;
 import static org.sagebionetworks.bridge.models.ResourceList.OFFSET_BY;
+import static org.sagebionetworks.bridge.models.ResourceList.OFFSET_KEY;
 import static org.sagebionetworks.bridge.models.ResourceList.ORG_MEMBERSHIP;
 import static org.sagebionetworks.bridge.models.ResourceList.PAGE_SIZE;
 import static org.sagebionetworks.bridge.models.ResourceList.PHONE_FILTER;
@@ -28,7 +29,10 @@ import static org.sagebionetworks.bridge.models.ResourceList.STATUS;
 import static org.sagebionetworks.bridge.models.ResourceList.STRING_SEARCH_POSITION;
 import static org.sagebionetworks.bridge.models.SearchTermPredicate.AND;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -42,20 +46,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.BridgeUtils.StudyAssociations;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.dao.AccountDao;
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.hibernate.QueryBuilder.WhereClauseBuilder;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.SearchTermPredicate;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import org.sagebionetworks.bridge.models.accounts.ExternalIdentifierInfo;
+import org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm;
 
 /** Hibernate implementation of Account Dao. */
 @Component
@@ -66,13 +75,22 @@ public class HibernateAccountDao implements AccountDao {
     static final String FULL_QUERY = "SELECT acct FROM HibernateAccount AS acct";
     static final String COUNT_QUERY = "SELECT COUNT(DISTINCT acct.id) FROM HibernateAccount AS acct";
     static final String DELETE_ALL_ACCOUNTS_QUERY = "DELETE FROM Accounts WHERE studyId = :appId";
+    static final String ACCOUNTS_BY_ID_QUERY = "SELECT acct FROM HibernateAccount AS acct WHERE acct.appId = :appId AND acct.id IN (:userIds)";
     static final String APP_IDS_FOR_USER_QUERY = "SELECT DISTINCT acct.appId FROM HibernateAccount AS acct WHERE synapseUserId = :synapseUserId";
+    // An HQL bulk update does not increment the version.
+    static final String UPDATE_PASSWORD_HASH_QUERY = "UPDATE HibernateAccount SET passwordAlgorithm = :algorithm, "
+            + "passwordHash = :hash WHERE id = :userId AND passwordAlgorithm = :expectedAlgorithm AND "
+            + "passwordHash = :expectedHash";
     
     static final String EXTID_BASE_QUERY = "from HibernateEnrollment as en "
             + "WHERE en.appId = :appId AND en.studyId = :studyId "
             + "AND en.externalId IS NOT NULL";
     static final String EXTID_FILTER_QUERY = "AND en.externalId LIKE :idFilter";
     static final String EXTID_ORDER_QUERY = "ORDER BY en.externalId";
+    static final String CURSOR_ORDER_QUERY = "ORDER BY acct.createdOn, acct.id";
+    static final String CURSOR_QUERY = "(acct.createdOn > :cursorCreatedOn OR "
+            + "(acct.createdOn = :cursorCreatedOn AND acct.id > :cursorId))";
+    static final String INVALID_OFFSET_KEY_MSG = "Invalid offsetKey: ";
     
     private HibernateHelper hibernateHelper;
 
@@ -109,6 +127,15 @@ public class HibernateAccountDao implements AccountDao {
         hibernateHelper.update(account);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean updatePasswordHash(String userId, PasswordAlgorithm expectedAlgorithm, String expectedHash,
+            PasswordAlgorithm algorithm, String hash) {
+        Map<String, Object> parameters = ImmutableMap.of("userId", userId, "expectedAlgorithm", expectedAlgorithm,
+                "expectedHash", expectedHash, "algorithm", algorithm, "hash", hash);
+        return hibernateHelper.queryUpdate(UPDATE_PASSWORD_HASH_QUERY, parameters) > 0;
+    }
+    
     /** {@inheritDoc} */
     @Override
     public Optional<Account> getAccount(AccountId accountId) {
@@ -141,7 +168,37 @@ public class HibernateAccountDao implements AccountDao {
         return Optional.of(account);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public List<Account> getAccounts(String appId, Collection<String> userIds) {
+        checkNotNull(appId);
+        checkNotNull(userIds);
+        
+        if (userIds.isEmpty()) {
+            return ImmutableList.of();
+        }
+        QueryBuilder builder = new QueryBuilder();
+        builder.append(ACCOUNTS_BY_ID_QUERY, "appId", appId, "userIds", userIds);
+        List<HibernateAccount> accountList = hibernateHelper.queryGet(builder.getQuery(), builder.getParameters(),
+                null, null, HibernateAccount.class);
+        
+        List<Account> accounts = new ArrayList<>(accountList.size());
+        for (HibernateAccount account : accountList) {
+            if (validateHealthCode(account)) {
+                Account updated = hibernateHelper.update(account);
+                account.setVersion(updated.getVersion());
+            }
+            accounts.add(account);
+        }
+        return accounts;
+    }
+    
     QueryBuilder makeQuery(String prefix, String appId, AccountId accountId, AccountSummarySearch search, boolean isCount) {
+        return makeQuery(prefix, appId, accountId, search, isCount, null, null);
+    }
+    
+    QueryBuilder makeQuery(String prefix, String appId, AccountId accountId, AccountSummarySearch search,
+            boolean isCount, DateTime cursorCreatedOn, String cursorId) {
         RequestContext context = RequestContext.get();
         Set<String> callerStudies = context.getOrgSponsoredStudies();
         
@@ -208,6 +265,8 @@ public class HibernateAccountDao implements AccountDao {
                 }
             }
         }
+        // Keyset paging: accounts after the last account of the prior page, in (createdOn, id) order.
+        where.appendRequired(CURSOR_QUERY, "cursorCreatedOn", cursorCreatedOn, "cursorId", cursorId);
         if (!isCount) {
             builder.append("GROUP BY acct.id");
         }
@@ -243,14 +302,71 @@ public class HibernateAccountDao implements AccountDao {
         int count = hibernateHelper.queryCount(builder.getQuery(), builder.getParameters());
         
         // Package results and return.
-        return new PagedResourceList<>(accountSummaryList, count)
-                .withRequestParam(ADMIN_ONLY, search.isAdminOnly())
+        PagedResourceList<AccountSummary> page = new PagedResourceList<>(accountSummaryList, count)
+                .withRequestParam(OFFSET_BY, search.getOffsetBy());
+        addSearchRequestParams(page, search);
+        return page;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByCursor(String appId,
+            AccountSummarySearch search, String offsetKey, boolean includeTotal) {
+        DateTime cursorCreatedOn = null;
+        String cursorId = null;
+        if (offsetKey != null) {
+            // The offset key is "[createdOn millis]:[account ID]" of the last account on the prior page.
+            String[] parts = offsetKey.split(":", 2);
+            try {
+                cursorCreatedOn = new DateTime(Long.parseLong(parts[0]));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException(INVALID_OFFSET_KEY_MSG + offsetKey);
+            }
+            if (parts.length < 2 || isBlank(parts[1])) {
+                throw new BadRequestException(INVALID_OFFSET_KEY_MSG + offsetKey);
+            }
+            cursorId = parts[1];
+        }
+        QueryBuilder builder = makeQuery(ID_QUERY, appId, null, search, false, cursorCreatedOn, cursorId);
+        builder.append(CURSOR_ORDER_QUERY);
+        
+        // Retrieve one more record than the page size to determine if there is another page.
+        int pageSize = search.getPageSize();
+        List<String> ids = hibernateHelper.queryGet(builder.getQuery(), builder.getParameters(), null,
+                pageSize + 1, String.class);
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+        List<HibernateAccount> accounts = ids.stream()
+                .map(id -> hibernateHelper.getById(HibernateAccount.class, id))
+                .collect(Collectors.toList());
+        List<AccountSummary> accountSummaryList = accounts.stream()
+                .map(this::unmarshallAccountSummary)
+                .collect(Collectors.toList());
+        
+        String nextPageOffsetKey = null;
+        if (hasNext) {
+            HibernateAccount last = accounts.get(accounts.size() - 1);
+            nextPageOffsetKey = last.getCreatedOn().getMillis() + ":" + last.getId();
+        }
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                accountSummaryList, nextPageOffsetKey, true).withRequestParam(OFFSET_KEY, offsetKey);
+        if (includeTotal) {
+            builder = makeQuery(COUNT_QUERY, appId, null, search, true);
+            page.withTotal(hibernateHelper.queryCount(builder.getQuery(), builder.getParameters()));
+        }
+        addSearchRequestParams(page, search);
+        return page;
+    }
+    
+    private void addSearchRequestParams(ResourceList<AccountSummary> page, AccountSummarySearch search) {
+        page.withRequestParam(ADMIN_ONLY, search.isAdminOnly())
                 .withRequestParam(ALL_OF_GROUPS, search.getAllOfGroups())
                 .withRequestParam(EMAIL_FILTER, search.getEmailFilter())
                 .withRequestParam(END_TIME, search.getEndTime())
                 .withRequestParam(LANGUAGE, search.getLanguage())
                 .withRequestParam(NONE_OF_GROUPS, search.getNoneOfGroups())
-                .withRequestParam(OFFSET_BY, search.getOffsetBy())
                 .withRequestParam(ORG_MEMBERSHIP, search.getOrgMembership())
                 .withRequestParam(PAGE_SIZE, search.getPageSize())
                 .withRequestParam(PHONE_FILTER, search.getPhoneFilter())
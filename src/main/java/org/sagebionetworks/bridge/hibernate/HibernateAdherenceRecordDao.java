@@ -2,12 +2,18 @@ package org.sagebionetworks.bridge.hibernate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Boolean.FALSE;
+import static java.util.stream.Collectors.groupingBy;
 import static org.sagebionetworks.bridge.models.SearchTermPredicate.AND;
+import static org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordType.SESSION;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Resource;
 
+import com.google.common.collect.ImmutableMap;
+
 import org.joda.time.DateTime;
 import org.springframework.stereotype.Component;
 
@@ -102,6 +108,27 @@ public class HibernateAdherenceRecordDao implements AdherenceRecordDao {
         return new PagedResourceList<>(records, total, true);
     }
 
+    @Override
+    public Map<String, List<AdherenceRecord>> getSessionAdherenceRecords(String studyId, Collection<String> userIds) {
+        checkNotNull(studyId);
+        checkNotNull(userIds);
+        
+        if (userIds.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        QueryBuilder builder = new QueryBuilder();
+        builder.append(BASE_QUERY);
+        WhereClauseBuilder where = builder.startWhere(AND);
+        where.appendRequired("ar.userId IN (:userIds)", "userIds", userIds);
+        where.appendRequired("ar.studyId = :studyId", "studyId", studyId);
+        where.adherenceRecordType(SESSION);
+        builder.append("ORDER BY ar.startedOn ASC");
+        
+        List<AdherenceRecord> records = hibernateHelper.nativeQueryGet("SELECT * " + builder.getQuery(),
+                builder.getParameters(), null, null, AdherenceRecord.class);
+        return records.stream().collect(groupingBy(AdherenceRecord::getUserId));
+    }
+
     protected QueryBuilder createQuery(AdherenceRecordsSearch search) {
         QueryBuilder builder = new QueryBuilder();
 
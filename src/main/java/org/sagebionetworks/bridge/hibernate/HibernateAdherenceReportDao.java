@@ -4,52 +4,46 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sagebionetworks.bridge.BridgeUtils.OR_JOINER;
 import static org.sagebionetworks.bridge.models.SearchTermPredicate.AND;
 
-import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
-import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.hibernate.query.NativeQuery;
-import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.jdbc.Work;
 import org.sagebionetworks.bridge.dao.AdherenceReportDao;
-import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.hibernate.QueryBuilder.WhereClauseBuilder;
-import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.AccountTestFilter;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.accounts.AccountRef;
+import org.sagebionetworks.bridge.models.accounts.Phone;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatistics;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatisticsEntry;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportId;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportRow;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
 
 @Component
 public class HibernateAdherenceReportDao implements AdherenceReportDao {
     
-    private static final TypeReference<List<WeeklyAdherenceReportRow>> ROWS_LIST = new TypeReference<List<WeeklyAdherenceReportRow>>() {};
+    // The row metadata is the same for every participant with a given searchableLabel (the label is derived 
+    // from it), so MIN() just selects that value without requiring ONLY_FULL_GROUP_BY to be disabled.
+    static final String STATISTICS_SQL = "SELECT searchableLabel, MIN(label), MIN(sessionName), MIN(weekInStudy), "
+            +"MIN(studyBurstId), MIN(studyBurstNum), COUNT(*) FROM WeeklyAdherenceReportRows WHERE appId = :appId "
+            +"AND studyId = :studyId GROUP BY searchableLabel";
     
-    // For this to work, the default ONLY_FULL_GROUP_BY sql_mode flag must be removed from MySQL. None of our environments
-    // have this value, but local installations will need to clear sql_mode flags as described in the README.md file.
-    static final String STATISTICS_SQL = "SELECT label, count(*) as total, rows FROM WeeklyAdherenceReportLabels "
-            +"labels LEFT JOIN WeeklyAdherenceReports AS reports ON labels.appId = reports.appId AND labels.studyId = "
-            +"reports.studyId and labels.userId = reports.userId WHERE reports.appId = :appId AND reports.studyId = :studyId "
-            +"GROUP BY label";
-    
-    static final String ALL_ACTIVE_SQL = "SELECT count(distinct userId) AS count FROM BridgeDB.WeeklyAdherenceReports WHERE "
-            +"appId = :appId AND studyId = :studyId AND weeklyAdherencePercent IS NOT NULL";
-    
-    static final String UNDER_THRESHOLD_SQL = "SELECT count(distinct userId) AS count FROM BridgeDB.WeeklyAdherenceReports WHERE "
-            +"appId = :appId AND studyId = :studyId AND weeklyAdherencePercent < :threshold";
+    // The primary key of a report includes the userId, so there is one report per participant to count
+    static final String COUNTS_SQL = "SELECT COUNT(weeklyAdherencePercent), COUNT(IF(weeklyAdherencePercent < "
+            +":threshold, 1, NULL)) FROM WeeklyAdherenceReports WHERE appId = :appId AND studyId = :studyId";
 
     static final Comparator<String> STRING_COMPARATOR = Comparator.nullsLast((r1, r2) -> r1.compareToIgnoreCase(r2));
     
@@ -68,24 +62,232 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
     static final String STUDY_ID_FIELD = "studyId";
     static final String APP_ID_FIELD = "appId";
     
-    private HibernateHelper hibernateHelper;
+    static final String UPSERT_REPORT_SQL = "INSERT INTO WeeklyAdherenceReports (appId, studyId, userId, "
+            +"testAccount, progression, clientTimeZone, createdOn, weeklyAdherencePercent, weekInStudy, startDate, "
+            +"nextActivity, byDayEntries, `rows`, identifier, firstName, lastName, email, orgMembership, phone, "
+            +"phoneRegion, synapseUserId, externalId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, "
+            +"?, ?, ?, ?) ON DUPLICATE KEY UPDATE testAccount = VALUES(testAccount), progression = VALUES(progression), "
+            +"clientTimeZone = VALUES(clientTimeZone), createdOn = VALUES(createdOn), weeklyAdherencePercent = "
+            +"VALUES(weeklyAdherencePercent), weekInStudy = VALUES(weekInStudy), startDate = VALUES(startDate), "
+            +"nextActivity = VALUES(nextActivity), byDayEntries = VALUES(byDayEntries), `rows` = VALUES(`rows`), "
+            +"identifier = VALUES(identifier), firstName = VALUES(firstName), lastName = VALUES(lastName), "
+            +"email = VALUES(email), orgMembership = VALUES(orgMembership), phone = VALUES(phone), "
+            +"phoneRegion = VALUES(phoneRegion), synapseUserId = VALUES(synapseUserId), externalId = VALUES(externalId)";
+    static final String DELETE_LABELS_SQL = "DELETE FROM WeeklyAdherenceReportLabels WHERE appId = ? AND "
+            +"studyId = ? AND userId = ?";
+    static final String INSERT_LABEL_SQL = "INSERT INTO WeeklyAdherenceReportLabels (appId, studyId, userId, label) "
+            +"VALUES (?, ?, ?, ?)";
+    static final String DELETE_ROWS_SQL = "DELETE FROM WeeklyAdherenceReportRows WHERE appId = ? AND "
+            +"studyId = ? AND userId = ?";
+    static final String INSERT_ROW_SQL = "INSERT INTO WeeklyAdherenceReportRows (appId, studyId, userId, "
+            +"searchableLabel, label, sessionName, weekInStudy, studyBurstId, studyBurstNum) VALUES (?, ?, ?, ?, ?, "
+            +"?, ?, ?, ?)";
+    // See HibernateSchedule2Dao: values above 100 do not measurably improve batch performance.
+    static final int BATCH_SIZE = 100;
+    
+    private static final NextActivityConverter NEXT_ACTIVITY_CONVERTER = new NextActivityConverter();
+    private static final EventStreamDayMapConverter BY_DAY_ENTRIES_CONVERTER = new EventStreamDayMapConverter();
+    private static final WeeklyAdherenceReportRowListConverter ROWS_CONVERTER = new WeeklyAdherenceReportRowListConverter();
+    private static final LocalDateToStringConverter LOCAL_DATE_CONVERTER = new LocalDateToStringConverter();
     
-    private SessionFactory sessionFactory;
+    private HibernateHelper hibernateHelper;
 
     @Resource(name = "mysqlHibernateHelper")
     final void setHibernateHelper(HibernateHelper hibernateHelper) {
         this.hibernateHelper = hibernateHelper;
     }
-    
-    @Autowired
-    final void setSessionFactory(SessionFactory sessionFactory) {
-        this.sessionFactory = sessionFactory;
-    }
 
+    /**
+     * The rows of the report are also written to the WeeklyAdherenceReportRows table (one record per 
+     * searchableLabel) in the same transaction, so that adherence statistics can be aggregated in 
+     * the database without parsing the rows JSON of every report.
+     */
     @Override
     public void saveWeeklyAdherenceReport(WeeklyAdherenceReport report) {
         checkNotNull(report);
-        hibernateHelper.saveOrUpdate(report);
+        
+        hibernateHelper.executeWithExceptionHandling(report, (session) -> {
+            session.saveOrUpdate(report);
+            session.doWork(persistRowsInBatches(ImmutableList.of(report)));
+            return report;
+        });
+    }
+
+    /**
+     * Saving each report through Hibernate selects the report and its labels before updating them, 
+     * which is several round trips per participant when reports are calculated for a whole study. 
+     * Here the reports are upserted and their labels replaced with JDBC batches in one transaction 
+     * (the MySQL connector string must include rewriteBatchedStatements=true for the batches to be 
+     * sent as multi-row statements).
+     */
+    @Override
+    public void saveWeeklyAdherenceReports(List<WeeklyAdherenceReport> reports) {
+        checkNotNull(reports);
+        
+        if (reports.isEmpty()) {
+            return;
+        }
+        hibernateHelper.executeWithExceptionHandling(null, (session) -> {
+            session.doWork(persistReportsInBatches(reports));
+            session.doWork(persistRowsInBatches(reports));
+            return null;
+        });
+    }
+    
+    protected Work persistReportsInBatches(List<WeeklyAdherenceReport> reports) {
+        return (connection) -> {
+            try (PreparedStatement reportPs = connection.prepareStatement(UPSERT_REPORT_SQL);
+                    PreparedStatement deletePs = connection.prepareStatement(DELETE_LABELS_SQL);
+                    PreparedStatement labelPs = connection.prepareStatement(INSERT_LABEL_SQL)) {
+                
+                for (int i = 0, len = reports.size(); i < len; i++) {
+                    WeeklyAdherenceReport report = reports.get(i);
+                    updateReportStatement(reportPs, report);
+                    
+                    deletePs.setString(1, report.getAppId());
+                    deletePs.setString(2, report.getStudyId());
+                    deletePs.setString(3, report.getUserId());
+                    deletePs.addBatch();
+                    
+                    if (i > 0 && (i % BATCH_SIZE) == 0) {
+                        reportPs.executeBatch();
+                        deletePs.executeBatch();
+                    }
+                }
+                reportPs.executeBatch();
+                deletePs.executeBatch();
+                
+                // Labels are inserted after all the old labels have been deleted
+                int count = 0;
+                for (WeeklyAdherenceReport report : reports) {
+                    if (report.getSearchableLabels() == null) {
+                        continue;
+                    }
+                    for (String label : report.getSearchableLabels()) {
+                        labelPs.setString(1, report.getAppId());
+                        labelPs.setString(2, report.getStudyId());
+                        labelPs.setString(3, report.getUserId());
+                        labelPs.setString(4, label);
+                        labelPs.addBatch();
+                        if (++count % BATCH_SIZE == 0) {
+                            labelPs.executeBatch();
+                        }
+                    }
+                }
+                labelPs.executeBatch();
+            }
+        };
+    }
+    
+    protected Work persistRowsInBatches(List<WeeklyAdherenceReport> reports) {
+        return (connection) -> {
+            try (PreparedStatement deletePs = connection.prepareStatement(DELETE_ROWS_SQL);
+                    PreparedStatement rowPs = connection.prepareStatement(INSERT_ROW_SQL)) {
+                
+                for (int i = 0, len = reports.size(); i < len; i++) {
+                    WeeklyAdherenceReport report = reports.get(i);
+                    deletePs.setString(1, report.getAppId());
+                    deletePs.setString(2, report.getStudyId());
+                    deletePs.setString(3, report.getUserId());
+                    deletePs.addBatch();
+                    if (i > 0 && (i % BATCH_SIZE) == 0) {
+                        deletePs.executeBatch();
+                    }
+                }
+                deletePs.executeBatch();
+                
+                int count = 0;
+                for (WeeklyAdherenceReport report : reports) {
+                    if (report.getRows() == null) {
+                        continue;
+                    }
+                    // A session triggered by two events can appear in two rows with the same searchableLabel; 
+                    // the participant is only counted once for that label.
+                    Set<String> searchableLabels = new HashSet<>();
+                    for (WeeklyAdherenceReportRow row : report.getRows()) {
+                        if (row.getSearchableLabel() == null || !searchableLabels.add(row.getSearchableLabel())) {
+                            continue;
+                        }
+                        updateRowStatement(rowPs, report, row);
+                        if (++count % BATCH_SIZE == 0) {
+                            rowPs.executeBatch();
+                        }
+                    }
+                }
+                rowPs.executeBatch();
+            }
+        };
+    }
+    
+    // For testability, removing this to a separate method
+    protected void updateRowStatement(PreparedStatement ps, WeeklyAdherenceReport report,
+            WeeklyAdherenceReportRow row) throws SQLException {
+        ps.setString(1, report.getAppId());
+        ps.setString(2, report.getStudyId());
+        ps.setString(3, report.getUserId());
+        ps.setString(4, row.getSearchableLabel());
+        ps.setString(5, row.getLabel());
+        ps.setString(6, row.getSessionName());
+        if (row.getWeekInStudy() == null) {
+            ps.setNull(7, Types.NULL);
+        } else {
+            ps.setInt(7, row.getWeekInStudy());
+        }
+        ps.setString(8, row.getStudyBurstId());
+        if (row.getStudyBurstNum() == null) {
+            ps.setNull(9, Types.NULL);
+        } else {
+            ps.setInt(9, row.getStudyBurstNum());
+        }
+        ps.addBatch();
+    }
+    
+    // For testability, removing this to a separate method
+    protected void updateReportStatement(PreparedStatement ps, WeeklyAdherenceReport report) throws SQLException {
+        ps.setString(1, report.getAppId());
+        ps.setString(2, report.getStudyId());
+        ps.setString(3, report.getUserId());
+        ps.setBoolean(4, report.isTestAccount());
+        ps.setString(5, (report.getProgression() == null) ? null : report.getProgression().name());
+        ps.setString(6, report.getClientTimeZone());
+        ps.setLong(7, report.getCreatedOn().getMillis());
+        if (report.getWeeklyAdherencePercent() == null) {
+            ps.setNull(8, Types.NULL);
+        } else {
+            ps.setInt(8, report.getWeeklyAdherencePercent());
+        }
+        if (report.getWeekInStudy() == null) {
+            ps.setNull(9, Types.NULL);
+        } else {
+            ps.setInt(9, report.getWeekInStudy());
+        }
+        ps.setString(10, LOCAL_DATE_CONVERTER.convertToDatabaseColumn(report.getStartDate()));
+        ps.setString(11, NEXT_ACTIVITY_CONVERTER.convertToDatabaseColumn(report.getNextActivity()));
+        ps.setString(12, BY_DAY_ENTRIES_CONVERTER.convertToDatabaseColumn(report.getByDayEntries()));
+        ps.setString(13, ROWS_CONVERTER.convertToDatabaseColumn(report.getRows()));
+        
+        AccountRef ref = report.getParticipant();
+        Phone phone = (ref == null) ? null : ref.getPhone();
+        ps.setString(14, (ref == null) ? null : ref.getIdentifier());
+        ps.setString(15, (ref == null) ? null : ref.getFirstName());
+        ps.setString(16, (ref == null) ? null : ref.getLastName());
+        ps.setString(17, (ref == null) ? null : ref.getEmail());
+        ps.setString(18, (ref == null) ? null : ref.getOrgMembership());
+        ps.setString(19, (phone == null) ? null : phone.getNumber());
+        ps.setString(20, (phone == null) ? null : phone.getRegionCode());
+        ps.setString(21, (ref == null) ? null : ref.getSynapseUserId());
+        ps.setString(22, (ref == null) ? null : ref.getExternalId());
+        ps.addBatch();
+    }
+
+    @Override
+    public WeeklyAdherenceReport getWeeklyAdherenceReport(String appId, String studyId, String userId) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        checkNotNull(userId);
+        
+        WeeklyAdherenceReportId id = new WeeklyAdherenceReportId(appId, studyId, userId);
+        return hibernateHelper.getById(WeeklyAdherenceReport.class, id);
     }
 
     @Override
@@ -153,30 +355,27 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
         builder.append(STATISTICS_SQL, "appId", appId, "studyId", studyId);
         List<Object[]> results = hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters());
         for (Object[] oneResult : results) {
-            String searchableLabel = (String)oneResult[0];
-            BigInteger totalActive = (BigInteger)oneResult[1];
-            String rowsJson = (String)oneResult[2];
-            WeeklyAdherenceReportRow row = findRow(rowsJson, searchableLabel);
-            
             AdherenceStatisticsEntry entry = new AdherenceStatisticsEntry();
-            entry.setLabel(row.getLabel());
-            entry.setSearchableLabel(row.getSearchableLabel());
-            entry.setSessionName(row.getSessionName());
-            entry.setWeekInStudy(row.getWeekInStudy());
-            entry.setStudyBurstId(row.getStudyBurstId());
-            entry.setStudyBurstNum(row.getStudyBurstNum());
-            entry.setTotalActive(totalActive.intValue());
+            entry.setSearchableLabel((String)oneResult[0]);
+            entry.setLabel((String)oneResult[1]);
+            entry.setSessionName((String)oneResult[2]);
+            entry.setWeekInStudy(toInteger(oneResult[3]));
+            entry.setStudyBurstId((String)oneResult[4]);
+            entry.setStudyBurstNum(toInteger(oneResult[5]));
+            entry.setTotalActive(toInteger(oneResult[6]));
             entries.add(entry);
         }
         
         builder = new QueryBuilder();
-        builder.append(ALL_ACTIVE_SQL, "appId", appId, "studyId", studyId);
-        Integer total = getCount(builder);
-
-        builder = new QueryBuilder();
-        builder.append(UNDER_THRESHOLD_SQL, "appId", appId, "studyId", studyId, "threshold", adherenceThreshold);
-        Integer noncompliant = getCount(builder);
+        builder.append(COUNTS_SQL, "appId", appId, "studyId", studyId, "threshold", adherenceThreshold);
+        List<Object[]> counts = hibernateHelper.nativeQuery(builder.getQuery(), builder.getParameters());
         
+        Integer total = null;
+        Integer noncompliant = null;
+        if (!counts.isEmpty()) {
+            total = toInteger(counts.get(0)[0]);
+            noncompliant = toInteger(counts.get(0)[1]);
+        }
         Integer compliant = (total != null && noncompliant != null) ? total - noncompliant : null;
         
         entries.sort(ENTRIES_COMPARATOR);
@@ -190,35 +389,7 @@ public class HibernateAdherenceReportDao implements AdherenceReportDao {
         return stats;
     }
     
-    private WeeklyAdherenceReportRow findRow(String rowsJson, String searchableLabel) {
-        try {
-            List<WeeklyAdherenceReportRow> rows = BridgeObjectMapper.get().readValue(rowsJson, ROWS_LIST);
-            for (WeeklyAdherenceReportRow oneRow : rows) {
-                if (oneRow.getSearchableLabel().equals(searchableLabel)) {
-                    return oneRow;
-                }
-            }
-        } catch (JsonProcessingException e) {
-            throw new BridgeServiceException(e);
-        }
-        // The row JSON is a compound value and the searchableLabel must be one of the values in the row... this is
-        // why it doesn't matter which set of rows we get, because we'll put that entry out of the list. If it’s not 
-        // there at all...something is not correct.
-        throw new BridgeServiceException("Weekly report rows do not include searchableLabel: " + searchableLabel);
-    }
-    
-    private Integer getCount(QueryBuilder builder) {
-        try (Session session = sessionFactory.openSession()) {  
-            @SuppressWarnings("unchecked")
-            NativeQuery<Integer> query = session.createNativeQuery(builder.getQuery());
-            query.addScalar("count", StandardBasicTypes.INTEGER);
-            for (Map.Entry<String, Object> entry : builder.getParameters().entrySet()) {
-                query.setParameter(entry.getKey(), entry.getValue());
-            }
-            if (query.list().isEmpty()) {
-                return null;
-            }
-            return ((List<Integer>)query.list()).get(0);
-        }
+    private Integer toInteger(Object value) {
+        return (value == null) ? null : ((Number)value).intValue();
     }
-}    
+}
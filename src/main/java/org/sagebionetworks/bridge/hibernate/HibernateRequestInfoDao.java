@@ -2,8 +2,15 @@ package org.sagebionetworks.bridge.hibernate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
 import javax.annotation.Resource;
 
+import org.hibernate.jdbc.Work;
+import org.joda.time.DateTime;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
@@ -11,6 +18,28 @@ import org.sagebionetworks.bridge.models.RequestInfo;
 
 @Component
 public class HibernateRequestInfoDao implements RequestInfoDao {
+    // COALESCE() preserves the persisted value of any field that is null in the update, as 
+    // updateRequestInfo does when it merges a request info object with the existing record. The access
+    // timestamps only move forward, so a stale update (e.g. one buffered on another server) cannot
+    // overwrite a later timestamp.
+    static final String UPSERT_REQUEST_INFO_SQL = "INSERT INTO RequestInfos (userId, clientInfo, userAgent, "
+            +"languages, userDataGroups, userSubstudyIds, activitiesAccessedOn, signedInOn, uploadedOn, timeZone, "
+            +"studyIdentifier, timelineAccessedOn) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY "
+            +"UPDATE clientInfo = COALESCE(VALUES(clientInfo), clientInfo), userAgent = COALESCE(VALUES(userAgent), "
+            +"userAgent), languages = COALESCE(VALUES(languages), languages), userDataGroups = "
+            +"COALESCE(VALUES(userDataGroups), userDataGroups), userSubstudyIds = COALESCE(VALUES(userSubstudyIds), "
+            +"userSubstudyIds), activitiesAccessedOn = " + latest("activitiesAccessedOn") + ", signedInOn = "
+            + latest("signedInOn") + ", uploadedOn = " + latest("uploadedOn") + ", timeZone = "
+            +"COALESCE(VALUES(timeZone), timeZone), studyIdentifier = COALESCE(VALUES(studyIdentifier), "
+            +"studyIdentifier), timelineAccessedOn = " + latest("timelineAccessedOn");
+    // See HibernateSchedule2Dao: values above 100 do not measurably improve batch performance.
+    static final int BATCH_SIZE = 100;
+    
+    private static final ClientInfoConverter CLIENT_INFO_CONVERTER = new ClientInfoConverter();
+    private static final StringListConverter STRING_LIST_CONVERTER = new StringListConverter();
+    private static final StringSetConverter STRING_SET_CONVERTER = new StringSetConverter();
+    private static final DateTimeZoneAttributeConverter TIME_ZONE_CONVERTER = new DateTimeZoneAttributeConverter();
+    
     private HibernateHelper hibernateHelper;
     
     @Resource(name = "basicHibernateHelper")
@@ -31,6 +60,71 @@ public class HibernateRequestInfoDao implements RequestInfoDao {
         }        
     }
 
+    /**
+     * Updating each request info through Hibernate selects the record before updating it. Here the 
+     * records are upserted with JDBC batches in one transaction (the MySQL connector string must 
+     * include rewriteBatchedStatements=true for the batches to be sent as multi-row statements).
+     */
+    @Override
+    public void updateRequestInfos(List<RequestInfo> requestInfos) {
+        checkNotNull(requestInfos);
+        
+        if (requestInfos.isEmpty()) {
+            return;
+        }
+        hibernateHelper.executeWithExceptionHandling(null, (session) -> {
+            session.doWork(upsertRequestInfosInBatches(requestInfos));
+            return null;
+        });
+    }
+    
+    protected Work upsertRequestInfosInBatches(List<RequestInfo> requestInfos) {
+        return (connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement(UPSERT_REQUEST_INFO_SQL)) {
+                for (int i = 0, len = requestInfos.size(); i < len; i++) {
+                    updateRequestInfoStatement(ps, requestInfos.get(i));
+                    if (i > 0 && (i % BATCH_SIZE) == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        };
+    }
+    
+    // For testability, removing this to a separate method
+    protected void updateRequestInfoStatement(PreparedStatement ps, RequestInfo info) throws SQLException {
+        ps.setString(1, info.getUserId());
+        ps.setString(2, CLIENT_INFO_CONVERTER.convertToDatabaseColumn(info.getClientInfo()));
+        ps.setString(3, info.getUserAgent());
+        ps.setString(4, STRING_LIST_CONVERTER.convertToDatabaseColumn(info.getLanguages()));
+        ps.setString(5, STRING_SET_CONVERTER.convertToDatabaseColumn(info.getUserDataGroups()));
+        ps.setString(6, STRING_SET_CONVERTER.convertToDatabaseColumn(info.getUserStudyIds()));
+        setDateTime(ps, 7, info.getActivitiesAccessedOn());
+        setDateTime(ps, 8, info.getSignedInOn());
+        setDateTime(ps, 9, info.getUploadedOn());
+        ps.setString(10, (info.getTimeZone() == null) ? null : 
+            TIME_ZONE_CONVERTER.convertToDatabaseColumn(info.getTimeZone()));
+        ps.setString(11, info.getAppId());
+        setDateTime(ps, 12, info.getTimelineAccessedOn());
+        ps.addBatch();
+    }
+    
+    private static void setDateTime(PreparedStatement ps, int index, DateTime dateTime) throws SQLException {
+        if (dateTime == null) {
+            ps.setNull(index, Types.NULL);
+        } else {
+            ps.setLong(index, dateTime.getMillis());
+        }
+    }
+
+    // GREATEST() is null if either value is null, so each side falls back to the other. The columns are varchars 
+    // holding epoch milliseconds, so they are compared as numbers rather than as strings.
+    private static String latest(String column) {
+        return "GREATEST(CAST(COALESCE(VALUES(" + column + "), " + column + ") AS UNSIGNED), CAST(COALESCE("
+                + column + ", VALUES(" + column + ")) AS UNSIGNED))";
+    }
+
     @Override
     public RequestInfo getRequestInfo(String userId) {
         checkNotNull(userId);
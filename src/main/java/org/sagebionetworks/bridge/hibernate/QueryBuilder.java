@@ -107,6 +107,13 @@ class QueryBuilder {
                 whereParams.put(key, value);
             }
         }
+        public void appendRequired(String phrase, String key1, Object value1, String key2, Object value2) { 
+            if (value1 != null && value2 != null) {
+                required.add(phrase);
+                whereParams.put(key1, value1);
+                whereParams.put(key2, value2);
+            }
+        }
         public void appendBoolean(String fieldName, Boolean value) {
             if (value != null) {
                 if (TRUE.equals(value)) {
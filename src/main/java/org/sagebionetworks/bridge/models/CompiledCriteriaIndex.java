@@ -0,0 +1,205 @@
+package org.sagebionetworks.bridge.models;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A compiled form of the criteria of a list of entities, which matches a CriteriaContext in the same way as
+ * {@link CriteriaUtils#filterByCriteria}. The data groups and study IDs referenced by any of the criteria are
+ * interned to bit positions, so each criteria is a set of bitsets and version ranges by operating system, and
+ * matching a user is a single pass of bitset operations over the entities. The index is immutable and can be
+ * reused for as long as the entities (and their criteria) have not changed.
+ */
+public final class CompiledCriteriaIndex {
+
+    private final Map<String, Integer> dataGroupPositions;
+    private final Map<String, Integer> studyIdPositions;
+    private final List<CompiledCriteria> criteria;
+
+    private CompiledCriteriaIndex(Map<String, Integer> dataGroupPositions, Map<String, Integer> studyIdPositions,
+            List<CompiledCriteria> criteria) {
+        this.dataGroupPositions = dataGroupPositions;
+        this.studyIdPositions = studyIdPositions;
+        this.criteria = criteria;
+    }
+
+    public static CompiledCriteriaIndex compile(List<? extends HasCriteria> entities) {
+        checkNotNull(entities);
+
+        Map<String, Integer> dataGroupPositions = new HashMap<>();
+        Map<String, Integer> studyIdPositions = new HashMap<>();
+        ImmutableList.Builder<CompiledCriteria> builder = ImmutableList.builder();
+        for (HasCriteria entity : entities) {
+            Criteria crit = entity.getCriteria();
+            checkNotNull(crit);
+
+            Map<String, int[]> versionRanges = new HashMap<>();
+            for (String osName : crit.getAppVersionOperatingSystems()) {
+                Integer min = crit.getMinAppVersion(osName);
+                Integer max = crit.getMaxAppVersion(osName);
+                versionRanges.put(osName, new int[] { (min == null) ? Integer.MIN_VALUE : min,
+                        (max == null) ? Integer.MAX_VALUE : max });
+            }
+            String language = (crit.getLanguage() == null) ? null : crit.getLanguage().toLowerCase(Locale.ROOT);
+            builder.add(new CompiledCriteria(crit.getLanguage(), language,
+                    intern(dataGroupPositions, crit.getAllOfGroups()),
+                    intern(dataGroupPositions, crit.getNoneOfGroups()),
+                    intern(studyIdPositions, crit.getAllOfStudyIds()),
+                    intern(studyIdPositions, crit.getNoneOfStudyIds()),
+                    ImmutableMap.copyOf(versionRanges)));
+        }
+        return new CompiledCriteriaIndex(ImmutableMap.copyOf(dataGroupPositions),
+                ImmutableMap.copyOf(studyIdPositions), builder.build());
+    }
+
+    private static BitSet intern(Map<String, Integer> positions, Set<String> values) {
+        checkNotNull(values);
+        BitSet bitSet = new BitSet();
+        for (String value : values) {
+            bitSet.set(positions.computeIfAbsent(value, (key) -> positions.size()));
+        }
+        return bitSet;
+    }
+
+    /**
+     * Returns the entities that match the context, ordered by the position of their language in the user's
+     * languages, and then by the second comparator (if one is provided). The entities must be the list from which
+     * this index was compiled (or a list with the same criteria in the same order).
+     */
+    public <T extends HasCriteria> List<T> filter(CriteriaContext context, List<T> entities,
+            Comparator<T> secondComparator) {
+        checkNotNull(context);
+        checkNotNull(context.getLanguages());
+        checkNotNull(context.getClientInfo());
+        checkNotNull(context.getUserDataGroups());
+        checkNotNull(entities);
+        checkArgument(entities.size() == criteria.size(), "entities do not match the compiled criteria");
+
+        BitSet userDataGroups = toBitSet(dataGroupPositions, context.getUserDataGroups());
+        BitSet userStudyIds = toBitSet(studyIdPositions, context.getUserStudyIds());
+        Integer appVersion = context.getClientInfo().getAppVersion();
+        String appOs = context.getClientInfo().getOsName();
+
+        // The language match ignores case; the ordering (as in CriteriaUtils) uses the first exact match.
+        List<String> languages = context.getLanguages();
+        Set<String> lowerCaseLanguages = new HashSet<>();
+        Map<String, Integer> languagePositions = new HashMap<>();
+        for (int i = 0; i < languages.size(); i++) {
+            String lang = languages.get(i);
+            if (lang != null) {
+                lowerCaseLanguages.add(lang.toLowerCase(Locale.ROOT));
+            }
+            languagePositions.putIfAbsent(lang, i);
+        }
+
+        List<Match<T>> matches = new ArrayList<>();
+        boolean ordered = true;
+        int lastPosition = Integer.MIN_VALUE;
+        for (int i = 0; i < entities.size(); i++) {
+            CompiledCriteria crit = criteria.get(i);
+            if (crit.matches(userDataGroups, userStudyIds, appVersion, appOs, lowerCaseLanguages)) {
+                int position = languagePositions.getOrDefault(crit.language, -1);
+                ordered = ordered && position >= lastPosition;
+                lastPosition = position;
+                matches.add(new Match<>(entities.get(i), position));
+            }
+        }
+        // A sort (which is stable) is only needed if languages are out of order, or there's another ordering
+        if (!ordered || secondComparator != null) {
+            Comparator<Match<T>> comparator = Comparator.comparingInt(match -> match.languagePosition);
+            if (secondComparator != null) {
+                comparator = comparator.thenComparing(match -> match.entity, secondComparator);
+            }
+            matches.sort(comparator);
+        }
+        List<T> results = new ArrayList<>(matches.size());
+        for (Match<T> match : matches) {
+            results.add(match.entity);
+        }
+        return results;
+    }
+
+    private static BitSet toBitSet(Map<String, Integer> positions, Collection<String> values) {
+        BitSet bitSet = new BitSet(positions.size());
+        if (values != null) {
+            for (String value : values) {
+                Integer position = positions.get(value);
+                if (position != null) {
+                    bitSet.set(position);
+                }
+            }
+        }
+        return bitSet;
+    }
+
+    private static final class Match<T> {
+        private final T entity;
+        private final int languagePosition;
+
+        private Match(T entity, int languagePosition) {
+            this.entity = entity;
+            this.languagePosition = languagePosition;
+        }
+    }
+
+    private static final class CompiledCriteria {
+        private final String language;
+        private final String lowerCaseLanguage;
+        private final BitSet allOfGroups;
+        private final BitSet noneOfGroups;
+        private final BitSet allOfStudyIds;
+        private final BitSet noneOfStudyIds;
+        private final Map<String, int[]> versionRanges;
+
+        private CompiledCriteria(String language, String lowerCaseLanguage, BitSet allOfGroups,
+                BitSet noneOfGroups, BitSet allOfStudyIds, BitSet noneOfStudyIds, Map<String, int[]> versionRanges) {
+            this.language = language;
+            this.lowerCaseLanguage = lowerCaseLanguage;
+            this.allOfGroups = allOfGroups;
+            this.noneOfGroups = noneOfGroups;
+            this.allOfStudyIds = allOfStudyIds;
+            this.noneOfStudyIds = noneOfStudyIds;
+            this.versionRanges = versionRanges;
+        }
+
+        private boolean matches(BitSet userDataGroups, BitSet userStudyIds, Integer appVersion, String appOs,
+                Set<String> lowerCaseLanguages) {
+            if (appVersion != null && appOs != null) {
+                int[] range = versionRanges.get(appOs);
+                if (range != null && (appVersion < range[0] || appVersion > range[1])) {
+                    return false;
+                }
+            }
+            if (!containsAll(userDataGroups, allOfGroups) || noneOfGroups.intersects(userDataGroups)) {
+                return false;
+            }
+            if (!containsAll(userStudyIds, allOfStudyIds) || noneOfStudyIds.intersects(userStudyIds)) {
+                return false;
+            }
+            return lowerCaseLanguage == null || lowerCaseLanguages.contains(lowerCaseLanguage);
+        }
+
+        private static boolean containsAll(BitSet set, BitSet subset) {
+            for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+                if (!set.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.sagebionetworks.bridge.models;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Holds the compiled criteria of one type of entity for each app, so that filtering by criteria does not recompile
+ * the criteria on every request. The entities are still loaded on every request; a compiled index is reused only if
+ * the version function returns the same values, in the same order, for the entities being filtered. If the version
+ * function returns null for any entity (e.g. it has never been saved), its criteria are compiled for that call only.
+ */
+public class CriteriaIndexCache<T extends HasCriteria> {
+
+    static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final Function<T, String> versionFunction;
+    private final Cache<String, Entry> cache;
+
+    public CriteriaIndexCache(Function<T, String> versionFunction) {
+        this(versionFunction, DEFAULT_MAX_SIZE);
+    }
+
+    CriteriaIndexCache(Function<T, String> versionFunction, int maxSize) {
+        this.versionFunction = checkNotNull(versionFunction);
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Filter the app's entities by the context in the same way as {@link CriteriaUtils#filterByCriteria}, using a
+     * compiled index of their criteria.
+     */
+    public List<T> filterByCriteria(String appId, CriteriaContext context, List<T> entities,
+            Comparator<T> secondComparator) {
+        checkNotNull(appId);
+        checkNotNull(entities);
+
+        List<String> versions = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            String version = versionFunction.apply(entity);
+            if (version == null) {
+                return CompiledCriteriaIndex.compile(entities).filter(context, entities, secondComparator);
+            }
+            versions.add(version);
+        }
+        Entry entry = cache.getIfPresent(appId);
+        if (entry == null || !entry.versions.equals(versions)) {
+            entry = new Entry(versions, CompiledCriteriaIndex.compile(entities));
+            cache.put(appId, entry);
+        }
+        return entry.index.filter(context, entities, secondComparator);
+    }
+
+    private static final class Entry {
+        private final List<String> versions;
+        private final CompiledCriteriaIndex index;
+
+        private Entry(List<String> versions, CompiledCriteriaIndex index) {
+            this.versions = versions;
+            this.index = index;
+        }
+    }
+}
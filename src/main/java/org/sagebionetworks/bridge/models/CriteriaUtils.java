@@ -8,8 +8,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.LocaleUtils;
@@ -32,13 +34,14 @@ public class CriteriaUtils {
         checkNotNull(context);
         checkNotNull(coll);
         
-        // Sort by language
+        // Sort by language (position in the user's languages, looked up once rather than on every comparison)
         final List<String> langs = context.getLanguages();
-        Comparator<T> comparator = (sel1, sel2) -> {
-            int posLang1 = langs.indexOf(sel1.getCriteria().getLanguage());
-            int posLang2 = langs.indexOf(sel2.getCriteria().getLanguage());
-            return posLang1 - posLang2;
-        };
+        final Map<String, Integer> langPositions = new HashMap<>();
+        for (int i = langs.size() - 1; i >= 0; i--) {
+            langPositions.put(langs.get(i), i);
+        }
+        Comparator<T> comparator = Comparator.comparingInt(
+                (sel) -> langPositions.getOrDefault(sel.getCriteria().getLanguage(), -1));
         // In the app config case, sort by createdOn timestamp as well
         if (secondComparator != null) {
             comparator = comparator.thenComparing(secondComparator);
@@ -15,14 +15,16 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 /**
  * A page of items from a longer list of items, as calculated based on the supplied 
  * request parameters, with a <code>nextPageOffsetKey</code> to retrieve the next page 
- * of records. This kind of list cannot calculate the total number of records across 
- * all pages, or provide the information to page backwards in the list.
+ * of records. This kind of list cannot provide the information to page backwards in the 
+ * list, and does not calculate the total number of records across all pages, unless a 
+ * total is explicitly provided.
  */
 public class ForwardCursorPagedResourceList<T> extends ResourceList<T> {
 
     private static final String HAS_NEXT = "hasNext";
     
     private final @Nullable String nextPageOffsetKey;
+    private @Nullable Integer total;
 
     public ForwardCursorPagedResourceList(List<T> items, String nextPageOffsetKey, boolean suppressDeprecated) {
         super(items, suppressDeprecated);
@@ -70,6 +72,18 @@ public class ForwardCursorPagedResourceList<T> extends ResourceList<T> {
     public boolean hasNext() {
         return (nextPageOffsetKey != null);
     }
+    /**
+     * The total number of records across all pages, if it was provided. Otherwise this is the deprecated 
+     * total (the number of items in this page).
+     */
+    @Override
+    public Integer getTotal() {
+        return (total != null) ? total : super.getTotal();
+    }
+    public ForwardCursorPagedResourceList<T> withTotal(Integer total) {
+        this.total = total;
+        return this;
+    }
     public ForwardCursorPagedResourceList<T> withRequestParam(String key, Object value) {
         super.withRequestParam(key, value);
         return this;
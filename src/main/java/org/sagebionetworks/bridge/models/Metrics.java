@@ -3,6 +3,9 @@ package org.sagebionetworks.bridge.models;
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 import com.google.common.collect.Multimap;
 import org.joda.time.DateTime;
 import org.sagebionetworks.bridge.time.DateUtils;
@@ -121,6 +124,28 @@ public class Metrics {
         json.put("upload_size", uploadSize);
     }
 
+    /**
+     * The milliseconds spent in each stage of constructing a session, for requests that sign in the caller.
+     *
+     * @param stageMillis The elapsed milliseconds, by the name of the stage.
+     */
+    public void setSessionStages(Map<String, Long> stageMillis) {
+        if (stageMillis != null && !stageMillis.isEmpty()) {
+            json.set("session_stages", MAPPER.valueToTree(new TreeMap<>(stageMillis)));
+        }
+    }
+
+    /**
+     * The time a password verification waited for a hashing thread, and the time spent hashing the password.
+     *
+     * @param queueMillis The milliseconds spent waiting in the password hash executor's queue.
+     * @param hashMillis The milliseconds spent checking the password hash.
+     */
+    public void setPasswordHash(long queueMillis, long hashMillis) {
+        json.put("password_hash_queue_millis", queueMillis);
+        json.put("password_hash_millis", hashMillis);
+    }
+
     /**
      * Set the query params from the url request to json.
      *
@@ -47,6 +47,12 @@ public enum PasswordAlgorithm {
             return "$stormpath1$" + Base64.encodeBase64String(salt) + "$" + base64HashedPassword;
         }
 
+        /** {@inheritDoc} This algorithm has no cost parameter, so the cost is ignored. */
+        @Override
+        public String generateHash(String plaintext, int cost) throws InvalidKeyException, NoSuchAlgorithmException {
+            return generateHash(plaintext);
+        }
+
         // Helper method that returns the HMAC hash for a plaintext and salt, without encoding the metadata.
         private String hashPasswordWithSalt(String plaintext, byte[] salt) throws InvalidKeyException,
                 NoSuchAlgorithmException {
@@ -82,8 +88,14 @@ public enum PasswordAlgorithm {
         @Override
         public String generateHash(String plaintext)
                 throws InvalidKeySpecException, InvalidKeyException, NoSuchAlgorithmException {
+            return generateHash(plaintext, PBKDF2_DEFAULT_ITERATIONS);
+        }
+
+        /** {@inheritDoc} The cost is the number of PBKDF2 iterations. */
+        @Override
+        public String generateHash(String plaintext, int iterations)
+                throws InvalidKeySpecException, InvalidKeyException, NoSuchAlgorithmException {
             byte[] salt = BridgeUtils.generateSalt();
-            int iterations = PBKDF2_DEFAULT_ITERATIONS;
             String base64HashedPassword = hashPasswordWithSalt(plaintext, salt, iterations);
 
             // Output format will be "[iterations]$[base64-encoded salt]$[base64-encoded hashed password]"
@@ -121,7 +133,13 @@ public enum PasswordAlgorithm {
         /** {@inheritDoc */
         @Override
         public String generateHash(String plaintext) {
-            return OpenBSDBCrypt.generate(plaintext.toCharArray(), BridgeUtils.generateSalt(), DEFAULT_COST);
+            return generateHash(plaintext, DEFAULT_COST);
+        }
+
+        /** {@inheritDoc} The cost is the log2 of the number of bcrypt rounds. */
+        @Override
+        public String generateHash(String plaintext, int cost) {
+            return OpenBSDBCrypt.generate(plaintext.toCharArray(), BridgeUtils.generateSalt(), cost);
         }
     },
 
@@ -146,8 +164,14 @@ public enum PasswordAlgorithm {
         /** {@inheritDoc */
         @Override
         public String generateHash(String plaintext) throws InvalidKeySpecException, NoSuchAlgorithmException {
+            return generateHash(plaintext, PBKDF2_DEFAULT_ITERATIONS);
+        }
+
+        /** {@inheritDoc} The cost is the number of PBKDF2 iterations. */
+        @Override
+        public String generateHash(String plaintext, int iterations)
+                throws InvalidKeySpecException, NoSuchAlgorithmException {
             byte[] salt = BridgeUtils.generateSalt();
-            int iterations = PBKDF2_DEFAULT_ITERATIONS;
             String base64HashedPassword = hashPasswordWithSalt(plaintext, salt, iterations);
 
             // Output format will be "[iterations]$[base64-encoded salt]$[base64-encoded hashed password]"
@@ -175,4 +199,11 @@ public enum PasswordAlgorithm {
     /** Generate a hash with metadata (such as salt, cost, iterations) from the given plaintext. */
     public abstract String generateHash(String plaintext) throws InvalidKeySpecException, InvalidKeyException,
             NoSuchAlgorithmException;
+
+    /**
+     * Generate a hash with metadata from the given plaintext, at the given cost (the meaning of which depends on the
+     * algorithm).
+     */
+    public abstract String generateHash(String plaintext, int cost) throws InvalidKeySpecException,
+            InvalidKeyException, NoSuchAlgorithmException;
 }
@@ -21,6 +21,7 @@ public interface ParticipantFile extends BridgeEntity {
     String getDownloadUrl();
     String getUploadUrl();
     DateTime getExpiresOn();
+    Long getFileSize();
 
     void setFileId(String fileId);
     void setUserId(String userId);
@@ -30,4 +31,5 @@ public interface ParticipantFile extends BridgeEntity {
     void setDownloadUrl(String url);
     void setUploadUrl(String url);
     void setExpiresOn(DateTime expires);
+    void setFileSize(Long fileSize);
 }
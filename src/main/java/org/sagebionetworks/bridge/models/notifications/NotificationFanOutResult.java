@@ -0,0 +1,27 @@
+package org.sagebionetworks.bridge.models.notifications;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The outcome of publishing one notification message to a set of registrations: the GUIDs of the
+ * registrations the message was delivered to, and of those that failed after any retries.
+ */
+public final class NotificationFanOutResult {
+
+    private final Set<String> deliveredRegistrations;
+    private final Set<String> failedRegistrations;
+
+    public NotificationFanOutResult(Set<String> deliveredRegistrations, Set<String> failedRegistrations) {
+        this.deliveredRegistrations = ImmutableSet.copyOf(deliveredRegistrations);
+        this.failedRegistrations = ImmutableSet.copyOf(failedRegistrations);
+    }
+
+    public Set<String> getDeliveredRegistrations() {
+        return deliveredRegistrations;
+    }
+    public Set<String> getFailedRegistrations() {
+        return failedRegistrations;
+    }
+}
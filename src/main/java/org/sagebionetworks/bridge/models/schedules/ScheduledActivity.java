@@ -130,6 +130,8 @@ public interface ScheduledActivity extends BridgeEntity {
 
     DateTime getScheduledOn();
 
+    LocalDateTime getLocalScheduledOn();
+    
     void setLocalScheduledOn(LocalDateTime localScheduledOn);
     
     JsonNode getClientData();
@@ -138,6 +140,8 @@ public interface ScheduledActivity extends BridgeEntity {
     
     DateTime getExpiresOn();
 
+    LocalDateTime getLocalExpiresOn();
+    
     void setLocalExpiresOn(LocalDateTime expiresOn);
 
     Long getStartedOn();
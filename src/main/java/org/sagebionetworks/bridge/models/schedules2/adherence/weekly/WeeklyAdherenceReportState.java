@@ -0,0 +1,91 @@
+package org.sagebionetworks.bridge.models.schedules2.adherence.weekly;
+
+import java.util.Objects;
+
+/**
+ * The inputs that a participant’s persisted weekly adherence report was last calculated from. The
+ * report is a function of the study and its schedule, the participant’s account, events and adherence
+ * records, and the participant’s local date (report calculations are all day-based), so if none of
+ * these have changed since the report was last calculated, it does not need to be calculated again.
+ * Timestamps are stored as epoch milliseconds so the comparison does not depend on time zones.
+ */
+public final class WeeklyAdherenceReportState {
+    private Long studyModifiedOn;
+    private Long accountModifiedOn;
+    private Long scheduleModifiedOn;
+    private Long eventsModifiedOn;
+    private Long adherenceRecordsModifiedOn;
+    private String clientTimeZone;
+    private String localDate;
+    private boolean signedIn;
+
+    public Long getStudyModifiedOn() {
+        return studyModifiedOn;
+    }
+    public void setStudyModifiedOn(Long studyModifiedOn) {
+        this.studyModifiedOn = studyModifiedOn;
+    }
+    public Long getAccountModifiedOn() {
+        return accountModifiedOn;
+    }
+    public void setAccountModifiedOn(Long accountModifiedOn) {
+        this.accountModifiedOn = accountModifiedOn;
+    }
+    public Long getScheduleModifiedOn() {
+        return scheduleModifiedOn;
+    }
+    public void setScheduleModifiedOn(Long scheduleModifiedOn) {
+        this.scheduleModifiedOn = scheduleModifiedOn;
+    }
+    public Long getEventsModifiedOn() {
+        return eventsModifiedOn;
+    }
+    public void setEventsModifiedOn(Long eventsModifiedOn) {
+        this.eventsModifiedOn = eventsModifiedOn;
+    }
+    public Long getAdherenceRecordsModifiedOn() {
+        return adherenceRecordsModifiedOn;
+    }
+    public void setAdherenceRecordsModifiedOn(Long adherenceRecordsModifiedOn) {
+        this.adherenceRecordsModifiedOn = adherenceRecordsModifiedOn;
+    }
+    public String getClientTimeZone() {
+        return clientTimeZone;
+    }
+    public void setClientTimeZone(String clientTimeZone) {
+        this.clientTimeZone = clientTimeZone;
+    }
+    public String getLocalDate() {
+        return localDate;
+    }
+    public void setLocalDate(String localDate) {
+        this.localDate = localDate;
+    }
+    public boolean isSignedIn() {
+        return signedIn;
+    }
+    public void setSignedIn(boolean signedIn) {
+        this.signedIn = signedIn;
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(studyModifiedOn, accountModifiedOn, scheduleModifiedOn, eventsModifiedOn,
+                adherenceRecordsModifiedOn, clientTimeZone, localDate, signedIn);
+    }
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        WeeklyAdherenceReportState other = (WeeklyAdherenceReportState) obj;
+        return Objects.equals(studyModifiedOn, other.studyModifiedOn)
+                && Objects.equals(accountModifiedOn, other.accountModifiedOn)
+                && Objects.equals(scheduleModifiedOn, other.scheduleModifiedOn)
+                && Objects.equals(eventsModifiedOn, other.eventsModifiedOn)
+                && Objects.equals(adherenceRecordsModifiedOn, other.adherenceRecordsModifiedOn)
+                && Objects.equals(clientTimeZone, other.clientTimeZone)
+                && Objects.equals(localDate, other.localDate)
+                && signedIn == other.signedIn;
+    }
+}
@@ -64,12 +64,20 @@ public class Scheduler {
     }
 
     void calculateLanguageKey(Timeline.Builder builder) {
-        builder.withLang("en");
+        builder.withLang(getLanguageKey());
+    }
+    
+    /**
+     * The caller’s languages, lower-cased and comma-separated, which (along with the schedule) 
+     * determine the content of a timeline. Defaults to "en".
+     */
+    public final String getLanguageKey() {
         List<String> callerLangs = RequestContext.get().getCallerLanguages();
         if (!callerLangs.isEmpty()) {
             callerLangs = callerLangs.stream().map(s -> s.toLowerCase()).collect(toList());
-            builder.withLang(COMMA_JOINER.join(callerLangs));
+            return COMMA_JOINER.join(callerLangs);
         }
+        return "en";
     }
     
     /**
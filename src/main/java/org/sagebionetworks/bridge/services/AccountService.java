@@ -15,6 +15,8 @@ import static org.sagebionetworks.bridge.BridgeUtils.collectStudyIds;
 import static org.sagebionetworks.bridge.dao.AccountDao.MIGRATION_VERSION;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.ENROLLMENT;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -37,12 +39,14 @@ import org.sagebionetworks.bridge.dao.AccountDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import org.sagebionetworks.bridge.models.accounts.ExternalIdentifierInfo;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.reports.ReportIndex;
 import org.sagebionetworks.bridge.models.reports.ReportType;
@@ -231,6 +235,15 @@ public class AccountService {
         Account account = accountDao.getAccount(accountId)
                 .orElseThrow(() -> new EntityNotFoundException(Account.class));
         
+        editLoadedAccount(account, accountEdits);
+    }
+    
+    /**
+     * Edit an account that has already been loaded in this request, and persist it, without reading it again. 
+     */
+    public void editLoadedAccount(Account account, Consumer<Account> accountEdits) {
+        checkNotNull(account);
+        
         String oldTimeZone = account.getClientTimeZone();
  
         if (CANNOT_ACCESS_PARTICIPANTS.check(USER_ID, account.getId()) && !account.getDataGroups().contains(TEST_USER_GROUP)) {
@@ -264,12 +277,32 @@ public class AccountService {
         if (!optional.isPresent()) {
             return optional;
         }
-        if (!canAccessAccount( optional.get() )) {
+        return filterForCaller(optional.get());
+    }
+    
+    /**
+     * Get the accounts with these user IDs in an app, with one query. Accounts that cannot be found, or 
+     * that the caller does not have the correct permissions to access, are not returned. As with 
+     * {@link #getAccount(AccountId)}, the enrollments of each account are filtered so the caller can only 
+     * see the enrollments in studies they have access to.
+     */
+    public List<Account> getAccounts(String appId, Collection<String> userIds) {
+        checkNotNull(appId);
+        checkNotNull(userIds);
+        
+        List<Account> accounts = new ArrayList<>();
+        for (Account account : accountDao.getAccounts(appId, userIds)) {
+            filterForCaller(account).ifPresent(accounts::add);
+        }
+        return accounts;
+    }
+    
+    private Optional<Account> filterForCaller(Account account) {
+        if (!canAccessAccount(account)) {
             return Optional.empty();
         }
-        Account account = optional.get();
         if (CAN_READ_PARTICIPANTS.check(USER_ID, account.getId(), ORG_ID, account.getOrgMembership())) {
-            return optional;
+            return Optional.of(account);
         }
         // This was accessed through study rights, so remove the other studies from what the caller
         // can see.
@@ -278,7 +311,7 @@ public class AccountService {
         Set<Enrollment> removals = account.getEnrollments().stream()
                 .filter(en -> !callerStudies.contains(en.getStudyId())).collect(toSet());
         account.getEnrollments().removeAll(removals);
-        return optional;
+        return Optional.of(account);
     }
     
     /**
@@ -321,6 +354,7 @@ public class AccountService {
             // Remove known etag cache keys for this user
             cacheProvider.removeObject( CacheKey.etag(DateTimeZone.class, account.getId()) );
             cacheProvider.removeObject( CacheKey.etag(StudyActivityEvent.class, account.getId()) );
+            cacheProvider.removeObject( CacheKey.etag(AdherenceRecord.class, account.getId()) );
         }
     }
     
@@ -368,6 +402,18 @@ public class AccountService {
         return accountDao.getPagedAccountSummaries(appId, search);
     }
     
+    /**
+     * Get a page of lightweight account summaries using a cursor (the nextPageOffsetKey of the prior page) rather 
+     * than an offset. The total number of matching accounts is only calculated if requested.
+     */
+    public ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByCursor(String appId,
+            AccountSummarySearch search, String offsetKey, boolean includeTotal) {
+        checkNotNull(appId);
+        checkNotNull(search);
+        
+        return accountDao.getAccountSummariesByCursor(appId, search, offsetKey, includeTotal);
+    }
+    
     /**
      * Get the health code for an account.
      */
@@ -18,6 +18,8 @@ import static org.sagebionetworks.bridge.validators.SignInValidator.EMAIL_SIGNIN
 import static org.sagebionetworks.bridge.validators.SignInValidator.PHONE_SIGNIN_REQUEST;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
@@ -26,6 +28,8 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.SecureTokenGenerator;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.config.BridgeConfigFactory;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -104,8 +108,8 @@ public class AccountWorkflowService {
     static final int SIGNIN_EXPIRE_IN_SECONDS = 60*60; // 1 hour
 
     // Config values
-    private int channelThrottleMaxRequests;
-    private int channelThrottleTimeoutSeconds;
+    private final Map<ThrottleRequestType, RateLimit> channelThrottleRateLimits = new EnumMap<>(
+            ThrottleRequestType.class);
 
     // Dependent services
     private SmsService smsService;
@@ -113,13 +117,20 @@ public class AccountWorkflowService {
     private SendMailService sendMailService;
     private AccountService accountService;
     private CacheProvider cacheProvider;
+    private TokenBucketRateLimiter rateLimiter;
     private TemplateService templateService;
 
     /** Bridge config, used to get config values such as throttle configuration. */
     @Autowired
     final void setBridgeConfig(BridgeConfig bridgeConfig) {
-        this.channelThrottleMaxRequests = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_MAX_REQUESTS);
-        this.channelThrottleTimeoutSeconds = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_TIMEOUT_SECONDS);
+        int maxRequests = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_MAX_REQUESTS);
+        int timeoutSeconds = bridgeConfig.getInt(CONFIG_KEY_CHANNEL_THROTTLE_TIMEOUT_SECONDS);
+        // Each user can send the maximum number of messages of a type, and that allowance is restored
+        // after the timeout.
+        for (ThrottleRequestType type : ThrottleRequestType.values()) {
+            channelThrottleRateLimits.put(type, new RateLimit(type.name().toLowerCase(), maxRequests, maxRequests,
+                    timeoutSeconds, maxRequests));
+        }
     }
 
     /** SMS Service, used to send account workflow text messages. */
@@ -148,6 +159,12 @@ public class AccountWorkflowService {
         this.cacheProvider = cacheProvider;
     }
     
+    /** Rate limiter, used to throttle the emails and text messages sent to each user. */
+    @Autowired
+    final void setTokenBucketRateLimiter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+    
     @Autowired
     final void setTemplateService(TemplateService templateService) {
         this.templateService = templateService;
@@ -620,30 +637,13 @@ public class AccountWorkflowService {
         return BASE_URL + String.format(formatString, (Object[])strings);
     }
 
-    // Check if the request is throttled. Key is either email address or phone, depending on the type.
+    // Check if the request is throttled. We throttle email/SMS sent, not requests, so a throttled request does not
+    // count against the limit.
     private boolean isRequestThrottled(ThrottleRequestType type, String userId) {
         // Generate key, which is in the form of channel-throttling:[type]:[userId].
         CacheKey cacheKey = CacheKey.channelThrottling(type, userId);
 
-        Integer numRequests = cacheProvider.getObject(cacheKey, Integer.class);
-        if (numRequests == null) {
-            // Fall back to 0.
-            numRequests = 0;
-        }
-
-        if (numRequests < channelThrottleMaxRequests) {
-            // We've seen less than the maximum number of requests. We can let this request through without throttling.
-            // But we should increment the request count in Redis. Reset the expiration so that participants can't
-            // exceed the throttle limit by making a bunch of requests at the end of the throttle window.
-            cacheProvider.setObject(cacheKey, numRequests + 1, channelThrottleTimeoutSeconds);
-            return false;
-        } else {
-            // We've seen at least as many requests as our limit (or more), so this next request will push us over the
-            // limit. Throttle this.
-            // Don't update Redis, since we throttle email/SMS sent, not requests. This allows the expiration to expire
-            // naturally.
-            return true;
-        }
+        return !rateLimiter.tryConsume(cacheKey, channelThrottleRateLimits.get(type), 1);
     }
     
     long getDateTimeInMillis() {
@@ -2,11 +2,13 @@ package org.sagebionetworks.bridge.services;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Boolean.TRUE;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static org.sagebionetworks.bridge.AuthUtils.CAN_ACCESS_ADHERENCE_DATA;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.TEST_USER_GROUP;
+import static org.sagebionetworks.bridge.BridgeConstants.WEEKLY_ADHERENCE_STATE_EXPIRE_IN_SECONDS;
 import static org.sagebionetworks.bridge.BridgeUtils.formatActivityEventId;
 import static org.sagebionetworks.bridge.models.ResourceList.ADHERENCE_RECORD_TYPE;
 import static org.sagebionetworks.bridge.models.ResourceList.ASSESSMENT_IDS;
@@ -37,15 +39,24 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.Optional;
 
+import javax.annotation.Resource;
+
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.sagebionetworks.bridge.models.schedules2.AssessmentReference;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AssessmentCompletionState;
 import org.sagebionetworks.bridge.models.schedules2.adherence.detailed.DetailedAdherenceReport;
@@ -59,9 +70,12 @@ import org.sagebionetworks.bridge.models.studies.Enrollment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.sagebionetworks.bridge.AuthEvaluatorField;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.AdherenceRecordDao;
 import org.sagebionetworks.bridge.dao.AdherenceReportDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
@@ -83,6 +97,7 @@ import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdheren
 import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdherenceReportGenerator;
 import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyReportWeek;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportState;
 import org.sagebionetworks.bridge.models.schedules2.timelines.MetadataContainer;
 import org.sagebionetworks.bridge.models.schedules2.timelines.SessionState;
 import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadata;
@@ -101,6 +116,8 @@ public class AdherenceService {
     static final StudyReportWeek EMPTY_WEEK = new StudyReportWeek();
     static final String THRESHOLD_OUT_OF_RANGE_ERROR = "Adherence threshold must be from 1-100.";
     static final String NO_THRESHOLD_VALUE_ERROR = "An adherence threshold value must be supplied in the request or set as a study default.";
+    static final String BATCH_SIZE_ERROR = "Weekly adherence reports can be calculated for 1-" + API_MAXIMUM_PAGE_SIZE
+            + " participants at a time.";
 
     private AdherenceRecordDao recordDao;
     
@@ -116,6 +133,12 @@ public class AdherenceService {
     
     private RequestInfoService requestInfoService;
     
+    private CacheProvider cacheProvider;
+    
+    private AccountService accountService;
+    
+    private ExecutorService adherenceReportExecutorService;
+    
     @Autowired
     final void setAdherenceRecordDao(AdherenceRecordDao recordDao) {
         this.recordDao = recordDao;
@@ -151,6 +174,21 @@ public class AdherenceService {
         this.requestInfoService = requestInfoService;
     }
     
+    @Autowired
+    final void setCacheProvider(CacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+    }
+    
+    @Autowired
+    final void setAccountService(AccountService accountService) {
+        this.accountService = accountService;
+    }
+    
+    @Resource(name = "adherenceReportExecutorService")
+    final void setAdherenceReportExecutorService(ExecutorService adherenceReportExecutorService) {
+        this.adherenceReportExecutorService = adherenceReportExecutorService;
+    }
+    
     protected DateTime getDateTime() {
         return DateTime.now();
     }
@@ -190,6 +228,8 @@ public class AdherenceService {
             recordDao.updateAdherenceRecord(record);
             publishEvent(appId, sessionMeta, record);
         }
+        CacheKey cacheKey = CacheKey.etag(AdherenceRecord.class, recordList.getRecords().get(0).getUserId());
+        cacheProvider.setObject(cacheKey, getDateTime());
     }
     
     protected void updateSessionState(String appId, MetadataContainer container, AdherenceRecord asmt) {
@@ -374,6 +414,9 @@ public class AdherenceService {
             }
 
             recordDao.deleteAdherenceRecordPermanently(record);
+            
+            CacheKey cacheKey = CacheKey.etag(AdherenceRecord.class, record.getUserId());
+            cacheProvider.setObject(cacheKey, getDateTime());
         }
     }
     
@@ -417,12 +460,17 @@ public class AdherenceService {
     }
     
     public WeeklyAdherenceReport getWeeklyAdherenceReport(String appId, String studyId, Account account) {
-
-        Stopwatch watch = Stopwatch.createStarted();
-        
         DateTime createdOn = getDateTime();
         String zoneId = studyService.getZoneId(appId, studyId, account.getClientTimeZone());
+        
+        return generateWeeklyAdherenceReport(appId, studyId, account, createdOn, zoneId);
+    }
+    
+    protected WeeklyAdherenceReport generateWeeklyAdherenceReport(String appId, String studyId, Account account,
+            DateTime createdOn, String zoneId) {
 
+        Stopwatch watch = Stopwatch.createStarted();
+        
         StudyAdherenceReport report = generateReport(appId, studyId, account.getId(), createdOn, zoneId,
                 (state, schedule) -> StudyAdherenceReportGenerator.INSTANCE.generate(state, schedule));
         report.setParticipant(new AccountRef(account, studyId));
@@ -438,22 +486,234 @@ public class AdherenceService {
     }
 
     public WeeklyAdherenceReport getWeeklyAdherenceReportForWorker(String appId, String studyId, Account account) {
-        WeeklyAdherenceReport weeklyReport = getWeeklyAdherenceReport(appId, studyId, account);
+        WeeklyAdherenceReport weeklyReport = getIncrementalWeeklyAdherenceReport(appId, studyId, account);
 
-        // trigger alert for low weekly adherence
         Study study = studyService.getStudy(appId, studyId, true);
+        createLowAdherenceAlert(appId, studyId, account.getId(), study, weeklyReport);
+
+        return weeklyReport;
+    }
+    
+    /**
+     * Calculate and persist the weekly adherence reports of a batch of participants in a study. The study, 
+     * its schedule, and its timeline metadata are loaded once for the batch, and the accounts, events and 
+     * session adherence records of all the participants are each loaded with one query. The reports are then 
+     * calculated in parallel on a bounded pool (so a sweep of a large study cannot starve the rest of the 
+     * server), and saved together in a JDBC batch. Participants whose accounts cannot be found are skipped.
+     */
+    public List<WeeklyAdherenceReport> getWeeklyAdherenceReportsForWorker(String appId, String studyId,
+            List<String> userIds) {
+        checkNotNull(appId);
+        checkNotNull(studyId);
+        
+        if (userIds == null || userIds.isEmpty() || userIds.size() > API_MAXIMUM_PAGE_SIZE) {
+            throw new BadRequestException(BATCH_SIZE_ERROR);
+        }
+        Stopwatch watch = Stopwatch.createStarted();
+        DateTime createdOn = getDateTime();
+        
+        Study study = studyService.getStudy(appId, studyId, true);
+        if (study.getScheduleGuid() == null) {
+            throw new EntityNotFoundException(Schedule2.class);
+        }
+        Schedule2 schedule = scheduleService.getScheduleForStudy(appId, studyId)
+                .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
+        List<TimelineMetadata> metadata = scheduleService.getScheduleMetadata(study.getScheduleGuid());
+        Map<String, String> startEventIds = new HashMap<>();
+        for (TimelineMetadata meta : metadata) {
+            startEventIds.put(meta.getGuid(), meta.getSessionStartEventId());
+        }
+        
+        Set<String> batchUserIds = ImmutableSet.copyOf(userIds);
+        List<Account> accounts = accountService.getAccounts(appId, batchUserIds);
+        if (accounts.size() < batchUserIds.size()) {
+            Set<String> foundUserIds = accounts.stream().map(Account::getId).collect(toSet());
+            LOG.warn("Weekly adherence reports not calculated, accounts not found: "
+                    + Sets.difference(batchUserIds, foundUserIds));
+        }
+        Map<String, List<StudyActivityEvent>> eventsByUserId = studyActivityEventService
+                .getPersistedRecentStudyActivityEvents(studyId, batchUserIds);
+        Map<String, List<AdherenceRecord>> recordsByUserId = recordDao.getSessionAdherenceRecords(studyId,
+                batchUserIds);
+        
+        List<Callable<WeeklyAdherenceReport>> tasks = new ArrayList<>();
+        for (Account account : accounts) {
+            tasks.add(() -> calculateWeeklyAdherenceReport(appId, study, schedule, metadata, startEventIds,
+                    account, createdOn, eventsByUserId.get(account.getId()), recordsByUserId.get(account.getId())));
+        }
+        List<WeeklyAdherenceReport> reports = new ArrayList<>();
+        try {
+            for (Future<WeeklyAdherenceReport> future : adherenceReportExecutorService.invokeAll(tasks)) {
+                reports.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        }
+        reportDao.saveWeeklyAdherenceReports(reports);
+        
+        for (WeeklyAdherenceReport report : reports) {
+            createLowAdherenceAlert(appId, studyId, report.getUserId(), study, report);
+        }
+        watch.stop();
+        LOG.info("Weekly adherence reports for " + reports.size() + " participants took "
+                + watch.elapsed(TimeUnit.MILLISECONDS) + "ms");
+        return reports;
+    }
+    
+    /**
+     * Calculate (but do not persist) the weekly adherence report of one participant in a batch. The events 
+     * and adherence records are those that were persisted for the participant (either can be null). The 
+     * records are filtered to those for the participant’s current event timestamps, as they are when the 
+     * records are searched with currentTimestampsOnly=true.
+     */
+    protected WeeklyAdherenceReport calculateWeeklyAdherenceReport(String appId, Study study, Schedule2 schedule,
+            List<TimelineMetadata> metadata, Map<String, String> startEventIds, Account account, DateTime createdOn,
+            List<StudyActivityEvent> persistedEvents, List<AdherenceRecord> persistedRecords) {
+        String studyId = study.getIdentifier();
+        String zoneId = studyService.getZoneId(study, account.getClientTimeZone());
+        
+        List<StudyActivityEvent> events = (persistedEvents == null) ? 
+                new ArrayList<>() : new ArrayList<>(persistedEvents);
+        studyActivityEventService.completeRecentStudyActivityEvents(appId, studyId, account, events);
+        
+        List<AdherenceRecord> records = getCurrentAdherenceRecords(persistedRecords, events, startEventIds);
+        
+        AdherenceState state = new AdherenceState.Builder()
+                .withNow(createdOn)
+                .withClientTimeZone(zoneId)
+                .withMetadata(metadata)
+                .withEvents(events)
+                .withAdherenceRecords(records)
+                .withStudyStartEventId(study.getStudyStartEventId())
+                .build();
+        
+        StudyAdherenceReport report = StudyAdherenceReportGenerator.INSTANCE.generate(state, schedule);
+        report.setParticipant(new AccountRef(account, studyId));
+        report.setTestAccount(account.getDataGroups().contains(TEST_USER_GROUP));
+        report.setCreatedOn(createdOn);
+        report.setClientTimeZone(zoneId);
+        
+        return createWeeklyAdherenceReport(studyId, account, report);
+    }
+    
+    /**
+     * Filter a participant’s session adherence records to those whose event timestamp is the current timestamp 
+     * of their session’s start event. Records that are not for a session in the schedule are removed.
+     */
+    protected List<AdherenceRecord> getCurrentAdherenceRecords(List<AdherenceRecord> records,
+            List<StudyActivityEvent> events, Map<String, String> startEventIds) {
+        if (records == null) {
+            return ImmutableList.of();
+        }
+        Map<String, DateTime> eventTimestamps = new HashMap<>();
+        for (StudyActivityEvent event : events) {
+            eventTimestamps.put(event.getEventId(), event.getTimestamp());
+        }
+        return records.stream().filter(record -> {
+            DateTime eventTimestamp = eventTimestamps.get(startEventIds.get(record.getInstanceGuid()));
+            return eventTimestamp != null && record.getEventTimestamp() != null
+                    && eventTimestamp.getMillis() == record.getEventTimestamp().getMillis();
+        }).collect(toList());
+    }
+    
+    private void createLowAdherenceAlert(String appId, String studyId, String userId, Study study,
+            WeeklyAdherenceReport weeklyReport) {
+        // trigger alert for low weekly adherence
         if (weeklyReport.getWeeklyAdherencePercent() != null
                 && study.getAdherenceThresholdPercentage() != null
                 && weeklyReport.getWeeklyAdherencePercent() <= study.getAdherenceThresholdPercentage()) {
-            alertService.createAlert(
-                    Alert.lowAdherence(studyId, appId, account.getId(), study.getAdherenceThresholdPercentage()));
+            alertService.createAlert(Alert.lowAdherence(studyId, appId, userId,
+                    study.getAdherenceThresholdPercentage()));
         }
+    }
 
-        return weeklyReport;
+    /**
+     * Return the participant’s persisted weekly adherence report if nothing it was calculated from has changed
+     * since it was last calculated, otherwise calculate and persist it again. The state of those inputs is
+     * assembled from the study, the account, and etag timestamps that are maintained in the cache whenever
+     * schedules, events, or adherence records are changed, so reusing a report costs one batched cache read and
+     * one report read, instead of loading the schedule metadata, all of the participant’s events, and all of
+     * their adherence records. A missing timestamp is seeded with the current time, so the first report is
+     * recalculated and later ones can be reused. Enrollment changes remove the recorded state.
+     */
+    protected WeeklyAdherenceReport getIncrementalWeeklyAdherenceReport(String appId, String studyId,
+            Account account) {
+        DateTime createdOn = getDateTime();
+        String zoneId = studyService.getZoneId(appId, studyId, account.getClientTimeZone());
+        
+        // This must be read before the report is generated, so that changes made while the report is 
+        // being generated are seen as changes the next time the report is requested.
+        WeeklyAdherenceReportState state = getWeeklyAdherenceReportState(appId, studyId, account, createdOn, zoneId);
+        CacheKey stateKey = CacheKey.weeklyAdherenceReportState(appId, studyId, account.getId());
+        
+        if (state != null && state.equals(cacheProvider.getObject(stateKey, WeeklyAdherenceReportState.class))) {
+            WeeklyAdherenceReport report = reportDao.getWeeklyAdherenceReport(appId, studyId, account.getId());
+            if (report != null) {
+                LOG.info("Weekly adherence report for " + account.getId() + " unchanged, not regenerated");
+                return report;
+            }
+        }
+        WeeklyAdherenceReport report = generateWeeklyAdherenceReport(appId, studyId, account, createdOn, zoneId);
+        if (state != null) {
+            cacheProvider.setObject(stateKey, state, WEEKLY_ADHERENCE_STATE_EXPIRE_IN_SECONDS);
+        }
+        return report;
+    }
+    
+    protected WeeklyAdherenceReportState getWeeklyAdherenceReportState(String appId, String studyId,
+            Account account, DateTime createdOn, String zoneId) {
+        List<CacheKey> etagKeys = ImmutableList.of(
+                CacheKey.etag(Schedule2.class, appId, studyId),
+                CacheKey.etag(StudyActivityEvent.class, account.getId()),
+                CacheKey.etag(AdherenceRecord.class, account.getId()));
+        List<DateTime> cachedTimestamps = cacheProvider.getObjects(etagKeys, DateTime.class);
+        if (cachedTimestamps == null || cachedTimestamps.size() != etagKeys.size()) {
+            return null;
+        }
+        // A timestamp is missing until the first write of that kind (e.g. a newly enrolled participant has no
+        // adherence records yet). Seed it now, before the report is generated, so any later write replaces it
+        // and the next state no longer matches.
+        List<DateTime> timestamps = new ArrayList<>(cachedTimestamps);
+        for (int i = 0; i < timestamps.size(); i++) {
+            if (timestamps.get(i) == null) {
+                cacheProvider.setObject(etagKeys.get(i), createdOn);
+                timestamps.set(i, createdOn);
+            }
+        }
+        Study study = studyService.getStudy(appId, studyId, true);
+        RequestInfo info = requestInfoService.getRequestInfo(account.getId());
+        
+        WeeklyAdherenceReportState state = new WeeklyAdherenceReportState();
+        state.setStudyModifiedOn(toMillis(study.getModifiedOn()));
+        state.setAccountModifiedOn(toMillis(account.getModifiedOn()));
+        state.setScheduleModifiedOn(toMillis(timestamps.get(0)));
+        state.setEventsModifiedOn(toMillis(timestamps.get(1)));
+        state.setAdherenceRecordsModifiedOn(toMillis(timestamps.get(2)));
+        state.setClientTimeZone(zoneId);
+        state.setLocalDate(createdOn.withZone(DateTimeZone.forID(zoneId)).toLocalDate().toString());
+        state.setSignedIn(info != null && info.getSignedInOn() != null);
+        return state;
+    }
+    
+    private static Long toMillis(DateTime timestamp) {
+        return (timestamp == null) ? null : timestamp.getMillis();
     }
 
     protected WeeklyAdherenceReport deriveWeeklyAdherenceFromStudyReportWeek(String studyId, Account account,
             StudyAdherenceReport report) {
+        WeeklyAdherenceReport weeklyReport = createWeeklyAdherenceReport(studyId, account, report);
+        reportDao.saveWeeklyAdherenceReport(weeklyReport);
+        return weeklyReport;
+    }
+    
+    protected WeeklyAdherenceReport createWeeklyAdherenceReport(String studyId, Account account,
+            StudyAdherenceReport report) {
         
         WeeklyAdherenceReport weeklyReport = new WeeklyAdherenceReport();
         weeklyReport.setAppId(account.getAppId());
@@ -484,7 +744,6 @@ public class AdherenceService {
                 weeklyReport.setNextActivity(report.getNextActivity());    
             }
         }
-        reportDao.saveWeeklyAdherenceReport(weeklyReport);
         return weeklyReport;
     }
 
@@ -8,17 +8,21 @@ import static org.sagebionetworks.bridge.BridgeConstants.SHARED_APP_ID;
 import static org.sagebionetworks.bridge.models.appconfig.ConfigResolver.INSTANCE;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.joda.time.DateTime;
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.AppConfigDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoAppConfig;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.CriteriaContext;
-import org.sagebionetworks.bridge.models.CriteriaUtils;
+import org.sagebionetworks.bridge.models.CriteriaIndexCache;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolderImpl;
 import org.sagebionetworks.bridge.models.appconfig.AppConfig;
@@ -38,12 +42,20 @@ import org.springframework.stereotype.Component;
 import org.springframework.validation.Validator;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 @Component
 public class AppConfigService {
     private static final Logger LOG = LoggerFactory.getLogger(AppConfigService.class);
     
+    // Resolving references reads every referenced survey, assessment and config element, so the results
+    // are held for each revision of an app config that has been matched for a user.
+    static final int RESOLVED_REFERENCES_EXPIRE_SECONDS = 5*60;
+    static final int RESOLVED_REFERENCES_MAX_SIZE = 1000;
+    
     private AppConfigDao appConfigDao;
     
     private AppConfigElementService appConfigElementService;
@@ -60,6 +72,16 @@ public class AppConfigService {
     
     private AssessmentService assessmentService;
     
+    private CacheProvider cacheProvider;
+    
+    // App config versions change whenever their criteria are updated.
+    private final CriteriaIndexCache<AppConfig> criteriaIndexCache = new CriteriaIndexCache<>(
+            (appConfig) -> (appConfig.getVersion() == null) ? null : appConfig.getGuid() + ":" + appConfig.getVersion());
+    
+    private final Cache<String, ResolvedReferences> resolvedReferencesCache = CacheBuilder.newBuilder()
+            .maximumSize(RESOLVED_REFERENCES_MAX_SIZE)
+            .expireAfterWrite(RESOLVED_REFERENCES_EXPIRE_SECONDS, TimeUnit.SECONDS).build();
+    
     @Autowired
     final void setAppConfigDao(AppConfigDao appConfigDao) {
         this.appConfigDao = appConfigDao;
@@ -100,6 +122,11 @@ public class AppConfigService {
         this.assessmentService = assessmentService;
     }
     
+    @Autowired
+    final void setCacheProvider(CacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+    }
+    
     // In order to mock this value;
     protected long getCurrentTimestamp() {
         return DateUtils.getCurrentMillisFromEpoch(); 
@@ -130,7 +157,7 @@ public class AppConfigService {
 
         List<AppConfig> appConfigs = getAppConfigs(context.getAppId(), false);
 
-        List<AppConfig> matches = CriteriaUtils.filterByCriteria(context, appConfigs,
+        List<AppConfig> matches = criteriaIndexCache.filterByCriteria(context.getAppId(), context, appConfigs,
                 comparingLong(AppConfig::getCreatedOn));
 
         // Should have matched one and only one app config.
@@ -145,10 +172,41 @@ public class AppConfigService {
             LOG.info("CriteriaContext matches more than one app config: criteriaContext=" + context + ", appConfigs="+matches);
         }
         AppConfig matched = matches.get(0);
-        resolveReferences(context.getAppId(), matched);
+        resolveReferencesWithCache(context.getAppId(), matched);
         return matched;
     }
     
+    /**
+     * Resolve the references of an app config matched for a user, reusing the references resolved by this server 
+     * for the same revision of the config. The resolved references are held locally, but they are only valid while 
+     * a token for them exists in Redis: the token is a member of the app's AppConfigList set, which is removed when 
+     * app configs, config elements, surveys, or assessments are changed, so every server re-resolves the references 
+     * after a change. Resolved references do not vary by the user's language, so it is not part of the key.
+     */
+    protected void resolveReferencesWithCache(String appId, AppConfig config) {
+        if (config.getGuid() == null) {
+            resolveReferences(appId, config);
+            return;
+        }
+        CacheKey cacheKey = CacheKey.resolvedAppConfig(appId, config.getGuid(), config.getModifiedOn());
+        String token = cacheProvider.getObject(cacheKey, String.class);
+        
+        ResolvedReferences resolved = resolvedReferencesCache.getIfPresent(cacheKey.toString());
+        if (token != null && resolved != null && resolved.token.equals(token)) {
+            resolved.copyTo(config);
+            return;
+        }
+        resolveReferences(appId, config);
+        
+        // Don't replace a token from another server, or that server will needlessly resolve the references again.
+        if (token == null) {
+            token = getGUID();
+            cacheProvider.setObject(cacheKey, token, RESOLVED_REFERENCES_EXPIRE_SECONDS);
+            cacheProvider.addCacheKeyToSet(CacheKey.appConfigList(appId), cacheKey.toString());
+        }
+        resolvedReferencesCache.put(cacheKey.toString(), new ResolvedReferences(token, config));
+    }
+    
     protected void resolveReferences(String appId, AppConfig config) {
         config.setSurveyReferences(config.getSurveyReferences().stream()
                 .map(ref -> resolveSurvey(appId, ref))
@@ -307,4 +365,24 @@ public class AppConfigService {
         
         appConfigDao.deleteAppConfigPermanently(appId, guid);
     }
+    
+    private static final class ResolvedReferences {
+        private final String token;
+        private final List<SurveyReference> surveyReferences;
+        private final List<AssessmentReference> assessmentReferences;
+        private final Map<String, JsonNode> configElements;
+        
+        private ResolvedReferences(String token, AppConfig config) {
+            this.token = token;
+            this.surveyReferences = ImmutableList.copyOf(config.getSurveyReferences());
+            this.assessmentReferences = ImmutableList.copyOf(config.getAssessmentReferences());
+            this.configElements = ImmutableMap.copyOf(config.getConfigElements());
+        }
+        
+        private void copyTo(AppConfig config) {
+            config.setSurveyReferences(surveyReferences);
+            config.setAssessmentReferences(assessmentReferences);
+            config.setConfigElements(configElements);
+        }
+    }
 }
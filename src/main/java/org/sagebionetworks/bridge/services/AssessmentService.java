@@ -45,6 +45,8 @@ import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.AssessmentDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
@@ -67,6 +69,8 @@ public class AssessmentService {
     
     private OrganizationService organizationService;
     
+    private CacheProvider cacheProvider;
+    
     @Autowired
     final void setAssessmentDao(AssessmentDao assessmentDao) {
         this.dao = assessmentDao;
@@ -82,6 +86,11 @@ public class AssessmentService {
         this.organizationService = organizationService;
     }
     
+    @Autowired
+    final void setCacheProvider(CacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+    }
+    
     // accessor to mock for tests
     String generateGuid() {
         return BridgeUtils.generateGuid();
@@ -199,7 +208,15 @@ public class AssessmentService {
         AssessmentValidator validator = new AssessmentValidator(appId, organizationService);
         Validate.entityThrowingException(validator, assessment);
 
-        return dao.updateAssessment(appId, assessment);        
+        Assessment updated = dao.updateAssessment(appId, assessment);
+        invalidateResolvedAppConfigs(appId);
+        return updated;
+    }
+    
+    // App configs resolve the identifiers (and the shared identifier) of the assessments they reference, and 
+    // cache the result until the app's set of app config keys is removed.
+    private void invalidateResolvedAppConfigs(String appId) {
+        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(appId));
     }
         
     public Assessment getAssessmentByGuid(String appId, String ownerId, String guid) {
@@ -319,7 +336,9 @@ public class AssessmentService {
         
         original.setOriginGuid(assessmentToPublish.getGuid());
         
-        return dao.publishAssessment(appId, original, assessmentToPublish, configToPublish);
+        Assessment published = dao.publishAssessment(appId, original, assessmentToPublish, configToPublish);
+        invalidateResolvedAppConfigs(appId);
+        return published;
     }
     
     /**
@@ -373,6 +392,7 @@ public class AssessmentService {
         assessment.setDeleted(true);
         assessment.setModifiedOn(getModifiedOn());
         dao.updateAssessment(appId, assessment);
+        invalidateResolvedAppConfigs(appId);
     }
         
     public void deleteAssessmentPermanently(String appId, String ownerId, String guid) {
@@ -383,6 +403,7 @@ public class AssessmentService {
         if (opt.isPresent()) {
             Assessment assessment = opt.get();
             dao.deleteAssessment(appId, assessment);
+            invalidateResolvedAppConfigs(appId);
         }
     }
     
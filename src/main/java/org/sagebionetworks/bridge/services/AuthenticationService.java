@@ -3,6 +3,7 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Boolean.TRUE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.sagebionetworks.bridge.AuthEvaluatorField.STUDY_ID;
 import static org.sagebionetworks.bridge.AuthUtils.CAN_EDIT_PARTICIPANTS;
@@ -12,6 +13,8 @@ import static org.sagebionetworks.bridge.models.accounts.AccountSecretType.REAUT
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.DISABLED;
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.UNVERIFIED;
 import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM;
+import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.STORMPATH_HMAC_SHA_256;
+import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.STORMPATH_PBKDF2_DOUBLE_HASH;
 import static org.sagebionetworks.bridge.services.AuthenticationService.ChannelType.EMAIL;
 import static org.sagebionetworks.bridge.services.AuthenticationService.ChannelType.PHONE;
 import static org.sagebionetworks.bridge.validators.IdentifierUpdateValidator.INSTANCE;
@@ -20,8 +23,21 @@ import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Map;
+import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Resource;
+
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -45,9 +61,11 @@ import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.exceptions.LimitExceededException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.Metrics;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountStatus;
@@ -84,6 +102,17 @@ public class AuthenticationService {
     static final String PASSWORD_RESET_TOKEN_EXPIRED = "Password reset token has expired (or already been used).";
     static final int SIGNIN_GRACE_PERIOD_SECONDS = 5*60; // 5 min
     static final int ROTATIONS = 3;
+    static final String STAGE_PARTICIPANT = "participant";
+    static final String STAGE_LANGUAGES = "languages";
+    static final String STAGE_CONSENT_STATUSES = "consentStatuses";
+    static final String STAGE_SPONSORED_STUDIES = "sponsoredStudies";
+    static final String STAGE_REAUTH_TOKEN = "reauthToken";
+    static final String STAGE_TOTAL = "total";
+    static final String TOO_MANY_SIGN_INS_MSG = "Too many sign in requests are being processed. Please try again later.";
+    static final String PASSWORD_REHASH_ITERATIONS = "password.rehash.iterations";
+    // Legacy algorithms whose hashes are replaced with the default algorithm after a successful sign in.
+    static final Set<PasswordAlgorithm> REHASHED_ALGORITHMS = EnumSet.of(STORMPATH_HMAC_SHA_256,
+            STORMPATH_PBKDF2_DOUBLE_HASH);
 
     public enum ChannelType {
         EMAIL,
@@ -104,7 +133,17 @@ public class AuthenticationService {
     private OAuthProviderService oauthProviderService;
     private SponsorService sponsorService;
     private StudyService studyService;
+    private ExecutorService sessionAssemblyExecutorService;
+    private ThreadPoolExecutor passwordHashExecutorService;
     
+    @Resource(name = "passwordHashExecutorService")
+    final void setPasswordHashExecutorService(ThreadPoolExecutor passwordHashExecutorService) {
+        this.passwordHashExecutorService = passwordHashExecutorService;
+    }
+    @Resource(name = "sessionAssemblyExecutorService")
+    final void setSessionAssemblyExecutorService(ExecutorService sessionAssemblyExecutorService) {
+        this.sessionAssemblyExecutorService = sessionAssemblyExecutorService;
+    }
     @Autowired
     final void setCacheProvider(CacheProvider cache) {
         this.cacheProvider = cache;
@@ -703,10 +742,18 @@ public class AuthenticationService {
 
     /**
      * Constructs a session based on the user's account, participant, and request context. This is called by sign-in
-     * APIs, which creates the session. Package-scoped for unit tests.
+     * APIs, which creates the session. The session is built from the account in hand (it is not read again). The 
+     * studies sponsored by the caller's organization are retrieved, and a new reauthentication token is written, 
+     * concurrently with the calculation of the consent statuses. The time spent in each stage is recorded in the 
+     * request's metrics. Package-scoped for unit tests.
      */
     protected UserSession getSessionFromAccount(App app, CriteriaContext context, Account account) {
-        StudyParticipant participant = participantService.getParticipant(app, account, false);
+        Map<String, Long> stageMillis = new ConcurrentHashMap<>();
+        Stopwatch totalWatch = Stopwatch.createStarted();
+        
+        Stopwatch watch = Stopwatch.createStarted();
+        StudyParticipant participant = participantService.getParticipantForSession(account);
+        stageMillis.put(STAGE_PARTICIPANT, watch.elapsed(MILLISECONDS));
 
         // If the user does not have a language persisted yet, now that we have a session, we can retrieve it 
         // from the context, add it to the user/session, and persist it.
@@ -714,14 +761,30 @@ public class AuthenticationService {
             participant = new StudyParticipant.Builder().copyOf(participant)
                     .withLanguages(context.getLanguages()).build();
             
-            // Note that the context does not have the healthCode, you must use the participant
-            AccountId accountId = AccountId.forHealthCode(app.getIdentifier(), participant.getHealthCode());
-            accountService.editAccount(accountId,
+            watch.reset().start();
+            accountService.editLoadedAccount(account,
                     accountToEdit -> accountToEdit.setLanguages(context.getLanguages()));
+            stageMillis.put(STAGE_LANGUAGES, watch.elapsed(MILLISECONDS));
         }
 
         RequestContext reqContext = RequestContext.get();
         
+        // Neither of these depend on the consent statuses, so they are started before they are calculated.
+        String orgMembership = participant.getOrgMembership();
+        Future<Set<String>> sponsoredStudiesFuture = null;
+        if (orgMembership != null) {
+            sponsoredStudiesFuture = submitStage(STAGE_SPONSORED_STUDIES, stageMillis, reqContext,
+                    () -> sponsorService.getSponsoredStudyIds(app.getIdentifier(), orgMembership));
+        }
+        Future<String> reauthTokenFuture = null;
+        if (Boolean.TRUE.equals(app.isReauthenticationEnabled())) {
+            String reauthToken = generateReauthToken();
+            reauthTokenFuture = submitStage(STAGE_REAUTH_TOKEN, stageMillis, reqContext, () -> {
+                accountSecretDao.createSecret(REAUTH, account.getId(), reauthToken);
+                return reauthToken;
+            });
+        }
+        
         // Create new session.
         UserSession session = new UserSession(participant);
         session.setSessionToken(getGuid());
@@ -733,21 +796,66 @@ public class AuthenticationService {
         session.setReauthToken(account.getReauthToken());
         
         CriteriaContext newContext = updateContextFromSession(context, session);
+        watch.reset().start();
         session.setConsentStatuses(consentService.getConsentStatuses(newContext, account));
+        stageMillis.put(STAGE_CONSENT_STATUSES, watch.elapsed(MILLISECONDS));
         
-        if (!Boolean.TRUE.equals(app.isReauthenticationEnabled())) {
+        if (reauthTokenFuture == null) {
             account.setReauthToken(null);
         } else {
-            String reauthToken = generateReauthToken();
-            accountSecretDao.createSecret(REAUTH, account.getId(), reauthToken);
-            session.setReauthToken(reauthToken);
+            session.setReauthToken(getStageResult(reauthTokenFuture));
         }
+        Set<String> orgSponsoredStudies = (sponsoredStudiesFuture == null) ? null
+                : getStageResult(sponsoredStudiesFuture);
+        RequestContext.updateFromSession(session, orgSponsoredStudies);
         
-        RequestContext.updateFromSession(session, sponsorService);
-        
+        stageMillis.put(STAGE_TOTAL, totalWatch.elapsed(MILLISECONDS));
+        Metrics metrics = reqContext.getMetrics();
+        if (metrics != null) {
+            metrics.setSessionStages(stageMillis);
+        }
         return session;
     }
     
+    /**
+     * Run one stage of constructing a session on the session assembly executor, with the caller's request context, 
+     * recording the time it takes. When the executor is saturated, the stage runs on the caller's thread, which 
+     * already has the request context and must keep it.
+     */
+    private <T> Future<T> submitStage(String stage, Map<String, Long> stageMillis, RequestContext reqContext,
+            Callable<T> callable) {
+        Thread callerThread = Thread.currentThread();
+        return sessionAssemblyExecutorService.submit(() -> {
+            boolean onCallerThread = (Thread.currentThread() == callerThread);
+            if (!onCallerThread) {
+                RequestContext.set(reqContext);
+            }
+            Stopwatch watch = Stopwatch.createStarted();
+            try {
+                return callable.call();
+            } finally {
+                stageMillis.put(stage, watch.elapsed(MILLISECONDS));
+                if (!onCallerThread) {
+                    RequestContext.set(null);
+                }
+            }
+        });
+    }
+    
+    private <T> T getStageResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeServiceException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new BridgeServiceException(e.getCause());
+        }
+    }
+    
     public UserSession oauthSignIn(CriteriaContext context, OAuthAuthorizationToken authToken) {
         AccountId accountId = oauthProviderService.oauthSignIn(authToken);
         
@@ -874,13 +982,67 @@ public class AuthenticationService {
             LOG.warn("Account " + account.getId() + " is enabled but has no password.");
             throw new EntityNotFoundException(Account.class);
         }
+        PasswordAlgorithm algorithm = account.getPasswordAlgorithm();
+        String hash = account.getPasswordHash();
+        
+        // Hashing is deliberately expensive, so it runs on its own bounded executor rather than on request threads.
+        AtomicLong queueMillis = new AtomicLong();
+        Stopwatch watch = Stopwatch.createStarted();
+        Future<Boolean> future;
         try {
-            if (!account.getPasswordAlgorithm().checkHash(account.getPasswordHash(), plaintext)) {
-                // To prevent enumeration attacks, if the credential doesn't match, throw 404 account not found.
-                throw new EntityNotFoundException(Account.class);
-            }
-        } catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException ex) {
-            throw new BridgeServiceException("Error validating password: " + ex.getMessage(), ex);
-        }        
+            future = passwordHashExecutorService.submit(() -> {
+                queueMillis.set(watch.elapsed(MILLISECONDS));
+                try {
+                    return algorithm.checkHash(hash, plaintext);
+                } catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException ex) {
+                    throw new BridgeServiceException("Error validating password: " + ex.getMessage(), ex);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Password hash executor is full, rejecting sign in for account " + account.getId()
+                    + ", queued=" + passwordHashExecutorService.getQueue().size());
+            throw new LimitExceededException(TOO_MANY_SIGN_INS_MSG);
+        }
+        boolean matches = getStageResult(future);
+        
+        Metrics metrics = RequestContext.get().getMetrics();
+        if (metrics != null) {
+            metrics.setPasswordHash(queueMillis.get(), watch.elapsed(MILLISECONDS) - queueMillis.get());
+        }
+        if (!matches) {
+            // To prevent enumeration attacks, if the credential doesn't match, throw 404 account not found.
+            throw new EntityNotFoundException(Account.class);
+        }
+        if (REHASHED_ALGORITHMS.contains(algorithm)) {
+            rehashPassword(account, plaintext);
+        }
+    }
+    
+    /**
+     * Replace a legacy password hash with a hash of the default algorithm, in the background, so the sign in does 
+     * not wait for a second hash. The new hash is only saved if the stored hash is still the one that was verified, 
+     * so a concurrent password change wins. This is skipped if the executor is busy, and failures are logged; the 
+     * next sign in will retry.
+     */
+    private void rehashPassword(Account account, String plaintext) {
+        String userId = account.getId();
+        PasswordAlgorithm previousAlgorithm = account.getPasswordAlgorithm();
+        String previousHash = account.getPasswordHash();
+        int iterations = config.getInt(PASSWORD_REHASH_ITERATIONS);
+        try {
+            passwordHashExecutorService.execute(() -> {
+                try {
+                    String hash = DEFAULT_PASSWORD_ALGORITHM.generateHash(plaintext, iterations);
+                    if (!accountDao.updatePasswordHash(userId, previousAlgorithm, previousHash,
+                            DEFAULT_PASSWORD_ALGORITHM, hash)) {
+                        LOG.info("Password changed before it was rehashed for account " + userId);
+                    }
+                } catch (Exception e) {
+                    LOG.warn("Could not rehash password for account " + userId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.info("Password hash executor is full, not rehashing password for account " + userId);
+        }
     }
 }
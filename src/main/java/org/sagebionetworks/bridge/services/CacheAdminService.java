@@ -3,12 +3,16 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Resource;
 
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import redis.clients.jedis.Jedis;
@@ -20,11 +24,23 @@ import com.google.common.collect.Sets;
 public class CacheAdminService {
     
     private JedisPool jedisPool;
+    private NearCache nearCache;
+    private TokenBucketRateLimiter rateLimiter;
 
     @Resource(name = "jedisPool")
     public void setJedisPool(JedisPool jedisPool) {
         this.jedisPool = jedisPool;
     }
+    
+    @Autowired
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+    
+    @Autowired
+    public void setTokenBucketRateLimiter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
 
     /**
      * Returns all keys in the cache that are not user session keys.
@@ -55,10 +71,26 @@ public class CacheAdminService {
             try (Jedis jedis = jedisPool.getResource()) {
                 removed = jedis.del(cacheKey);
             }
+            nearCache.invalidate(cacheKey);
         }
         if (removed == null || removed == 0) {
             throw new BridgeServiceException("Item could not be removed from cache: does key '"+cacheKey+"' exist?"); 
         }
     }
     
+    /**
+     * Returns the hit, miss, and eviction counts of the in-process near cache on this server, 
+     * for each type of cache key it holds.
+     */
+    public Map<String, Map<String, Long>> getNearCacheStatistics() {
+        return nearCache.getStatistics();
+    }
+    
+    /**
+     * Returns the tokens (e.g. bytes or messages) allowed and denied on this server for each rate 
+     * limit, and the number of times the limit was enforced locally because Redis was unavailable.
+     */
+    public Map<String, Map<String, Long>> getRateLimiterStatistics() {
+        return rateLimiter.getStatistics();
+    }
 }
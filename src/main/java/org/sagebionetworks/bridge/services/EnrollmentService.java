@@ -36,6 +36,8 @@ import com.google.common.collect.ImmutableSet;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.EnrollmentDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -66,6 +68,8 @@ public class EnrollmentService {
     private AlertService alertService;
     @Autowired
     private StudyService studyService;
+    @Autowired
+    private CacheProvider cacheProvider;
     
     protected DateTime getEnrollmentDateTime() {
         return DateTime.now();
@@ -181,6 +185,8 @@ public class EnrollmentService {
             RequestContext.set(context.toBuilder().withCallerEnrolledStudies(
                     addToSet(context.getCallerEnrolledStudies(), newEnrollment.getStudyId())).build());            
         }
+        removeWeeklyAdherenceReportState(account, newEnrollment.getStudyId());
+        
         Enrollment existingEnrollment = getElement(account.getEnrollments(), 
                 Enrollment::getStudyId, newEnrollment.getStudyId()).orElse(null);
         
@@ -269,6 +275,8 @@ public class EnrollmentService {
         String withdrawnBy = (!account.getId().equals(callerUserId)) ? callerUserId : null;
         enrollment.setWithdrawnBy(withdrawnBy);
         
+        removeWeeklyAdherenceReportState(account, enrollment.getStudyId());
+        
         for (Enrollment existingEnrollment : account.getEnrollments()) {
             if (existingEnrollment.getStudyId().equals(enrollment.getStudyId())) {
                 existingEnrollment.setWithdrawnOn(enrollment.getWithdrawnOn());
@@ -279,6 +287,14 @@ public class EnrollmentService {
         }
         throw new EntityNotFoundException(Enrollment.class);
     }
+    
+    /**
+     * The weekly adherence report is only reused while its recorded state matches, and enrollment 
+     * is not part of that state, so remove it to force the report to be recalculated.
+     */
+    private void removeWeeklyAdherenceReportState(Account account, String studyId) {
+        cacheProvider.removeObject(CacheKey.weeklyAdherenceReportState(account.getAppId(), studyId, account.getId()));
+    }
 
     public void updateEnrollment(Enrollment enrollment) {
         checkNotNull(enrollment);
@@ -0,0 +1,137 @@
+package org.sagebionetworks.bridge.services;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.models.notifications.NotificationFanOutResult;
+import org.sagebionetworks.bridge.models.notifications.NotificationMessage;
+import org.sagebionetworks.bridge.models.notifications.NotificationRegistration;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.services.sns.model.ThrottledException;
+
+/**
+ * Publishes a notification message to a participant's registrations in parallel, on a bounded pool of threads, 
+ * rather than making one SNS call after another on the caller's thread. Publishes that are throttled by SNS are 
+ * retried with an exponential backoff. Messages to topics do not go through this service, since SNS delivers a 
+ * message to the subscribers of a topic itself.
+ */
+@Component
+public class NotificationFanOutService {
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationFanOutService.class);
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long INITIAL_BACKOFF_MILLIS = 200L;
+
+    private AmazonSNS snsClient;
+    private ExecutorService pushNotificationExecutorService;
+
+    @Resource(name = "snsClient")
+    final void setSnsClient(AmazonSNS snsClient) {
+        this.snsClient = snsClient;
+    }
+
+    @Resource(name = "pushNotificationExecutorService")
+    final void setPushNotificationExecutorService(ExecutorService pushNotificationExecutorService) {
+        this.pushNotificationExecutorService = pushNotificationExecutorService;
+    }
+
+    /**
+     * Publish the message to each of the registrations. The future that is returned completes once every publish
+     * has succeeded or failed (it does not complete exceptionally). Registrations that cannot be queued because
+     * the pool is full are reported as failed.
+     */
+    public CompletableFuture<NotificationFanOutResult> send(String appId,
+            List<NotificationRegistration> registrations, NotificationMessage message) {
+        checkNotNull(appId);
+        checkNotNull(registrations);
+        checkNotNull(message);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(registrations.size());
+        for (NotificationRegistration registration : registrations) {
+            CompletableFuture<Boolean> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> publish(appId, registration, message),
+                        pushNotificationExecutorService);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Push notification queue is full, not publishing to registration="
+                        + registration.getGuid() + ", appId=" + appId);
+                future = CompletableFuture.completedFuture(false);
+            }
+            futures.add(future.exceptionally(e -> {
+                LOG.warn("Error publishing SNS message to registration=" + registration.getGuid() + ", appId="
+                        + appId, e);
+                return false;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Set<String> delivered = new HashSet<>();
+            Set<String> failed = new HashSet<>();
+            for (int i = 0; i < registrations.size(); i++) {
+                String guid = registrations.get(i).getGuid();
+                if (futures.get(i).join()) {
+                    delivered.add(guid);
+                } else {
+                    failed.add(guid);
+                }
+            }
+            return new NotificationFanOutResult(delivered, failed);
+        });
+    }
+
+    boolean publish(String appId, NotificationRegistration registration, NotificationMessage message) {
+        PublishRequest request = new PublishRequest().withTargetArn(registration.getEndpoint())
+                .withSubject(message.getSubject()).withMessage(message.getMessage());
+
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1;; attempt++) {
+            try {
+                PublishResult result = snsClient.publish(request);
+                LOG.debug("Sent message to participant registration=" + registration.getGuid() + ", appId=" +
+                        appId + ", message ID=" + result.getMessageId());
+                return true;
+            } catch (AmazonClientException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                    LOG.warn("Error publishing SNS message to registration=" + registration.getGuid() + ", appId="
+                            + appId + ", attempts=" + attempt, e);
+                    return false;
+                }
+            }
+            try {
+                sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMillis *= 2;
+        }
+    }
+
+    // Only throttled publishes are retried. Any other error (including a service error or a lost response) may 
+    // come after SNS has accepted the message, and retrying it could deliver the notification twice.
+    static boolean isRetryable(AmazonClientException e) {
+        return e instanceof ThrottledException || RetryUtils.isThrottlingException(e);
+    }
+
+    // Overridden in tests, so retries do not wait.
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
@@ -18,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.NotificationRegistrationDao;
 import org.sagebionetworks.bridge.dao.NotificationTopicDao;
 import org.sagebionetworks.bridge.dao.TopicSubscriptionDao;
@@ -37,12 +38,15 @@ import com.amazonaws.services.sns.model.NotFoundException;
 import com.amazonaws.services.sns.model.PublishRequest;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 
 @Component
 public class NotificationTopicService {
 
     private static final Logger LOG = LoggerFactory.getLogger(NotificationTopicService.class);
     
+    static final String TOPIC_PUBLISH_RATE = "push.notification.topic.publish.rate";
+    
     private NotificationRegistrationDao registrationDao;
     
     private NotificationTopicDao topicDao;
@@ -51,6 +55,8 @@ public class NotificationTopicService {
     
     private AmazonSNS snsClient;
     
+    private RateLimiter topicPublishRateLimiter;
+    
     @Autowired
     final void setNotificationRegistrationDao(NotificationRegistrationDao registrationDao) {
         this.registrationDao = registrationDao;
@@ -71,6 +77,12 @@ public class NotificationTopicService {
         this.snsClient = snsClient;
     }
     
+    /** Topic publishes are fanned out by SNS to every subscriber, so this server limits how often it makes them. */
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.topicPublishRateLimiter = RateLimiter.create(bridgeConfig.getPropertyAsInt(TOPIC_PUBLISH_RATE));
+    }
+    
     public List<NotificationTopic> listTopics(String appId, boolean includeDeleted) {
         checkNotNull(appId);
         
@@ -135,6 +147,7 @@ public class NotificationTopicService {
         PublishRequest request = new PublishRequest().withTopicArn(topic.getTopicARN())
                 .withSubject(message.getSubject()).withMessage(message.getMessage());
         
+        topicPublishRateLimiter.acquire();
         snsClient.publish(request);
     }
     
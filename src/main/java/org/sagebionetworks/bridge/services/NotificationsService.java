@@ -6,12 +6,9 @@ import static org.sagebionetworks.bridge.BridgeUtils.SEMICOLON_SPACE_JOINER;
 
 import java.util.List;
 import java.util.Set;
-
-import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -29,25 +26,17 @@ import org.sagebionetworks.bridge.validators.NotificationMessageValidator;
 import org.sagebionetworks.bridge.validators.NotificationRegistrationValidator;
 import org.sagebionetworks.bridge.validators.Validate;
 
-import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.model.PublishRequest;
-import com.amazonaws.services.sns.model.PublishResult;
-import com.google.common.collect.Sets;
-
 /**
  * Service for managing client registration to receive push notifications, integrated into the 
  * Bridge platform.
  */
 @Component
 public class NotificationsService {
-    private static final Logger LOG = LoggerFactory.getLogger(NotificationsService.class);
-
     private ParticipantService participantService;
     private AppService appService;
     private NotificationRegistrationDao notificationRegistrationDao;
     private NotificationTopicService notificationTopicService;
-    private AmazonSNS snsClient;
+    private NotificationFanOutService notificationFanOutService;
 
     /** Participant service, if we need to get the participant. */
     @Autowired
@@ -74,9 +63,10 @@ public class NotificationsService {
         this.notificationTopicService = notificationTopicService;
     }
 
-    @Resource(name = "snsClient")
-    final void setSnsClient(AmazonSNS snsClient) {
-        this.snsClient = snsClient;
+    /** Publishes messages to a participant's registrations in parallel. */
+    @Autowired
+    final void setNotificationFanOutService(NotificationFanOutService notificationFanOutService) {
+        this.notificationFanOutService = notificationFanOutService;
     }
 
     /**
@@ -204,9 +194,12 @@ public class NotificationsService {
      * Send a push notification to an individual participant (assuming they have registered for push notification). 
      * This mechanism is intended to message specific individuals, <i>and should not be used to send out notifications 
      * to many accounts.</i> Create a topic, ask your users to subscribe to that topic in your application, and message 
-     * them via that topic.
+     * them via that topic. The message is published to the participant's registrations in the background; the future 
+     * that is returned completes with the GUIDs of any registrations that failed, or fails with a 
+     * BadRequestException if every registration failed.
      */
-    public Set<String> sendNotificationToUser(String appId, String healthCode, NotificationMessage message) {
+    public CompletableFuture<Set<String>> sendNotificationToUser(String appId, String healthCode,
+            NotificationMessage message) {
         checkNotNull(appId);
         checkNotNull(healthCode);
         checkNotNull(message);
@@ -218,28 +211,16 @@ public class NotificationsService {
             throw new BadRequestException("Participant has not registered to receive push notifications.");
         }
         
-        Set<String> erroredRegistrations = Sets.newHashSet();
-        for (NotificationRegistration registration : registrations) {
-            String endpointARN = registration.getEndpoint();
+        return notificationFanOutService.send(appId, registrations, message).thenApply(result -> {
+            Set<String> erroredRegistrations = result.getFailedRegistrations();
             
-            PublishRequest request = new PublishRequest().withTargetArn(endpointARN)
-                    .withSubject(message.getSubject()).withMessage(message.getMessage());
-
-            try {
-                PublishResult result = snsClient.publish(request);
-                LOG.debug("Sent message to participant registration=" + registration.getGuid() + ", appId=" +
-                        appId + ", message ID=" + result.getMessageId());
-            } catch(AmazonServiceException e) {
-                LOG.warn("Error publishing SNS message to participant", e);
-                erroredRegistrations.add(registration.getGuid());
+            // If none of the registrations succeeds, then throw an error.
+            if (erroredRegistrations.size() == registrations.size()) {
+                throw new BadRequestException("Error sending push notification to registration(s): "
+                        + SEMICOLON_SPACE_JOINER.join(erroredRegistrations) + ".");
             }
-        }
-        // If none of the registrations succeeds, then throw an error.
-        if (erroredRegistrations.size() == registrations.size()) {
-            throw new BadRequestException("Error sending push notification to registration(s): "
-                    + SEMICOLON_SPACE_JOINER.join(erroredRegistrations) + ".");
-        }
-        return erroredRegistrations;
+            return erroredRegistrations;
+        });
     }
 
     private String getPlatformARN(App app, NotificationRegistration registration) {
@@ -6,26 +6,35 @@ import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.google.common.collect.ImmutableList;
 import org.apache.http.HttpStatus;
 import org.joda.time.DateTime;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ParticipantFileDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.LimitExceededException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.files.ParticipantFile;
-import org.sagebionetworks.bridge.util.ByteRateLimiter;
 import org.sagebionetworks.bridge.validators.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.amazonaws.HttpMethod.GET;
 import static com.amazonaws.HttpMethod.PUT;
@@ -40,20 +49,25 @@ import static org.sagebionetworks.bridge.validators.ParticipantFileValidator.INS
 
 @Component
 public class ParticipantFileService {
+    private static final Logger LOG = LoggerFactory.getLogger(ParticipantFileService.class);
 
     static final int EXPIRATION_IN_MINUTES = 1440;
 
     static final String PARTICIPANT_FILE_BUCKET = "participant-file.bucket";
 
+    static final String DOWNLOAD_RATE_LIMIT_NAME = "participant-file-download";
+
     private ParticipantFileDao participantFileDao;
 
     private AmazonS3 s3Client;
 
     private String bucketName;
 
-    private BridgeConfig config;
+    private TokenBucketRateLimiter rateLimiter;
+
+    private RateLimit downloadRateLimit;
 
-    private Map<String, ByteRateLimiter> userByteRateLimiters = new ConcurrentHashMap<>();
+    private ExecutorService participantFileExecutorService;
 
     @Autowired
     final void setParticipantFileDao(ParticipantFileDao dao) {
@@ -63,7 +77,16 @@ public class ParticipantFileService {
     @Autowired
     final void setConfig(BridgeConfig config) {
         bucketName = config.get(PARTICIPANT_FILE_BUCKET);
-        this.config = config;
+        downloadRateLimit = new RateLimit(DOWNLOAD_RATE_LIMIT_NAME,
+                config.getInt("participant-file.rate-limiter.initial-bytes"),
+                config.getInt("participant-file.rate-limiter.maximum-bytes"),
+                config.getInt("participant-file.rate-limiter.refill-interval-seconds"),
+                config.getInt("participant-file.rate-limiter.refill-bytes"));
+    }
+
+    @Autowired
+    final void setTokenBucketRateLimiter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
     }
 
     @Resource(name = "s3Client")
@@ -71,33 +94,105 @@ public class ParticipantFileService {
         this.s3Client = s3;
     }
 
+    @Resource(name = "participantFileExecutorService")
+    final void setParticipantFileExecutorService(ExecutorService participantFileExecutorService) {
+        this.participantFileExecutorService = participantFileExecutorService;
+    }
+
     /**
-     * Creates and returns a ByteRateLimiter with different settings depending on
-     * the environment.
+     * Consumes the given number of bytes from the user's download budget, which is shared by all
+     * servers.
      * 
-     * @return a ByteRateLimiter
+     * @throws LimitExceededException if the user has requested to download too much data too
+     *                                frequently
      */
-    private ByteRateLimiter createByteRateLimiter() {
-        return new ByteRateLimiter(config.getInt("participant-file.rate-limiter.initial-bytes"),
-                config.getInt("participant-file.rate-limiter.maximum-bytes"),
-                config.getInt("participant-file.rate-limiter.refill-interval-seconds"),
-                config.getInt("participant-file.rate-limiter.refill-bytes"));
+    private void consumeDownloadBytes(String userId, long bytes) {
+        if (!rateLimiter.tryConsume(CacheKey.participantFileRateLimit(userId), downloadRateLimit, bytes)) {
+            throw new LimitExceededException(PARTICIPANT_FILE_RATE_LIMIT_ERROR);
+        }
     }
 
     /**
      * Retrieves the file size of a file stored on S3 in bytes. If the file has not
-     * yet been uploaded or does not exist, 0 is returned.
+     * yet been uploaded or does not exist, null is returned.
      * 
      * @param file the file to get the size of
-     * @return the size of the file in bytes (0 if not found)
+     * @return the size of the file in bytes (null if not found)
      */
-    private long getS3FileSize(ParticipantFile file) {
+    private Long getS3FileSize(ParticipantFile file) {
         try {
             return s3Client.getObjectMetadata(bucketName, getFilePath(file)).getContentLength();
         } catch (AmazonS3Exception e) {
             // file may not have been uploaded yet
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
-                return 0;
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the size of each file that does not have one, and returns the total size of the files in
+     * bytes. Sizes are looked up on S3 in parallel. Files that have not been uploaded have a size of
+     * 0. Once a file's upload URL has expired its object can no longer change, so the size is saved
+     * with the file and does not need to be looked up again.
+     *
+     * @param files the files to size
+     * @return the total size of the files in bytes
+     */
+    private long sizeFiles(List<ParticipantFile> files) {
+        List<ParticipantFile> unsizedFiles = new ArrayList<>();
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (ParticipantFile file : files) {
+            if (file.getFileSize() == null) {
+                unsizedFiles.add(file);
+                futures.add(lookUpS3FileSize(file));
+            }
+        }
+
+        List<ParticipantFile> filesToSave = new ArrayList<>();
+        DateTime uploadsExpireBefore = DateTime.now().minusMinutes(EXPIRATION_IN_MINUTES);
+        for (int i = 0; i < unsizedFiles.size(); i++) {
+            ParticipantFile file = unsizedFiles.get(i);
+            Long fileSize = joinFileSize(futures.get(i));
+            if (fileSize != null && (file.getCreatedOn() == null
+                    || file.getCreatedOn().isBefore(uploadsExpireBefore))) {
+                filesToSave.add(file);
+            }
+            file.setFileSize(fileSize == null ? 0L : fileSize);
+        }
+        for (ParticipantFile file : filesToSave) {
+            // If a size isn't saved, it will be looked up again the next time the file is requested.
+            try {
+                participantFileDao.updateParticipantFileSize(file);
+            } catch (ConcurrentModificationException e) {
+                LOG.info("Participant file " + file.getFileId() + " changed while it was being sized; size not saved");
+            } catch (RuntimeException e) {
+                LOG.warn("Error saving participant file size for file " + file.getFileId(), e);
+            }
+        }
+
+        long totalFileSizesBytes = 0;
+        for (ParticipantFile file : files) {
+            totalFileSizesBytes += file.getFileSize();
+        }
+        return totalFileSizesBytes;
+    }
+
+    private CompletableFuture<Long> lookUpS3FileSize(ParticipantFile file) {
+        try {
+            return CompletableFuture.supplyAsync(() -> getS3FileSize(file), participantFileExecutorService);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(getS3FileSize(file));
+        }
+    }
+
+    private Long joinFileSize(CompletableFuture<Long> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
             throw e;
         }
@@ -107,7 +202,7 @@ public class ParticipantFileService {
      * Get a ForwardCursorPagedResourceList of ParticipantFiles from the given
      * userId, with nextPageOffsetKey set.
      * If nextPageOffsetKey is null, then the list reached the end and there does
-     * not exist next page.
+     * not exist next page. Each file includes its size in bytes.
      *
      * @param userId    the id of the StudyParticipant
      * @param offsetKey the nextPageOffsetKey.
@@ -134,14 +229,8 @@ public class ParticipantFileService {
             return null;
         }
 
-        long totalFileSizesBytes = 0;
-        for (ParticipantFile file : files.getItems()) {
-            totalFileSizesBytes += getS3FileSize(file);
-        }
-        ByteRateLimiter rateLimiter = userByteRateLimiters.computeIfAbsent(userId, (u) -> createByteRateLimiter());
-        if (!rateLimiter.tryConsumeBytes(totalFileSizesBytes)) {
-            throw new LimitExceededException(PARTICIPANT_FILE_RATE_LIMIT_ERROR);
-        }
+        long totalFileSizesBytes = sizeFiles(files.getItems());
+        consumeDownloadBytes(userId, totalFileSizesBytes);
 
         return files;
     }
@@ -167,11 +256,8 @@ public class ParticipantFileService {
         ParticipantFile file = participantFileDao.getParticipantFile(userId, fileId)
                 .orElseThrow(() -> new EntityNotFoundException(ParticipantFile.class));
 
-        long fileSizeBytes = getS3FileSize(file);
-        ByteRateLimiter rateLimiter = userByteRateLimiters.computeIfAbsent(userId, (u) -> createByteRateLimiter());
-        if (!rateLimiter.tryConsumeBytes(fileSizeBytes)) {
-            throw new LimitExceededException(PARTICIPANT_FILE_RATE_LIMIT_ERROR);
-        }
+        long fileSizeBytes = sizeFiles(ImmutableList.of(file));
+        consumeDownloadBytes(userId, fileSizeBytes);
 
         file.setDownloadUrl(generatePresignedRequest(file, GET).toExternalForm());
         return file;
@@ -193,6 +279,8 @@ public class ParticipantFileService {
         file.setUserId(userId);
         file.setAppId(appId);
         file.setCreatedOn(DateTime.now());
+        // The object is replaced, so its size is unknown until it is uploaded.
+        file.setFileSize(null);
         Validate.entityThrowingException(INSTANCE, file);
 
         participantFileDao.uploadParticipantFile(file);
@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.sagebionetworks.bridge.AuthEvaluatorField.ORG_ID;
@@ -13,6 +14,7 @@ import static org.sagebionetworks.bridge.AuthUtils.CAN_EDIT_MEMBERS;
 import static org.sagebionetworks.bridge.AuthUtils.CAN_EDIT_PARTICIPANTS;
 import static org.sagebionetworks.bridge.AuthUtils.CANNOT_ACCESS_PARTICIPANTS;
 import static org.sagebionetworks.bridge.AuthUtils.CAN_DOWNLOAD_PARTICIPANT_ROSTER;
+import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.TEST_USER_GROUP;
 import static org.sagebionetworks.bridge.BridgeUtils.addToSet;
 import static org.sagebionetworks.bridge.BridgeUtils.studyAssociationsVisibleToCaller;
@@ -27,18 +29,32 @@ import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectTy
 import static org.sagebionetworks.bridge.models.templates.TemplateType.EMAIL_APP_INSTALL_LINK;
 import static org.sagebionetworks.bridge.models.templates.TemplateType.SMS_APP_INSTALL_LINK;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -121,6 +137,15 @@ public class ParticipantService {
     static final String REQUEST_KEY_STUDY_ID = "studyId";
     static final String DOWNLOAD_ROSTER_SERVICE_TITLE = "DownloadParticipantRosterWorker";
     static final String APP_INSTALL_URL_KEY = "appInstallUrl";
+    static final String ROSTER_FORMAT_CSV = "csv";
+    static final String ROSTER_FORMAT_NDJSON = "ndjson";
+    static final Map<String, String> ROSTER_CONTENT_TYPES = ImmutableMap.of(
+            ROSTER_FORMAT_NDJSON, "application/x-ndjson", ROSTER_FORMAT_CSV, "text/csv");
+    static final List<String> ROSTER_CSV_HEADERS = ImmutableList.of("id", "externalId", "email", "phone",
+            "firstName", "lastName", "status", "createdOn", "dataGroups");
+    private static final ObjectWriter ROSTER_CSV_WRITER = new CsvMapper()
+            .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+            .writer(CsvSchema.emptySchema().withLineSeparator("\r\n"));
 
     @Autowired
     private AccountService accountService;
@@ -284,6 +309,21 @@ public class ParticipantService {
         return builder.build();
     }
     
+    /**
+     * Get the participant for a session being constructed from this account. The consent status is not included, 
+     * because the session calculates the consent statuses from the caller's current request context. 
+     */
+    public StudyParticipant getParticipantForSession(Account account) {
+        if (account == null) {
+            LOG.error("getParticipantForSession() called with no account. Was the account deleted in the middle of the call?");
+            throw new EntityNotFoundException(Account.class);
+        }
+        StudyParticipant.Builder builder = new StudyParticipant.Builder();
+        StudyAssociations assoc = studyAssociationsVisibleToCaller(account);
+        copyAccountToParticipant(builder, assoc, account);
+        return builder.build();
+    }
+    
     private StudyParticipant.Builder copyAccountToParticipant(StudyParticipant.Builder builder, StudyAssociations assoc,
             Account account) {
         builder.withSharingScope(account.getSharingScope());
@@ -349,6 +389,19 @@ public class ParticipantService {
         }
         return accountService.getPagedAccountSummaries(app.getIdentifier(), search);
     }
+    
+    public ForwardCursorPagedResourceList<AccountSummary> getAccountSummariesByCursor(App app,
+            AccountSummarySearch search, String offsetKey, boolean includeTotal) {
+        checkNotNull(app);
+        
+        Validate.entityThrowingException(new AccountSummarySearchValidator(app.getDataGroups()), search);
+        
+        if (CANNOT_ACCESS_PARTICIPANTS.check()) {
+            Set<String> newDataGroups = addToSet(search.getAllOfGroups(), TEST_USER_GROUP);
+            search = search.toBuilder().withAllOfGroups(newDataGroups).build();
+        }
+        return accountService.getAccountSummariesByCursor(app.getIdentifier(), search, offsetKey, includeTotal);
+    }
 
     /**
      * Gets the timestamp representing when the participant started the study. Canonically, we define this as
@@ -659,7 +712,7 @@ public class ParticipantService {
         return notificationsService.listRegistrations(account.getHealthCode());
     }
 
-    public Set<String> sendNotification(App app, String userId, NotificationMessage message) {
+    public CompletableFuture<Set<String>> sendNotification(App app, String userId, NotificationMessage message) {
         checkNotNull(app);
         checkNotNull(userId);
         checkNotNull(message);
@@ -803,6 +856,86 @@ public class ParticipantService {
                 + sqsResult.getMessageId());
     }
     
+    /**
+     * Returns the content type of a participant roster in the given format ("ndjson" or "csv").
+     */
+    public String getParticipantRosterContentType(String format) {
+        String contentType = ROSTER_CONTENT_TYPES.get(format);
+        if (contentType == null) {
+            throw new BadRequestException("Invalid participant roster format: " + format);
+        }
+        return contentType;
+    }
+    
+    /**
+     * Write the roster of the participants enrolled in a study to the output stream, either as newline-delimited 
+     * JSON account summaries, or as CSV. Accounts are retrieved a page at a time using a cursor, and each page is 
+     * flushed to the stream before the next is retrieved, so memory use does not grow with the size of the roster.
+     * The caller must be able to download the roster, as with {@link #requestParticipantRoster}, and each download 
+     * is logged.
+     */
+    public void writeParticipantRoster(App app, String studyId, String format, OutputStream out) throws IOException {
+        checkNotNull(app);
+        checkNotNull(studyId);
+        checkNotNull(out);
+        getParticipantRosterContentType(format);
+        
+        CAN_DOWNLOAD_PARTICIPANT_ROSTER.checkAndThrow(STUDY_ID, studyId);
+        
+        String callerUserId = RequestContext.get().getCallerUserId();
+        LOG.info("Participant roster download started for userId=" + callerUserId + ", app=" + app.getIdentifier()
+                + ", study=" + studyId + ", format=" + format);
+        
+        boolean csv = ROSTER_FORMAT_CSV.equals(format);
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withEnrolledInStudyId(studyId)
+                .withPageSize(API_MAXIMUM_PAGE_SIZE).build();
+        ObjectMapper mapper = BridgeObjectMapper.get();
+        
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        SequenceWriter csvWriter = null;
+        if (csv) {
+            csvWriter = ROSTER_CSV_WRITER.writeValues(writer);
+            csvWriter.write(ROSTER_CSV_HEADERS);
+        }
+        int count = 0;
+        String offsetKey = null;
+        do {
+            ForwardCursorPagedResourceList<AccountSummary> page = getAccountSummariesByCursor(app, search,
+                    offsetKey, false);
+            for (AccountSummary summary : page.getItems()) {
+                if (csv) {
+                    csvWriter.write(toRosterRow(summary, studyId));
+                } else {
+                    writer.write(mapper.writeValueAsString(summary));
+                    writer.write('\n');
+                }
+                count++;
+            }
+            if (csv) {
+                csvWriter.flush();
+            } else {
+                writer.flush();
+            }
+            offsetKey = page.getNextPageOffsetKey();
+        } while (offsetKey != null);
+        
+        LOG.info("Participant roster download finished for userId=" + callerUserId + ", app=" + app.getIdentifier()
+                + ", study=" + studyId + ", participants=" + count);
+    }
+    
+    private List<String> toRosterRow(AccountSummary summary, String studyId) {
+        Map<String, String> externalIds = summary.getExternalIds();
+        return Arrays.asList(summary.getId(),
+                (externalIds == null) ? null : externalIds.get(studyId),
+                summary.getEmail(),
+                (summary.getPhone() == null) ? null : summary.getPhone().getNumber(),
+                summary.getFirstName(),
+                summary.getLastName(),
+                (summary.getStatus() == null) ? null : summary.getStatus().name(),
+                (summary.getCreatedOn() == null) ? null : summary.getCreatedOn().toString(),
+                (summary.getDataGroups() == null) ? null : String.join(";", summary.getDataGroups()));
+    }
+    
     private CriteriaContext getCriteriaContextForParticipant(App app, StudyParticipant participant) {
         RequestInfo info = requestInfoService.getRequestInfo(participant.getId());
         ClientInfo clientInfo = (info == null) ? null : info.getClientInfo();
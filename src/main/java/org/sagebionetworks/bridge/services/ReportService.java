@@ -7,9 +7,11 @@ import static org.sagebionetworks.bridge.AuthUtils.CAN_READ_PARTICIPANT_REPORTS;
 import static org.sagebionetworks.bridge.AuthUtils.CAN_READ_STUDY_REPORTS;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
+import static org.sagebionetworks.bridge.BridgeConstants.REPORT_INDEX_EXPIRE_IN_SECONDS;
 import static org.sagebionetworks.bridge.BridgeUtils.isEmpty;
 import static org.sagebionetworks.bridge.models.ResourceList.REPORT_TYPE;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -25,6 +27,8 @@ import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.ReportDataDao;
 import org.sagebionetworks.bridge.dao.ReportIndexDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -66,8 +70,15 @@ public class ReportService {
     
     private static final String INVALID_TIME_RANGE = "startTime later in time than endTime";
     
+    static final int MAX_BATCH_SIZE = 100;
+    
+    static final String BATCH_SIZE_ERROR = "Report records must be saved in batches of 1-" + MAX_BATCH_SIZE + " records";
+    
+    static final String DUPLICATE_RECORD_ERROR = "Report records in a batch must have different dates: ";
+    
     private ReportDataDao reportDataDao;
     private ReportIndexDao reportIndexDao;
+    private CacheProvider cacheProvider;
     
     @Autowired
     final void setReportDataDao(ReportDataDao reportDataDao) {
@@ -79,13 +90,18 @@ public class ReportService {
         this.reportIndexDao = reportIndexDao;
     }
     
+    @Autowired
+    final void setCacheProvider(CacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+    }
+    
     /**
      * Get a report index.
      */
     public ReportIndex getReportIndex(ReportDataKey key) {
         checkNotNull(key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkStudyReportAccess(index);
 
         return index;
@@ -107,7 +123,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkStudyReportAccess(index);
 
         return reportDataDao.getReportData(key, startDate, endDate);
@@ -131,7 +147,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkParticipantReportAccess(userId, index);
         
         return reportDataDao.getReportData(key, startDate, endDate);
@@ -156,7 +172,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkParticipantReportAccess(userId, index);
         
         return reportDataDao.getReportDataV4(key, finalTimes.getStart(), finalTimes.getEnd(), offsetKey, pageSize);
@@ -179,7 +195,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkStudyReportAccess(index);
         
         return reportDataDao.getReportDataV4(key, finalTimes.getStart(), finalTimes.getEnd(), offsetKey, pageSize);
@@ -204,7 +220,7 @@ public class ReportService {
                 .withAppId(appId).build();
         reportData.setReportDataKey(key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkStudyReportAccess(index);
         
         ReportDataValidator validator = new ReportDataValidator(index);
@@ -233,7 +249,7 @@ public class ReportService {
                 .withAppId(appId).build();
         reportData.setReportDataKey(key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkParticipantReportAccess(userId, index);
         
         ReportDataValidator validator = new ReportDataValidator(index);
@@ -245,6 +261,77 @@ public class ReportService {
         }
     }
     
+    /**
+     * Save a batch of study report records. The index is retrieved and study memberships are enforced once for 
+     * the batch, as for a single record. If this is the first save to the report, the index is created with the 
+     * studies of the first record, and the other records must have the same studies.
+     */
+    public void saveStudyReports(String appId, String identifier, List<ReportData> reportData) {
+        checkNotNull(reportData);
+        
+        ReportDataKey key = new ReportDataKey.Builder()
+                .withReportType(ReportType.STUDY)
+                .withIdentifier(identifier)
+                .withAppId(appId).build();
+        
+        ReportIndex index = getIndex(key);
+        checkStudyReportAccess(index);
+        
+        saveReportDataBatch(key, index, reportData);
+    }
+    
+    /**
+     * Save a batch of participant report records. The index is retrieved and study memberships are enforced 
+     * once for the batch, as for a single record. If this is the first save to the report, the index is created 
+     * with the studies of the first record, and the other records must have the same studies.
+     */
+    public void saveParticipantReports(String appId, String userId, String identifier, String healthCode,
+            List<ReportData> reportData) {
+        checkNotNull(reportData);
+        
+        ReportDataKey key = new ReportDataKey.Builder()
+                .withHealthCode(healthCode)
+                .withReportType(ReportType.PARTICIPANT)
+                .withIdentifier(identifier)
+                .withAppId(appId).build();
+        
+        ReportIndex index = getIndex(key);
+        checkParticipantReportAccess(userId, index);
+        
+        saveReportDataBatch(key, index, reportData);
+    }
+    
+    private void saveReportDataBatch(ReportDataKey key, ReportIndex index, List<ReportData> reportData) {
+        if (reportData.isEmpty() || reportData.size() > MAX_BATCH_SIZE || reportData.contains(null)) {
+            throw new BadRequestException(BATCH_SIZE_ERROR);
+        }
+        Set<String> firstStudyIds = reportData.get(0).getStudyIds();
+        ReportIndex validationIndex = index;
+        if (validationIndex == null) {
+            validationIndex = ReportIndex.create();
+            validationIndex.setStudyIds(firstStudyIds);
+        }
+        ReportDataValidator validator = new ReportDataValidator(validationIndex);
+        
+        // BatchWriteItem rejects a batch that writes the same item twice, so check for this while validating
+        Set<String> dates = new HashSet<>();
+        for (ReportData oneReport : reportData) {
+            oneReport.setReportDataKey(key);
+            Validate.entityThrowingException(validator, oneReport);
+            
+            String date = (oneReport.getDateTime() != null) ?
+                    oneReport.getDateTime().withZone(DateTimeZone.UTC).toString() :
+                    oneReport.getLocalDate().toString();
+            if (!dates.add(date)) {
+                throw new BadRequestException(DUPLICATE_RECORD_ERROR + date);
+            }
+        }
+        reportDataDao.saveReportDataBatch(reportData);
+        if (index == null) {
+            addToIndex(key, firstStudyIds);
+        }
+    }
+    
     /**
      * Delete all records for a study report. Study memberships will be enforced.
      */
@@ -255,11 +342,11 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkStudyReportAccess(index);
         
         reportDataDao.deleteReportData(key);
-        reportIndexDao.removeIndex(key);
+        removeIndex(key);
     }
     
     /**
@@ -276,7 +363,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkStudyReportAccess(index);
         
         reportDataDao.deleteReportDataRecord(key, date);
@@ -286,7 +373,7 @@ public class ReportService {
         LocalDate endDate = LocalDate.now();
         DateRangeResourceList<? extends ReportData> results = getStudyReport(appId, identifier, startDate, endDate);
         if (results.getItems().isEmpty()) {
-            reportIndexDao.removeIndex(key);
+            removeIndex(key);
         }
     }
     
@@ -317,7 +404,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkParticipantReportAccess(userId, index);
         
         reportDataDao.deleteReportData(key);
@@ -339,7 +426,7 @@ public class ReportService {
                 .withAppId(appId).build();
         Validate.entityThrowingException(ReportDataKeyValidator.INSTANCE, key);
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkParticipantReportAccess(userId, index);
         
         reportDataDao.deleteReportDataRecord(key, date);
@@ -358,10 +445,10 @@ public class ReportService {
                 .withIdentifier(identifier)
                 .withAppId(appId).build();
         
-        ReportIndex index = reportIndexDao.getIndex(key);
+        ReportIndex index = getIndex(key);
         checkParticipantReportAccess(userId, index);
         
-        reportIndexDao.removeIndex(key);
+        removeIndex(key);
     }
 
     /**
@@ -393,6 +480,7 @@ public class ReportService {
             index.setStudyIds(existingIndex.getStudyIds());
         }
         reportIndexDao.updateIndex(index);
+        cacheProvider.removeObject(CacheKey.reportIndex(key));
     }
     
     protected void checkParticipantReportAccess(String userId, ReportIndex index) {
@@ -436,6 +524,30 @@ public class ReportService {
         reportIndexDao.addIndex(key, studies);
     }
     
+    /**
+     * Indices are retrieved on every read and write of report records, but rarely change, so they are cached. 
+     * Reports that do not yet have an index are not cached, since the index is created by the first save.
+     */
+    private ReportIndex getIndex(ReportDataKey key) {
+        CacheKey cacheKey = CacheKey.reportIndex(key);
+        ReportIndex index = cacheProvider.getObject(cacheKey, ReportIndex.class);
+        if (index != null) {
+            // The key is not serialized with the index
+            index.setKey(key.getIndexKeyString());
+            return index;
+        }
+        index = reportIndexDao.getIndex(key);
+        if (index != null) {
+            cacheProvider.setObject(cacheKey, index, REPORT_INDEX_EXPIRE_IN_SECONDS);
+        }
+        return index;
+    }
+    
+    private void removeIndex(ReportDataKey key) {
+        reportIndexDao.removeIndex(key);
+        cacheProvider.removeObject(CacheKey.reportIndex(key));
+    }
+    
     private RangeTuple<DateTime> validateDateTimeRange(DateTime startTime, DateTime endTime) {
         // If nothing is provided, we will default to 13 days prior to today
         if (startTime == null && endTime == null) {
@@ -3,19 +3,53 @@ package org.sagebionetworks.bridge.services;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
 import org.sagebionetworks.bridge.models.RequestInfo;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Request infos are updated on many participant requests, only to record access timestamps and the
+ * client that was used. Rather than writing each update to the database, updates are merged for
+ * each user in memory and written in batches, on an interval or when enough users have pending
+ * updates. Reads of a user with a pending update are served from the pending update.
+ */
 @Component
 public class RequestInfoService {
-    
+    private static final Logger LOG = LoggerFactory.getLogger(RequestInfoService.class);
+
+    static final String CONFIG_KEY_FLUSH_INTERVAL_SECONDS = "request.info.flush.interval.seconds";
+    static final String CONFIG_KEY_FLUSH_BATCH_SIZE = "request.info.flush.batch.size";
+
+    private final Map<String, RequestInfo> pendingRequestInfos = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
     private CacheProvider cacheProvider;
     private RequestInfoDao requestInfoDao;
-    
+    private int flushIntervalSeconds;
+    private int flushBatchSize;
+    private ScheduledExecutorService flushExecutor;
+
     @Autowired
     final void setCacheProvider(CacheProvider cacheProvider) {
         this.cacheProvider = cacheProvider;
@@ -24,16 +58,57 @@ public class RequestInfoService {
     final void setRequestInfoDao(RequestInfoDao requestInfoDao) {
         this.requestInfoDao = requestInfoDao;
     }
-    
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.flushIntervalSeconds = bridgeConfig.getInt(CONFIG_KEY_FLUSH_INTERVAL_SECONDS);
+        this.flushBatchSize = bridgeConfig.getInt(CONFIG_KEY_FLUSH_BATCH_SIZE);
+    }
+
+    @PostConstruct
+    public void startFlushing() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("request-info-flush").setDaemon(true).build());
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalSeconds, flushIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopFlushing() throws InterruptedException {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor.awaitTermination(flushIntervalSeconds, TimeUnit.SECONDS);
+        }
+        // Write anything still pending before the server shuts down.
+        flushQuietly();
+    }
+
     public void updateRequestInfo(RequestInfo requestInfo) {
         checkNotNull(requestInfo);
-        
-        requestInfoDao.updateRequestInfo(requestInfo);
+
+        pendingRequestInfos.merge(requestInfo.getUserId(), requestInfo,
+                (pending, update) -> new RequestInfo.Builder().copyOf(pending).copyOf(update).build());
+
+        if (pendingRequestInfos.size() >= flushBatchSize && flushExecutor != null
+                && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down, in which case the pending updates are flushed when the executor stops.
+                flushScheduled.set(false);
+            }
+        }
     }
-    
+
     public RequestInfo getRequestInfo(String userId) {
         isNotBlank(userId);
-        
+
+        RequestInfo pending = pendingRequestInfos.get(userId);
+        if (pending != null) {
+            return pending;
+        }
         RequestInfo requestInfo = requestInfoDao.getRequestInfo(userId);
         if (requestInfo == null) {
             requestInfo = cacheProvider.getRequestInfo(userId);
@@ -43,11 +118,55 @@ public class RequestInfoService {
         }
         return requestInfo;
     }
-    
+
     public void removeRequestInfo(String userId) {
         isNotBlank(userId);
-        
+
+        pendingRequestInfos.remove(userId);
         requestInfoDao.removeRequestInfo(userId);
         cacheProvider.removeRequestInfo(userId);
     }
+
+    /**
+     * Write all pending updates to the database. Updates stay in the pending map while they are written
+     * so reads continue to see them, and are only removed if they have not been updated again in the
+     * meantime (otherwise the newer update is written by the next flush).
+     */
+    synchronized void flush() {
+        List<RequestInfo> batch = new ArrayList<>(pendingRequestInfos.values());
+        for (int i = 0; i < batch.size(); i += flushBatchSize) {
+            List<RequestInfo> subList = batch.subList(i, Math.min(i + flushBatchSize, batch.size()));
+            writeBatch(subList);
+            for (RequestInfo requestInfo : subList) {
+                pendingRequestInfos.remove(requestInfo.getUserId(), requestInfo);
+            }
+        }
+    }
+
+    private void writeBatch(List<RequestInfo> batch) {
+        try {
+            requestInfoDao.updateRequestInfos(batch);
+        } catch (RuntimeException e) {
+            // One bad record (e.g. for an account that has since been deleted) fails the whole batch,
+            // so fall back to writing the records individually, with the same upsert so timestamps 
+            // are not moved backwards.
+            LOG.warn("Error writing batch of request infos, writing them individually", e);
+            for (RequestInfo requestInfo : batch) {
+                try {
+                    requestInfoDao.updateRequestInfos(ImmutableList.of(requestInfo));
+                } catch (RuntimeException ex) {
+                    LOG.warn("Error writing request info, userId=" + requestInfo.getUserId(), ex);
+                }
+            }
+        }
+    }
+
+    // An exception would cancel the scheduled flushes.
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.error("Error flushing request infos", e);
+        }
+    }
 }
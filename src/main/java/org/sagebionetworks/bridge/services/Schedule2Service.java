@@ -25,6 +25,8 @@ import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import javax.annotation.Resource;
+
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +36,9 @@ import com.google.common.base.Stopwatch;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.dao.Schedule2Dao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -75,6 +80,10 @@ public class Schedule2Service {
     private StudyActivityEventService studyActivityEventService;
     @Autowired
     private Schedule2Dao dao;
+    @Autowired
+    private CacheProvider cacheProvider;
+    @Resource(name = "genericViewCache")
+    private ViewCache viewCache;
     
     DateTime getCreatedOn() {
         return DateTime.now();
@@ -276,7 +285,9 @@ public class Schedule2Service {
 
         Validate.entityThrowingException(INSTANCE, schedule);
         
-        return dao.updateSchedule(schedule);
+        Schedule2 updated = dao.updateSchedule(schedule);
+        removeCachedTimelines(schedule.getGuid());
+        return updated;
     }
     
     /**
@@ -299,7 +310,9 @@ public class Schedule2Service {
         
         studyService.updateStudyEtags(appId, guid, existing.getModifiedOn());
         
-        return dao.updateSchedule(existing);
+        Schedule2 updated = dao.updateSchedule(existing);
+        removeCachedTimelines(guid);
+        return updated;
     }
     
     /**
@@ -320,6 +333,7 @@ public class Schedule2Service {
         studyService.removeStudyEtags(appId, guid);
         
         dao.deleteSchedule(existing);
+        removeCachedTimelines(guid);
     }
     
     /**
@@ -339,16 +353,38 @@ public class Schedule2Service {
         studyService.removeStudyEtags(appId, guid);
         
         dao.deleteSchedulePermanently(existing);
+        removeCachedTimelines(guid);
     }
     
     public Timeline getTimelineForSchedule(String appId, String guid) {
         Schedule2 schedule = dao.getSchedule(appId, guid)
                 .orElseThrow(() -> new EntityNotFoundException(Schedule2.class));
         
-        // This is calculated so quickly it is not worth caching
         return Scheduler.INSTANCE.calculateTimeline(schedule);
     }
     
+    /**
+     * Get the JSON of the schedule’s timeline. A timeline only changes with the schedule’s 
+     * modification timestamp and the caller’s languages, so the serialized timeline is cached under 
+     * those values and returned as is, without being recalculated or reserialized.
+     */
+    public String getTimelineJson(Schedule2 schedule) {
+        checkNotNull(schedule);
+        
+        String modifiedOn = Long.toString(schedule.getModifiedOn().getMillis());
+        String lang = Scheduler.INSTANCE.getLanguageKey();
+        CacheKey cacheKey = viewCache.getCacheKey(Timeline.class, schedule.getGuid(), modifiedOn, lang);
+        return viewCache.getView(cacheKey, () -> {
+            // So we can delete all the cached versions when the schedule changes, track them under the schedule
+            cacheProvider.addCacheKeyToSet(CacheKey.timelineList(schedule.getGuid()), cacheKey.toString());
+            return Scheduler.INSTANCE.calculateTimeline(schedule);
+        });
+    }
+    
+    private void removeCachedTimelines(String guid) {
+        cacheProvider.removeSetOfCacheKeys(CacheKey.timelineList(guid));
+    }
+    
     public List<TimelineMetadata> getScheduleMetadata(String guid) {
         checkNotNull(guid);
 
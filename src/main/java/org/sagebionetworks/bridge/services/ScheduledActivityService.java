@@ -19,10 +19,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -33,6 +36,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeConstants;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ScheduledActivityDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
@@ -72,6 +76,11 @@ public class ScheduledActivityService {
     private static final String ENROLLMENT = "enrollment";
 
     private static final ScheduleContextValidator VALIDATOR = new ScheduleContextValidator();
+    
+    static final String CONFIG_KEY_ACTIVITIES_RETRIEVED_DEBOUNCE_SECONDS = "activities.retrieved.debounce.seconds";
+    
+    // Upper bound on the health codes remembered by the debounce, so polling clients can't grow it without limit.
+    static final int ACTIVITIES_RETRIEVED_DEBOUNCE_MAX_SIZE = 100000;
 
     private ScheduledActivityDao activityDao;
 
@@ -87,6 +96,20 @@ public class ScheduledActivityService {
     
     private AppConfigService appConfigService;
     
+    // Health codes that have published the activities retrieved event on this server within the debounce window.
+    private Cache<String, Boolean> activitiesRetrievedDebounce = CacheBuilder.newBuilder().maximumSize(0).build();
+    
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        setActivitiesRetrievedDebounceSeconds(bridgeConfig.getInt(CONFIG_KEY_ACTIVITIES_RETRIEVED_DEBOUNCE_SECONDS));
+    }
+    
+    final void setActivitiesRetrievedDebounceSeconds(int seconds) {
+        this.activitiesRetrievedDebounce = CacheBuilder.newBuilder()
+                .maximumSize(ACTIVITIES_RETRIEVED_DEBOUNCE_MAX_SIZE)
+                .expireAfterWrite(seconds, TimeUnit.SECONDS).build();
+    }
+    
     @Autowired
     final void setScheduledActivityDao(ScheduledActivityDao activityDao) {
         this.activityDao = activityDao;
@@ -187,7 +210,7 @@ public class ScheduledActivityService {
         Validate.nonEntityThrowingException(VALIDATOR, context);
 
         String healthCode = context.getCriteriaContext().getHealthCode();
-        activityEventService.publishActivitiesRetrieved(app, healthCode, DateUtils.getCurrentDateTime());
+        publishActivitiesRetrieved(app, healthCode);
         
         // Add events for scheduling
         Map<String, DateTime> events = createEventsMap(context);
@@ -215,7 +238,7 @@ public class ScheduledActivityService {
         Validate.nonEntityThrowingException(VALIDATOR, context);
         
         String healthCode = context.getCriteriaContext().getHealthCode();
-        activityEventService.publishActivitiesRetrieved(app, healthCode, DateUtils.getCurrentDateTime());
+        publishActivitiesRetrieved(app, healthCode);
         
         // Add events for scheduling
         Map<String, DateTime> events = createEventsMap(context);
@@ -239,6 +262,18 @@ public class ScheduledActivityService {
         return orderActivities(scheduledActivities, V4_FILTER);
     }
     
+    /**
+     * The activities retrieved event can only be recorded once, so after it has been published, publishing it again
+     * is a read of the event table that changes nothing. Clients that poll for their activities only publish it 
+     * once per debounce window.
+     */
+    private void publishActivitiesRetrieved(App app, String healthCode) {
+        if (activitiesRetrievedDebounce.getIfPresent(healthCode) == null) {
+            activityEventService.publishActivitiesRetrieved(app, healthCode, DateUtils.getCurrentDateTime());
+            activitiesRetrievedDebounce.put(healthCode, Boolean.TRUE);
+        }
+    }
+    
     protected List<ScheduledActivity> performMerge(List<ScheduledActivity> scheduledActivities,
             Map<String, ScheduledActivity> dbMap) {
         List<ScheduledActivity> saves = Lists.newArrayList();
@@ -256,7 +291,9 @@ public class ScheduledActivityService {
                 // activity guid concatenated with scheduled time. So when the scheduler regenerates the scheduled
                 // activity, it always has the same guid.
                 scheduledActivities.set(i, dbActivity);
-            } else if (activity.getStatus() != ScheduledActivityStatus.EXPIRED) {
+            } else if (activity.getStatus() != ScheduledActivityStatus.EXPIRED
+                    && (dbActivity == null || hasPersistedChanges(activity, dbActivity))) {
+                // Regenerated activities that match what is already persisted don't need to be written again.
                 saves.add(activity);
             }
         }
@@ -273,27 +310,26 @@ public class ScheduledActivityService {
         Map<String,ScheduledActivity> dbMap = Maps.newHashMap();
         // IA-545: If a schedule has an identical activity but a new GUID (say if we change the schedule on the user), the user can 
         // lose existing activities. So during the time window the user is looking at, we will return any activities that exist.
-        for (String activityGuid : activityGuids) {
-            ForwardCursorPagedResourceList<ScheduledActivity> list = activityDao.getActivityHistoryV2(
-                    context.getCriteriaContext().getHealthCode(), activityGuid,
-                    context.getStartsOn(), context.getEndsOn(), null,
-                    API_MAXIMUM_PAGE_SIZE);
-            if (list != null) {
-                for(ScheduledActivity activity : list.getItems()) {
-                    dbMap.put(activity.getGuid(), activity);
-                }
-            }
+        String healthCode = context.getCriteriaContext().getHealthCode();
+        List<ScheduledActivity> history = activityDao.getActivityHistoriesV2(healthCode, activityGuids,
+                context.getStartsOn(), context.getEndsOn(), API_MAXIMUM_PAGE_SIZE);
+        for (ScheduledActivity activity : history) {
+            dbMap.put(activity.getGuid(), activity);
         }
         // IA-587: When a one-time task falls outside the schedule window, it's not returned by the 
-        // query above, so it is recreated, and it loses its finished state. Load all remaining scheduled activities.
-        String healthCode = context.getCriteriaContext().getHealthCode();
+        // query above, so it is recreated, and it loses its finished state. Load all remaining scheduled activities
+        // in one batch (the batch cannot contain the same key twice).
+        Map<String, ScheduledActivity> missing = Maps.newLinkedHashMap();
         for (ScheduledActivity activity : scheduledActivities) {
             if (!dbMap.containsKey(activity.getGuid())) {
-                ScheduledActivity dbActivity = activityDao.getActivity(context.getStartsOn().getZone(), healthCode,
-                        activity.getGuid(), false);
-                if (dbActivity != null) {
-                    dbMap.put(dbActivity.getGuid(), dbActivity);    
-                }
+                missing.putIfAbsent(activity.getGuid(), activity);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<ScheduledActivity> dbActivities = activityDao.getActivities(context.getStartsOn().getZone(),
+                    new ArrayList<>(missing.values()));
+            for (ScheduledActivity dbActivity : dbActivities) {
+                dbMap.put(dbActivity.getGuid(), dbActivity);
             }
         }
         return dbMap;
@@ -383,6 +419,22 @@ public class ScheduledActivityService {
         return !Objects.equals(schNode, dbNode);
     }
 
+    /**
+     * If any of the fields that are persisted for an activity differ, the newly scheduled activity needs to be saved.
+     * The time zone is not persisted, and the keys are the same for both activities.
+     */
+    protected boolean hasPersistedChanges(ScheduledActivity schActivity, ScheduledActivity dbActivity) {
+        return !Objects.equals(schActivity.getActivity(), dbActivity.getActivity())
+                || !Objects.equals(schActivity.getSchedulePlanGuid(), dbActivity.getSchedulePlanGuid())
+                || !Objects.equals(schActivity.getLocalScheduledOn(), dbActivity.getLocalScheduledOn())
+                || !Objects.equals(schActivity.getLocalExpiresOn(), dbActivity.getLocalExpiresOn())
+                || !Objects.equals(schActivity.getStartedOn(), dbActivity.getStartedOn())
+                || !Objects.equals(schActivity.getFinishedOn(), dbActivity.getFinishedOn())
+                || schActivity.getPersistent() != dbActivity.getPersistent()
+                || !Objects.equals(schActivity.getReferentGuid(), dbActivity.getReferentGuid())
+                || hasUpdatedClientData(schActivity, dbActivity);
+    }
+
     private int byteLength(JsonNode node) {
         try {
             return (node == null) ? 0 : node.toString().getBytes("UTF-8").length;
@@ -16,6 +16,7 @@ import static org.sagebionetworks.bridge.validators.StudyActivityEventValidator.
 import static org.sagebionetworks.bridge.validators.StudyActivityEventValidator.CREATE_INSTANCE;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -251,6 +252,30 @@ public class StudyActivityEventService {
                 .orElseThrow(() -> new EntityNotFoundException(Account.class));
 
         List<StudyActivityEvent> events = dao.getRecentStudyActivityEvents(userId, studyId);
+        completeRecentStudyActivityEvents(appId, studyId, account, events);
+        return new ResourceList<>(events, true); 
+    }
+    
+    /**
+     * Get the persisted events of a batch of participants in a study with one query, mapped by user ID. 
+     * These do not include the “synthetic” events that are returned by {@link #getRecentStudyActivityEvents}; 
+     * each participant’s list must be passed to {@link #completeRecentStudyActivityEvents} to add them.
+     */
+    public Map<String, List<StudyActivityEvent>> getPersistedRecentStudyActivityEvents(String studyId,
+            Collection<String> userIds) {
+        checkNotNull(studyId);
+        checkNotNull(userIds);
+        
+        return dao.getRecentStudyActivityEvents(userIds, studyId);
+    }
+    
+    /**
+     * Add the enrollment event (if it was not persisted) and global events of interest to the persisted 
+     * recent events of this participant, and sort them, so the list is the same as the list returned by
+     * {@link #getRecentStudyActivityEvents}. The list must be mutable.
+     */
+    public void completeRecentStudyActivityEvents(String appId, String studyId, Account account,
+            List<StudyActivityEvent> events) {
         addEnrollmentIfMissing(account, events, studyId);
         
         // There are some global events related to authentication and account creation that 
@@ -261,7 +286,6 @@ public class StudyActivityEventService {
             addIfPresent(events, map, fieldName, true);    
         }
         events.sort(Comparator.comparing(StudyActivityEvent::getEventId));
-        return new ResourceList<>(events, true); 
     }
     
     /**
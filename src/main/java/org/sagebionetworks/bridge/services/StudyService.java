@@ -88,11 +88,20 @@ public class StudyService {
     public String getZoneId(String appId, String studyId, String clientTimeZoneId) {
         if (clientTimeZoneId != null) {
             return clientTimeZoneId;
-        } else {
-            Study study = getStudy(appId, studyId, false);
-            if (study != null && study.getStudyTimeZone() != null) {
-                return study.getStudyTimeZone();
-            }
+        }
+        return getZoneId(getStudy(appId, studyId, false), null);
+    }
+    
+    /**
+     * Find the appropriate time zone for a specific participant in a study that has already been 
+     * loaded (the study can be null). The time zone is chosen as it is by 
+     * {@link #getZoneId(String, String, String)}.
+     */
+    public String getZoneId(Study study, String clientTimeZoneId) {
+        if (clientTimeZoneId != null) {
+            return clientTimeZoneId;
+        } else if (study != null && study.getStudyTimeZone() != null) {
+            return study.getStudyTimeZone();
         }
         return getDefaultTimeZoneId();
     }
@@ -22,7 +22,7 @@ import org.sagebionetworks.bridge.dao.StudyConsentDao;
 import org.sagebionetworks.bridge.dao.SubpopulationDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.CriteriaContext;
-import org.sagebionetworks.bridge.models.CriteriaUtils;
+import org.sagebionetworks.bridge.models.CriteriaIndexCache;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.studies.Study;
 import org.sagebionetworks.bridge.models.subpopulations.StudyConsent;
@@ -44,6 +44,9 @@ public class SubpopulationService {
     private StudyService studyService;
     private StudyConsentForm defaultConsentDocument;
     private CacheProvider cacheProvider;
+    // Subpopulation versions change whenever their criteria are updated.
+    private final CriteriaIndexCache<Subpopulation> criteriaIndexCache = new CriteriaIndexCache<>(
+            (subpop) -> (subpop.getVersion() == null) ? null : subpop.getGuidString() + ":" + subpop.getVersion());
     
     @Autowired
     final void setSubpopulationDao(SubpopulationDao subpopDao) {
@@ -207,7 +210,7 @@ public class SubpopulationService {
         
         List<Subpopulation> subpops = getSubpopulations(context.getAppId(), false);
         
-        return CriteriaUtils.filterByCriteria(context, subpops, null);
+        return criteriaIndexCache.filterByCriteria(context.getAppId(), context, subpops, null);
     }
 
     /**
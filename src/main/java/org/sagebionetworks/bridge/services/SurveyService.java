@@ -4,21 +4,27 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.SurveyDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConstraintViolationException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.PublishedSurveyException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.GuidCreatedOnVersionHolder;
@@ -35,6 +41,9 @@ import org.sagebionetworks.bridge.validators.SurveyPublishValidator;
 import org.sagebionetworks.bridge.validators.SurveySaveValidator;
 import org.sagebionetworks.bridge.validators.Validate;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -44,11 +53,22 @@ import org.springframework.validation.Validator;
 public class SurveyService {
     static final String KEY_IDENTIFIER = "identifier";
 
+    // A published survey version (identified by its guid and createdOn) cannot be changed, so published versions
+    // are held with their elements, as JSON. The only change to a published version is to delete (or undelete) it,
+    // which removes it from the cache on this server; the expiration bounds how long other servers return it.
+    static final int PUBLISHED_SURVEY_EXPIRE_SECONDS = 60*60;
+    static final int PUBLISHED_SURVEY_MAX_SIZE = 1000;
+
+    private final Cache<String, PublishedSurvey> publishedSurveyCache = CacheBuilder.newBuilder()
+            .maximumSize(PUBLISHED_SURVEY_MAX_SIZE)
+            .expireAfterWrite(PUBLISHED_SURVEY_EXPIRE_SECONDS, TimeUnit.SECONDS).build();
+
     private Validator publishValidator;
     private SurveyDao surveyDao;
     private SchedulePlanService schedulePlanService;
     private SharedModuleMetadataService sharedModuleMetadataService;
     private AppService appService;
+    private CacheProvider cacheProvider;
 
     @Autowired
     final void setSurveyDao(SurveyDao surveyDao) {
@@ -74,9 +94,21 @@ public class SurveyService {
     public final void setAppService(AppService appService) {
         this.appService = appService;
     }
+
+    @Autowired
+    final void setCacheProvider(CacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+    }
     
     public Survey getSurvey(String appId, GuidCreatedOnVersionHolder keys, boolean includeElements, boolean throwException) {
-        Survey survey = surveyDao.getSurvey(appId, keys, includeElements);
+        Survey survey;
+        PublishedSurvey publishedSurvey = publishedSurveyCache.getIfPresent(getPublishedSurveyKey(keys));
+        if (publishedSurvey != null) {
+            survey = publishedSurvey.toSurvey(includeElements);
+        } else {
+            survey = surveyDao.getSurvey(appId, keys, includeElements);
+            cachePublishedSurvey(appId, keys, survey, includeElements);
+        }
         if (!isInApp(appId, survey)) {
             if (throwException) {
                 throw new EntityNotFoundException(Survey.class);    
@@ -137,7 +169,10 @@ public class SurveyService {
             if (existing.isDeleted() && !survey.isDeleted()) {
                 existing = surveyDao.getSurvey(appId, survey, true); // get all the children for the update
                 existing.setDeleted(false);
-                return surveyDao.updateSurvey(appId, existing);
+                Survey updated = surveyDao.updateSurvey(appId, existing);
+                publishedSurveyCache.invalidate(getPublishedSurveyKey(survey));
+                invalidateResolvedAppConfigs(appId);
+                return updated;
             } else {
                 throw new PublishedSurveyException(survey);
             }
@@ -150,7 +185,9 @@ public class SurveyService {
         }
         Validate.entityThrowingException(new SurveySaveValidator(dataGroups), survey);
         
-        return surveyDao.updateSurvey(appId, survey);
+        Survey updated = surveyDao.updateSurvey(appId, survey);
+        invalidateResolvedAppConfigs(appId);
+        return updated;
     }
 
     /**
@@ -204,6 +241,8 @@ public class SurveyService {
         verifySharedModuleExistence(keys);
 
         surveyDao.deleteSurvey(existing);
+        publishedSurveyCache.invalidate(getPublishedSurveyKey(keys));
+        invalidateResolvedAppConfigs(appId);
     }
 
     /**
@@ -227,6 +266,35 @@ public class SurveyService {
         }
         checkConstraintsBeforePhysicalDelete(appId, keys);
         surveyDao.deleteSurveyPermanently(appId, keys);
+        publishedSurveyCache.invalidate(getPublishedSurveyKey(keys));
+        invalidateResolvedAppConfigs(appId);
+    }
+    
+    // App configs resolve the identifiers of the surveys they reference, and cache the result until the app's set 
+    // of app config keys is removed.
+    private void invalidateResolvedAppConfigs(String appId) {
+        cacheProvider.removeSetOfCacheKeys(CacheKey.appConfigList(appId));
+    }
+
+    private static String getPublishedSurveyKey(GuidCreatedOnVersionHolder keys) {
+        return keys.getGuid() + ":" + keys.getCreatedOn();
+    }
+
+    /**
+     * Cache the survey if it is a published version, with its elements. Only surveys retrieved by their
+     * guid and createdOn are cached (the keys can also be an identifier, or omit the createdOn to get the
+     * most recent version).
+     */
+    private void cachePublishedSurvey(String appId, GuidCreatedOnVersionHolder keys, Survey survey,
+            boolean includeElements) {
+        if (survey == null || !survey.isPublished() || !keys.getGuid().equals(survey.getGuid())
+                || keys.getCreatedOn() != survey.getCreatedOn()) {
+            return;
+        }
+        Survey surveyWithElements = includeElements ? survey : surveyDao.getSurvey(appId, keys, true);
+        if (surveyWithElements != null) {
+            publishedSurveyCache.put(getPublishedSurveyKey(keys), new PublishedSurvey(surveyWithElements));
+        }
     }
 
     // Helper method to verify if there is any shared module related to specified survey
@@ -406,4 +474,37 @@ public class SurveyService {
         return null;
     }
 
-}
\ No newline at end of file
+    /**
+     * A published survey version, serialized so that each caller gets its own copy of the survey to
+     * modify (callers such as shared module import change the survey they are given). The app ID is
+     * not part of the survey's JSON, so it is held separately.
+     */
+    static final class PublishedSurvey {
+        private final String appId;
+        private final byte[] json;
+        private final byte[] jsonWithoutElements;
+
+        PublishedSurvey(Survey survey) {
+            this.appId = survey.getAppId();
+            try {
+                ObjectNode node = BridgeObjectMapper.get().valueToTree(survey);
+                this.json = BridgeObjectMapper.get().writeValueAsBytes(node);
+                node.set("elements", BridgeObjectMapper.get().createArrayNode());
+                this.jsonWithoutElements = BridgeObjectMapper.get().writeValueAsBytes(node);
+            } catch (IOException e) {
+                throw new BridgeServiceException(e);
+            }
+        }
+
+        Survey toSurvey(boolean includeElements) {
+            try {
+                Survey survey = BridgeObjectMapper.get().readValue(includeElements ? json : jsonWithoutElements,
+                        Survey.class);
+                survey.setAppId(appId);
+                return survey;
+            } catch (IOException e) {
+                throw new BridgeServiceException(e);
+            }
+        }
+    }
+}
@@ -5,22 +5,32 @@ import static org.sagebionetworks.bridge.BridgeUtils.getElement;
 import static org.sagebionetworks.bridge.upload.UploadUtil.FIELD_ANSWERS;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.sagebionetworks.bridge.BridgeUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
@@ -41,9 +51,24 @@ import org.sagebionetworks.bridge.validators.Validate;
  */
 @Component
 public class UploadSchemaService {
+    // Upload validation looks up a schema for every upload, so the revisions of the schemas an app uses are indexed
+    // in memory. Every write to an app's schemas changes the app's schema etag, which causes every server to rebuild
+    // the index for that app the next time it is used.
+    static final int SCHEMA_INDEX_EXPIRE_SECONDS = 5*60;
+    static final int SCHEMA_INDEX_MAX_SIZE = 1000;
+
+    private final Cache<String, AppSchemaIndex> schemaIndexCache = CacheBuilder.newBuilder()
+            .maximumSize(SCHEMA_INDEX_MAX_SIZE)
+            .expireAfterWrite(SCHEMA_INDEX_EXPIRE_SECONDS, TimeUnit.SECONDS).build();
+    private CacheProvider cacheProvider;
     private SharedModuleMetadataService sharedModuleMetadataService;
     private UploadSchemaDao uploadSchemaDao;
 
+    @Autowired
+    public final void setCacheProvider(CacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+    }
+
     /** DAO for upload schemas. This is configured by Spring. */
     @Autowired
     public final void setUploadSchemaDao(UploadSchemaDao uploadSchemaDao) {
@@ -80,7 +105,9 @@ public class UploadSchemaService {
         Validate.entityThrowingException(UploadSchemaValidator.INSTANCE, schema);
 
         // call through to DAO
-        return uploadSchemaDao.createSchemaRevision(schema);
+        UploadSchema createdSchema = uploadSchemaDao.createSchemaRevision(schema);
+        schemasChanged(appId);
+        return createdSchema;
     }
 
     /**
@@ -116,7 +143,9 @@ public class UploadSchemaService {
         Validate.entityThrowingException(UploadSchemaValidator.INSTANCE, schema);
 
         // call through to DAO
-        return uploadSchemaDao.createSchemaRevision(schema);
+        UploadSchema createdSchema = uploadSchemaDao.createSchemaRevision(schema);
+        schemasChanged(appId);
+        return createdSchema;
     }
 
     /**
@@ -220,6 +249,7 @@ public class UploadSchemaService {
 
         List<UploadSchema> schemaList = getSchemaRevisionsForDelete(appId, schemaId);
         uploadSchemaDao.deleteUploadSchemas(schemaList);
+        schemasChanged(appId);
     }
 
     public void deleteUploadSchemaByIdPermanently(String appId, String schemaId) {
@@ -227,6 +257,7 @@ public class UploadSchemaService {
 
         List<UploadSchema> schemaList = getSchemaRevisionsForDelete(appId, schemaId);
         uploadSchemaDao.deleteUploadSchemasPermanently(schemaList);
+        schemasChanged(appId);
     }
 
     protected List<UploadSchema> getSchemaRevisionsForDelete(String appId, String schemaId) {
@@ -260,7 +291,8 @@ public class UploadSchemaService {
         if (schema == null || schema.isDeleted()) {
             throw new EntityNotFoundException(UploadSchema.class);
         }
-        uploadSchemaDao.deleteUploadSchemas(ImmutableList.of(schema));    
+        uploadSchemaDao.deleteUploadSchemas(ImmutableList.of(schema));
+        schemasChanged(appId);
     }
     
     public void deleteUploadSchemaByIdAndRevisionPermanently(String appId, String schemaId, int rev) {
@@ -270,7 +302,8 @@ public class UploadSchemaService {
         if (schema == null) {
             throw new EntityNotFoundException(UploadSchema.class);
         }
-        uploadSchemaDao.deleteUploadSchemasPermanently(ImmutableList.of(schema));    
+        uploadSchemaDao.deleteUploadSchemasPermanently(ImmutableList.of(schema));
+        schemasChanged(appId);
     }
 
     /** Returns all revisions of all schemas. */
@@ -282,6 +315,7 @@ public class UploadSchemaService {
     public void deleteAllUploadSchemasAllRevisionsPermanently(String appId) {
         List<UploadSchema> schemaList = uploadSchemaDao.getAllUploadSchemasAllRevisions(appId, true);
         uploadSchemaDao.deleteUploadSchemasPermanently(schemaList);
+        schemasChanged(appId);
     }
 
     /** Service handler for fetching the most recent revision of all upload schemas in a app. */
@@ -375,7 +409,10 @@ public class UploadSchemaService {
      * throws an EntityNotFoundException
      */
     public UploadSchema getUploadSchemaByIdAndRev(String appId, String schemaId, int revision) {
-        UploadSchema schema = getUploadSchemaByIdAndRevNoThrow(appId, schemaId, revision);
+        validateSchemaIdAndRevision(schemaId, revision);
+
+        // Callers of this method may modify the schema, so it is loaded from the DAO rather than the schema index.
+        UploadSchema schema = uploadSchemaDao.getUploadSchemaByIdAndRevision(appId, schemaId, revision);
         if (schema == null) {
             throw new EntityNotFoundException(UploadSchema.class, "Can't find schema " + schemaId + "-v" + revision);
         }
@@ -384,33 +421,96 @@ public class UploadSchemaService {
 
     /**
      * Fetches the upload schema for the specified app, schema ID, and revision. If no schema is found, this API
-     * returns null.
+     * returns null. This is served from the schema index, so the schema that is returned is shared and must not be
+     * modified.
      */
     public UploadSchema getUploadSchemaByIdAndRevNoThrow(String appId, String schemaId,
             int revision) {
+        validateSchemaIdAndRevision(schemaId, revision);
+
+        return getIndexedRevisions(appId, schemaId).get(revision);
+    }
+
+    private static void validateSchemaIdAndRevision(String schemaId, int revision) {
         if (StringUtils.isBlank(schemaId)) {
             throw new BadRequestException("Schema ID must be specified");
         }
         if (revision <= 0) {
             throw new BadRequestException("Revision must be specified and positive");
         }
-
-        return uploadSchemaDao.getUploadSchemaByIdAndRevision(appId, schemaId, revision);
     }
 
     /**
-     * Gets the latest available revision of the specified schema for the specified client. This API fetches every
-     * schema revision for the specified schema ID, then checks the schema's min/maxAppVersion against the clientInfo.
-     * If multiple schema revisions match, it returns the latest one.
+     * Gets the latest available revision of the specified schema for the specified client. This API checks the
+     * min/maxAppVersion of each (non-deleted) schema revision against the clientInfo, from the latest revision down,
+     * and returns the first one that matches. Revisions are served from the schema index, so the schema that is
+     * returned is shared and must not be modified. If the schema doesn't exist, this throws an
+     * EntityNotFoundException.
      */
     public UploadSchema getLatestUploadSchemaRevisionForAppVersion(String appId, String schemaId,
             ClientInfo clientInfo) {
         checkNotNull(appId, "App ID must be specified");
         checkNotNull(clientInfo, "Client Info must be specified");
+        if (StringUtils.isBlank(schemaId)) {
+            throw new BadRequestException("Schema ID must be specified");
+        }
 
-        List<UploadSchema> schemaList = getUploadSchemaAllRevisions(appId, schemaId, false);
-        return schemaList.stream().filter(schema -> isSchemaAvailableForClientInfo(schema, clientInfo))
-                .max((schema1, schema2) -> Integer.compare(schema1.getRevision(), schema2.getRevision())).orElse(null);
+        boolean found = false;
+        for (UploadSchema schema : getIndexedRevisions(appId, schemaId).descendingMap().values()) {
+            if (schema.isDeleted()) {
+                continue;
+            }
+            found = true;
+            if (isSchemaAvailableForClientInfo(schema, clientInfo)) {
+                return schema;
+            }
+        }
+        if (!found) {
+            throw new EntityNotFoundException(UploadSchema.class);
+        }
+        return null;
+    }
+
+    // Gets all revisions (including deleted revisions) of the schema, sorted by revision. Revisions are loaded the
+    // first time a schema is used, and reloaded once the app's schema etag has changed.
+    private NavigableMap<Integer, UploadSchema> getIndexedRevisions(String appId, String schemaId) {
+        // The etag must be read before the revisions are loaded, so a write that happens in between causes the
+        // next lookup to load the revisions again.
+        DateTime etag = cacheProvider.getObject(CacheKey.etag(UploadSchema.class, appId), DateTime.class);
+        AppSchemaIndex index = schemaIndexCache.getIfPresent(appId);
+        if (index == null || !Objects.equals(index.etag, etag)) {
+            index = new AppSchemaIndex(etag);
+            schemaIndexCache.put(appId, index);
+        }
+
+        NavigableMap<Integer, UploadSchema> revisions = index.revisionsBySchemaId.get(schemaId);
+        if (revisions == null) {
+            TreeMap<Integer, UploadSchema> loadedRevisions = new TreeMap<>();
+            for (UploadSchema schema : uploadSchemaDao.getUploadSchemaAllRevisionsById(appId, schemaId, true)) {
+                loadedRevisions.put(schema.getRevision(), schema);
+            }
+            revisions = Collections.unmodifiableNavigableMap(loadedRevisions);
+            index.revisionsBySchemaId.putIfAbsent(schemaId, revisions);
+        }
+        return revisions;
+    }
+
+    // Called after every write to an app's schemas.
+    private void schemasChanged(String appId) {
+        schemaIndexCache.invalidate(appId);
+        cacheProvider.setObject(CacheKey.etag(UploadSchema.class, appId), DateTime.now());
+    }
+
+    // The revisions of each schema that has been used in an app, as of the app's schema etag. Schemas that don't
+    // exist are indexed as well (with no revisions), so they aren't looked up again.
+    private static final class AppSchemaIndex {
+        private final DateTime etag;
+        private final ConcurrentMap<String, NavigableMap<Integer, UploadSchema>> revisionsBySchemaId =
+                new ConcurrentHashMap<>();
+
+        private AppSchemaIndex(DateTime etag) {
+            this.etag = etag;
+        }
     }
 
     // Helper method which checks if a schema is available for a client, by checking the schema's min/maxAppVersion
@@ -519,7 +619,9 @@ public class UploadSchemaService {
         }
 
         // Call through to the DAO
-        return uploadSchemaDao.updateSchemaRevision(schemaToUpdate);
+        UploadSchema updatedSchema = uploadSchemaDao.updateSchemaRevision(schemaToUpdate);
+        schemasChanged(appId);
+        return updatedSchema;
     }
 
     // Helper method to get a map of fields by name for an Upload Schema. Returns a TreeMap so our error messaging has
@@ -19,6 +19,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -65,6 +66,7 @@ import org.sagebionetworks.bridge.models.healthdata.HealthDataRecordEx3;
 import org.sagebionetworks.bridge.models.schedules2.timelines.TimelineMetadataView;
 import org.sagebionetworks.bridge.models.upload.UploadViewEx3;
 import org.sagebionetworks.bridge.time.DateUtils;
+import org.sagebionetworks.bridge.upload.UploadValidationNotifier;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.accounts.StudyParticipant;
 import org.sagebionetworks.bridge.models.healthdata.HealthDataRecord;
@@ -106,12 +108,7 @@ public class UploadService {
     private UploadDao uploadDao;
     private UploadDedupeDao uploadDedupeDao;
     private UploadValidationService uploadValidationService;
-
-    // These parameters can be overriden to facilitate testing.
-    // By default, we sleep 5 seconds, including right at the start and end. This means on our 7th iteration,
-    // 30 seconds will have passed.
-    private int pollValidationStatusMaxIterations = 7;
-    private long pollValidationStatusSleepMillis = 5000;
+    private UploadValidationNotifier uploadValidationNotifier;
 
     @Autowired
     public final void setAccountService(AccountService accountService) {
@@ -189,20 +186,10 @@ public class UploadService {
         this.uploadValidationService = uploadValidationService;
     }
 
-    /**
-     * Number of iterations while polling for validation status before we time out. This is used primarily by tests to
-     * reduce the amount of wait time during tests.
-     */
-    public final void setPollValidationStatusMaxIterations(int pollValidationStatusMaxIterations) {
-        this.pollValidationStatusMaxIterations = pollValidationStatusMaxIterations;
-    }
-
-    /**
-     * Milliseconds to sleep per iterations while polling for validation status. This is used primarily by tests to
-     * reduce the amount of wait time during tests.
-     */
-    public final void setPollValidationStatusSleepMillis(long pollValidationStatusSleepMillis) {
-        this.pollValidationStatusSleepMillis = pollValidationStatusSleepMillis;
+    /** Notifier that signals when upload validation on this server is complete. This is configured by Spring. */
+    @Autowired
+    final void setUploadValidationNotifier(UploadValidationNotifier uploadValidationNotifier) {
+        this.uploadValidationNotifier = uploadValidationNotifier;
     }
 
     public UploadSession createUpload(String appId, StudyParticipant participant, UploadRequest uploadRequest) {
@@ -440,34 +427,52 @@ public class UploadService {
     }
 
     /**
-     * Polls for validation status for a given upload ID. Polls until validation is complete or otherwise is in a state
-     * where further polling won't get any results (like validation failed, or upload is requested but not yet
-     * uploaded), or until it times out. See getUploadValidationStatus() for more details.
+     * Returns a future that completes with the validation status of the upload once validation is complete or 
+     * otherwise is in a state where waiting won't get any results (like validation failed, or upload is requested 
+     * but not yet uploaded). The status is read when the validation task on this server signals that it has written 
+     * the final status. It is also re-read periodically while waiting, in case the upload is being validated on 
+     * another server. The caller is responsible for timing out, and must cancel the future when it does so. See 
+     * getUploadValidationStatus() for more details.
      */
-    public UploadValidationStatus pollUploadValidationStatusUntilComplete(String uploadId) {
-        // Loop logic is a little wonky. (Loop-and-a-half problem.) Use an infinite loop here and rely on tests to make
-        // sure we don't go infinite.
-        int numIters = 0;
-        while (true) {
+    public CompletableFuture<UploadValidationStatus> getUploadValidationStatusWhenComplete(String uploadId) {
+        CompletableFuture<UploadValidationStatus> future = new CompletableFuture<>();
+        Runnable listener = () -> completeWithValidationStatus(uploadId, future);
+        
+        // Listen before checking the status, so that validation completing in between is not missed.
+        uploadValidationNotifier.addListener(uploadId, listener);
+        future.whenComplete((status, ex) -> uploadValidationNotifier.removeListener(uploadId, listener));
+        
+        UploadValidationStatus validationStatus = getUploadValidationStatus(uploadId);
+        if (validationStatus.getStatus() != UploadStatus.VALIDATION_IN_PROGRESS) {
+            future.complete(validationStatus);
+        }
+        return future;
+    }
+
+    /**
+     * Get the validation status of an upload after waiting for it has timed out. If validation still has not 
+     * completed (it may have been running on another server), this throws a BridgeServiceException.
+     */
+    public UploadValidationStatus getUploadValidationStatusAfterTimeout(String uploadId) {
+        UploadValidationStatus validationStatus = getUploadValidationStatus(uploadId);
+        if (validationStatus.getStatus() == UploadStatus.VALIDATION_IN_PROGRESS) {
+            throw new BridgeServiceException("Timeout waiting for validation status for upload " + uploadId);
+        }
+        return validationStatus;
+    }
+    
+    private void completeWithValidationStatus(String uploadId, CompletableFuture<UploadValidationStatus> future) {
+        if (future.isDone()) {
+            return;
+        }
+        try {
             UploadValidationStatus validationStatus = getUploadValidationStatus(uploadId);
+            // A periodic re-read may find validation still in progress; keep waiting.
             if (validationStatus.getStatus() != UploadStatus.VALIDATION_IN_PROGRESS) {
-                // Validation is either finished processing, or otherwise in a state where it's pointless to wait.
-                // Return the answer we have now.
-                return validationStatus;
-            }
-
-            // Short-circuit: If we've elapsed our timeout, just exit now. Don't wait for a sleep.
-            numIters++;
-            if (numIters >= pollValidationStatusMaxIterations) {
-                throw new BridgeServiceException("Timeout polling validation status for upload " + uploadId);
-            }
-
-            // Sleep and try again.
-            try {
-                Thread.sleep(pollValidationStatusSleepMillis);
-            } catch (InterruptedException ex) {
-                logger.error("Interrupted while polling for validation status: " + ex.getMessage());
+                future.complete(validationStatus);
             }
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
         }
     }
 
@@ -481,6 +486,10 @@ public class UploadService {
             return;
         }
 
+        // If this server can't take on more validation, fail before the upload is marked complete, so the caller
+        // can retry.
+        uploadValidationService.checkCapacity();
+
         final String objectId = upload.getObjectId();
         ObjectMetadata obj;
         try {
@@ -528,6 +537,14 @@ public class UploadService {
         updateAdherenceWithUploadInfo(appId, upload);
     }
     
+    /**
+     * Returns statistics for upload validation on this server: the state of the validation executor and how long each
+     * validation handler takes.
+     */
+    public Map<String, Map<String, Long>> getUploadValidationStatistics() {
+        return uploadValidationService.getStatistics();
+    }
+
     public void deleteUploadsForHealthCode(String healthCode) {
         checkArgument(isNotBlank(healthCode));
 
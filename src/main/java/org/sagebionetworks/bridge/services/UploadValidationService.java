@@ -3,24 +3,42 @@ package org.sagebionetworks.bridge.services;
 import javax.annotation.Nonnull;
 import javax.annotation.Resource;
 
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics;
 import org.sagebionetworks.bridge.upload.UploadValidationTask;
 import org.sagebionetworks.bridge.upload.UploadValidationTaskFactory;
 
 /** Service handler for upload validation. */
 @Component
 public class UploadValidationService {
-    private ExecutorService asyncExecutorService;
+    private static final Logger LOG = LoggerFactory.getLogger(UploadValidationService.class);
+
+    // Package-scoped for unit tests.
+    static final String TOO_MANY_UPLOADS_MSG = "Too many uploads are being validated. Please try again later.";
+
+    private ThreadPoolExecutor uploadValidationExecutorService;
+    private UploadValidationMetrics uploadValidationMetrics;
     private UploadValidationTaskFactory taskFactory;
 
-    /** Async thread pool. This is configured by Spring. */
-    @Resource(name = "asyncExecutorService")
-    public void setAsyncExecutorService(ExecutorService asyncExecutorService) {
-        this.asyncExecutorService = asyncExecutorService;
+    /** Bounded thread pool that runs upload validation. This is configured by Spring. */
+    @Resource(name = "uploadValidationExecutorService")
+    public void setUploadValidationExecutorService(ThreadPoolExecutor uploadValidationExecutorService) {
+        this.uploadValidationExecutorService = uploadValidationExecutorService;
+    }
+
+    /** Upload validation metrics, used to count rejected uploads. This is configured by Spring. */
+    @Autowired
+    public void setUploadValidationMetrics(UploadValidationMetrics uploadValidationMetrics) {
+        this.uploadValidationMetrics = uploadValidationMetrics;
     }
 
     /** Task factory. This is configured by Spring. */
@@ -29,6 +47,17 @@ public class UploadValidationService {
         this.taskFactory = taskFactory;
     }
 
+    /**
+     * Throws a ServiceUnavailableException if the upload validation queue is full. Call this before marking an upload
+     * complete, so that a rejected upload can be completed again later.
+     */
+    public void checkCapacity() {
+        if (uploadValidationExecutorService.getQueue().remainingCapacity() == 0) {
+            uploadValidationMetrics.recordRejected();
+            throw new ServiceUnavailableException(TOO_MANY_UPLOADS_MSG);
+        }
+    }
+
     /**
      * <p>
      * Kick off upload validation. Since upload validation can take some time, we handle this asynchronously. This
@@ -46,6 +75,19 @@ public class UploadValidationService {
      */
     public void validateUpload(@Nonnull String appId, @Nonnull Upload upload) {
         UploadValidationTask task = taskFactory.newTask(appId, upload);
-        asyncExecutorService.execute(task);
+        try {
+            uploadValidationExecutorService.execute(task);
+        } catch (RejectedExecutionException ex) {
+            // The queue filled up after checkCapacity(). The upload is already marked complete, so a retry by the
+            // caller would not validate it. Validate it on the caller's thread instead.
+            LOG.warn("Upload validation queue full, validating on the request thread for app " + appId
+                    + ", upload " + upload.getUploadId());
+            task.run();
+        }
+    }
+
+    /** Returns the upload validation executor and handler time statistics of this server. */
+    public Map<String, Map<String, Long>> getStatistics() {
+        return uploadValidationMetrics.getStatistics();
     }
 }
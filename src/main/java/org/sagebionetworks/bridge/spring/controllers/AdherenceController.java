@@ -13,6 +13,10 @@ import static org.sagebionetworks.bridge.Roles.STUDY_DESIGNER;
 import static org.sagebionetworks.bridge.Roles.WORKER;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.TEST;
 
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
 import org.joda.time.DateTime;
 import org.sagebionetworks.bridge.models.schedules2.adherence.detailed.DetailedAdherenceReport;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +31,7 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.StatusMessage;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
@@ -46,6 +51,7 @@ public class AdherenceController extends BaseController {
     
     static final StatusMessage SAVED_MSG = new StatusMessage("Adherence records saved.");
     static final StatusMessage DELETED_MSG = new StatusMessage("Adherence record deleted");
+    static final TypeReference<List<String>> STRING_LIST_TYPE_REF = new TypeReference<List<String>>() {};
     
     private AdherenceService service;
 
@@ -123,6 +129,16 @@ public class AdherenceController extends BaseController {
         return service.getWeeklyAdherenceReportForWorker(appId, studyId, account);
     }
     
+    @PostMapping("/v1/apps/{appId}/studies/{studyId}/adherence/weekly")
+    public ResourceList<WeeklyAdherenceReport> getWeeklyAdherenceReportsForWorker(@PathVariable String appId,
+            @PathVariable String studyId) {
+        getAuthenticatedSession(WORKER);
+        
+        List<String> userIds = parseJson(STRING_LIST_TYPE_REF);
+        
+        return new ResourceList<>(service.getWeeklyAdherenceReportsForWorker(appId, studyId, userIds));
+    }
+    
     @PostMapping("/v5/studies/{studyId}/adherence/weekly")    
     public PagedResourceList<WeeklyAdherenceReport> getWeeklyAdherenceReports(@PathVariable String studyId) {
         UserSession session = getAuthenticatedSession(DEVELOPER, RESEARCHER, STUDY_DESIGNER, STUDY_COORDINATOR);
@@ -0,0 +1,32 @@
+package org.sagebionetworks.bridge.spring.controllers;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import org.sagebionetworks.bridge.models.reports.ReportData;
+
+/**
+ * Shared by the participant and study report controllers, which both accept batches of report records.
+ */
+public abstract class BaseReportController extends BaseController {
+
+    private static final TypeReference<List<ReportData>> REPORT_DATA_LIST_TYPE_REF =
+            new TypeReference<List<ReportData>>() {};
+    
+    /**
+     * Parse a list of report records from the request body. Keys are set by the service, so any key submitted 
+     * is cleared.
+     */
+    protected @Nonnull List<ReportData> parseReportDataList() {
+        List<ReportData> reportData = parseJson(REPORT_DATA_LIST_TYPE_REF);
+        for (ReportData oneReport : reportData) {
+            if (oneReport != null) {
+                oneReport.setKey(null); // set in service, but just so no future use depends on it
+            }
+        }
+        return reportData;
+    }
+}
@@ -25,6 +25,7 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -310,6 +311,18 @@ public class ParticipantController extends BaseController {
         return participantService.getPagedAccountSummaries(app, search);
     }
     
+    @PostMapping("/v3/participants/search/cursor")
+    public ForwardCursorPagedResourceList<AccountSummary> searchForAccountSummariesByCursor(
+            @RequestParam(required = false) String offsetKey,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        UserSession session = getAuthenticatedSession(DEVELOPER, RESEARCHER);
+        App app = appService.getApp(session.getAppId());
+        
+        AccountSummarySearch search = parseJson(AccountSummarySearch.class);
+
+        return participantService.getAccountSummariesByCursor(app, search, offsetKey, includeTotal);
+    }
+    
     @Deprecated
     @GetMapping(path = {"/v1/apps/{appId}/participants", "/v3/studies/{appId}/participants"})
     public JsonNode getParticipantsForWorker(@PathVariable String appId,
@@ -635,20 +648,21 @@ public class ParticipantController extends BaseController {
 
     @PostMapping("/v3/participants/{userId}/sendNotification")
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public StatusMessage sendNotification(@PathVariable String userId) {
+    public CompletableFuture<StatusMessage> sendNotification(@PathVariable String userId) {
         UserSession session = getAdministrativeSession();
         CAN_EDIT_PARTICIPANTS.checkAndThrow(USER_ID, userId);
         App app = appService.getApp(session.getAppId());
         
         NotificationMessage message = parseJson(NotificationMessage.class);
         
-        Set<String> erroredNotifications = participantService.sendNotification(app, userId, message);
-        
-        if (erroredNotifications.isEmpty()) {
-            return new StatusMessage(NOTIFY_SUCCESS_MESSAGE);                    
-        }
-        return new StatusMessage(NOTIFY_SUCCESS_MESSAGE + " Some registrations returned errors: "
-                + BridgeUtils.COMMA_SPACE_JOINER.join(erroredNotifications) + ".");
+        // The request thread is released while the message is published.
+        return participantService.sendNotification(app, userId, message).thenApply(erroredNotifications -> {
+            if (erroredNotifications.isEmpty()) {
+                return new StatusMessage(NOTIFY_SUCCESS_MESSAGE);
+            }
+            return new StatusMessage(NOTIFY_SUCCESS_MESSAGE + " Some registrations returned errors: "
+                    + BridgeUtils.COMMA_SPACE_JOINER.join(erroredNotifications) + ".");
+        });
     }
 
     @GetMapping(path = {"/v3/participants/{userId}/activityEvents",
@@ -9,6 +9,8 @@ import static org.sagebionetworks.bridge.Roles.DEVELOPER;
 import static org.sagebionetworks.bridge.Roles.RESEARCHER;
 import static org.sagebionetworks.bridge.Roles.WORKER;
 
+import java.util.List;
+
 import com.fasterxml.jackson.databind.JsonNode;
 
 import org.joda.time.DateTime;
@@ -52,7 +54,7 @@ import org.sagebionetworks.bridge.services.ReportService;
  */
 @CrossOrigin
 @RestController
-public class ParticipantReportController extends BaseController {
+public class ParticipantReportController extends BaseReportController {
     
     private ReportService reportService;
     
@@ -101,6 +103,23 @@ public class ParticipantReportController extends BaseController {
         return new StatusMessage("Report data saved.");
     }
     
+    /**
+     * Save a batch of the caller's own report records (for example, when backfilling a daily report). The 
+     * records are validated together and written in batches.
+     */
+    @PostMapping("/v4/users/self/reports/{identifier}/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public StatusMessage saveParticipantReportsForSelf(@PathVariable String identifier) {
+        UserSession session = getAuthenticatedSession();
+        
+        List<ReportData> reportData = parseReportDataList();
+        
+        reportService.saveParticipantReports(session.getAppId(), session.getId(), identifier, 
+                session.getHealthCode(), reportData);
+        
+        return new StatusMessage("Report data saved.");
+    }
+    
     /**
      * Get a list of the identifiers used for participant reports in this app.
      */
@@ -227,6 +246,27 @@ public class ParticipantReportController extends BaseController {
         return new StatusMessage("Report data saved.");
     }
     
+    /**
+     * Save a batch of report records for a participant. The records are validated together and written in 
+     * batches.
+     */
+    @PostMapping("/v4/participants/{userIdToken}/reports/{identifier}/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public StatusMessage saveParticipantReports(@PathVariable String userIdToken, @PathVariable String identifier) {
+        UserSession session = getAuthenticatedSession(DEVELOPER, RESEARCHER);
+
+        AccountId accountId = BridgeUtils.parseAccountId(session.getAppId(), userIdToken);
+        Account account = accountService.getAccount(accountId)
+                .orElseThrow(() -> new EntityNotFoundException(Account.class));
+
+        List<ReportData> reportData = parseReportDataList();
+        
+        reportService.saveParticipantReports(session.getAppId(), account.getId(), identifier, 
+                account.getHealthCode(), reportData);
+        
+        return new StatusMessage("Report data saved.");
+    }
+    
     /**
      * When saving, worker accounts do not know the userId of the account, only the healthCode, so a 
      * special method is needed.
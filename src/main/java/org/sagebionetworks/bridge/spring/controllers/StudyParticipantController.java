@@ -18,16 +18,19 @@ import static org.sagebionetworks.bridge.cache.CacheKey.scheduleModificationTime
 import static org.sagebionetworks.bridge.models.RequestInfo.REQUEST_INFO_WRITER;
 import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectType.TIMELINE_RETRIEVED;
 import static org.sagebionetworks.bridge.models.reports.ReportType.PARTICIPANT;
-import static org.sagebionetworks.bridge.models.schedules2.timelines.Scheduler.INSTANCE;
 import static org.sagebionetworks.bridge.models.sms.SmsType.PROMOTIONAL;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
 import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
+import java.io.IOException;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletResponse;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.collect.ImmutableSet;
@@ -173,8 +176,8 @@ public class StudyParticipantController extends BaseController {
         // Most recent modification to the schedule
         @EtagCacheKey(model=Schedule2.class, keys={"appId", "studyId"})
     })
-    @GetMapping("/v5/studies/{studyId}/participants/self/timeline")
-    public ResponseEntity<Timeline> getTimelineForSelf(@PathVariable String studyId) {
+    @GetMapping(path="/v5/studies/{studyId}/participants/self/timeline", produces={APPLICATION_JSON_VALUE})
+    public ResponseEntity<String> getTimelineForSelf(@PathVariable String studyId) {
         UserSession session = getAuthenticatedAndConsentedSession();
         
         if (!session.getParticipant().getStudyIds().contains(studyId)) {
@@ -204,7 +207,7 @@ public class StudyParticipantController extends BaseController {
                 .withObjectType(TIMELINE_RETRIEVED)
                 .withTimestamp(timelineRequestedOn).build(), false, true);
 
-        return new ResponseEntity<>(INSTANCE.calculateTimeline(schedule), OK);
+        return new ResponseEntity<>(scheduleService.getTimelineJson(schedule), OK);
     }
     
     private DateTime modifiedSinceHeader() {
@@ -238,7 +241,26 @@ public class StudyParticipantController extends BaseController {
 
         return PREPARING_ROSTER_MSG;
     }
-    
+
+    /**
+     * Stream the study's participant roster in the response body, as NDJSON (the default) or CSV. The roster is
+     * written one page of accounts at a time, so it is not held in memory.
+     */
+    @GetMapping("/v5/studies/{studyId}/participants/roster")
+    public void downloadParticipantRoster(@PathVariable String studyId,
+            @RequestParam(defaultValue = "ndjson") String format) throws IOException {
+        UserSession session = getAdministrativeSession();
+
+        CAN_EXPORT_PARTICIPANTS.checkAndThrow(STUDY_ID, studyId);
+
+        App app = appService.getApp(session.getAppId());
+
+        HttpServletResponse response = response();
+        response.setContentType(participantService.getParticipantRosterContentType(format));
+        response.setHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + studyId + "-roster." + format + "\"");
+        participantService.writeParticipantRoster(app, studyId, format, response.getOutputStream());
+    }
+
     @EtagSupport({
         // Most recent modification to the schedule
         @EtagCacheKey(model=Schedule2.class, keys={"appId", "studyId"})
@@ -349,6 +371,22 @@ public class StudyParticipantController extends BaseController {
         return participantService.getPagedAccountSummaries(app, search);
     }
     
+    @PostMapping("/v5/studies/{studyId}/participants/search/cursor")
+    public ForwardCursorPagedResourceList<AccountSummary> searchForAccountSummariesByCursor(
+            @PathVariable String studyId, @RequestParam(required = false) String offsetKey,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        UserSession session = getAdministrativeSession();
+        
+        CAN_EDIT_STUDY_PARTICIPANTS.checkAndThrow(STUDY_ID, studyId);
+        
+        App app = appService.getApp(session.getAppId());
+        AccountSummarySearch search = parseJson(AccountSummarySearch.class);
+        
+        search = search.toBuilder().withEnrolledInStudyId(studyId).build();
+        
+        return participantService.getAccountSummariesByCursor(app, search, offsetKey, includeTotal);
+    }
+    
     @PostMapping("/v5/studies/{studyId}/participants")
     @ResponseStatus(HttpStatus.CREATED)
     public IdentifierHolder createParticipant(@PathVariable String studyId) {
@@ -527,7 +565,8 @@ public class StudyParticipantController extends BaseController {
 
     @PostMapping("/v5/studies/{studyId}/participants/{userId}/sendNotification")
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public StatusMessage sendNotification(@PathVariable String studyId, @PathVariable String userId) {
+    public CompletableFuture<StatusMessage> sendNotification(@PathVariable String studyId,
+            @PathVariable String userId) {
         UserSession session = getAdministrativeSession();
         Account account = getValidAccountInStudy(session.getAppId(), studyId, userId);
 
@@ -535,13 +574,15 @@ public class StudyParticipantController extends BaseController {
         
         NotificationMessage message = parseJson(NotificationMessage.class);
         App app = appService.getApp(session.getAppId());
-        Set<String> erroredNotifications = participantService.sendNotification(app, account.getId(), message);
         
-        if (erroredNotifications.isEmpty()) {
-            return NOTIFY_SUCCESS_MSG;                    
-        }
-        return new StatusMessage(NOTIFY_SUCCESS_MSG.getMessage() + " Some registrations returned errors: "
-                + BridgeUtils.COMMA_SPACE_JOINER.join(erroredNotifications) + ".");
+        // The request thread is released while the message is published.
+        return participantService.sendNotification(app, account.getId(), message).thenApply(erroredNotifications -> {
+            if (erroredNotifications.isEmpty()) {
+                return NOTIFY_SUCCESS_MSG;
+            }
+            return new StatusMessage(NOTIFY_SUCCESS_MSG.getMessage() + " Some registrations returned errors: "
+                    + BridgeUtils.COMMA_SPACE_JOINER.join(erroredNotifications) + ".");
+        });
     }
     
     @PostMapping("/v5/studies/{studyId}/participants/{userId}/sendInstallLink")
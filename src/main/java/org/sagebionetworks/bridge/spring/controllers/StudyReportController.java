@@ -10,6 +10,8 @@ import static org.sagebionetworks.bridge.Roles.WORKER;
 import static org.sagebionetworks.bridge.models.reports.ReportType.PARTICIPANT;
 import static org.sagebionetworks.bridge.models.reports.ReportType.STUDY;
 
+import java.util.List;
+
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,7 +49,7 @@ import org.sagebionetworks.bridge.services.ReportService;
  */
 @CrossOrigin
 @RestController
-public class StudyReportController extends BaseController {
+public class StudyReportController extends BaseReportController {
     
     static final StatusMessage UPDATED_MSG = new StatusMessage("Report index updated.");
     static final StatusMessage DELETED_DATA_MSG = new StatusMessage("Report record deleted.");
@@ -141,6 +143,22 @@ public class StudyReportController extends BaseController {
         
         return SAVED_MSG;
     }
+    
+    /**
+     * Save a batch of study report records (for example, when backfilling a daily report). The records are 
+     * validated together and written in batches.
+     */
+    @PostMapping("/v4/reports/{identifier}/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public StatusMessage saveStudyReports(@PathVariable String identifier) {
+        UserSession session = getAuthenticatedSession(DEVELOPER, WORKER);
+        
+        List<ReportData> reportData = parseReportDataList();
+        
+        reportService.saveStudyReports(session.getAppId(), identifier, reportData);
+        
+        return SAVED_MSG;
+    }
 
     /**
      * A similar method as above but specifying study id only for WORKER
@@ -8,7 +8,9 @@ import static org.sagebionetworks.bridge.Roles.WORKER;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 import java.util.EnumSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.collect.ImmutableSet;
@@ -20,6 +22,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.sagebionetworks.bridge.Roles;
 import org.sagebionetworks.bridge.dao.HealthCodeDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -42,6 +45,8 @@ import org.sagebionetworks.bridge.time.DateUtils;
 @CrossOrigin
 @RestController
 public class UploadController extends BaseController {
+    
+    static final String VALIDATION_STATUS_TIMEOUT_MILLIS = "upload.validation.status.timeout.millis";
 
     private UploadService uploadService;
     
@@ -84,6 +89,17 @@ public class UploadController extends BaseController {
         return HealthDataRecord.PUBLIC_RECORD_WRITER.writeValueAsString(validationStatus);
     }
     
+    /**
+     * Upload validation statistics for the server that handles this request: the state of the validation executor,
+     * the number of uploads rejected because it was full, and a histogram of the time each validation handler takes.
+     */
+    @GetMapping("/v3/uploads/validation/statistics")
+    public Map<String, Map<String, Long>> getUploadValidationStatistics() {
+        getAuthenticatedSession(SUPERADMIN);
+        
+        return uploadService.getUploadValidationStatistics();
+    }
+    
     @PostMapping({"/v3/uploads", "/api/v1/upload"})
     public UploadSession upload() {
         UserSession session = getAuthenticatedAndConsentedSession();
@@ -106,16 +122,8 @@ public class UploadController extends BaseController {
     /**
      * <p>
      * Signals to the Bridge server that the upload is complete. This kicks off the asynchronous validation process
-     * through the Upload Validation Service.
-     * </p>
-     * <p>
-     * If synchronous is set to "true", we will wait until upload validation is complete, then return the upload
-     * validation status. This is generally recommended only for App Development, as some large uploads might take
-     * several seconds to complete.
-     * </p>
-     * <p>
-     * If synchronous is set to anything else, we will return a validation status immediately (which will often be in
-     * the "validation_in_progress" state) and let upload validation run in the background.
+     * through the Upload Validation Service, and returns a validation status immediately (which will often be in the
+     * "validation_in_progress" state) while upload validation runs in the background.
      * </p>
      * <p>
      * If redrive is set to "true", then we allow upload validation of uploads that are already complete. This is to
@@ -124,8 +132,47 @@ public class UploadController extends BaseController {
      */
     @PostMapping(path={"/v3/uploads/{uploadId}/complete", "/api/v1/upload/{uploadId}/complete"}, produces={APPLICATION_JSON_VALUE})
     public String uploadComplete(@PathVariable String uploadId,
-            @RequestParam(defaultValue = "false") boolean synchronous,
             @RequestParam(defaultValue = "false") boolean redrive) throws Exception {
+        completeUpload(uploadId, redrive);
+        return writeValidationStatus(uploadService.getUploadValidationStatus(uploadId));
+    }
+
+    /**
+     * <p>
+     * Signals to the Bridge server that the upload is complete (as above), then waits until upload validation is
+     * complete and returns the final upload validation status. This is generally recommended only for App
+     * Development, as some large uploads might take several seconds to complete. The request thread is released
+     * while waiting; the response is completed when the validation task signals that it is done, or when the wait
+     * times out.
+     * </p>
+     * <p>
+     * Only validation running on this server signals completion. If the upload was already completed through
+     * another server (e.g. by the S3 trigger), the status is re-read every few seconds until validation completes
+     * or the wait times out.
+     * </p>
+     */
+    @PostMapping(path={"/v3/uploads/{uploadId}/complete", "/api/v1/upload/{uploadId}/complete"},
+            params="synchronous=true", produces={APPLICATION_JSON_VALUE})
+    public DeferredResult<String> uploadCompleteSynchronously(@PathVariable String uploadId,
+            @RequestParam(defaultValue = "false") boolean redrive) throws Exception {
+        completeUpload(uploadId, redrive);
+        
+        DeferredResult<String> result = new DeferredResult<>(
+                (long) bridgeConfig.getInt(VALIDATION_STATUS_TIMEOUT_MILLIS));
+        CompletableFuture<UploadValidationStatus> future = uploadService
+                .getUploadValidationStatusWhenComplete(uploadId);
+        future.whenComplete((validationStatus, ex) -> {
+            if (ex != null) {
+                result.setErrorResult(ex);
+            } else {
+                setValidationStatusResult(result, validationStatus);
+            }
+        });
+        result.onTimeout(() -> validationStatusTimedOut(uploadId, result, future));
+        return result;
+    }
+    
+    private void completeUpload(String uploadId, boolean redrive) throws JsonProcessingException {
         final Metrics metrics = getMetrics();
         if (metrics != null) {
             metrics.setUploadId(uploadId);
@@ -154,16 +201,30 @@ public class UploadController extends BaseController {
             uploadCompletionClient = UploadCompletionClient.APP;
         }
         uploadService.uploadComplete(appId, uploadCompletionClient, upload, redrive);
-
-        // In async mode, we get the validation status (probably in validation_in_progress) and return immediately.
-        // In sync mode, we poll until the validation status is complete (or failed or another non-transient status).
-        UploadValidationStatus validationStatus;
-        if (synchronous) {
-            validationStatus = uploadService.pollUploadValidationStatusUntilComplete(uploadId);
-        } else {
-            validationStatus = uploadService.getUploadValidationStatus(uploadId);
+    }
+    
+    // Package-scoped for unit tests
+    void validationStatusTimedOut(String uploadId, DeferredResult<String> result,
+            CompletableFuture<UploadValidationStatus> future) {
+        try {
+            setValidationStatusResult(result, uploadService.getUploadValidationStatusAfterTimeout(uploadId));
+        } catch (RuntimeException ex) {
+            result.setErrorResult(ex);
+        } finally {
+            // Stop listening for validation to complete. The result is already set.
+            future.cancel(false);
         }
-
+    }
+    
+    private void setValidationStatusResult(DeferredResult<String> result, UploadValidationStatus validationStatus) {
+        try {
+            result.setResult(writeValidationStatus(validationStatus));
+        } catch (JsonProcessingException ex) {
+            result.setErrorResult(ex);
+        }
+    }
+    
+    private String writeValidationStatus(UploadValidationStatus validationStatus) throws JsonProcessingException {
         // Upload validation status may contain the health data record. Use the filter to filter out health code.
         return HealthDataRecord.PUBLIC_RECORD_WRITER.writeValueAsString(validationStatus);
     }
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -47,34 +48,43 @@ public class MetricsFilter implements Filter {
         
         HttpServletRequest request = (HttpServletRequest)req;
         HttpServletResponse response = (HttpServletResponse)res;
-        metrics.setMethod(request.getMethod());
-        metrics.setUri(request.getServletPath());
-        metrics.setProtocol(request.getProtocol());
-        metrics.setRemoteAddress(header(request, X_FORWARDED_FOR_HEADER, request.getRemoteAddr()));
-        metrics.setUserAgent(header(request, USER_AGENT, null));
-
-        // Process the query parameters, and append them to the metrics.
-        List<NameValuePair> params = URLEncodedUtils.parse(request.getQueryString(), StandardCharsets.UTF_8);
-
-        Multimap<String, String> paramsMap = MultimapBuilder.linkedHashKeys().linkedListValues().build();
-        params.stream().filter(i -> ALLOW_LIST.contains(i.getName()))
-                .forEach(i -> paramsMap.put(i.getName(), i.getValue()));
-
-        metrics.setQueryParams(paramsMap);
+        
+        // The dispatch that writes the result of an asynchronous request carries the metrics of the original 
+        // request (restored by the RequestFilter), which have already been initialized.
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            metrics.setMethod(request.getMethod());
+            metrics.setUri(request.getServletPath());
+            metrics.setProtocol(request.getProtocol());
+            metrics.setRemoteAddress(header(request, X_FORWARDED_FOR_HEADER, request.getRemoteAddr()));
+            metrics.setUserAgent(header(request, USER_AGENT, null));
+    
+            // Process the query parameters, and append them to the metrics.
+            List<NameValuePair> params = URLEncodedUtils.parse(request.getQueryString(), StandardCharsets.UTF_8);
+    
+            Multimap<String, String> paramsMap = MultimapBuilder.linkedHashKeys().linkedListValues().build();
+            params.stream().filter(i -> ALLOW_LIST.contains(i.getName()))
+                    .forEach(i -> paramsMap.put(i.getName(), i.getValue()));
+    
+            metrics.setQueryParams(paramsMap);
+        }
 
         try {
             chain.doFilter(req, res);
             metrics.setStatus(response.getStatus());
         } finally {
-            // Log session info when a session is present
-            UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
-            if (session != null) {
-                // Record UserSession to Metrics.
-                writeSessionInfoToMetrics(metrics, session);
-            }
-            if (response.getHeader(X_PASSTHROUGH) == null) {
-                metrics.end();
-                LOG.info(metrics.toJsonString());
+            // If the controller started asynchronous processing, the response has not been written yet. 
+            // The metrics are completed when the result is dispatched.
+            if (!request.isAsyncStarted()) {
+                // Log session info when a session is present
+                UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
+                if (session != null) {
+                    // Record UserSession to Metrics.
+                    writeSessionInfoToMetrics(metrics, session);
+                }
+                if (response.getHeader(X_PASSTHROUGH) == null) {
+                    metrics.end();
+                    LOG.info(metrics.toJsonString());
+                }
             }
         }
     }
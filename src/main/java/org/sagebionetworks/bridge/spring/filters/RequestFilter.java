@@ -21,6 +21,7 @@ import java.util.Locale;
 import java.util.Vector;
 import java.util.Locale.LanguageRange;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -59,6 +60,8 @@ public class RequestFilter implements Filter {
 
     private final static Logger LOG = LoggerFactory.getLogger(RequestFilter.class);
     
+    static final String REQUEST_CONTEXT_ATTRIBUTE = "BridgeRequestContext";
+    
     private static class RequestIdWrapper extends HttpServletRequestWrapper {
         private final String requestId;
         RequestIdWrapper(HttpServletRequest request, String requestId) {
@@ -97,30 +100,46 @@ public class RequestFilter implements Filter {
         
         HttpServletRequest request = (HttpServletRequest)req;
         HttpServletResponse response = (HttpServletResponse)res;
-        String requestId = request.getHeader(X_REQUEST_ID_HEADER);
-        if (requestId == null) {
-            requestId = generateRequestId();
+        
+        RequestContext context;
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // This dispatch writes the result of an asynchronous request. Restore the context of the original 
+            // request (including its metrics), as it was when the controller returned.
+            context = (RequestContext) request.getAttribute(REQUEST_CONTEXT_ATTRIBUTE);
+        } else {
+            String requestId = request.getHeader(X_REQUEST_ID_HEADER);
+            if (requestId == null) {
+                requestId = generateRequestId();
+            }
+            context = new RequestContext.Builder()
+                    .withRequestId(requestId)
+                    .withCallerIpAddress(parseIpAddress(getRemoteAddress(request)))
+                    .withUserAgent(getUserAgentHeader(request, response))
+                    .withCallerLanguages(getLanguagesFromAcceptLanguageHeader(request, response)).build();
         }
-        RequestContext.Builder builder = new RequestContext.Builder()
-                .withRequestId(requestId)
-                .withCallerIpAddress(parseIpAddress(getRemoteAddress(request)))
-                .withUserAgent(getUserAgentHeader(request, response))
-                .withCallerLanguages(getLanguagesFromAcceptLanguageHeader(request, response));
-        setRequestContext(builder.build());
+        setRequestContext(context);
 
-        req = new RequestIdWrapper(request, requestId);
+        if (context != null) {
+            req = new RequestIdWrapper(request, context.getRequestId());
+        }
 
         try {
             chain.doFilter(req, res);
         } finally {
-            // Clear request context when finished.
-            setRequestContext(null);
-            // Set Cookies from UserSession only if environment is LOCAL
-            UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
-            if (session != null && bridgeConfig.getEnvironment() == Environment.LOCAL) {
-                String sessionToken = session.getSessionToken();
-                Cookie cookie = HttpUtil.makeSessionCookie(sessionToken, BRIDGE_SESSION_EXPIRE_IN_SECONDS);
-                response.addCookie(cookie);
+            if (request.isAsyncStarted()) {
+                // The response is written on a later dispatch, which restores this context. 
+                request.setAttribute(REQUEST_CONTEXT_ATTRIBUTE, RequestContext.get());
+                setRequestContext(null);
+            } else {
+                // Clear request context when finished.
+                setRequestContext(null);
+                // Set Cookies from UserSession only if environment is LOCAL
+                UserSession session = (UserSession) request.getAttribute("CreatedUserSession");
+                if (session != null && bridgeConfig.getEnvironment() == Environment.LOCAL) {
+                    String sessionToken = session.getSessionToken();
+                    Cookie cookie = HttpUtil.makeSessionCookie(sessionToken, BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+                    response.addCookie(cookie);
+                }
             }
         }
     }
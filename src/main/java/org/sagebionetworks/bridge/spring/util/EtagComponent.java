@@ -136,8 +136,8 @@ public class EtagComponent {
     }
 
     private String calculateEtag(EtagContext context, UserSession session, boolean invalidateCache) {
-        // Collect timestamps for all the dependencies that determine freshness of etag
-        List<DateTime> timestamps = new ArrayList<>();
+        // Resolve the keys for all the dependencies that determine freshness of etag
+        List<CacheKey> cacheKeys = new ArrayList<>();
         for (EtagCacheKey cacheKeyDef : context.getCacheKeys()) {
             int len = cacheKeyDef.keys().length;
             String[] resolvedKeyValues = new String[len];
@@ -145,7 +145,6 @@ public class EtagComponent {
                 // given getValue's behavior, this value will not be null;
                 resolvedKeyValues[i] = getValue(context, session, cacheKeyDef.keys()[i]);
             }
-            // Retrieve the timestamp under this key
             CacheKey cacheKey = CacheKey.etag(cacheKeyDef.model(), resolvedKeyValues);
             
             // Check for a request-scoped parameter that differs from the value on the server,
@@ -154,11 +153,17 @@ public class EtagComponent {
             if (invalidateCache) {
                 invalidateCacheOnChange(session, context, cacheKeyDef.invalidateCacheOnChange(), cacheKey);    
             }
-            
-            LOG.debug("looking for cache key: " + cacheKey);
-            DateTime timestamp = cacheProvider.getObject(cacheKey, DateTime.class);
+            cacheKeys.add(cacheKey);
+        }
+        // Retrieve the timestamps under all these keys in one call
+        LOG.debug("looking for cache keys: " + cacheKeys);
+        List<DateTime> cachedTimestamps = cacheProvider.getObjects(cacheKeys, DateTime.class);
+        
+        List<DateTime> timestamps = new ArrayList<>();
+        for (int i=0; i < cacheKeys.size(); i++) {
+            DateTime timestamp = cachedTimestamps.get(i);
             if (timestamp == null) {
-                LOG.debug("cache miss (cacheKey has no value: “" + cacheKey + "”)");
+                LOG.debug("cache miss (cacheKey has no value: “" + cacheKeys.get(i) + "”)");
                 return null; // this is a cache miss, any miss means there is no etag
             }
             timestamps.add(timestamp.withZone(DateTimeZone.UTC));
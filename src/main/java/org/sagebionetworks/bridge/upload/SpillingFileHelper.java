@@ -0,0 +1,124 @@
+package org.sagebionetworks.bridge.upload;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+
+import org.sagebionetworks.bridge.file.FileHelper;
+
+/**
+ * File helper that can keep small files in memory. Files written through {@link #getSpillingOutputStream} stay in
+ * memory unless they grow past the given threshold, in which case they are written (spilled) to disk. Reads through
+ * this helper work the same way for in-memory files and files on disk, so upload validation handlers don't need to
+ * know where a file lives. In-memory files are released when their temp dir is deleted.
+ * <p>
+ * The bytes held in memory across all uploads are capped by a budget. A file that would exceed it is spilled to disk
+ * even if it is under the per-file threshold, so concurrent validations cannot exhaust the heap.
+ */
+public class SpillingFileHelper extends FileHelper {
+    private final ConcurrentMap<File, byte[]> inMemoryFiles = new ConcurrentHashMap<>();
+    private final AtomicLong inMemoryBytes = new AtomicLong();
+    private final long maxInMemoryBytes;
+
+    /** Creates a helper that holds at most maxInMemoryBytes of files in memory at any one time. */
+    public SpillingFileHelper(long maxInMemoryBytes) {
+        this.maxInMemoryBytes = maxInMemoryBytes;
+    }
+
+    /**
+     * Returns an output stream for the given file, which keeps the file in memory as long as it is no larger than
+     * the threshold (in bytes) and there is room for it in the in-memory budget. The file is only available to
+     * readers once the stream has been closed.
+     */
+    public OutputStream getSpillingOutputStream(File file, int threshold) {
+        return new DeferredFileOutputStream(threshold, file) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if (isInMemory()) {
+                    byte[] data = getData();
+                    if (reserveInMemoryBytes(data.length)) {
+                        releaseInMemoryBytes(inMemoryFiles.put(file, data));
+                    } else {
+                        releaseInMemoryBytes(inMemoryFiles.remove(file));
+                        Files.write(file.toPath(), data);
+                    }
+                }
+            }
+        };
+    }
+
+    /** Returns the contents of the file if it is held in memory, or null if it is not (or does not exist). */
+    public byte[] getInMemoryBytes(File file) {
+        return inMemoryFiles.get(file);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean fileExists(File file) {
+        return inMemoryFiles.containsKey(file) || super.fileExists(file);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long fileSize(File file) {
+        byte[] bytes = inMemoryFiles.get(file);
+        return bytes != null ? bytes.length : super.fileSize(file);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getInputStream(File file) throws FileNotFoundException {
+        byte[] bytes = inMemoryFiles.get(file);
+        return bytes != null ? new ByteArrayInputStream(bytes) : super.getInputStream(file);
+    }
+
+    /** Deletes the directory, including any in-memory files in it. */
+    @Override
+    public void deleteDirRecursively(File dir) throws IOException {
+        Path dirPath = dir.toPath();
+        for (File file : inMemoryFiles.keySet()) {
+            if (file.toPath().startsWith(dirPath)) {
+                releaseInMemoryBytes(inMemoryFiles.remove(file));
+            }
+        }
+        super.deleteDirRecursively(dir);
+    }
+
+    private boolean reserveInMemoryBytes(long size) {
+        long current;
+        do {
+            current = inMemoryBytes.get();
+            if (current + size > maxInMemoryBytes) {
+                return false;
+            }
+        } while (!inMemoryBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    private void releaseInMemoryBytes(byte[] bytes) {
+        if (bytes != null) {
+            inMemoryBytes.addAndGet(-bytes.length);
+        }
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped */ int getInMemoryFileCount() {
+        return inMemoryFiles.size();
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped */ long getInMemoryByteCount() {
+        return inMemoryBytes.get();
+    }
+}
@@ -0,0 +1,141 @@
+package org.sagebionetworks.bridge.upload;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Resource;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.io.input.TeeInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.config.BridgeConfigFactory;
+import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.services.UploadArchiveService;
+
+/**
+ * <p>
+ * Validation handler which replaces {@link S3DownloadHandler}, {@link DecryptHandler}, and {@link UnzipHandler} with
+ * a single pass over the upload. The upload is streamed from S3, decrypted and unzipped on the fly, without writing
+ * the encrypted upload to disk. Unzipped files (and the decrypted archive, which UploadRawZipHandler still needs) are
+ * kept in memory if they are no larger than the in-memory threshold and are only written to disk if they are larger.
+ * </p>
+ * <p>
+ * This handler writes {@link UploadValidationContext#setDecryptedDataFile} and
+ * {@link UploadValidationContext#setUnzippedDataFileMap}, so the handlers that follow are unchanged. Files must be
+ * read through the {@link SpillingFileHelper}.
+ * </p>
+ */
+@Component
+public class StreamingUnzipHandler implements UploadValidationHandler {
+    // Package-scoped for unit tests.
+    static final String CONFIG_KEY_IN_MEMORY_THRESHOLD = "upload.validation.in.memory.threshold.bytes";
+    static final String UPLOAD_BUCKET = BridgeConfigFactory.getConfig().getProperty("upload.bucket");
+
+    private SpillingFileHelper fileHelper;
+    private int inMemoryThreshold;
+    private AmazonS3 s3Client;
+    private UploadArchiveService uploadArchiveService;
+
+    /** Bridge config, used to get the size under which files are kept in memory. */
+    @Autowired
+    public final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.inMemoryThreshold = bridgeConfig.getPropertyAsInt(CONFIG_KEY_IN_MEMORY_THRESHOLD);
+    }
+
+    /** File helper, used to keep small files in memory and spill large files to disk. */
+    @Autowired
+    public final void setFileHelper(SpillingFileHelper fileHelper) {
+        this.fileHelper = fileHelper;
+    }
+
+    /** S3 client, used to stream the upload from S3. */
+    @Resource(name = "s3Client")
+    public final void setS3Client(AmazonS3 s3Client) {
+        this.s3Client = s3Client;
+    }
+
+    /** Upload archive service, which handles decrypting and unzipping of files. This is configured by Spring. */
+    @Autowired
+    public final void setUploadArchiveService(UploadArchiveService uploadArchiveService) {
+        this.uploadArchiveService = uploadArchiveService;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void handle(@Nonnull UploadValidationContext context) throws UploadValidationException {
+        Upload upload = context.getUpload();
+        Map<String, File> unzippedDataFileMap = new HashMap<>();
+
+        // Temp file name in the form "[uploadId].zip", same as DecryptHandler
+        File decryptedFile = fileHelper.newFile(context.getTempDir(), context.getUploadId() + ".zip");
+
+        // Note: Neither the S3 stream nor CmsEncryptor introduce any buffering, so we add the buffered stream.
+        try (S3Object s3Object = s3Client.getObject(UPLOAD_BUCKET, upload.getObjectId());
+                InputStream s3InputStream = new BufferedInputStream(s3Object.getObjectContent());
+                InputStream decryptedInputStream = upload.isEncrypted() ? uploadArchiveService.decrypt(
+                        context.getAppId(), s3InputStream) : s3InputStream;
+                OutputStream decryptedOutputStream = fileHelper.getSpillingOutputStream(decryptedFile,
+                        inMemoryThreshold)) {
+            // Copy the decrypted bytes to the decrypted file as they are read.
+            InputStream teeInputStream = new DrainOnCloseInputStream(new TeeInputStream(decryptedInputStream,
+                    decryptedOutputStream));
+
+            if (upload.isZipped()) {
+                uploadArchiveService.unzip(teeInputStream,
+                        entryName -> {
+                            File unzippedFile = fileHelper.newFile(context.getTempDir(), entryName);
+                            unzippedDataFileMap.put(entryName, unzippedFile);
+                            return fileHelper.getSpillingOutputStream(unzippedFile, inMemoryThreshold);
+                        },
+                        (entryName, outputStream) -> {
+                            try {
+                                outputStream.close();
+                            } catch (IOException ex) {
+                                // BiConsumer doesn't throw, so wrap this in a RuntimeException.
+                                throw new RuntimeException(ex);
+                            }
+                        });
+            }
+
+            // Zip streams stop reading after the last entry. Read the rest of the archive so the decrypted file
+            // (which is uploaded as the raw data) is complete.
+            teeInputStream.close();
+        } catch (IOException ex) {
+            throw new UploadValidationException("Error streaming file: " + ex.getMessage(), ex);
+        }
+
+        if (!upload.isZipped()) {
+            // If this isn't a zip file, then the decrypted data file is the only entry in our map.
+            unzippedDataFileMap.put(upload.getFilename(), decryptedFile);
+        }
+
+        context.setDecryptedDataFile(decryptedFile);
+        context.setUnzippedDataFileMap(unzippedDataFileMap);
+    }
+
+    /**
+     * Input stream which reads the rest of the stream instead of closing it. Closing the underlying stream is left to
+     * the caller.
+     */
+    private static class DrainOnCloseInputStream extends FilterInputStream {
+        DrainOnCloseInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ByteStreams.exhaust(in);
+        }
+    }
+}
@@ -256,6 +256,15 @@ public class UploadFileHelper {
 
     /** Upload a file to the attachment bucket and apply the correct metadata. */
     public void uploadFileAsAttachment(String filename, File file) throws IOException {
+        // Files kept in memory by the streaming upload pipeline aren't on disk. Upload their bytes instead.
+        if (fileHelper instanceof SpillingFileHelper) {
+            byte[] inMemoryBytes = ((SpillingFileHelper) fileHelper).getInMemoryBytes(file);
+            if (inMemoryBytes != null) {
+                uploadBytesAsAttachment(filename, inMemoryBytes);
+                return;
+            }
+        }
+
         // Calculate MD5 (hex-encoded).
         byte[] md5 = md5DigestUtils.digest(file);
         String md5HexEncoded = Hex.encodeHexString(md5);
@@ -2,6 +2,7 @@ package org.sagebionetworks.bridge.upload;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -10,6 +11,7 @@ import org.sagebionetworks.bridge.models.upload.Upload;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 /** This class encapsulates data read and generated during the process of upload validation. */
 public class UploadValidationContext {
@@ -18,6 +20,7 @@ public class UploadValidationContext {
     private Upload upload;
     private boolean success = true;
     private List<String> messageList = new ArrayList<>();
+    private Map<String, Long> handlerTimeMillis = new LinkedHashMap<>();
     private File tempDir;
     private File dataFile;
     private File decryptedDataFile;
@@ -99,6 +102,19 @@ public class UploadValidationContext {
         messageList.add(msg);
     }
 
+    /**
+     * How long each validation handler took to run, in milliseconds, keyed by handler name, in the order the handlers
+     * ran. Times are recorded by UploadValidationTask.
+     */
+    public Map<String, Long> getHandlerTimeMillis() {
+        return ImmutableMap.copyOf(handlerTimeMillis);
+    }
+
+    /** @see #getHandlerTimeMillis */
+    public void recordHandlerTime(String handlerName, long millis) {
+        handlerTimeMillis.put(handlerName, millis);
+    }
+
     /** Temporary directory in which we process the upload. */
     public File getTempDir() {
         return tempDir;
@@ -187,8 +203,8 @@ public class UploadValidationContext {
      * what TranscribeConsentHandler does) in the copy will affect the original, and vice versa.
      * </p>
      * <p>
-     * The one notable exception is the message list, which will be deep copied. This is because the message list is
-     * always treated as mutable and any handler may write to it.
+     * The notable exceptions are the message list and the handler times, which will be deep copied. This is because
+     * they are always treated as mutable and any handler may write to the message list.
      * </p>
      * <p>
      * This is most useful for testing new and old versions of handlers, provided that handlers either treat the field
@@ -209,8 +225,9 @@ public class UploadValidationContext {
         copy.healthDataRecord = this.healthDataRecord;
         copy.recordId = this.recordId;
 
-        // messageList is the only field that gets deep copied
+        // messageList and handlerTimeMillis are the only fields that get deep copied
         copy.messageList = new ArrayList<>(this.messageList);
+        copy.handlerTimeMillis = new LinkedHashMap<>(this.handlerTimeMillis);
 
         return copy;
     }
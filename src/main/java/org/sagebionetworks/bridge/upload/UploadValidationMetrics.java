@@ -0,0 +1,115 @@
+package org.sagebionetworks.bridge.upload;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Resource;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics for upload validation on this server: the state of the upload validation executor, the number of uploads
+ * rejected because the executor was full, and a histogram of how long each validation handler takes.
+ */
+@Component
+public class UploadValidationMetrics {
+    // Package-scoped for unit tests.
+    static final String ACTIVE = "active";
+    static final String COMPLETED = "completed";
+    static final String COUNT = "count";
+    static final String EXECUTOR = "executor";
+    static final String MAX_MILLIS = "maxMillis";
+    static final String QUEUED = "queued";
+    static final String QUEUE_REMAINING = "queueRemaining";
+    static final String REJECTED = "rejected";
+    static final String THREADS = "threads";
+    static final String TOTAL_MILLIS = "totalMillis";
+
+    // Upper bounds of the histogram buckets. Handler times above the last bound are counted in an overflow bucket.
+    static final long[] BUCKET_BOUNDS_MILLIS = { 10L, 100L, 1000L, 10000L, 60000L };
+
+    private final ConcurrentMap<String, HandlerTimes> handlerTimesByName = new ConcurrentHashMap<>();
+    private final LongAdder rejectedCount = new LongAdder();
+    private ThreadPoolExecutor executor;
+
+    /** The executor that runs upload validation tasks. This is configured by Spring. */
+    @Resource(name = "uploadValidationExecutorService")
+    public final void setUploadValidationExecutorService(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    /** Record the handler times of one validation task, keyed by handler name. */
+    public void recordHandlerTimes(Map<String, Long> handlerTimeMillis) {
+        for (Map.Entry<String, Long> entry : handlerTimeMillis.entrySet()) {
+            handlerTimesByName.computeIfAbsent(entry.getKey(), name -> new HandlerTimes()).record(entry.getValue());
+        }
+    }
+
+    /** Record that a validation task was rejected because the executor was full. */
+    public void recordRejected() {
+        rejectedCount.increment();
+    }
+
+    /**
+     * Returns the executor statistics under the key "executor", and the count, total and max time, and histogram
+     * buckets (keyed "le" and the upper bound in milliseconds, or "gt" and the last bound) of each handler.
+     */
+    public Map<String, Map<String, Long>> getStatistics() {
+        Map<String, Map<String, Long>> statistics = new TreeMap<>();
+        statistics.put(EXECUTOR, new ImmutableMap.Builder<String, Long>()
+                .put(THREADS, (long) executor.getPoolSize())
+                .put(ACTIVE, (long) executor.getActiveCount())
+                .put(QUEUED, (long) executor.getQueue().size())
+                .put(QUEUE_REMAINING, (long) executor.getQueue().remainingCapacity())
+                .put(COMPLETED, executor.getCompletedTaskCount())
+                .put(REJECTED, rejectedCount.sum()).build());
+        for (Map.Entry<String, HandlerTimes> entry : handlerTimesByName.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().toMap());
+        }
+        return statistics;
+    }
+
+    private static class HandlerTimes {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0L);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+        HandlerTimes() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long millis) {
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulate(millis);
+
+            int i = 0;
+            while (i < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+        }
+
+        Map<String, Long> toMap() {
+            ImmutableMap.Builder<String, Long> builder = new ImmutableMap.Builder<String, Long>()
+                    .put(COUNT, count.sum())
+                    .put(TOTAL_MILLIS, totalMillis.sum())
+                    .put(MAX_MILLIS, maxMillis.get());
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                builder.put("le" + BUCKET_BOUNDS_MILLIS[i], buckets[i].sum());
+            }
+            builder.put("gt" + BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1],
+                    buckets[BUCKET_BOUNDS_MILLIS.length].sum());
+            return builder.build();
+        }
+    }
+}
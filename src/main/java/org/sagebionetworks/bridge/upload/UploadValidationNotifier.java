@@ -0,0 +1,136 @@
+package org.sagebionetworks.bridge.upload;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.sagebionetworks.bridge.config.BridgeConfig;
+
+/**
+ * Signals callers that are waiting on this server for the validation of an upload to finish. Upload validation
+ * always runs on the server that received the uploadComplete call, so a synchronous uploadComplete call can be
+ * notified when the validation task writes its final status, rather than polling the upload table. Listeners are
+ * removed once they have been notified.
+ * <p>
+ * Notifications are not shared between servers. If the upload was completed (and is being validated) through
+ * another server, for example by the S3 trigger, it is never notified here. To cover that case, every listener is
+ * also run periodically while it is registered, so the caller can re-read the status. A listener that is polled
+ * stays registered until it is removed or notified.
+ */
+@Component
+public class UploadValidationNotifier {
+    private static final Logger LOG = LoggerFactory.getLogger(UploadValidationNotifier.class);
+
+    static final String CONFIG_KEY_POLL_MILLIS = "upload.validation.status.poll.millis";
+
+    // Sets of listeners are only modified inside the map's atomic compute operations.
+    private final ConcurrentMap<String, Set<Runnable>> listeners = new ConcurrentHashMap<>();
+    private long pollMillis;
+    private ScheduledExecutorService pollExecutor;
+
+    @Autowired
+    final void setBridgeConfig(BridgeConfig bridgeConfig) {
+        this.pollMillis = bridgeConfig.getInt(CONFIG_KEY_POLL_MILLIS);
+    }
+
+    @PostConstruct
+    public void startPolling() {
+        pollExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("upload-validation-poll").setDaemon(true).build());
+        pollExecutor.scheduleWithFixedDelay(this::pollListeners, pollMillis, pollMillis, MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopPolling() {
+        if (pollExecutor != null) {
+            pollExecutor.shutdownNow();
+        }
+    }
+
+    /** Register a listener to be run (on the validation thread) when validation of this upload completes. */
+    public void addListener(String uploadId, Runnable listener) {
+        checkNotNull(uploadId);
+        checkNotNull(listener);
+
+        listeners.compute(uploadId, (id, set) -> {
+            Set<Runnable> listenerSet = (set == null) ? new HashSet<>() : set;
+            listenerSet.add(listener);
+            return listenerSet;
+        });
+    }
+
+    /** Remove a listener that is no longer waiting, e.g. because the caller timed out. */
+    public void removeListener(String uploadId, Runnable listener) {
+        checkNotNull(uploadId);
+        checkNotNull(listener);
+
+        listeners.computeIfPresent(uploadId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /** Called by the validation task after the final validation status of the upload has been written. */
+    public void notifyValidationComplete(String uploadId) {
+        checkNotNull(uploadId);
+
+        Set<Runnable> listenerSet = listeners.remove(uploadId);
+        if (listenerSet == null) {
+            return;
+        }
+        for (Runnable listener : listenerSet) {
+            try {
+                listener.run();
+            } catch (RuntimeException ex) {
+                // One failing listener should not prevent the others from being notified.
+                LOG.error("Error notifying listener of validation of upload " + uploadId + ": " + ex.getMessage(),
+                        ex);
+            }
+        }
+    }
+
+    /**
+     * Run every registered listener without removing it, so that callers waiting on uploads that are being validated 
+     * on another server re-read the status. Runs on the poll thread.
+     */
+    public void pollListeners() {
+        for (String uploadId : listeners.keySet()) {
+            // Copy the listeners inside an atomic operation, then run them outside of it, because running a listener
+            // may remove it.
+            Set<Runnable> listenerSet = new HashSet<>();
+            listeners.computeIfPresent(uploadId, (id, set) -> {
+                listenerSet.addAll(set);
+                return set;
+            });
+            for (Runnable listener : listenerSet) {
+                try {
+                    listener.run();
+                } catch (RuntimeException ex) {
+                    // An exception would also cancel the scheduled polling.
+                    LOG.error("Error polling listener of validation of upload " + uploadId + ": " + ex.getMessage(),
+                            ex);
+                }
+            }
+        }
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped */ boolean hasListeners(String uploadId) {
+        return listeners.containsKey(uploadId);
+    }
+}
@@ -29,6 +29,8 @@ public class UploadValidationTask implements Runnable {
     private List<UploadValidationHandler> handlerList;
     private UploadDao uploadDao;
     private HealthDataService healthDataService;
+    private UploadValidationNotifier uploadValidationNotifier;
+    private UploadValidationMetrics uploadValidationMetrics;
 
     public final void setHealthDataService(HealthDataService healthDataService) {
         this.healthDataService = healthDataService;
@@ -82,6 +84,29 @@ public class UploadValidationTask implements Runnable {
         return uploadDao;
     }
 
+    /**
+     * Notifier, used to signal callers waiting on this server that validation is complete. This is configured by
+     * Spring through the task factory.
+     */
+    public final void setUploadValidationNotifier(UploadValidationNotifier uploadValidationNotifier) {
+        this.uploadValidationNotifier = uploadValidationNotifier;
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped*/ UploadValidationNotifier getUploadValidationNotifier() {
+        return uploadValidationNotifier;
+    }
+
+    /** Metrics, used to record handler times. This is configured by Spring through the task factory. */
+    public final void setUploadValidationMetrics(UploadValidationMetrics uploadValidationMetrics) {
+        this.uploadValidationMetrics = uploadValidationMetrics;
+    }
+
+    /** This is package-scoped to facilitate unit tests. */
+    /* package-scoped*/ UploadValidationMetrics getUploadValidationMetrics() {
+        return uploadValidationMetrics;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void run() {
@@ -89,63 +114,71 @@ public class UploadValidationTask implements Runnable {
         File tempDir = fileHelper.createTempDir();
         context.setTempDir(tempDir);
 
-        Stopwatch stopwatch = Stopwatch.createUnstarted();
-        for (UploadValidationHandler oneHandler : handlerList) {
-            String handlerName = oneHandler.getClass().getName();
-            stopwatch.start();
-
-            try {
-                oneHandler.handle(context);
-            } catch (Throwable ex) {
-                context.setSuccess(false);
-                context.addMessage(String.format("Exception thrown from upload validation handler %s: %s: %s",
-                        handlerName, ex.getClass().getName(), ex.getMessage()));
-
-                if (ex instanceof Error) {
-                    // Something really bad happened, like an OutOfMemoryError. Log this at the error level.
-                    logger.error(String.format("Critical error in upload validation handler %s for app %s, " +
-                            "upload %s, filename %s: %s: %s", handlerName, context.getAppId(),
-                            context.getUpload().getUploadId(), context.getUpload().getFilename(),
-                            ex.getClass().getName(), ex.getMessage()), ex);
-                } else {
-                    // Upload validation failed. Since there are a lot of garbage uploads, log this at the info level
-                    // so it doesn't set off our alarms. Once the garbage uploads are cleaned up, we can bump this back
-                    // up to warning.
-                    logger.info(String.format("Exception thrown from upload validation handler %s for app %s, " +
-                            "upload %s, filename %s: %s: %s", handlerName, context.getAppId(),
-                            context.getUpload().getUploadId(), context.getUpload().getFilename(),
-                            ex.getClass().getName(), ex.getMessage()), ex);
+        try {
+            Stopwatch stopwatch = Stopwatch.createUnstarted();
+            for (UploadValidationHandler oneHandler : handlerList) {
+                String handlerName = oneHandler.getClass().getName();
+                stopwatch.start();
+
+                try {
+                    oneHandler.handle(context);
+                } catch (Throwable ex) {
+                    context.setSuccess(false);
+                    context.addMessage(String.format("Exception thrown from upload validation handler %s: %s: %s",
+                            handlerName, ex.getClass().getName(), ex.getMessage()));
+
+                    if (ex instanceof Error) {
+                        // Something really bad happened, like an OutOfMemoryError. Log this at the error level.
+                        logger.error(String.format("Critical error in upload validation handler %s for app %s, " +
+                                "upload %s, filename %s: %s: %s", handlerName, context.getAppId(),
+                                context.getUpload().getUploadId(), context.getUpload().getFilename(),
+                                ex.getClass().getName(), ex.getMessage()), ex);
+                    } else {
+                        // Upload validation failed. Since there are a lot of garbage uploads, log this at the info
+                        // level so it doesn't set off our alarms. Once the garbage uploads are cleaned up, we can bump
+                        // this back up to warning.
+                        logger.info(String.format("Exception thrown from upload validation handler %s for app %s, " +
+                                "upload %s, filename %s: %s: %s", handlerName, context.getAppId(),
+                                context.getUpload().getUploadId(), context.getUpload().getFilename(),
+                                ex.getClass().getName(), ex.getMessage()), ex);
+                    }
+                    break;
+                } finally {
+                    long elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                    stopwatch.reset();
+                    context.recordHandlerTime(handlerName, elapsedMillis);
+                    logger.info(String.format("Upload validation handler %s took %d ms", handlerName, elapsedMillis));
                 }
-                break;
-            } finally {
-                long elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-                stopwatch.reset();
-                // TODO: send this to somewhere other than the logs
-                logger.info(String.format("Upload validation handler %s took %d ms", handlerName, elapsedMillis));
             }
-        }
-
-        // write validation status to the upload DAO
-        UploadStatus status = context.getSuccess() ? UploadStatus.SUCCEEDED : UploadStatus.VALIDATION_FAILED;
-        try {
-            uploadDao.writeValidationStatus(context.getUpload(), status, context.getMessageList(),
-                    context.getRecordId());
-            logger.info(String.format("Upload validation for app %s, upload %s, record %s, with status %s",
-                    context.getAppId(), context.getUpload().getUploadId(), context.getRecordId(),
-                    status));
-        } catch (RuntimeException ex) {
-            // ExceptionInterceptor doesn't handle asynchronous tasks, so we'll need to catch exceptions and log them
-            // manually. Use the log helper function so we can verify it in unit tests.
-            logWriteValidationStatusException(status, ex);
-        }
+            uploadValidationMetrics.recordHandlerTimes(context.getHandlerTimeMillis());
 
-        // TODO: if validation fails, wipe the files from S3
+            // write validation status to the upload DAO
+            UploadStatus status = context.getSuccess() ? UploadStatus.SUCCEEDED : UploadStatus.VALIDATION_FAILED;
+            try {
+                uploadDao.writeValidationStatus(context.getUpload(), status, context.getMessageList(),
+                        context.getRecordId());
+                logger.info(String.format("Upload validation for app %s, upload %s, record %s, with status %s",
+                        context.getAppId(), context.getUpload().getUploadId(), context.getRecordId(),
+                        status));
+
+                // Callers waiting for the result will read the status that was just written. If the write failed,
+                // they time out as the status is still in progress.
+                uploadValidationNotifier.notifyValidationComplete(context.getUpload().getUploadId());
+            } catch (RuntimeException ex) {
+                // ExceptionInterceptor doesn't handle asynchronous tasks, so we'll need to catch exceptions and log
+                // them manually. Use the log helper function so we can verify it in unit tests.
+                logWriteValidationStatusException(status, ex);
+            }
 
-        // Finally, delete the temp dir.
-        try {
-            fileHelper.deleteDirRecursively(tempDir);
-        } catch (IOException ex) {
-            logger.error("Error deleting temp dir " + tempDir.getAbsolutePath() + ": " + ex.getMessage(), ex);
+            // TODO: if validation fails, wipe the files from S3
+        } finally {
+            // Finally, delete the temp dir. This also releases in-memory files, so it must happen even if a handler
+            // or the status write throws.
+            try {
+                fileHelper.deleteDirRecursively(tempDir);
+            } catch (IOException ex) {
+                logger.error("Error deleting temp dir " + tempDir.getAbsolutePath() + ": " + ex.getMessage(), ex);
+            }
         }
     }
 
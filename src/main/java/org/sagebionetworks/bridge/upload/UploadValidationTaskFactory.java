@@ -23,6 +23,8 @@ public class UploadValidationTaskFactory {
     private List<UploadValidationHandler> handlerList;
     private UploadDao uploadDao;
     private HealthDataService healthDataService;
+    private UploadValidationNotifier uploadValidationNotifier;
+    private UploadValidationMetrics uploadValidationMetrics;
 
     /** File helper, used to create and delete the temp directory in which we process uploads. */
     @Autowired
@@ -47,6 +49,18 @@ public class UploadValidationTaskFactory {
         this.healthDataService = healthDataService;
     }
 
+    /** Notifier, used to signal callers waiting for validation to complete. This is configured by Spring. */
+    @Autowired
+    public final void setUploadValidationNotifier(UploadValidationNotifier uploadValidationNotifier) {
+        this.uploadValidationNotifier = uploadValidationNotifier;
+    }
+
+    /** Metrics, used to record how long each validation handler takes. This is configured by Spring. */
+    @Autowired
+    public final void setUploadValidationMetrics(UploadValidationMetrics uploadValidationMetrics) {
+        this.uploadValidationMetrics = uploadValidationMetrics;
+    }
+
     /**
      * Factory method for creating a validation task instance, for validating a single upload.
      *
@@ -69,6 +83,8 @@ public class UploadValidationTaskFactory {
         task.setHandlerList(handlerList);
         task.setUploadDao(uploadDao);
         task.setHealthDataService(healthDataService);
+        task.setUploadValidationNotifier(uploadValidationNotifier);
+        task.setUploadValidationMetrics(uploadValidationMetrics);
         return task;
     }
 }
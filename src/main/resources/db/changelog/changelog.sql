@@ -1091,3 +1091,53 @@ CREATE TABLE IF NOT EXISTS `AdherenceUploads` (
 ALTER TABLE `AdherenceRecords`
 ADD INDEX `AdherenceRecords-AppId-StudyId-EventTimestamp` (appId, studyId, eventTimestamp),
 ADD INDEX `AdherenceRecords-AppId-StudyId-UserId-EventTimestamp` (appId, studyId, userId, eventTimestamp);
+
+-- changeset bridge:80
+
+CREATE TABLE IF NOT EXISTS `WeeklyAdherenceReportRows` (
+  `appId` varchar(60) NOT NULL,
+  `studyId` varchar(60) NOT NULL,
+  `userId` varchar(255) NOT NULL,
+  `searchableLabel` varchar(2048) NOT NULL,
+  `label` varchar(2048),
+  `sessionName` varchar(255),
+  `weekInStudy` int(4),
+  `studyBurstId` varchar(255),
+  `studyBurstNum` int(4),
+  PRIMARY KEY (`appId`, `studyId`, `userId`, `searchableLabel`(255)),
+  KEY `WeeklyAdherenceReportRows-SearchableLabel-Index` (`appId`, `studyId`, `searchableLabel`(255)),
+  FOREIGN KEY (`userId`) REFERENCES `Accounts` (`id`) ON DELETE CASCADE,
+  FOREIGN KEY (`studyId`, `appId`) REFERENCES `Substudies` (`id`, `studyId`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
+
+-- changeset bridge:81
+
+-- Keyset paging of account searches orders by (createdOn, id) within an app; enrollment filters join on the 
+-- account and filter by study and withdrawal.
+ALTER TABLE `Accounts`
+ADD INDEX `Accounts-StudyId-CreatedOn-Id-Index` (`studyId`, `createdOn`, `id`);
+
+ALTER TABLE `AccountsSubstudies`
+ADD INDEX `AccountsSubstudies-SubstudyId-AccountId-WithdrawnOn-Index` (`substudyId`, `accountId`, `withdrawnOn`);
+
+-- changeset bridge:82
+
+-- Populate WeeklyAdherenceReportRows for reports saved before changeset bridge:80. Reports saved since then 
+-- write their own rows. A session triggered by two events can appear in two rows with the same searchableLabel; 
+-- INSERT IGNORE keeps the first, as the DAO does.
+INSERT IGNORE INTO `WeeklyAdherenceReportRows` (`appId`, `studyId`, `userId`, `searchableLabel`, `label`, 
+  `sessionName`, `weekInStudy`, `studyBurstId`, `studyBurstNum`)
+SELECT reports.`appId`, reports.`studyId`, reports.`userId`, jt.`searchableLabel`, jt.`label`, jt.`sessionName`, 
+  jt.`weekInStudy`, jt.`studyBurstId`, jt.`studyBurstNum`
+FROM `WeeklyAdherenceReports` AS reports,
+JSON_TABLE(reports.`rows`, '$[*]' COLUMNS (
+  `searchableLabel` varchar(2048) PATH '$.searchableLabel',
+  `label` varchar(2048) PATH '$.label',
+  `sessionName` varchar(255) PATH '$.sessionName',
+  `weekInStudy` int(4) PATH '$.weekInStudy',
+  `studyBurstId` varchar(255) PATH '$.studyBurstId',
+  `studyBurstNum` int(4) PATH '$.studyBurstNum'
+)) AS jt
+WHERE jt.`searchableLabel` IS NOT NULL
+AND NOT EXISTS (SELECT 1 FROM `WeeklyAdherenceReportRows` AS r WHERE r.`appId` = reports.`appId` 
+  AND r.`studyId` = reports.`studyId` AND r.`userId` = reports.`userId`);
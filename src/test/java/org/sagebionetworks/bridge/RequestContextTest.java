@@ -276,6 +276,21 @@ public class RequestContextTest extends Mockito {
         assertEquals(threadValue.getOrgSponsoredStudies(), USER_STUDY_IDS);
     }
     
+    @Test
+    public void updateFromSessionWithSponsoredStudies() {
+        UserSession session = new UserSession(new StudyParticipant.Builder().withStudyIds(USER_STUDY_IDS)
+                .withRoles(ImmutableSet.of(DEVELOPER)).withId(TEST_USER_ID).withOrgMembership(TEST_ORG_ID)
+                .withLanguages(LANGUAGES).build());
+        session.setAuthenticated(true);
+        session.setAppId(TEST_APP_ID);
+        
+        RequestContext retValue = RequestContext.updateFromSession(session, USER_STUDY_IDS);
+        assertEquals(retValue.getCallerAppId(), TEST_APP_ID);
+        assertEquals(retValue.getOrgSponsoredStudies(), USER_STUDY_IDS);
+        assertEquals(retValue.getCallerOrgMembership(), TEST_ORG_ID);
+        assertSame(RequestContext.get(), retValue);
+    }
+    
     @Test
     public void updateFromSessionNullSponsorService() {
         RequestContext context = new RequestContext.Builder().withRequestId(REQUEST_ID).build();
@@ -69,6 +69,23 @@ public class CacheKeyTest {
         assertEquals(CacheKey.appConfigList(TEST_APP_ID).toString(),  TEST_APP_ID + ":AppConfigList");
     }
 
+    @Test
+    public void resolvedAppConfig() {
+        assertEquals(CacheKey.resolvedAppConfig(TEST_APP_ID, "guid", 1000L).toString(),
+                TEST_APP_ID + ":guid:1000:ResolvedAppConfig");
+    }
+
+    @Test
+    public void timelineList() {
+        assertEquals(CacheKey.timelineList("guid").toString(), "guid:TimelineList");
+    }
+
+    @Test
+    public void weeklyAdherenceReportState() {
+        assertEquals(CacheKey.weeklyAdherenceReportState(TEST_APP_ID, "studyId", "userId").toString(),
+                TEST_APP_ID + ":studyId:userId:WeeklyAdherenceReportState");
+    }
+
     @Test
     public void channelSignInToSessionToken() {
         assertEquals(CacheKey.channelSignInToSessionToken("ABC").toString(),
@@ -80,6 +97,11 @@ public class CacheKeyTest {
         assertEquals(CacheKey.channelThrottling(ThrottleRequestType.EMAIL_SIGNIN, "userId").toString(),
                 "userId:email_signin:channel-throttling");
     }
+
+    @Test
+    public void participantFileRateLimit() {
+        assertEquals(CacheKey.participantFileRateLimit("userId").toString(), "userId:participant-file-rate-limit");
+    }
     
     @Test
     public void emailSignInRequest() {
@@ -9,6 +9,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -49,6 +50,7 @@ import org.sagebionetworks.bridge.models.subpopulations.SubpopulationGuid;
 import org.sagebionetworks.bridge.redis.JedisOps;
 import org.sagebionetworks.bridge.redis.JedisTransaction;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -617,4 +619,159 @@ public class CacheProviderTest {
         cacheProvider.removeApp(TEST_APP_ID);
         verify(jedisOps).del(TEST_ID_KEY);
     }
+    
+    @Test
+    public void getAppServedFromNearCache() throws Exception {
+        NearCache nearCache = createNearCache();
+        cacheProvider.setNearCache(nearCache);
+        
+        App app = App.create();
+        app.setIdentifier(TEST_APP_ID);
+        String ser = BridgeObjectMapper.get().writeValueAsString(app);
+        when(jedisOps.get(TEST_ID_KEY)).thenReturn(ser);
+
+        assertEquals(cacheProvider.getApp(TEST_APP_ID), app);
+        assertEquals(cacheProvider.getApp(TEST_APP_ID), app);
+        
+        verify(jedisOps, times(1)).get(TEST_ID_KEY);
+        verify(jedisOps, times(1)).expire(TEST_ID_KEY, BridgeConstants.BRIDGE_SESSION_EXPIRE_IN_SECONDS);
+        assertEquals(nearCache.getStatistics().get("App").get(NearCache.HITS), Long.valueOf(1L));
+    }
+    
+    @Test
+    public void removeAppInvalidatesNearCache() throws Exception {
+        NearCache nearCache = createNearCache();
+        cacheProvider.setNearCache(nearCache);
+        nearCache.put(TEST_ID_KEY, "value", 0, nearCache.getVersion(TEST_ID_KEY));
+        
+        cacheProvider.removeApp(TEST_APP_ID);
+        
+        assertNull(nearCache.get(TEST_ID_KEY));
+    }
+    
+    @Test
+    public void setObjectInvalidatesNearCacheValue() throws Exception {
+        NearCache nearCache = createNearCache();
+        cacheProvider.setNearCache(nearCache);
+        CacheKey etagKey = CacheKey.etag(App.class, TEST_APP_ID);
+        DateTime timestamp = DateTime.parse("2022-06-01T10:00:00.000Z");
+        nearCache.put(etagKey.toString(), "1000", 0, nearCache.getVersion(etagKey.toString()));
+        when(jedisOps.set(eq(etagKey.toString()), any())).thenReturn("OK");
+        when(jedisOps.get(etagKey.toString())).thenReturn(Long.toString(timestamp.getMillis()));
+
+        cacheProvider.setObject(etagKey, timestamp);
+        
+        // The new value is read from Redis once, and then held locally.
+        assertEquals(cacheProvider.getObject(etagKey, DateTime.class).getMillis(), timestamp.getMillis());
+        assertEquals(cacheProvider.getObject(etagKey, DateTime.class).getMillis(), timestamp.getMillis());
+        verify(jedisOps, times(1)).get(etagKey.toString());
+    }
+    
+    @Test
+    public void getUserSessionNotServedFromNearCache() throws Exception {
+        NearCache nearCache = createNearCache();
+        cacheProvider.setNearCache(nearCache);
+        
+        UserSession session = createUserSession();
+        when(jedisOps.get(USER_ID_TO_SESSION.toString()))
+                .thenReturn(StudyParticipant.CACHE_WRITER.writeValueAsString(session));
+        
+        assertEquals(cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN).getId(), USER_ID);
+        assertEquals(cacheProvider.getUserSession(DECRYPTED_SESSION_TOKEN).getId(), USER_ID);
+        
+        // A signed out session must stop working on every server, so sessions are always read from Redis.
+        verify(jedisOps, times(2)).get(TOKEN_TO_USER_ID.toString());
+        verify(jedisOps, times(2)).get(USER_ID_TO_SESSION.toString());
+        assertTrue(nearCache.getStatistics().isEmpty());
+    }
+    
+    private NearCache createNearCache() {
+        JedisPool mockPool = mock(JedisPool.class);
+        when(mockPool.getResource()).thenReturn(mock(Jedis.class));
+        
+        NearCache nearCache = new NearCache();
+        nearCache.setJedisPool(mockPool);
+        nearCache.configure(true, 100, 60);
+        return nearCache;
+    }
+    
+    @Test
+    public void setObjectStoresDateTimeAsEpochMillis() {
+        CacheKey etagKey = CacheKey.etag(App.class, TEST_APP_ID);
+        DateTime timestamp = DateTime.parse("2022-06-01T10:00:00.000-07:00");
+        when(jedisOps.set(eq(etagKey.toString()), any())).thenReturn("OK");
+
+        cacheProvider.setObject(etagKey, timestamp);
+        
+        verify(jedisOps).set(etagKey.toString(), Long.toString(timestamp.getMillis()));
+    }
+    
+    @Test
+    public void getObjectsInOneRoundTrip() throws Exception {
+        DateTime timestamp1 = DateTime.parse("2022-06-01T10:00:00.000Z");
+        DateTime timestamp2 = DateTime.parse("2022-06-02T10:00:00.000Z");
+        CacheKey key1 = CacheKey.etag(App.class, "key1");
+        CacheKey key2 = CacheKey.etag(App.class, "key2");
+        CacheKey key3 = CacheKey.etag(App.class, "key3");
+        
+        Jedis mockJedis = mock(Jedis.class);
+        JedisPool mockPool = mock(JedisPool.class);
+        when(mockPool.getResource()).thenReturn(mockJedis);
+        cacheProvider.setJedisPool(mockPool);
+        
+        // The second timestamp is still in the legacy JSON format
+        when(mockJedis.mget(key1.toString(), key2.toString(), key3.toString())).thenReturn(Arrays.asList(
+                Long.toString(timestamp1.getMillis()), 
+                BridgeObjectMapper.get().writeValueAsString(timestamp2), null));
+        
+        List<DateTime> results = cacheProvider.getObjects(ImmutableList.of(key1, key2, key3), DateTime.class);
+        assertEquals(results.size(), 3);
+        assertEquals(results.get(0).getMillis(), timestamp1.getMillis());
+        assertEquals(results.get(1).getMillis(), timestamp2.getMillis());
+        assertNull(results.get(2));
+        
+        verify(mockJedis).mget(key1.toString(), key2.toString(), key3.toString());
+        verify(jedisOps, never()).get(any());
+    }
+    
+    @Test
+    public void getObjectsSkipsKeysInNearCache() throws Exception {
+        NearCache nearCache = createNearCache();
+        cacheProvider.setNearCache(nearCache);
+        
+        DateTime timestamp = DateTime.parse("2022-06-01T10:00:00.000Z");
+        CacheKey key1 = CacheKey.etag(App.class, "key1");
+        CacheKey key2 = CacheKey.etag(App.class, "key2");
+        nearCache.put(key1.toString(), Long.toString(timestamp.getMillis()), 0,
+                nearCache.getVersion(key1.toString()));
+        
+        Jedis mockJedis = mock(Jedis.class);
+        JedisPool mockPool = mock(JedisPool.class);
+        when(mockPool.getResource()).thenReturn(mockJedis);
+        cacheProvider.setJedisPool(mockPool);
+        when(mockJedis.mget(key2.toString())).thenReturn(Arrays.asList(Long.toString(timestamp.getMillis())));
+        
+        List<DateTime> results = cacheProvider.getObjects(ImmutableList.of(key1, key2), DateTime.class);
+        assertEquals(results.get(0).getMillis(), timestamp.getMillis());
+        assertEquals(results.get(1).getMillis(), timestamp.getMillis());
+        
+        // Second key is now also held in the near cache
+        assertEquals(nearCache.get(key2.toString()), Long.toString(timestamp.getMillis()));
+    }
+    
+    @Test
+    public void getObjectsAllInNearCache() throws Exception {
+        NearCache nearCache = createNearCache();
+        cacheProvider.setNearCache(nearCache);
+        JedisPool mockPool = mock(JedisPool.class);
+        cacheProvider.setJedisPool(mockPool);
+        
+        CacheKey key1 = CacheKey.etag(App.class, "key1");
+        nearCache.put(key1.toString(), "1000", 0, nearCache.getVersion(key1.toString()));
+        
+        List<DateTime> results = cacheProvider.getObjects(ImmutableList.of(key1), DateTime.class);
+        assertEquals(results.get(0).getMillis(), 1000L);
+        
+        verify(mockPool, never()).getResource();
+    }
 }
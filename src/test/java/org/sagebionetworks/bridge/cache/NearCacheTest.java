@@ -0,0 +1,225 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.cache.NearCache.EVICTIONS;
+import static org.sagebionetworks.bridge.cache.NearCache.HITS;
+import static org.sagebionetworks.bridge.cache.NearCache.INVALIDATION_CHANNEL;
+import static org.sagebionetworks.bridge.cache.NearCache.MISSES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import org.sagebionetworks.bridge.models.apps.App;
+
+public class NearCacheTest {
+    private static final DateTime NOW = DateTime.parse("2022-06-01T10:00:00.000Z");
+    private static final String APP_KEY = CacheKey.app("test-app").toString();
+    private static final String ETAG_KEY = CacheKey.etag(App.class, "test-app").toString();
+    private static final String TOKEN_KEY = CacheKey.tokenToUserId("token").toString();
+    private static final String SESSION_KEY = CacheKey.userIdToSession("userId").toString();
+    private static final String REQUEST_INFO_KEY = CacheKey.requestInfo("userId").toString();
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    NearCache nearCache;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        DateTimeUtils.setCurrentMillisFixed(NOW.getMillis());
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        nearCache = new NearCache();
+        nearCache.setJedisPool(mockJedisPool);
+        nearCache.configure(true, 100, 60);
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void getType() {
+        assertEquals(NearCache.getType(APP_KEY), "App");
+        assertEquals(NearCache.getType(ETAG_KEY), "Etag");
+        assertNull(NearCache.getType(TOKEN_KEY));
+        assertNull(NearCache.getType(SESSION_KEY));
+        assertNull(NearCache.getType(REQUEST_INFO_KEY));
+        assertNull(NearCache.getType(null));
+    }
+
+    @Test
+    public void putAndGet() {
+        assertNull(nearCache.get(APP_KEY));
+        nearCache.put(APP_KEY, "value", 0, nearCache.getVersion(APP_KEY));
+        assertEquals(nearCache.get(APP_KEY), "value");
+
+        Map<String, Long> stats = nearCache.getStatistics().get("App");
+        assertEquals(stats.get(HITS), Long.valueOf(1L));
+        assertEquals(stats.get(MISSES), Long.valueOf(1L));
+        assertEquals(stats.get(EVICTIONS), Long.valueOf(0L));
+    }
+
+    @Test
+    public void keysOfOtherTypesAreNotHeld() {
+        assertFalse(nearCache.isCacheable(REQUEST_INFO_KEY));
+        nearCache.put(REQUEST_INFO_KEY, "value", 0, nearCache.getVersion(REQUEST_INFO_KEY));
+        assertNull(nearCache.get(REQUEST_INFO_KEY));
+        assertTrue(nearCache.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void entriesExpireAfterLocalTtl() {
+        nearCache.put(APP_KEY, "value", 0, nearCache.getVersion(APP_KEY));
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusSeconds(61).getMillis());
+        assertNull(nearCache.get(APP_KEY));
+
+        Map<String, Long> stats = nearCache.getStatistics().get("App");
+        assertEquals(stats.get(MISSES), Long.valueOf(1L));
+        assertEquals(stats.get(EVICTIONS), Long.valueOf(1L));
+    }
+
+    @Test
+    public void entriesExpireWithShorterRedisTtl() {
+        nearCache.put(APP_KEY, "value", 10, nearCache.getVersion(APP_KEY));
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusSeconds(5).getMillis());
+        assertEquals(nearCache.get(APP_KEY), "value");
+
+        DateTimeUtils.setCurrentMillisFixed(NOW.plusSeconds(11).getMillis());
+        assertNull(nearCache.get(APP_KEY));
+    }
+
+    @Test
+    public void invalidateRemovesAndPublishes() {
+        nearCache.put(APP_KEY, "value", 0, nearCache.getVersion(APP_KEY));
+        nearCache.put(ETAG_KEY, "value", 0, nearCache.getVersion(ETAG_KEY));
+
+        nearCache.invalidate(APP_KEY, REQUEST_INFO_KEY, ETAG_KEY);
+
+        assertNull(nearCache.get(APP_KEY));
+        assertNull(nearCache.get(ETAG_KEY));
+        verify(mockJedis).publish(INVALIDATION_CHANNEL, APP_KEY + "\n" + ETAG_KEY);
+    }
+
+    @Test
+    public void invalidateDoesNotPublishUncachedTypes() {
+        nearCache.invalidate(REQUEST_INFO_KEY);
+
+        verify(mockJedis, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    public void invalidateSurvivesPublishFailure() {
+        when(mockJedis.publish(anyString(), anyString())).thenThrow(new RuntimeException());
+        nearCache.put(APP_KEY, "value", 0, nearCache.getVersion(APP_KEY));
+
+        nearCache.invalidate(APP_KEY);
+
+        assertNull(nearCache.get(APP_KEY));
+    }
+
+    @Test
+    public void invalidateLocallyFromMessage() {
+        nearCache.put(APP_KEY, "value", 0, nearCache.getVersion(APP_KEY));
+        nearCache.put(ETAG_KEY, "value", 0, nearCache.getVersion(ETAG_KEY));
+
+        nearCache.invalidateLocally(ETAG_KEY);
+
+        assertEquals(nearCache.get(APP_KEY), "value");
+        assertNull(nearCache.get(ETAG_KEY));
+        verify(mockJedis, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    public void sessionsAreNotHeld() {
+        assertFalse(nearCache.isCacheable(TOKEN_KEY));
+        assertFalse(nearCache.isCacheable(SESSION_KEY));
+
+        nearCache.put(SESSION_KEY, "session", 0, nearCache.getVersion(SESSION_KEY));
+        assertNull(nearCache.get(SESSION_KEY));
+    }
+
+    @Test
+    public void valueReadBeforeInvalidationIsNotHeld() {
+        // A read from Redis starts, then the key is written and invalidated on this server.
+        long version = nearCache.getVersion(APP_KEY);
+        nearCache.invalidate(APP_KEY);
+
+        nearCache.put(APP_KEY, "old value", 0, version);
+        assertNull(nearCache.get(APP_KEY));
+    }
+
+    @Test
+    public void valueReadBeforeInvalidationMessageIsNotHeld() {
+        // A read from Redis starts, then another server's invalidation arrives.
+        long version = nearCache.getVersion(APP_KEY);
+        nearCache.invalidateLocally(APP_KEY);
+
+        nearCache.put(APP_KEY, "old value", 0, version);
+        assertNull(nearCache.get(APP_KEY));
+
+        // The next read is held.
+        nearCache.put(APP_KEY, "new value", 0, nearCache.getVersion(APP_KEY));
+        assertEquals(nearCache.get(APP_KEY), "new value");
+    }
+
+    @Test
+    public void valueReadBeforeInvalidationOfAnotherKeyIsHeld() {
+        assertNotEquals(NearCache.stripe(APP_KEY), NearCache.stripe(ETAG_KEY));
+        
+        // A read of the app starts, then an etag is written and invalidated.
+        long version = nearCache.getVersion(APP_KEY);
+        nearCache.invalidate(ETAG_KEY);
+        nearCache.invalidateLocally(ETAG_KEY);
+
+        nearCache.put(APP_KEY, "value", 0, version);
+        assertEquals(nearCache.get(APP_KEY), "value");
+    }
+
+    @Test
+    public void disabledCacheHoldsNothing() {
+        nearCache.configure(false, 100, 60);
+
+        nearCache.put(APP_KEY, "value", 0, nearCache.getVersion(APP_KEY));
+        assertNull(nearCache.get(APP_KEY));
+        assertFalse(nearCache.isCacheable(APP_KEY));
+
+        nearCache.invalidate(APP_KEY);
+        verify(mockJedis, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    public void unconfiguredCacheHoldsNothing() {
+        NearCache unconfigured = new NearCache();
+
+        unconfigured.put(APP_KEY, "value", 0, unconfigured.getVersion(APP_KEY));
+        assertNull(unconfigured.get(APP_KEY));
+        unconfigured.invalidate(APP_KEY);
+        assertTrue(unconfigured.getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package org.sagebionetworks.bridge.cache;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.cache.TokenBucketRateLimiter.ALLOWED;
+import static org.sagebionetworks.bridge.cache.TokenBucketRateLimiter.DENIED;
+import static org.sagebionetworks.bridge.cache.TokenBucketRateLimiter.LOCAL_FALLBACKS;
+import static org.sagebionetworks.bridge.cache.TokenBucketRateLimiter.TOKEN_BUCKET_SCRIPT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import com.google.common.collect.ImmutableList;
+
+public class TokenBucketRateLimiterTest {
+    private static final DateTime NOW = DateTime.parse("2022-06-01T10:00:00.000Z");
+    private static final CacheKey KEY = CacheKey.participantFileRateLimit("userId");
+    private static final RateLimit RATE_LIMIT = new RateLimit("test-limit", 1000, 2000, 60, 500);
+
+    @Mock
+    JedisPool mockJedisPool;
+
+    @Mock
+    Jedis mockJedis;
+
+    TokenBucketRateLimiter rateLimiter;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        MockitoAnnotations.initMocks(this);
+        DateTimeUtils.setCurrentMillisFixed(NOW.getMillis());
+        when(mockJedisPool.getResource()).thenReturn(mockJedis);
+
+        rateLimiter = new TokenBucketRateLimiter();
+        rateLimiter.setJedisPool(mockJedisPool);
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void consumesTokensInRedis() {
+        when(mockJedis.eval(eq(TOKEN_BUCKET_SCRIPT), anyList(), anyList())).thenReturn(1L);
+
+        assertTrue(rateLimiter.tryConsume(KEY, RATE_LIMIT, 100));
+
+        verify(mockJedis).eval(TOKEN_BUCKET_SCRIPT, ImmutableList.of(KEY.toString()),
+                ImmutableList.of("1000", "2000", "60000", "500", "100", Long.toString(NOW.getMillis())));
+        verify(mockJedis).close();
+    }
+
+    @Test
+    public void deniedInRedis() {
+        when(mockJedis.eval(eq(TOKEN_BUCKET_SCRIPT), anyList(), anyList())).thenReturn(0L);
+
+        assertFalse(rateLimiter.tryConsume(KEY, RATE_LIMIT, 100));
+    }
+
+    @Test
+    public void fallsBackToLocalBucketsWhenRedisIsUnavailable() {
+        when(mockJedisPool.getResource()).thenThrow(new JedisConnectionException("Could not get a resource"));
+
+        // The local bucket starts with the initial tokens.
+        assertTrue(rateLimiter.tryConsume(KEY, RATE_LIMIT, 600));
+        assertTrue(rateLimiter.tryConsume(KEY, RATE_LIMIT, 400));
+        assertFalse(rateLimiter.tryConsume(KEY, RATE_LIMIT, 1));
+
+        // Other keys have their own bucket.
+        assertTrue(rateLimiter.tryConsume(CacheKey.participantFileRateLimit("otherUserId"), RATE_LIMIT, 1000));
+    }
+
+    @Test
+    public void statistics() {
+        when(mockJedis.eval(eq(TOKEN_BUCKET_SCRIPT), anyList(), anyList())).thenReturn(1L, 0L);
+        rateLimiter.tryConsume(KEY, RATE_LIMIT, 100);
+        rateLimiter.tryConsume(KEY, RATE_LIMIT, 300);
+
+        when(mockJedisPool.getResource()).thenThrow(new JedisConnectionException("Could not get a resource"));
+        rateLimiter.tryConsume(KEY, RATE_LIMIT, 50);
+
+        Map<String, Long> stats = rateLimiter.getStatistics().get("test-limit");
+        assertEquals(stats.get(ALLOWED), Long.valueOf(150L));
+        assertEquals(stats.get(DENIED), Long.valueOf(300L));
+        assertEquals(stats.get(LOCAL_FALLBACKS), Long.valueOf(1L));
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void nullKeyRejected() {
+        rateLimiter.tryConsume(null, RATE_LIMIT, 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void negativeTokensRejected() {
+        rateLimiter.tryConsume(KEY, RATE_LIMIT, -1);
+    }
+}
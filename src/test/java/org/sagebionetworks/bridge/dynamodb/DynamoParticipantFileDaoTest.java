@@ -1,8 +1,14 @@
 package org.sagebionetworks.bridge.dynamodb;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.google.common.collect.ImmutableList;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -10,6 +16,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.files.ParticipantFile;
@@ -25,6 +32,7 @@ import java.util.stream.Stream;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -77,6 +85,9 @@ public class DynamoParticipantFileDaoTest {
     @Captor
     ArgumentCaptor<DynamoDBQueryExpression<ParticipantFile>> expressionCaptor;
 
+    @Captor
+    ArgumentCaptor<DynamoDBSaveExpression> saveExpressionCaptor;
+
     @InjectMocks
     DynamoParticipantFileDao dao;
 
@@ -264,6 +275,66 @@ public class DynamoParticipantFileDaoTest {
         verify(mapper, never()).delete(any());
     }
 
+    @Test
+    public void updateParticipantFileSize() {
+        DynamoParticipantFile file = new DynamoParticipantFile("test_user", "test_file");
+        file.setCreatedOn(TestConstants.TIMESTAMP);
+        file.setAppId("api");
+        file.setMimeType("image/jpeg");
+        file.setFileSize(42L);
+
+        dao.updateParticipantFileSize(file);
+
+        verify(mapper).save(fileCaptor.capture(), saveExpressionCaptor.capture(),
+                same(DynamoParticipantFileDao.UPDATE_SKIP_NULL_ATTRIBUTES_CONFIG));
+
+        // Only the keys and the size are written.
+        ParticipantFile update = fileCaptor.getValue();
+        assertEquals(update.getUserId(), "test_user");
+        assertEquals(update.getFileId(), "test_file");
+        assertEquals(update.getFileSize(), Long.valueOf(42L));
+        assertNull(update.getCreatedOn());
+        assertNull(update.getAppId());
+        assertNull(update.getMimeType());
+
+        Map<String, ExpectedAttributeValue> expected = saveExpressionCaptor.getValue().getExpected();
+        assertEquals(expected.get("fileId").getComparisonOperator(), ComparisonOperator.NOT_NULL.toString());
+        ExpectedAttributeValue createdOnExpected = expected.get("createdOn");
+        assertEquals(createdOnExpected.getComparisonOperator(), ComparisonOperator.EQ.toString());
+        assertEquals(createdOnExpected.getAttributeValueList(),
+                ImmutableList.of(new AttributeValue(TestConstants.TIMESTAMP.toString())));
+    }
+
+    @Test
+    public void updateParticipantFileSizeWithoutCreatedOn() {
+        DynamoParticipantFile file = new DynamoParticipantFile("test_user", "test_file");
+        file.setFileSize(42L);
+
+        dao.updateParticipantFileSize(file);
+
+        verify(mapper).save(fileCaptor.capture(), saveExpressionCaptor.capture(),
+                same(DynamoParticipantFileDao.UPDATE_SKIP_NULL_ATTRIBUTES_CONFIG));
+        ExpectedAttributeValue createdOnExpected = saveExpressionCaptor.getValue().getExpected().get("createdOn");
+        assertEquals(createdOnExpected.getComparisonOperator(), ComparisonOperator.NULL.toString());
+        assertNull(createdOnExpected.getAttributeValueList());
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void updateParticipantFileSizeFileChanged() {
+        DynamoParticipantFile file = new DynamoParticipantFile("test_user", "test_file");
+        file.setCreatedOn(TestConstants.TIMESTAMP);
+        file.setFileSize(42L);
+        doThrow(new ConditionalCheckFailedException("")).when(mapper).save(any(), any(DynamoDBSaveExpression.class),
+                any(DynamoDBMapperConfig.class));
+
+        dao.updateParticipantFileSize(file);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void updateParticipantFileSizeWithoutSize() {
+        dao.updateParticipantFileSize(new DynamoParticipantFile("test_user", "test_file"));
+    }
+
     @Test
     public void batchDeleteParticipantFiles() {
         // Copy RESULT_LIST to a new list because of Java type wonkiness.
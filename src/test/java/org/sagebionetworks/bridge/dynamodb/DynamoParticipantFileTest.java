@@ -20,6 +20,7 @@ public class DynamoParticipantFileTest {
         pFile.setDownloadUrl("dummy.download");
         pFile.setUploadUrl("dummy.upload");
         pFile.setExpiresOn(TestConstants.TIMESTAMP);
+        pFile.setFileSize(1024L);
 
         String json = MAPPER.writeValueAsString(pFile);
         JsonNode node = MAPPER.readTree(json);
@@ -33,7 +34,8 @@ public class DynamoParticipantFileTest {
         assertEquals(node.get("downloadUrl").textValue(), "dummy.download");
         assertEquals(node.get("uploadUrl").textValue(), "dummy.upload");
         assertEquals(node.get("expiresOn").textValue(), TestConstants.TIMESTAMP.toString());
-        assertEquals(node.size(), 9);
+        assertEquals(node.get("fileSize").longValue(), 1024L);
+        assertEquals(node.size(), 10);
 
         ParticipantFile deser = MAPPER.readValue(json, ParticipantFile.class);
         assertEquals(deser.getUserId(), "userId");
@@ -44,6 +46,7 @@ public class DynamoParticipantFileTest {
         assertEquals(deser.getDownloadUrl(), "dummy.download");
         assertEquals(deser.getUploadUrl(), "dummy.upload");
         assertEquals(deser.getExpiresOn(), TestConstants.TIMESTAMP);
+        assertEquals(deser.getFileSize(), Long.valueOf(1024L));
     }
 
     @Test
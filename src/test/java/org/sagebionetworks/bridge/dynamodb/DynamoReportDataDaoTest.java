@@ -21,6 +21,7 @@ import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -34,6 +35,7 @@ import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.DateRangeResourceList;
 import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
@@ -193,6 +195,35 @@ public class DynamoReportDataDaoTest extends Mockito {
         assertEquals(reportData.getDateTime().getZone(), DateTimeZone.UTC);
     }
     
+    @Test
+    public void saveReportDataBatch() {
+        List<ReportData> reportData = ImmutableList.of(report0, report1);
+        dao.saveReportDataBatch(reportData);
+        
+        verify(mockMapper).batchSave(reportData);
+        assertEquals(report0.getDateTime().getZone(), DateTimeZone.UTC);
+        assertEquals(report1.getDateTime().getZone(), DateTimeZone.UTC);
+    }
+    
+    @Test
+    public void saveReportDataBatchEmpty() {
+        dao.saveReportDataBatch(ImmutableList.of());
+        
+        verify(mockMapper, never()).batchSave(any(Iterable.class));
+    }
+    
+    @Test(expectedExceptions = BridgeServiceException.class, expectedExceptionsMessageRegExp = ".*Write failed.*")
+    public void saveReportDataBatchWithFailures() {
+        DynamoDBMapper.FailedBatch failure = new DynamoDBMapper.FailedBatch();
+        failure.setException(new IllegalArgumentException("Write failed"));
+        failure.setUnprocessedItems(ImmutableMap.of());
+        
+        List<ReportData> reportData = ImmutableList.of(report0, report1);
+        when(mockMapper.batchSave(reportData)).thenReturn(ImmutableList.of(failure));
+        
+        dao.saveReportDataBatch(reportData);
+    }
+    
     @Test
     public void deleteReportData() {
         when(mockMapper.query(eq(DynamoReportData.class), any())).thenReturn(mockQueryList);
@@ -18,6 +18,10 @@ import static org.testng.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
@@ -53,6 +57,7 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -81,6 +86,8 @@ public class DynamoScheduledActivityDaoTest {
     
     private DynamoScheduledActivity testSchActivity;
     
+    private ExecutorService queryExecutorService;
+    
     @BeforeMethod
     public void before() {
         DateTimeUtils.setCurrentMillisFixed(NOW.getMillis());
@@ -92,11 +99,15 @@ public class DynamoScheduledActivityDaoTest {
         when(mapper.load(any(DynamoScheduledActivity.class))).thenReturn(testSchActivity);
         activityDao = new DynamoScheduledActivityDao();
         activityDao.setDdbMapper(mapper);
+        
+        queryExecutorService = Executors.newFixedThreadPool(2);
+        activityDao.setQueryExecutorService(queryExecutorService);
     }
 
     @AfterMethod
     public void after() {
         DateTimeUtils.setCurrentMillisSystem();
+        queryExecutorService.shutdownNow();
     }
     
     @SuppressWarnings("unchecked")
@@ -340,6 +351,66 @@ public class DynamoScheduledActivityDaoTest {
                 BridgeConstants.API_MAXIMUM_PAGE_SIZE+2);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void getActivityHistoriesV2() {
+        // Each query returns one activity for the activity GUID in its range key condition.
+        Map<String, QueryResultPage<DynamoScheduledActivity>> resultsByActivityGuid = Maps.newHashMap();
+        for (String activityGuid : ImmutableList.of("AAA", "BBB", "CCC")) {
+            DynamoScheduledActivity activity = new DynamoScheduledActivity();
+            activity.setGuid(activityGuid + ":" + SCHEDULED_ON_START.toLocalDateTime());
+            
+            QueryResultPage<DynamoScheduledActivity> queryResult = mock(QueryResultPage.class);
+            when(queryResult.getResults()).thenReturn(ImmutableList.of(activity));
+            resultsByActivityGuid.put(activityGuid, queryResult);
+        }
+        when(mapper.queryPage(eq(DynamoScheduledActivity.class), any())).thenAnswer(invocation -> {
+            DynamoDBQueryExpression<DynamoScheduledActivity> query = invocation.getArgument(1);
+            String start = query.getRangeKeyConditions().get("guid").getAttributeValueList().get(0).getS();
+            return resultsByActivityGuid.get(start.split(":")[0]);
+        });
+        
+        List<ScheduledActivity> results = activityDao.getActivityHistoriesV2(HEALTH_CODE,
+                ImmutableSet.of("AAA", "BBB", "CCC"), SCHEDULED_ON_START, SCHEDULED_ON_END, PAGE_SIZE);
+        
+        verify(mapper, times(3)).queryPage(eq(DynamoScheduledActivity.class), any());
+        Set<String> guids = results.stream().map(activity -> activity.getGuid().split(":")[0])
+                .collect(Collectors.toSet());
+        assertEquals(guids, ImmutableSet.of("AAA", "BBB", "CCC"));
+        for (ScheduledActivity activity : results) {
+            assertEquals(activity.getTimeZone(), SCHEDULED_ON_START.getZone());
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void getActivityHistoriesV2OneActivityGuid() {
+        mockMapperResults(ImmutableList.of(new DynamoScheduledActivity()));
+        // The single query runs on the caller's thread.
+        queryExecutorService.shutdownNow();
+        
+        List<ScheduledActivity> results = activityDao.getActivityHistoriesV2(HEALTH_CODE,
+                ImmutableSet.of(ACTIVITY_GUID), SCHEDULED_ON_START, SCHEDULED_ON_END, PAGE_SIZE);
+        assertEquals(results.size(), 1);
+        
+        verify(mapper).queryPage(eq(DynamoScheduledActivity.class), any(DynamoDBQueryExpression.class));
+    }
+    
+    @Test
+    public void getActivityHistoriesV2NoActivityGuids() {
+        List<ScheduledActivity> results = activityDao.getActivityHistoriesV2(HEALTH_CODE, ImmutableSet.of(),
+                SCHEDULED_ON_START, SCHEDULED_ON_END, PAGE_SIZE);
+        assertTrue(results.isEmpty());
+        
+        verifyNoMoreInteractions(mapper);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void getActivityHistoriesV2RethrowsQueryException() {
+        activityDao.getActivityHistoriesV2(HEALTH_CODE, ImmutableSet.of("AAA", "BBB"), SCHEDULED_ON_START,
+                SCHEDULED_ON_END, BridgeConstants.API_MAXIMUM_PAGE_SIZE+2);
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void getActivityHistoryV3NoOffsetKey() {
@@ -14,14 +14,17 @@ import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
 import static org.sagebionetworks.bridge.TestConstants.USER_DATA_GROUPS;
 import static org.sagebionetworks.bridge.TestConstants.TEST_NOTE;
 import static org.sagebionetworks.bridge.dao.AccountDao.MIGRATION_VERSION;
+import static org.sagebionetworks.bridge.hibernate.HibernateAccountDao.ACCOUNTS_BY_ID_QUERY;
 import static org.sagebionetworks.bridge.hibernate.HibernateAccountDao.APP_IDS_FOR_USER_QUERY;
 import static org.sagebionetworks.bridge.hibernate.HibernateAccountDao.DELETE_ALL_ACCOUNTS_QUERY;
 import static org.sagebionetworks.bridge.hibernate.HibernateAccountDao.FULL_QUERY;
+import static org.sagebionetworks.bridge.hibernate.HibernateAccountDao.UPDATE_PASSWORD_HASH_QUERY;
 import static org.sagebionetworks.bridge.models.SearchTermPredicate.AND;
 import static org.sagebionetworks.bridge.models.StringSearchPosition.INFIX;
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.ENABLED;
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.UNVERIFIED;
 import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM;
+import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.STORMPATH_HMAC_SHA_256;
 import static org.sagebionetworks.bridge.models.studies.EnrollmentFilter.ENROLLED;
 import static org.sagebionetworks.bridge.models.studies.EnrollmentFilter.WITHDRAWN;
 import static org.testng.Assert.assertEquals;
@@ -57,7 +60,9 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
@@ -186,6 +191,32 @@ public class HibernateAccountDaoTest extends Mockito {
         verify(mockHibernateHelper).update(account);
     }
 
+    @Test
+    public void updatePasswordHash() {
+        when(mockHibernateHelper.queryUpdate(eq(UPDATE_PASSWORD_HASH_QUERY), any())).thenReturn(1);
+        
+        boolean updated = dao.updatePasswordHash(ACCOUNT_ID, STORMPATH_HMAC_SHA_256, "oldHash",
+                DEFAULT_PASSWORD_ALGORITHM, "newHash");
+        assertTrue(updated);
+        
+        verify(mockHibernateHelper).queryUpdate(eq(UPDATE_PASSWORD_HASH_QUERY), paramCaptor.capture());
+        Map<String, Object> params = paramCaptor.getValue();
+        assertEquals(params.get("userId"), ACCOUNT_ID);
+        assertEquals(params.get("expectedAlgorithm"), STORMPATH_HMAC_SHA_256);
+        assertEquals(params.get("expectedHash"), "oldHash");
+        assertEquals(params.get("algorithm"), DEFAULT_PASSWORD_ALGORITHM);
+        assertEquals(params.get("hash"), "newHash");
+    }
+    
+    @Test
+    public void updatePasswordHashNotUpdated() {
+        when(mockHibernateHelper.queryUpdate(eq(UPDATE_PASSWORD_HASH_QUERY), any())).thenReturn(0);
+        
+        boolean updated = dao.updatePasswordHash(ACCOUNT_ID, STORMPATH_HMAC_SHA_256, "oldHash",
+                DEFAULT_PASSWORD_ALGORITHM, "newHash");
+        assertFalse(updated);
+    }
+
     @Test
     public void updateAccountAllowsIdentifierUpdate() {
         // This call will allow identifiers/verification status to be updated.
@@ -533,6 +564,101 @@ public class HibernateAccountDaoTest extends Mockito {
         verify(mockHibernateHelper).queryCount(expCountQuery, APP_QUERY_PARAMS);
     }
     
+    @Test
+    public void getAccountSummariesByCursorFirstPage() throws Exception {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerRoles(ImmutableSet.of(RESEARCHER)).build());
+        
+        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN "
+                + "acct.enrollments AS enrollment WITH acct.id = enrollment.accountId "
+                + "WHERE acct.appId = :appId AND admin = 1 AND acct.orgMembership = "
+                + ":orgId GROUP BY acct.id ORDER BY acct.createdOn, acct.id";
+        
+        HibernateAccount hibernateAccount1 = makeValidHibernateAccount(false);
+        hibernateAccount1.setId("account-1");
+        hibernateAccount1.setCreatedOn(CREATED_ON);
+        HibernateAccount hibernateAccount2 = makeValidHibernateAccount(false);
+        hibernateAccount2.setId("account-2");
+        hibernateAccount2.setCreatedOn(CREATED_ON);
+        
+        // One more ID than the page size is returned, so there is a next page.
+        when(mockHibernateHelper.queryGet(expQuery, APP_QUERY_PARAMS, null, 3, String.class))
+                .thenReturn(ImmutableList.of("account-1", "account-2", "account-3"));
+        when(mockHibernateHelper.getById(HibernateAccount.class, "account-1")).thenReturn(hibernateAccount1);
+        when(mockHibernateHelper.getById(HibernateAccount.class, "account-2")).thenReturn(hibernateAccount2);
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder().withOffsetBy(10)
+                .withAdminOnly(true).withOrgMembership(TEST_ORG_ID).withPageSize(2).build();
+        
+        ForwardCursorPagedResourceList<AccountSummary> page = dao.getAccountSummariesByCursor(TEST_APP_ID,
+                search, null, false);
+        assertEquals(page.getItems().size(), 2);
+        assertEquals(page.getItems().get(0).getId(), "account-1");
+        assertEquals(page.getItems().get(1).getId(), "account-2");
+        assertEquals(page.getNextPageOffsetKey(), CREATED_ON.getMillis() + ":account-2");
+        assertNull(page.getTotal());
+        assertEquals(page.getRequestParams().get("pageSize"), 2);
+        assertEquals(page.getRequestParams().get("orgMembership"), TEST_ORG_ID);
+        assertNull(page.getRequestParams().get("offsetBy"));
+        
+        verify(mockHibernateHelper, never()).getById(HibernateAccount.class, "account-3");
+        verify(mockHibernateHelper, never()).queryCount(any(), any());
+    }
+    
+    @Test
+    public void getAccountSummariesByCursorWithOffsetKeyAndTotal() throws Exception {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerRoles(ImmutableSet.of(RESEARCHER)).build());
+        
+        String expQuery = "SELECT acct.id FROM HibernateAccount AS acct LEFT JOIN "
+                + "acct.enrollments AS enrollment WITH acct.id = enrollment.accountId "
+                + "WHERE acct.appId = :appId AND admin = 1 AND acct.orgMembership = :orgId AND "
+                + "(acct.createdOn > :cursorCreatedOn OR (acct.createdOn = :cursorCreatedOn AND "
+                + "acct.id > :cursorId)) GROUP BY acct.id ORDER BY acct.createdOn, acct.id";
+        Map<String, Object> expParams = new ImmutableMap.Builder<String, Object>()
+                .putAll(APP_QUERY_PARAMS)
+                .put("cursorCreatedOn", new DateTime(CREATED_ON.getMillis()))
+                .put("cursorId", "account-1").build();
+        
+        // The count does not include the cursor.
+        String expCountQuery = "SELECT COUNT(DISTINCT acct.id) FROM HibernateAccount AS acct "
+                + "LEFT JOIN acct.enrollments AS enrollment WITH acct.id = enrollment.accountId "
+                +"WHERE acct.appId = :appId AND admin = 1 AND acct.orgMembership = :orgId";
+        
+        HibernateAccount hibernateAccount2 = makeValidHibernateAccount(false);
+        hibernateAccount2.setId("account-2");
+        hibernateAccount2.setCreatedOn(CREATED_ON);
+        
+        when(mockHibernateHelper.queryGet(expQuery, expParams, null, 3, String.class))
+                .thenReturn(ImmutableList.of("account-2"));
+        when(mockHibernateHelper.getById(HibernateAccount.class, "account-2")).thenReturn(hibernateAccount2);
+        when(mockHibernateHelper.queryCount(expCountQuery, APP_QUERY_PARAMS)).thenReturn(12);
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withAdminOnly(true).withOrgMembership(TEST_ORG_ID).withPageSize(2).build();
+        
+        String offsetKey = CREATED_ON.getMillis() + ":account-1";
+        ForwardCursorPagedResourceList<AccountSummary> page = dao.getAccountSummariesByCursor(TEST_APP_ID,
+                search, offsetKey, true);
+        assertEquals(page.getItems().size(), 1);
+        assertEquals(page.getItems().get(0).getId(), "account-2");
+        assertNull(page.getNextPageOffsetKey());
+        assertFalse(page.hasNext());
+        assertEquals(page.getTotal(), Integer.valueOf(12));
+        assertEquals(page.getRequestParams().get("offsetKey"), offsetKey);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class, 
+            expectedExceptionsMessageRegExp = "Invalid offsetKey: not-a-key")
+    public void getAccountSummariesByCursorInvalidOffsetKey() {
+        dao.getAccountSummariesByCursor(TEST_APP_ID, AccountSummarySearch.EMPTY_SEARCH, "not-a-key", false);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void getAccountSummariesByCursorOffsetKeyWithoutId() {
+        dao.getAccountSummariesByCursor(TEST_APP_ID, AccountSummarySearch.EMPTY_SEARCH, "1000:", false);
+    }
+    
     @Test
     public void getPagedReturnsQueryParams() throws Exception {
         AccountSummarySearch search = new AccountSummarySearch.Builder()
@@ -1249,6 +1375,31 @@ public class HibernateAccountDaoTest extends Mockito {
         assertEquals(builder.getQuery(), finalQuery);
     }
     
+    @Test
+    public void getAccounts() throws Exception {
+        HibernateAccount hibernateAccount = makeValidHibernateAccount(false);
+        when(mockHibernateHelper.queryGet(any(), any(), any(), any(), eq(HibernateAccount.class)))
+                .thenReturn(ImmutableList.of(hibernateAccount));
+        
+        List<Account> results = dao.getAccounts(TEST_APP_ID, ImmutableSet.of(TEST_USER_ID));
+        assertEquals(results, ImmutableList.of(hibernateAccount));
+        
+        verify(mockHibernateHelper).queryGet(eq(ACCOUNTS_BY_ID_QUERY), paramCaptor.capture(), eq(null), eq(null),
+                eq(HibernateAccount.class));
+        Map<String,Object> params = paramCaptor.getValue();
+        assertEquals(params.get("appId"), TEST_APP_ID);
+        assertEquals(params.get("userIds"), ImmutableSet.of(TEST_USER_ID));
+        verify(mockHibernateHelper, never()).update(any());
+    }
+    
+    @Test
+    public void getAccountsNoUserIds() throws Exception {
+        List<Account> results = dao.getAccounts(TEST_APP_ID, ImmutableSet.of());
+        assertTrue(results.isEmpty());
+        
+        verify(mockHibernateHelper, never()).queryGet(any(), any(), any(), any(), any());
+    }
+    
     @Test
     public void getAppIdsForUser() throws Exception {
         List<String> queryResult = ImmutableList.of("appA", "appB");
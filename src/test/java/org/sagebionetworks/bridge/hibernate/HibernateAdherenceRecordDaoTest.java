@@ -15,6 +15,7 @@ import static org.sagebionetworks.bridge.models.schedules2.adherence.SortOrder.D
 import static org.sagebionetworks.bridge.validators.AdherenceRecordsSearchValidator.DEFAULT_PAGE_SIZE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 import java.util.HashSet;
 import java.util.List;
@@ -116,6 +117,34 @@ public class HibernateAdherenceRecordDaoTest extends Mockito {
         assertEquals(retValue.getTotal(), Integer.valueOf(150));
     }
 
+    @Test
+    public void getSessionAdherenceRecords() {
+        AdherenceRecord rec1 = getAdherenceRecord(GUID);
+        AdherenceRecord rec2 = getAdherenceRecord(GUID);
+        AdherenceRecord rec3 = getAdherenceRecord(GUID);
+        rec3.setUserId("otherUserId");
+        
+        Set<String> userIds = ImmutableSet.of(TEST_USER_ID, "otherUserId");
+        when(mockHelper.nativeQueryGet("SELECT * " + HibernateAdherenceRecordDao.BASE_QUERY
+                + " WHERE ar.userId IN (:userIds) AND ar.studyId = :studyId AND tm.assessmentGuid IS NULL" + ORDER,
+                ImmutableMap.of("studyId", TEST_STUDY_ID, "userIds", userIds), null, null, AdherenceRecord.class))
+                .thenReturn(ImmutableList.of(rec1, rec2, rec3));
+        
+        Map<String, List<AdherenceRecord>> retValue = dao.getSessionAdherenceRecords(TEST_STUDY_ID, userIds);
+        assertEquals(retValue.size(), 2);
+        assertEquals(retValue.get(TEST_USER_ID), ImmutableList.of(rec1, rec2));
+        assertEquals(retValue.get("otherUserId"), ImmutableList.of(rec3));
+    }
+    
+    @Test
+    public void getSessionAdherenceRecordsNoUsers() {
+        Map<String, List<AdherenceRecord>> retValue = dao.getSessionAdherenceRecords(TEST_STUDY_ID,
+                ImmutableSet.of());
+        assertTrue(retValue.isEmpty());
+        
+        verify(mockHelper, never()).nativeQueryGet(any(), any(), any(), any(), any());
+    }
+
     @Test
     public void createQuery_everything() {
         AdherenceRecordsSearch search = search().build();
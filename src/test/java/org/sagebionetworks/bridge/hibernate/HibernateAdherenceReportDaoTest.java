@@ -1,32 +1,49 @@
 package org.sagebionetworks.bridge.hibernate;
 
 import static org.sagebionetworks.bridge.BridgeConstants.API_DEFAULT_PAGE_SIZE;
+import static org.sagebionetworks.bridge.TestConstants.CREATED_ON;
+import static org.sagebionetworks.bridge.TestConstants.EMAIL;
+import static org.sagebionetworks.bridge.TestConstants.PHONE;
+import static org.sagebionetworks.bridge.TestConstants.SYNAPSE_USER_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
+import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.ADHERENCE_MAX_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.ADHERENCE_MIN_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.COUNTS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.DELETE_LABELS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.DELETE_ROWS_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.ID_FILTER_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.INSERT_LABEL_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.INSERT_ROW_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.LABEL_FILTER_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.PROGRESSION_FILTER_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.SELECT_COUNT;
 import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.SELECT_DISTINCT;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.STATISTICS_SQL;
+import static org.sagebionetworks.bridge.hibernate.HibernateAdherenceReportDao.UPSERT_REPORT_SQL;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.BOTH;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.PRODUCTION;
 import static org.sagebionetworks.bridge.models.AccountTestFilter.TEST;
 import static org.sagebionetworks.bridge.models.schedules2.adherence.ParticipantStudyProgress.DONE;
 import static org.sagebionetworks.bridge.models.schedules2.adherence.ParticipantStudyProgress.IN_PROGRESS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Types;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.hibernate.query.NativeQuery;
+import org.hibernate.jdbc.Work;
+import org.joda.time.LocalDate;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
@@ -39,13 +56,15 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import org.mockito.MockitoAnnotations;
-import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.accounts.AccountRef;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatistics;
 import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceStatisticsEntry;
 import org.sagebionetworks.bridge.models.schedules2.adherence.ParticipantStudyProgress;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportId;
+import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportRow;
 
 public class HibernateAdherenceReportDaoTest extends Mockito {
 
@@ -88,12 +107,6 @@ public class HibernateAdherenceReportDaoTest extends Mockito {
     @Mock
     HibernateHelper mockHelper;
     
-    @Mock
-    NativeQuery<Integer> mockQuery;
-    
-    @Mock
-    SessionFactory mockSessionFactory;
-    
     @Mock
     Session mockSession;
     
@@ -113,9 +126,233 @@ public class HibernateAdherenceReportDaoTest extends Mockito {
     
     @Test
     public void saveWeeklyAdherenceReport() {
+        when(mockHelper.executeWithExceptionHandling(any(), any())).thenAnswer(args -> {
+            Function<Session, Object> func = args.getArgument(1);
+            return func.apply(mockSession);
+        });
+        
         WeeklyAdherenceReport report = new WeeklyAdherenceReport();
         dao.saveWeeklyAdherenceReport(report);
-        verify(mockHelper).saveOrUpdate(report);
+        
+        verify(mockHelper).executeWithExceptionHandling(eq(report), any());
+        verify(mockSession).saveOrUpdate(report);
+        verify(mockSession).doWork(any());
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReports() {
+        when(mockHelper.executeWithExceptionHandling(any(), any())).thenAnswer(args -> {
+            Function<Session, Object> func = args.getArgument(1);
+            return func.apply(mockSession);
+        });
+        
+        dao.saveWeeklyAdherenceReports(ImmutableList.of(createReport(TEST_USER_ID, ImmutableSet.of("label"))));
+        
+        // reports and labels, then rows
+        verify(mockSession, times(2)).doWork(any());
+    }
+    
+    @Test
+    public void saveWeeklyAdherenceReportsEmpty() {
+        dao.saveWeeklyAdherenceReports(ImmutableList.of());
+        
+        verifyZeroInteractions(mockHelper);
+    }
+    
+    @Test
+    public void persistReportsInBatches() throws Exception {
+        WeeklyAdherenceReport report1 = createReport("userA", ImmutableSet.of("label1", "label2"));
+        WeeklyAdherenceReport report2 = createReport("userB", null);
+        
+        Work work = dao.persistReportsInBatches(ImmutableList.of(report1, report2));
+        
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockReportStatement = mock(PreparedStatement.class);
+        PreparedStatement mockDeleteStatement = mock(PreparedStatement.class);
+        PreparedStatement mockLabelStatement = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(UPSERT_REPORT_SQL)).thenReturn(mockReportStatement);
+        when(mockConnection.prepareStatement(DELETE_LABELS_SQL)).thenReturn(mockDeleteStatement);
+        when(mockConnection.prepareStatement(INSERT_LABEL_SQL)).thenReturn(mockLabelStatement);
+        
+        work.execute(mockConnection);
+        
+        verify(mockReportStatement, times(2)).addBatch();
+        verify(mockReportStatement).executeBatch();
+        
+        verify(mockDeleteStatement, times(2)).setString(1, TEST_APP_ID);
+        verify(mockDeleteStatement, times(2)).setString(2, TEST_STUDY_ID);
+        verify(mockDeleteStatement).setString(3, "userA");
+        verify(mockDeleteStatement).setString(3, "userB");
+        verify(mockDeleteStatement, times(2)).addBatch();
+        verify(mockDeleteStatement).executeBatch();
+        
+        verify(mockLabelStatement, times(2)).setString(3, "userA");
+        verify(mockLabelStatement).setString(4, "label1");
+        verify(mockLabelStatement).setString(4, "label2");
+        verify(mockLabelStatement, times(2)).addBatch();
+        verify(mockLabelStatement).executeBatch();
+        
+        verify(mockReportStatement).close();
+        verify(mockDeleteStatement).close();
+        verify(mockLabelStatement).close();
+    }
+    
+    @Test
+    public void persistRowsInBatches() throws Exception {
+        WeeklyAdherenceReport report1 = createReport("userA", null);
+        // The duplicate searchableLabel is only counted once
+        report1.setRows(ImmutableList.of(createRow(":label1:"), createRow(":label2:"), createRow(":label1:"),
+                createRow(null)));
+        WeeklyAdherenceReport report2 = createReport("userB", null);
+        report2.setRows(null);
+        
+        Work work = dao.persistRowsInBatches(ImmutableList.of(report1, report2));
+        
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockDeleteStatement = mock(PreparedStatement.class);
+        PreparedStatement mockRowStatement = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(DELETE_ROWS_SQL)).thenReturn(mockDeleteStatement);
+        when(mockConnection.prepareStatement(INSERT_ROW_SQL)).thenReturn(mockRowStatement);
+        
+        work.execute(mockConnection);
+        
+        verify(mockDeleteStatement, times(2)).setString(1, TEST_APP_ID);
+        verify(mockDeleteStatement, times(2)).setString(2, TEST_STUDY_ID);
+        verify(mockDeleteStatement).setString(3, "userA");
+        verify(mockDeleteStatement).setString(3, "userB");
+        verify(mockDeleteStatement, times(2)).addBatch();
+        verify(mockDeleteStatement).executeBatch();
+        
+        verify(mockRowStatement, times(2)).setString(3, "userA");
+        verify(mockRowStatement).setString(4, ":label1:");
+        verify(mockRowStatement).setString(4, ":label2:");
+        verify(mockRowStatement, times(2)).addBatch();
+        verify(mockRowStatement).executeBatch();
+        
+        verify(mockDeleteStatement).close();
+        verify(mockRowStatement).close();
+    }
+    
+    @Test
+    public void updateRowStatement() throws Exception {
+        WeeklyAdherenceReport report = createReport(TEST_USER_ID, null);
+        WeeklyAdherenceReportRow row = createRow(":label1:");
+        
+        PreparedStatement mockStatement = mock(PreparedStatement.class);
+        dao.updateRowStatement(mockStatement, report, row);
+        
+        verify(mockStatement).setString(1, TEST_APP_ID);
+        verify(mockStatement).setString(2, TEST_STUDY_ID);
+        verify(mockStatement).setString(3, TEST_USER_ID);
+        verify(mockStatement).setString(4, ":label1:");
+        verify(mockStatement).setString(5, "Session #1 / Week 2 / burst1 #3");
+        verify(mockStatement).setString(6, "Session #1");
+        verify(mockStatement).setInt(7, 2);
+        verify(mockStatement).setString(8, "burst1");
+        verify(mockStatement).setInt(9, 3);
+        verify(mockStatement).addBatch();
+        
+        // nulls
+        row.setWeekInStudy(null);
+        row.setStudyBurstId(null);
+        row.setStudyBurstNum(null);
+        
+        mockStatement = mock(PreparedStatement.class);
+        dao.updateRowStatement(mockStatement, report, row);
+        
+        verify(mockStatement).setNull(7, Types.NULL);
+        verify(mockStatement).setString(8, null);
+        verify(mockStatement).setNull(9, Types.NULL);
+    }
+    
+    @Test
+    public void updateReportStatement() throws Exception {
+        WeeklyAdherenceReport report = createReport(TEST_USER_ID, null);
+        
+        PreparedStatement mockStatement = mock(PreparedStatement.class);
+        dao.updateReportStatement(mockStatement, report);
+        
+        verify(mockStatement).setString(1, TEST_APP_ID);
+        verify(mockStatement).setString(2, TEST_STUDY_ID);
+        verify(mockStatement).setString(3, TEST_USER_ID);
+        verify(mockStatement).setBoolean(4, true);
+        verify(mockStatement).setString(5, "IN_PROGRESS");
+        verify(mockStatement).setString(6, "America/Chicago");
+        verify(mockStatement).setLong(7, CREATED_ON.getMillis());
+        verify(mockStatement).setInt(8, 50);
+        verify(mockStatement).setInt(9, 3);
+        verify(mockStatement).setString(10, "2022-03-01");
+        verify(mockStatement).setString(11, null);
+        verify(mockStatement).setString(12, "{}");
+        verify(mockStatement).setString(13, "[]");
+        verify(mockStatement).setString(14, "identifier");
+        verify(mockStatement).setString(15, "firstName");
+        verify(mockStatement).setString(16, "lastName");
+        verify(mockStatement).setString(17, EMAIL);
+        verify(mockStatement).setString(18, "orgId");
+        verify(mockStatement).setString(19, PHONE.getNumber());
+        verify(mockStatement).setString(20, PHONE.getRegionCode());
+        verify(mockStatement).setString(21, SYNAPSE_USER_ID);
+        verify(mockStatement).setString(22, "externalId");
+        verify(mockStatement).addBatch();
+        
+        // nulls
+        report.setParticipant(null);
+        report.setProgression(null);
+        report.setWeeklyAdherencePercent(null);
+        report.setWeekInStudy(null);
+        report.setStartDate(null);
+        
+        mockStatement = mock(PreparedStatement.class);
+        dao.updateReportStatement(mockStatement, report);
+        
+        verify(mockStatement).setString(5, null);
+        verify(mockStatement).setNull(8, Types.NULL);
+        verify(mockStatement).setNull(9, Types.NULL);
+        verify(mockStatement).setString(10, null);
+        verify(mockStatement).setString(14, null);
+        verify(mockStatement).setString(19, null);
+        verify(mockStatement).setString(22, null);
+    }
+    
+    private WeeklyAdherenceReportRow createRow(String searchableLabel) {
+        WeeklyAdherenceReportRow row = new WeeklyAdherenceReportRow();
+        row.setSearchableLabel(searchableLabel);
+        row.setLabel("Session #1 / Week 2 / burst1 #3");
+        row.setSessionName("Session #1");
+        row.setWeekInStudy(2);
+        row.setStudyBurstId("burst1");
+        row.setStudyBurstNum(3);
+        return row;
+    }
+    
+    private WeeklyAdherenceReport createReport(String userId, Set<String> labels) {
+        WeeklyAdherenceReport report = new WeeklyAdherenceReport();
+        report.setAppId(TEST_APP_ID);
+        report.setStudyId(TEST_STUDY_ID);
+        report.setUserId(userId);
+        report.setTestAccount(true);
+        report.setProgression(IN_PROGRESS);
+        report.setClientTimeZone("America/Chicago");
+        report.setCreatedOn(CREATED_ON);
+        report.setWeeklyAdherencePercent(50);
+        report.setWeekInStudy(3);
+        report.setStartDate(LocalDate.parse("2022-03-01"));
+        report.setRows(ImmutableList.of());
+        report.setSearchableLabels(labels);
+        report.setParticipant(new AccountRef("firstName", "lastName", EMAIL, PHONE, SYNAPSE_USER_ID, "orgId",
+                "identifier", "externalId"));
+        return report;
+    }
+    
+    @Test
+    public void getWeeklyAdherenceReport() {
+        WeeklyAdherenceReport report = new WeeklyAdherenceReport();
+        WeeklyAdherenceReportId id = new WeeklyAdherenceReportId(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        when(mockHelper.getById(WeeklyAdherenceReport.class, id)).thenReturn(report);
+        
+        WeeklyAdherenceReport retValue = dao.getWeeklyAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        assertSame(retValue, report);
     }
     
     @Test
@@ -311,39 +548,61 @@ public class HibernateAdherenceReportDaoTest extends Mockito {
     
     @Test
     public void getWeeklyAdherenceStatistics_noData() throws Exception {
-        when(mockSessionFactory.openSession()).thenReturn(mockSession);
-        when(mockSession.createNativeQuery(any())).thenReturn(mockQuery);
+        when(mockHelper.nativeQuery(eq(COUNTS_SQL), any())).thenReturn(ImmutableList.of());
         
         AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
         assertEquals(stats.getAdherenceThresholdPercentage(), Integer.valueOf(22));
         assertTrue(stats.getEntries().isEmpty());
+        assertNull(stats.getTotalActive());
+        assertNull(stats.getCompliant());
+        assertNull(stats.getNoncompliant());
     }
 
     @Test
     public void getWeeklyAdherenceStatistics() throws Exception {
-        when(mockSessionFactory.openSession()).thenReturn(mockSession);
-        when(mockSession.createNativeQuery(any())).thenReturn(mockQuery);
-        
-        String json = TestUtils.createJson("[{'label':'Session #2 / Week 10',"
-                +"'searchableLabel':':label1:','sessionGuid':'lgjaORpbvHSMvmGWPaHxJy9v',"
-                +"'startEventId':'custom:event1','sessionName':'Session #2',"
-                +"'weekInStudy':10,'type':'WeeklyAdherenceReportRow'},{'label':'Session #4 / Week 1',"
-                +"'searchableLabel':':label2:','sessionGuid':'aaaa','startEventId':'custom:event2',"
-                +"'sessionName':'Session #4','weekInStudy':1,'type':'WeeklyAdherenceReportRow'}]");
+        Object[] row1 = new Object[] {":label1:", "Session #2 / Week 10", "Session #2", 10, null, null,
+                BigInteger.valueOf(10)};
+        Object[] row2 = new Object[] {":label2:", "Session #1 / Week 1 / burst1 #2", "Session #1", 1, "burst1", 2,
+                BigInteger.valueOf(4)};
+        List<Object[]> results = ImmutableList.of(row1, row2);
+        when(mockHelper.nativeQuery(eq(STATISTICS_SQL), paramsCaptor.capture())).thenReturn(results);
         
-        Object[] row = new Object[] {":label1:", BigInteger.valueOf(10), json};
-        List<Object[]> results = ImmutableList.of(row);
-        when(mockHelper.nativeQuery(stringCaptor.capture(), paramsCaptor.capture()))
-            .thenReturn(results);
+        List<Object[]> counts = ImmutableList.<Object[]>of(new Object[] {BigInteger.valueOf(12), BigInteger.valueOf(5)});
+        when(mockHelper.nativeQuery(eq(COUNTS_SQL), paramsCaptor.capture())).thenReturn(counts);
         
         AdherenceStatistics stats = dao.getAdherenceStatistics(TEST_APP_ID, TEST_STUDY_ID, 22);
         assertEquals(stats.getAdherenceThresholdPercentage(), Integer.valueOf(22));
-        assertEquals(stats.getEntries().size(), 1);
+        assertEquals(stats.getTotalActive(), Integer.valueOf(12));
+        assertEquals(stats.getNoncompliant(), Integer.valueOf(5));
+        assertEquals(stats.getCompliant(), Integer.valueOf(7));
+        assertEquals(stats.getEntries().size(), 2);
+        
+        // Entries with a study burst sort first
         AdherenceStatisticsEntry entry = stats.getEntries().get(0);
+        assertEquals(entry.getLabel(), "Session #1 / Week 1 / burst1 #2");
+        assertEquals(entry.getSearchableLabel(), ":label2:");
+        assertEquals(entry.getSessionName(), "Session #1");
+        assertEquals(entry.getWeekInStudy(), Integer.valueOf(1));
+        assertEquals(entry.getStudyBurstId(), "burst1");
+        assertEquals(entry.getStudyBurstNum(), Integer.valueOf(2));
+        assertEquals(entry.getTotalActive(), Integer.valueOf(4));
+        
+        entry = stats.getEntries().get(1);
         assertEquals(entry.getLabel(), "Session #2 / Week 10");
         assertEquals(entry.getSearchableLabel(), ":label1:");
         assertEquals(entry.getSessionName(), "Session #2");
         assertEquals(entry.getWeekInStudy(), Integer.valueOf(10));
+        assertNull(entry.getStudyBurstId());
+        assertNull(entry.getStudyBurstNum());
         assertEquals(entry.getTotalActive(), Integer.valueOf(10));
+        
+        Map<String, Object> params = paramsCaptor.getAllValues().get(0);
+        assertEquals(params.get("appId"), TEST_APP_ID);
+        assertEquals(params.get("studyId"), TEST_STUDY_ID);
+        params = paramsCaptor.getAllValues().get(1);
+        assertEquals(params.get("threshold"), 22);
+        
+        // Statistics are read-only
+        verify(mockHelper, never()).executeWithExceptionHandling(any(), any());
     }
 }
@@ -1,9 +1,21 @@
 package org.sagebionetworks.bridge.hibernate;
 
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.hibernate.HibernateRequestInfoDao.UPSERT_REQUEST_INFO_SQL;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
@@ -23,6 +35,9 @@ public class HibernateRequestInfoDaoTest extends Mockito {
     @Mock
     HibernateHelper mockHelper;
     
+    @Mock
+    Session mockSession;
+    
     @Captor
     ArgumentCaptor<RequestInfo> requestInfoCaptor;
     
@@ -79,4 +94,68 @@ public class HibernateRequestInfoDaoTest extends Mockito {
         dao.removeRequestInfo(TEST_USER_ID);
         verify(mockHelper, never()).deleteById(any(), any());
     }       
+    
+    @Test
+    public void updateRequestInfos() {
+        when(mockHelper.executeWithExceptionHandling(any(), any())).thenAnswer(args -> {
+            Function<Session, Object> func = args.getArgument(1);
+            return func.apply(mockSession);
+        });
+        
+        dao.updateRequestInfos(ImmutableList.of(new RequestInfo.Builder().withUserId(TEST_USER_ID).build()));
+        
+        verify(mockSession).doWork(any());
+    }
+    
+    @Test
+    public void updateRequestInfosEmpty() {
+        dao.updateRequestInfos(ImmutableList.of());
+        
+        verifyZeroInteractions(mockHelper);
+    }
+    
+    @Test
+    public void upsertRequestInfosInBatches() throws Exception {
+        DateTime signedInOn = DateTime.now();
+        RequestInfo info1 = new RequestInfo.Builder().withUserId("userA").withAppId(TEST_APP_ID)
+                .withUserAgent("agent").withLanguages(ImmutableList.of("en")).withSignedInOn(signedInOn)
+                .withTimeZone(DateTimeZone.forOffsetHours(-7)).build();
+        RequestInfo info2 = new RequestInfo.Builder().withUserId("userB").withAppId(TEST_APP_ID).build();
+        
+        Work work = dao.upsertRequestInfosInBatches(ImmutableList.of(info1, info2));
+        
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockStatement = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(UPSERT_REQUEST_INFO_SQL)).thenReturn(mockStatement);
+        
+        work.execute(mockConnection);
+        
+        verify(mockStatement).setString(1, "userA");
+        verify(mockStatement).setString(3, "agent");
+        verify(mockStatement).setString(4, "[\"en\"]");
+        verify(mockStatement).setLong(8, signedInOn.getMillis());
+        verify(mockStatement).setString(10, "-07:00");
+        verify(mockStatement, times(2)).setString(11, TEST_APP_ID);
+        
+        // Fields that are not set are null, so the persisted values are kept.
+        verify(mockStatement).setString(1, "userB");
+        verify(mockStatement, times(2)).setString(2, null);
+        verify(mockStatement, times(2)).setNull(7, Types.NULL);
+        verify(mockStatement).setNull(8, Types.NULL);
+        
+        verify(mockStatement, times(2)).addBatch();
+        verify(mockStatement).executeBatch();
+        verify(mockStatement).close();
+    }
+    
+    @Test
+    public void upsertKeepsLatestTimestamps() {
+        for (String column : ImmutableList.of("activitiesAccessedOn", "signedInOn", "uploadedOn", 
+                "timelineAccessedOn")) {
+            assertTrue(UPSERT_REQUEST_INFO_SQL.contains(column + " = GREATEST(CAST(COALESCE(VALUES(" + column 
+                    + "), " + column + ") AS UNSIGNED), CAST(COALESCE(" + column + ", VALUES(" + column 
+                    + ")) AS UNSIGNED))"), column);
+        }
+        assertTrue(UPSERT_REQUEST_INFO_SQL.contains("userAgent = COALESCE(VALUES(userAgent), userAgent)"));
+    }
 }
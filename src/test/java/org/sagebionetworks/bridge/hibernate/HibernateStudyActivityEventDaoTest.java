@@ -7,9 +7,11 @@ import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.DELETE_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.EVENT_ID_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.GET_RECENT_FOR_USERS_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.GET_RECENT_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.HISTORY_SQL;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.STUDY_ID_FIELD;
+import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.USER_IDS_FIELD;
 import static org.sagebionetworks.bridge.hibernate.HibernateStudyActivityEventDao.USER_ID_FIELD;
 import static org.sagebionetworks.bridge.models.ResourceList.OFFSET_BY;
 import static org.sagebionetworks.bridge.models.ResourceList.PAGE_SIZE;
@@ -17,11 +19,13 @@ import static org.sagebionetworks.bridge.models.activities.ActivityEventObjectTy
 import static org.sagebionetworks.bridge.models.activities.ActivityEventUpdateType.IMMUTABLE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 import java.util.List;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -91,6 +95,41 @@ public class HibernateStudyActivityEventDaoTest extends Mockito {
         assertEquals(params.get(STUDY_ID_FIELD), TEST_STUDY_ID);
     }
     
+    @Test
+    public void getRecentStudyActivityEventsForUsers() {
+        StudyActivityEvent event1 = new StudyActivityEvent.Builder().withUserId("userA")
+                .withEventId("custom:event1").withTimestamp(CREATED_ON).withRecordCount(1).build();
+        StudyActivityEvent event2 = new StudyActivityEvent.Builder().withUserId("userA")
+                .withEventId("custom:event2").withTimestamp(CREATED_ON).withRecordCount(1).build();
+        StudyActivityEvent event3 = new StudyActivityEvent.Builder().withUserId("userB")
+                .withEventId("custom:event1").withTimestamp(MODIFIED_ON).withRecordCount(2).build();
+        List<Object[]> results = ImmutableList.of(StudyActivityEvent.recordify(event1),
+                StudyActivityEvent.recordify(event2), StudyActivityEvent.recordify(event3));
+        when(mockHelper.nativeQuery(any(), any())).thenReturn(results);
+        
+        Map<String, List<StudyActivityEvent>> retValue = dao.getRecentStudyActivityEvents(
+                ImmutableSet.of("userA", "userB", "userC"), TEST_STUDY_ID);
+        assertEquals(retValue.size(), 2);
+        assertEquals(retValue.get("userA").size(), 2);
+        assertEquals(retValue.get("userA").get(1).getEventId(), "custom:event2");
+        assertEquals(retValue.get("userB").size(), 1);
+        assertEquals(retValue.get("userB").get(0).getTimestamp().getMillis(), MODIFIED_ON.getMillis());
+        
+        verify(mockHelper).nativeQuery(eq(GET_RECENT_FOR_USERS_SQL), paramsCaptor.capture());
+        Map<String,Object> params = paramsCaptor.getValue();
+        assertEquals(params.get(USER_IDS_FIELD), ImmutableSet.of("userA", "userB", "userC"));
+        assertEquals(params.get(STUDY_ID_FIELD), TEST_STUDY_ID);
+    }
+    
+    @Test
+    public void getRecentStudyActivityEventsForNoUsers() {
+        Map<String, List<StudyActivityEvent>> retValue = dao.getRecentStudyActivityEvents(
+                ImmutableSet.of(), TEST_STUDY_ID);
+        assertTrue(retValue.isEmpty());
+        
+        verify(mockHelper, never()).nativeQuery(any(), any());
+    }
+    
     @Test
     public void getRecentStudyActivityEvent() throws Exception {
         StudyActivityEvent event1 = new StudyActivityEvent.Builder()
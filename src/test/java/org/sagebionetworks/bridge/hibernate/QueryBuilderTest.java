@@ -12,6 +12,7 @@ import static org.sagebionetworks.bridge.models.StringSearchPosition.PREFIX;
 import static org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordType.ASSESSMENT;
 import static org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecordType.SESSION;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 import java.util.Map;
 
@@ -372,6 +373,20 @@ public class QueryBuilderTest {
         assertEquals(builder.getQuery(), "");
     }
     
+    @Test
+    public void whereClause_appendRequiredWithTwoValues() {
+        QueryBuilder builder = new QueryBuilder();
+        WhereClauseBuilder where = builder.startWhere(OR);
+        where.append("a = :a", "a", "a");
+        where.appendRequired("(b > :b OR c > :c)", "b", "b", "c", "c");
+        where.appendRequired("(d > :d OR e > :e)", "d", "d", "e", null);
+        
+        assertEquals(builder.getQuery(), "WHERE (b > :b OR c > :c) AND (a = :a)");
+        assertEquals(builder.getParameters().get("b"), "b");
+        assertEquals(builder.getParameters().get("c"), "c");
+        assertFalse(builder.getParameters().containsKey("d"));
+    }
+    
     @Test
     public void startWhere_withPredicate() { 
         QueryBuilder builder = new QueryBuilder();
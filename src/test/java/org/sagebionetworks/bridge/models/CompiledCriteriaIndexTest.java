@@ -0,0 +1,160 @@
+package org.sagebionetworks.bridge.models;
+
+import static java.util.Comparator.comparingLong;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.TestConstants.TIMESTAMP;
+import static org.sagebionetworks.bridge.models.OperatingSystem.ANDROID;
+import static org.sagebionetworks.bridge.models.OperatingSystem.IOS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+
+public class CompiledCriteriaIndexTest {
+
+    private static final ClientInfo IOS_CLIENT_INFO = ClientInfo
+            .fromUserAgentCache("app/4 (deviceName; iPhone OS/3.9) BridgeJavaSDK/12");
+    private static final ClientInfo ANDROID_CLIENT_INFO = ClientInfo
+            .fromUserAgentCache("app/4 (deviceName; Android/3.9) BridgeJavaSDK/12");
+
+    @Test
+    public void matchesTheSameAsCriteriaUtils() {
+        List<AppConfig> appConfigs = new ArrayList<>();
+        appConfigs.add(appConfig(Criteria.create()));
+        appConfigs.add(appConfig(criteria(null, ImmutableSet.of("group1"), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of())));
+        appConfigs.add(appConfig(criteria(null, ImmutableSet.of("group1", "group3"), ImmutableSet.of(),
+                ImmutableSet.of(), ImmutableSet.of())));
+        appConfigs.add(appConfig(criteria(null, ImmutableSet.of(), ImmutableSet.of("group2"), ImmutableSet.of(),
+                ImmutableSet.of())));
+        appConfigs.add(appConfig(criteria(null, ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of("studyA"),
+                ImmutableSet.of("studyC"))));
+        appConfigs.add(appConfig(criteria(null, ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of("studyA"))));
+        appConfigs.add(appConfig(criteria("fr", ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of())));
+        appConfigs.add(appConfig(criteria("EN", ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of())));
+        Criteria iosRange = Criteria.create();
+        iosRange.setMinAppVersion(IOS, 1);
+        iosRange.setMaxAppVersion(IOS, 3);
+        appConfigs.add(appConfig(iosRange));
+        Criteria androidMin = Criteria.create();
+        androidMin.setMinAppVersion(ANDROID, 4);
+        appConfigs.add(appConfig(androidMin));
+
+        CompiledCriteriaIndex index = CompiledCriteriaIndex.compile(appConfigs);
+
+        List<CriteriaContext> contexts = ImmutableList.of(
+                context(ClientInfo.UNKNOWN_CLIENT, ImmutableSet.of(), ImmutableSet.of(), ImmutableList.of()),
+                context(IOS_CLIENT_INFO, ImmutableSet.of("group1"), ImmutableSet.of("studyA"),
+                        ImmutableList.of("en", "fr")),
+                context(ANDROID_CLIENT_INFO, ImmutableSet.of("group1", "group2", "group3"),
+                        ImmutableSet.of("studyB"), ImmutableList.of("fr", "de")),
+                context(IOS_CLIENT_INFO, ImmutableSet.of("unknownGroup"), ImmutableSet.of("studyA", "studyC"),
+                        ImmutableList.of("en")));
+        for (CriteriaContext context : contexts) {
+            assertEquals(index.filter(context, appConfigs, null),
+                    CriteriaUtils.filterByCriteria(context, appConfigs, null));
+        }
+    }
+
+    @Test
+    public void sortsByLanguageThenSecondComparator() {
+        AppConfig appConfig1 = appConfig(criteria("de", ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of()));
+        appConfig1.setCreatedOn(TIMESTAMP.minusHours(1).getMillis());
+        AppConfig appConfig2 = appConfig(criteria("en", ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of()));
+        appConfig2.setCreatedOn(TIMESTAMP.minusHours(3).getMillis());
+        AppConfig appConfig3 = appConfig(criteria("de", ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableSet.of()));
+        appConfig3.setCreatedOn(TIMESTAMP.minusHours(2).getMillis());
+        List<AppConfig> appConfigs = ImmutableList.of(appConfig1, appConfig2, appConfig3);
+
+        CompiledCriteriaIndex index = CompiledCriteriaIndex.compile(appConfigs);
+        CriteriaContext context = context(ClientInfo.UNKNOWN_CLIENT, ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableList.of("en", "de"));
+
+        List<AppConfig> selected = index.filter(context, appConfigs, null);
+        assertSame(selected.get(0), appConfig2);
+        assertSame(selected.get(1), appConfig1);
+        assertSame(selected.get(2), appConfig3);
+
+        selected = index.filter(context, appConfigs, comparingLong(AppConfig::getCreatedOn));
+        assertSame(selected.get(0), appConfig2);
+        assertSame(selected.get(1), appConfig3);
+        assertSame(selected.get(2), appConfig1);
+    }
+
+    @Test
+    public void matchesLanguagesRegardlessOfDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        // In Turkish, "I".toLowerCase() is a dotless i.
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            AppConfig appConfig = appConfig(criteria("ID", ImmutableSet.of(), ImmutableSet.of(),
+                    ImmutableSet.of(), ImmutableSet.of()));
+            List<AppConfig> appConfigs = ImmutableList.of(appConfig);
+            CompiledCriteriaIndex index = CompiledCriteriaIndex.compile(appConfigs);
+            CriteriaContext context = context(ClientInfo.UNKNOWN_CLIENT, ImmutableSet.of(), ImmutableSet.of(),
+                    ImmutableList.of("id"));
+
+            assertEquals(index.filter(context, appConfigs, null), ImmutableList.of(appConfig));
+            assertEquals(index.filter(context, appConfigs, null),
+                    CriteriaUtils.filterByCriteria(context, appConfigs, null));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void noEntities() {
+        CompiledCriteriaIndex index = CompiledCriteriaIndex.compile(ImmutableList.of());
+        CriteriaContext context = context(IOS_CLIENT_INFO, ImmutableSet.of("group1"), ImmutableSet.of(),
+                ImmutableList.of("en"));
+        assertTrue(index.filter(context, ImmutableList.<AppConfig>of(), null).isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void entitiesMustMatchIndex() {
+        AppConfig appConfig = appConfig(Criteria.create());
+        CompiledCriteriaIndex index = CompiledCriteriaIndex.compile(ImmutableList.of(appConfig));
+        CriteriaContext context = context(IOS_CLIENT_INFO, ImmutableSet.of(), ImmutableSet.of(),
+                ImmutableList.of());
+        index.filter(context, ImmutableList.of(appConfig, appConfig), null);
+    }
+
+    private AppConfig appConfig(Criteria criteria) {
+        AppConfig appConfig = AppConfig.create();
+        appConfig.setCriteria(criteria);
+        return appConfig;
+    }
+
+    private Criteria criteria(String language, Set<String> allOfGroups, Set<String> noneOfGroups,
+            Set<String> allOfStudyIds, Set<String> noneOfStudyIds) {
+        Criteria criteria = Criteria.create();
+        criteria.setLanguage(language);
+        criteria.setAllOfGroups(allOfGroups);
+        criteria.setNoneOfGroups(noneOfGroups);
+        criteria.setAllOfStudyIds(allOfStudyIds);
+        criteria.setNoneOfStudyIds(noneOfStudyIds);
+        return criteria;
+    }
+
+    private CriteriaContext context(ClientInfo clientInfo, Set<String> dataGroups, Set<String> studyIds,
+            List<String> languages) {
+        return new CriteriaContext.Builder().withAppId(TEST_APP_ID).withClientInfo(clientInfo)
+                .withUserDataGroups(dataGroups).withUserStudyIds(studyIds).withLanguages(languages).build();
+    }
+}
@@ -0,0 +1,86 @@
+package org.sagebionetworks.bridge.models;
+
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.models.appconfig.AppConfig;
+
+public class CriteriaIndexCacheTest {
+
+    private static final CriteriaContext CONTEXT = new CriteriaContext.Builder().withAppId(TEST_APP_ID)
+            .withUserDataGroups(ImmutableSet.of("group1")).build();
+
+    private CriteriaIndexCache<AppConfig> cache;
+
+    @BeforeMethod
+    public void before() {
+        cache = new CriteriaIndexCache<>((appConfig) -> (appConfig.getVersion() == null) ? null
+                : appConfig.getGuid() + ":" + appConfig.getVersion());
+    }
+
+    @Test
+    public void compiledCriteriaReusedWhileVersionsAreUnchanged() {
+        AppConfig appConfig = appConfig("guid", 1L, "group1");
+        List<AppConfig> appConfigs = ImmutableList.of(appConfig);
+        assertEquals(cache.filterByCriteria(TEST_APP_ID, CONTEXT, appConfigs, null), appConfigs);
+
+        // The criteria change without a change in version (which doesn't happen when they are saved), so the
+        // compiled criteria are still used.
+        appConfig.getCriteria().setAllOfGroups(ImmutableSet.of("group2"));
+        assertEquals(cache.filterByCriteria(TEST_APP_ID, CONTEXT, appConfigs, null), appConfigs);
+
+        // A new version is recompiled.
+        appConfig.setVersion(2L);
+        assertTrue(cache.filterByCriteria(TEST_APP_ID, CONTEXT, appConfigs, null).isEmpty());
+    }
+
+    @Test
+    public void addedEntityIsRecompiled() {
+        AppConfig appConfig1 = appConfig("guid1", 1L, "group1");
+        assertEquals(cache.filterByCriteria(TEST_APP_ID, CONTEXT, ImmutableList.of(appConfig1), null),
+                ImmutableList.of(appConfig1));
+
+        AppConfig appConfig2 = appConfig("guid2", 1L, "group1");
+        List<AppConfig> appConfigs = ImmutableList.of(appConfig1, appConfig2);
+        assertEquals(cache.filterByCriteria(TEST_APP_ID, CONTEXT, appConfigs, null), appConfigs);
+    }
+
+    @Test
+    public void appsAreCachedSeparately() {
+        AppConfig appConfig1 = appConfig("guid", 1L, "group1");
+        assertEquals(cache.filterByCriteria(TEST_APP_ID, CONTEXT, ImmutableList.of(appConfig1), null),
+                ImmutableList.of(appConfig1));
+
+        AppConfig appConfig2 = appConfig("guid", 1L, "group2");
+        assertTrue(cache.filterByCriteria("other-app", CONTEXT, ImmutableList.of(appConfig2), null).isEmpty());
+    }
+
+    @Test
+    public void unversionedEntitiesAreNotCached() {
+        AppConfig appConfig = appConfig("guid", null, "group1");
+        List<AppConfig> appConfigs = ImmutableList.of(appConfig);
+        assertEquals(cache.filterByCriteria(TEST_APP_ID, CONTEXT, appConfigs, null), appConfigs);
+
+        appConfig.getCriteria().setAllOfGroups(ImmutableSet.of("group2"));
+        assertTrue(cache.filterByCriteria(TEST_APP_ID, CONTEXT, appConfigs, null).isEmpty());
+    }
+
+    private AppConfig appConfig(String guid, Long version, String requiredGroup) {
+        Criteria criteria = Criteria.create();
+        criteria.setAllOfGroups(ImmutableSet.of(requiredGroup));
+
+        AppConfig appConfig = AppConfig.create();
+        appConfig.setGuid(guid);
+        appConfig.setVersion(version);
+        appConfig.setCriteria(criteria);
+        return appConfig;
+    }
+}
@@ -20,6 +20,7 @@ import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 public class ForwardCursorPagedResourceListTest {
@@ -130,6 +131,15 @@ public class ForwardCursorPagedResourceListTest {
         assertNull(node.get("total"));
     }
     
+    @Test
+    public void totalWhenProvided() {
+        ForwardCursorPagedResourceList<String> page = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of("a", "b"), "nextOffsetKey", true).withTotal(20);
+        
+        JsonNode node = BridgeObjectMapper.get().valueToTree(page);
+        assertEquals(node.get("total").intValue(), 20);
+    }
+    
     @Test
     public void hasNext() {
         ForwardCursorPagedResourceList<AccountSummary> list;
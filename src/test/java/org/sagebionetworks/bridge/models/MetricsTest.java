@@ -7,6 +7,7 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import org.joda.time.DateTime;
@@ -50,6 +51,31 @@ public class MetricsTest {
         assertEquals(metricsNode.get("version").intValue(), 1);
     }
 
+    @Test
+    public void setSessionStages() {
+        Metrics metrics = new Metrics("12345");
+        metrics.setSessionStages(ImmutableMap.of("participant", 2L, "consentStatuses", 10L));
+        
+        JsonNode stages = metrics.getJson().get("session_stages");
+        assertEquals(stages.get("participant").longValue(), 2L);
+        assertEquals(stages.get("consentStatuses").longValue(), 10L);
+    }
+    
+    @Test
+    public void setSessionStagesEmpty() {
+        Metrics metrics = new Metrics("12345");
+        metrics.setSessionStages(ImmutableMap.of());
+        assertFalse(metrics.getJson().has("session_stages"));
+    }
+    
+    @Test
+    public void setPasswordHash() {
+        Metrics metrics = new Metrics("12345");
+        metrics.setPasswordHash(3L, 250L);
+        assertEquals(metrics.getJson().get("password_hash_queue_millis").longValue(), 3L);
+        assertEquals(metrics.getJson().get("password_hash_millis").longValue(), 250L);
+    }
+    
     @Test
     public void testTimingMetrics() {
         // Mock start and test.
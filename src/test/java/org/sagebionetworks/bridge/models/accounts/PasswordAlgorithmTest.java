@@ -1,5 +1,6 @@
 package org.sagebionetworks.bridge.models.accounts;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -30,6 +31,38 @@ public class PasswordAlgorithmTest {
         test(PasswordAlgorithm.PBKDF2_HMAC_SHA_256);
     }
 
+    @Test
+    public void pbkdf2WithIterations() throws Exception {
+        String hash = PasswordAlgorithm.PBKDF2_HMAC_SHA_256.generateHash(TEST_PASSWORD, 1000);
+        assertEquals(hash.split("\\$")[0], "1000");
+        assertTrue(PasswordAlgorithm.PBKDF2_HMAC_SHA_256.checkHash(hash, TEST_PASSWORD));
+        assertFalse(PasswordAlgorithm.PBKDF2_HMAC_SHA_256.checkHash(hash, WRONG_PASSWORD));
+    }
+
+    @Test
+    public void bcryptWithCost() throws Exception {
+        String hash = PasswordAlgorithm.BCRYPT.generateHash(TEST_PASSWORD, 4);
+        assertTrue(hash.contains("$04$"));
+        assertTrue(PasswordAlgorithm.BCRYPT.checkHash(hash, TEST_PASSWORD));
+        assertFalse(PasswordAlgorithm.BCRYPT.checkHash(hash, WRONG_PASSWORD));
+    }
+
+    @Test
+    public void stormpathPbkdf2DoubleHashWithIterations() throws Exception {
+        String hash = PasswordAlgorithm.STORMPATH_PBKDF2_DOUBLE_HASH.generateHash(TEST_PASSWORD, 1000);
+        assertEquals(hash.split("\\$")[0], "1000");
+        assertTrue(PasswordAlgorithm.STORMPATH_PBKDF2_DOUBLE_HASH.checkHash(hash, TEST_PASSWORD));
+        assertFalse(PasswordAlgorithm.STORMPATH_PBKDF2_DOUBLE_HASH.checkHash(hash, WRONG_PASSWORD));
+    }
+
+    @Test
+    public void stormpathWithCostIgnoresCost() throws Exception {
+        String hash = PasswordAlgorithm.STORMPATH_HMAC_SHA_256.generateHash(TEST_PASSWORD, 1000);
+        assertTrue(hash.startsWith("$stormpath1$"));
+        assertTrue(PasswordAlgorithm.STORMPATH_HMAC_SHA_256.checkHash(hash, TEST_PASSWORD));
+        assertFalse(PasswordAlgorithm.STORMPATH_HMAC_SHA_256.checkHash(hash, WRONG_PASSWORD));
+    }
+
     private static void test(PasswordAlgorithm passwordAlgorithm) throws Exception {
         String hash = passwordAlgorithm.generateHash(TEST_PASSWORD);
         assertTrue(StringUtils.isNotBlank(hash));
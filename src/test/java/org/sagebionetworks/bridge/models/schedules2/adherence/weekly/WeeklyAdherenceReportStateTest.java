@@ -0,0 +1,52 @@
+package org.sagebionetworks.bridge.models.schedules2.adherence.weekly;
+
+import static org.sagebionetworks.bridge.TestConstants.CREATED_ON;
+import static org.sagebionetworks.bridge.TestConstants.MODIFIED_ON;
+import static org.sagebionetworks.bridge.TestConstants.TEST_CLIENT_TIME_ZONE;
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
+
+public class WeeklyAdherenceReportStateTest {
+    
+    @Test
+    public void hashCodeEquals() {
+        EqualsVerifier.forClass(WeeklyAdherenceReportState.class).suppress(Warning.NONFINAL_FIELDS)
+                .allFieldsShouldBeUsed().verify();
+    }
+    
+    @Test
+    public void canSerialize() throws Exception {
+        WeeklyAdherenceReportState state = new WeeklyAdherenceReportState();
+        state.setStudyModifiedOn(CREATED_ON.getMillis());
+        state.setAccountModifiedOn(MODIFIED_ON.getMillis());
+        state.setScheduleModifiedOn(CREATED_ON.getMillis());
+        state.setEventsModifiedOn(MODIFIED_ON.getMillis());
+        state.setAdherenceRecordsModifiedOn(MODIFIED_ON.getMillis());
+        state.setClientTimeZone(TEST_CLIENT_TIME_ZONE);
+        state.setLocalDate("2022-06-01");
+        state.setSignedIn(true);
+        
+        JsonNode node = BridgeObjectMapper.get().valueToTree(state);
+        assertEquals(node.get("studyModifiedOn").longValue(), CREATED_ON.getMillis());
+        assertEquals(node.get("accountModifiedOn").longValue(), MODIFIED_ON.getMillis());
+        assertEquals(node.get("scheduleModifiedOn").longValue(), CREATED_ON.getMillis());
+        assertEquals(node.get("eventsModifiedOn").longValue(), MODIFIED_ON.getMillis());
+        assertEquals(node.get("adherenceRecordsModifiedOn").longValue(), MODIFIED_ON.getMillis());
+        assertEquals(node.get("clientTimeZone").textValue(), TEST_CLIENT_TIME_ZONE);
+        assertEquals(node.get("localDate").textValue(), "2022-06-01");
+        assertEquals(node.get("signedIn").booleanValue(), true);
+        assertEquals(node.get("type").textValue(), "WeeklyAdherenceReportState");
+        
+        WeeklyAdherenceReportState deser = BridgeObjectMapper.get().readValue(node.toString(),
+                WeeklyAdherenceReportState.class);
+        assertEquals(deser, state);
+    }
+}
@@ -35,6 +35,7 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -66,6 +67,7 @@ import org.sagebionetworks.bridge.dao.AccountSecretDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.ReportTypeResourceList;
 import org.sagebionetworks.bridge.models.accounts.Account;
@@ -75,6 +77,7 @@ import org.sagebionetworks.bridge.models.accounts.AccountSummary;
 import org.sagebionetworks.bridge.models.accounts.ExternalIdentifierInfo;
 import org.sagebionetworks.bridge.models.accounts.Phone;
 import org.sagebionetworks.bridge.models.activities.StudyActivityEvent;
+import org.sagebionetworks.bridge.models.schedules2.adherence.AdherenceRecord;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.reports.ReportIndex;
 import org.sagebionetworks.bridge.models.reports.ReportType;
@@ -446,6 +449,20 @@ public class AccountServiceTest extends Mockito {
         verify(mockParticipantVersionService).createParticipantVersionFromAccount(same(account));
     }
     
+    @Test
+    public void editLoadedAccount() throws Exception {
+        Account account = Account.create();
+        account.setAppId(TEST_APP_ID);
+        account.setId(TEST_USER_ID);
+        
+        service.editLoadedAccount(account, mockConsumer);
+        
+        verify(mockConsumer).accept(account);
+        verify(mockAccountDao, never()).getAccount(any());
+        verify(mockAccountDao).updateAccount(account);
+        verify(mockParticipantVersionService).createParticipantVersionFromAccount(same(account));
+    }
+    
     @Test
     public void editAccountWhenAccountNotFound() throws Exception {
         try {
@@ -495,6 +512,18 @@ public class AccountServiceTest extends Mockito {
         verify(mockAccountDao).getPagedAccountSummaries(TEST_APP_ID, EMPTY_SEARCH);
     }
 
+    @Test
+    public void getAccountSummariesByCursor() {
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of(), null, true);
+        when(mockAccountDao.getAccountSummariesByCursor(TEST_APP_ID, EMPTY_SEARCH, "offsetKey", false))
+                .thenReturn(page);
+
+        ForwardCursorPagedResourceList<AccountSummary> returnVal = service.getAccountSummariesByCursor(TEST_APP_ID,
+                EMPTY_SEARCH, "offsetKey", false);
+        assertSame(returnVal, page);
+    }
+
     @Test
     public void getAccountHealthCode() throws Exception {
         Account account = mockGetAccountById(ACCOUNT_ID, false);
@@ -807,6 +836,33 @@ public class AccountServiceTest extends Mockito {
         RequestContext.set(null);
     }
     
+    @Test
+    public void getAccounts() throws Exception {
+        Account persistedAccount = mockGetAccountById(ACCOUNT_ID, false);
+        when(mockAccountDao.getAccounts(TEST_APP_ID, ImmutableSet.of(TEST_USER_ID)))
+                .thenReturn(ImmutableList.of(persistedAccount));
+
+        List<Account> retValue = service.getAccounts(TEST_APP_ID, ImmutableSet.of(TEST_USER_ID));
+        assertEquals(retValue, ImmutableList.of(persistedAccount));
+    }
+
+    @Test
+    public void getAccountsFiltersStudies() throws Exception {
+        Account persistedAccount = mockGetAccountById(ACCOUNT_ID, false);
+        persistedAccount.setEnrollments(Sets.newHashSet(ACCOUNT_ENROLLMENTS));
+        when(mockAccountDao.getAccounts(TEST_APP_ID, ImmutableSet.of(TEST_USER_ID)))
+                .thenReturn(ImmutableList.of(persistedAccount));
+
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId(OTHER_USER_ID)
+                .withOrgSponsoredStudies(ImmutableSet.of(STUDY_B)).build());
+
+        List<Account> retValue = service.getAccounts(TEST_APP_ID, ImmutableSet.of(TEST_USER_ID));
+        assertTrue(retValue.isEmpty());
+
+        RequestContext.set(null);
+    }
+
     @Test
     public void getAccountNoFilter() throws Exception {
         Account persistedAccount = mockGetAccountById(ACCOUNT_ID, true);
@@ -1026,6 +1082,7 @@ public class AccountServiceTest extends Mockito {
         verify(mockAccountDao).deleteAccount(TEST_USER_ID);
         verify(mockCacheProvider).removeObject(CacheKey.etag(DateTimeZone.class, TEST_USER_ID));
         verify(mockCacheProvider).removeObject(CacheKey.etag(StudyActivityEvent.class, TEST_USER_ID));
+        verify(mockCacheProvider).removeObject(CacheKey.etag(AdherenceRecord.class, TEST_USER_ID));
 
         verify(mockReportService).getReportIndices(TEST_APP_ID, ReportType.PARTICIPANT);
         verify(mockReportService).deleteParticipantReport(TEST_APP_ID, TEST_USER_ID, REPORT_ID_1, HEALTH_CODE);
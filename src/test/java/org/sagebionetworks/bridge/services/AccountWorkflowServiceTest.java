@@ -54,6 +54,8 @@ import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.RateLimit;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -139,6 +141,9 @@ public class AccountWorkflowServiceTest extends Mockito {
     @Mock
     private TemplateService mockTemplateService;
     
+    @Mock
+    private TokenBucketRateLimiter mockRateLimiter;
+    
     @Mock
     private Account mockAccount;
     
@@ -210,6 +215,20 @@ public class AccountWorkflowServiceTest extends Mockito {
             return null;
         }).when(mockCacheProvider).removeObject(any());
 
+        // Mock rate limiter to allow the maximum number of requests for each key.
+        Map<CacheKey, Long> consumedTokens = new HashMap<>();
+        when(mockRateLimiter.tryConsume(any(), any(), anyLong())).thenAnswer(invocation -> {
+            CacheKey cacheKey = invocation.getArgument(0);
+            RateLimit rateLimit = invocation.getArgument(1);
+            long tokens = invocation.getArgument(2);
+            long consumed = consumedTokens.getOrDefault(cacheKey, 0L);
+            if (consumed + tokens > rateLimit.getMaximumTokens()) {
+                return false;
+            }
+            consumedTokens.put(cacheKey, consumed + tokens);
+            return true;
+        });
+
         // Add params to mock account.
         when(mockAccount.getId()).thenReturn(USER_ID);
         when(service.getDateTimeInMillis()).thenReturn(TIMESTAMP.getMillis());
@@ -262,8 +281,7 @@ public class AccountWorkflowServiceTest extends Mockito {
         assertEquals(email.getType(), EmailType.VERIFY_EMAIL);
 
         // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(VERIFY_EMAIL_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(VERIFY_EMAIL_THROTTLE_CACHE_KEY), any(), anyInt());
+        verify(mockRateLimiter).tryConsume(VERIFY_EMAIL_THROTTLE_CACHE_KEY, rateLimit("verify_email"), 1);
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -312,8 +330,7 @@ public class AccountWorkflowServiceTest extends Mockito {
         assertTrue(message.contains("012-345"));
 
         // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(VERIFY_PHONE_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(VERIFY_PHONE_THROTTLE_CACHE_KEY), any(), anyInt());
+        verify(mockRateLimiter).tryConsume(VERIFY_PHONE_THROTTLE_CACHE_KEY, rateLimit("verify_phone"), 1);
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -969,8 +986,7 @@ public class AccountWorkflowServiceTest extends Mockito {
         assertEquals(provider.getType(), EmailType.EMAIL_SIGN_IN);
 
         // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(EMAIL_SIGNIN_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(EMAIL_SIGNIN_THROTTLE_CACHE_KEY), any(), anyInt());
+        verify(mockRateLimiter).tryConsume(EMAIL_SIGNIN_THROTTLE_CACHE_KEY, rateLimit("email_signin"), 1);
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -1109,8 +1125,7 @@ public class AccountWorkflowServiceTest extends Mockito {
         assertEquals(message, "Enter 123-456 to sign in to AppName");
 
         // Verify throttling cache calls.
-        verify(mockCacheProvider).getObject(PHONE_SIGNIN_THROTTLE_CACHE_KEY, Integer.class);
-        verify(mockCacheProvider).setObject(eq(PHONE_SIGNIN_THROTTLE_CACHE_KEY), any(), anyInt());
+        verify(mockRateLimiter).tryConsume(PHONE_SIGNIN_THROTTLE_CACHE_KEY, rateLimit("phone_signin"), 1);
 
         verifyNoMoreInteractions(mockCacheProvider);
     }
@@ -1251,4 +1266,8 @@ public class AccountWorkflowServiceTest extends Mockito {
         when(mockAppService.getApp(TEST_APP_ID)).thenReturn(app);
         return account;
     }
+
+    private static RateLimit rateLimit(String name) {
+        return new RateLimit(name, 2, 2, 300, 2);
+    }
 }
@@ -44,8 +44,10 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -55,6 +57,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -84,6 +87,8 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.AdherenceRecordDao;
 import org.sagebionetworks.bridge.dao.AdherenceReportDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -111,6 +116,7 @@ import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdheren
 import org.sagebionetworks.bridge.models.schedules2.adherence.study.StudyAdherenceReportGeneratorTest;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.NextActivity;
 import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReport;
+import org.sagebionetworks.bridge.models.schedules2.adherence.weekly.WeeklyAdherenceReportState;
 import org.sagebionetworks.bridge.models.schedules2.timelines.MetadataContainer;
 import org.sagebionetworks.bridge.models.schedules2.timelines.Scheduler;
 import org.sagebionetworks.bridge.models.schedules2.timelines.Timeline;
@@ -150,6 +156,12 @@ public class AdherenceServiceTest extends Mockito {
     @Mock
     AlertService alertService;
     
+    @Mock
+    CacheProvider mockCacheProvider;
+    
+    @Mock
+    AccountService mockAccountService;
+    
     @Captor
     ArgumentCaptor<AdherenceRecordsSearch> searchCaptor;
     
@@ -164,6 +176,9 @@ public class AdherenceServiceTest extends Mockito {
 
     @Captor
     ArgumentCaptor<Alert> alertCaptor;
+    
+    @Captor
+    ArgumentCaptor<WeeklyAdherenceReportState> stateCaptor;
 
     @InjectMocks
     @Spy
@@ -199,6 +214,8 @@ public class AdherenceServiceTest extends Mockito {
         assertEquals(recordCaptor.getAllValues().get(1).getInstanceGuid(), "BBB");
         assertEquals(recordCaptor.getAllValues().get(2).getInstanceGuid(), "sessionInstanceGuid");
         
+        verify(mockCacheProvider).setObject(CacheKey.etag(AdherenceRecord.class, TEST_USER_ID), MODIFIED_ON);
+        
         // Nothing is finished, nothing is published.
         verify(mockStudyActivityEventService, never()).publishEvent(any(), eq(false), eq(true));
     }
@@ -768,6 +785,7 @@ public class AdherenceServiceTest extends Mockito {
 
         verify(mockRecordDao).deleteAdherenceRecordPermanently(eq(record));
         assertEquals(record.getInstanceTimestamp(), record.getStartedOn());
+        verify(mockCacheProvider).setObject(CacheKey.etag(AdherenceRecord.class, TEST_USER_ID), MODIFIED_ON);
     }
 
     @Test
@@ -799,6 +817,7 @@ public class AdherenceServiceTest extends Mockito {
 
         verifyZeroInteractions(mockRecordDao);
         assertNull(record.getInstanceTimestamp());
+        verifyZeroInteractions(mockCacheProvider);
     }
 
     @Test(expectedExceptions = UnauthorizedException.class)
@@ -915,7 +934,7 @@ public class AdherenceServiceTest extends Mockito {
         assertEquals(retValue.getStudyId(), TEST_STUDY_ID);
         assertEquals(retValue.getUserId(), TEST_USER_ID);
         assertEquals(retValue.getClientTimeZone(), TEST_CLIENT_TIME_ZONE);
-        assertEquals(retValue.getCreatedOn(), MODIFIED_ON.withZone(DateTimeZone.forID(TEST_CLIENT_TIME_ZONE)));
+        assertEquals(retValue.getCreatedOn(), MODIFIED_ON);
         assertNull(retValue.getWeeklyAdherencePercent());
         assertEquals(retValue.getParticipant().getIdentifier(), TEST_USER_ID);
         assertEquals(retValue.getParticipant().getFirstName(), "firstName");
@@ -968,7 +987,7 @@ public class AdherenceServiceTest extends Mockito {
         assertEquals(retValue.getStudyId(), TEST_STUDY_ID);
         assertEquals(retValue.getUserId(), TEST_USER_ID);
         assertEquals(retValue.getClientTimeZone(), TEST_CLIENT_TIME_ZONE);
-        assertEquals(retValue.getCreatedOn(), MODIFIED_ON.withZone(DateTimeZone.forID(TEST_CLIENT_TIME_ZONE)));
+        assertEquals(retValue.getCreatedOn(), MODIFIED_ON);
         assertNull(retValue.getWeeklyAdherencePercent());
         assertEquals(retValue.getParticipant().getIdentifier(), TEST_USER_ID);
         assertEquals(retValue.getParticipant().getFirstName(), "firstName");
@@ -1224,6 +1243,332 @@ public class AdherenceServiceTest extends Mockito {
         verifyZeroInteractions(alertService);
     }
 
+    @Test
+    public void getWeeklyAdherenceReportsForWorker() {
+        service.setAdherenceReportExecutorService(MoreExecutors.newDirectExecutorService());
+        
+        Study study = Study.create();
+        study.setIdentifier(TEST_STUDY_ID);
+        study.setScheduleGuid(SCHEDULE_GUID);
+        study.setAdherenceThresholdPercentage(60);
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        
+        Schedule2 schedule = new Schedule2();
+        when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        
+        TimelineMetadata meta = new TimelineMetadata();
+        meta.setGuid("sessionInstanceGuid");
+        meta.setSessionStartEventId("enrollment");
+        List<TimelineMetadata> metadata = ImmutableList.of(meta);
+        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(metadata);
+        
+        List<StudyActivityEvent> eventsA = ImmutableList.of(createEvent("enrollment", CREATED_ON, 1));
+        when(mockStudyActivityEventService.getPersistedRecentStudyActivityEvents(TEST_STUDY_ID, 
+                ImmutableSet.of("userA", "userB", "userC"))).thenReturn(ImmutableMap.of("userA", eventsA));
+        List<AdherenceRecord> recordsB = ImmutableList.of(new AdherenceRecord());
+        when(mockRecordDao.getSessionAdherenceRecords(TEST_STUDY_ID, ImmutableSet.of("userA", "userB", "userC")))
+                .thenReturn(ImmutableMap.of("userB", recordsB));
+        
+        // The account for userC does not exist
+        Account accountA = Account.create();
+        accountA.setId("userA");
+        Account accountB = Account.create();
+        accountB.setId("userB");
+        when(mockAccountService.getAccounts(TEST_APP_ID, ImmutableSet.of("userA", "userB", "userC")))
+                .thenReturn(ImmutableList.of(accountA, accountB));
+        
+        WeeklyAdherenceReport reportA = new WeeklyAdherenceReport();
+        reportA.setUserId("userA");
+        reportA.setWeeklyAdherencePercent(50);
+        WeeklyAdherenceReport reportB = new WeeklyAdherenceReport();
+        reportB.setUserId("userB");
+        reportB.setWeeklyAdherencePercent(80);
+        doReturn(reportA).when(service).calculateWeeklyAdherenceReport(eq(TEST_APP_ID), eq(study), eq(schedule),
+                eq(metadata), eq(ImmutableMap.of("sessionInstanceGuid", "enrollment")), same(accountA),
+                eq(MODIFIED_ON), eq(eventsA), isNull());
+        doReturn(reportB).when(service).calculateWeeklyAdherenceReport(eq(TEST_APP_ID), eq(study), eq(schedule),
+                eq(metadata), any(), same(accountB), eq(MODIFIED_ON), isNull(), eq(recordsB));
+        
+        List<WeeklyAdherenceReport> retValue = service.getWeeklyAdherenceReportsForWorker(TEST_APP_ID,
+                TEST_STUDY_ID, ImmutableList.of("userA", "userB", "userC", "userA"));
+        assertEquals(retValue, ImmutableList.of(reportA, reportB));
+        
+        verify(mockReportDao).saveWeeklyAdherenceReports(ImmutableList.of(reportA, reportB));
+        verify(mockStudyService, times(1)).getStudy(TEST_APP_ID, TEST_STUDY_ID, true);
+        verify(mockScheduleService, times(1)).getScheduleMetadata(SCHEDULE_GUID);
+        verify(mockAccountService, never()).getAccount(any());
+        
+        verify(alertService).createAlert(alertCaptor.capture());
+        Alert alert = alertCaptor.getValue();
+        assertEquals(alert.getAppId(), TEST_APP_ID);
+        assertEquals(alert.getStudyId(), TEST_STUDY_ID);
+        assertEquals(alert.getUserId(), "userA");
+        assertEquals(alert.getCategory(), AlertCategory.LOW_ADHERENCE);
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void getWeeklyAdherenceReportsForWorker_noUserIds() {
+        service.getWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID, ImmutableList.of());
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void getWeeklyAdherenceReportsForWorker_tooManyUserIds() {
+        List<String> userIds = new ArrayList<>();
+        for (int i=0; i <= BridgeConstants.API_MAXIMUM_PAGE_SIZE; i++) {
+            userIds.add("user" + i);
+        }
+        service.getWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID, userIds);
+    }
+    
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void getWeeklyAdherenceReportsForWorker_noSchedule() {
+        Study study = Study.create();
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        
+        service.getWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID, ImmutableList.of(TEST_USER_ID));
+    }
+    
+    @Test
+    public void getWeeklyAdherenceReportsForWorker_failureIsRethrown() {
+        service.setAdherenceReportExecutorService(MoreExecutors.newDirectExecutorService());
+        
+        Study study = Study.create();
+        study.setScheduleGuid(SCHEDULE_GUID);
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID))
+                .thenReturn(Optional.of(new Schedule2()));
+        when(mockScheduleService.getScheduleMetadata(SCHEDULE_GUID)).thenReturn(ImmutableList.of());
+        when(mockStudyActivityEventService.getPersistedRecentStudyActivityEvents(any(), any()))
+                .thenReturn(ImmutableMap.of());
+        when(mockRecordDao.getSessionAdherenceRecords(any(), any())).thenReturn(ImmutableMap.of());
+        Account account = Account.create();
+        account.setId(TEST_USER_ID);
+        when(mockAccountService.getAccounts(any(), any())).thenReturn(ImmutableList.of(account));
+        
+        doThrow(new EntityNotFoundException(Schedule2.class)).when(service).calculateWeeklyAdherenceReport(any(),
+                any(), any(), any(), any(), any(), any(), any(), any());
+        
+        try {
+            service.getWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID, ImmutableList.of(TEST_USER_ID));
+            fail("Should have thrown exception");
+        } catch (EntityNotFoundException e) {
+        }
+        verify(mockReportDao, never()).saveWeeklyAdherenceReports(any());
+    }
+    
+    @Test
+    public void calculateWeeklyAdherenceReport() {
+        Account account = Account.create();
+        account.setAppId(TEST_APP_ID);
+        account.setId(TEST_USER_ID);
+        account.setFirstName("firstName");
+        account.setDataGroups(ImmutableSet.of(BridgeConstants.TEST_USER_GROUP));
+        account.getEnrollments().add(Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID, TEST_EXTERNAL_ID));
+        
+        Study study = Study.create();
+        study.setIdentifier(TEST_STUDY_ID);
+        study.setStudyTimeZone(TEST_CLIENT_TIME_ZONE);
+        study.setStudyStartEventId("enrollment");
+        // The zone is chosen the same way it is for a single participant, without loading the study again.
+        when(mockStudyService.getZoneId(study, null)).thenReturn(TEST_CLIENT_TIME_ZONE);
+        
+        Schedule2 schedule = createValidSchedule();
+        List<TimelineMetadata> metadata = Scheduler.INSTANCE.calculateTimeline(schedule).getMetadata();
+        
+        List<StudyActivityEvent> persistedEvents = ImmutableList.of(createEvent("enrollment", CREATED_ON, 1));
+        List<AdherenceRecord> persistedRecords = ImmutableList.of(new AdherenceRecord());
+        Map<String, String> startEventIds = ImmutableMap.of();
+        
+        when(mockRequestInfoService.getRequestInfo(TEST_USER_ID)).thenReturn(
+                new RequestInfo.Builder().withSignedInOn(CREATED_ON).build());
+        
+        WeeklyAdherenceReport retValue = service.calculateWeeklyAdherenceReport(TEST_APP_ID, study, schedule,
+                metadata, startEventIds, account, MODIFIED_ON, persistedEvents, persistedRecords);
+        assertEquals(retValue.getAppId(), TEST_APP_ID);
+        assertEquals(retValue.getStudyId(), TEST_STUDY_ID);
+        assertEquals(retValue.getUserId(), TEST_USER_ID);
+        assertEquals(retValue.getClientTimeZone(), TEST_CLIENT_TIME_ZONE);
+        assertEquals(retValue.getCreatedOn(), MODIFIED_ON);
+        assertTrue(retValue.isTestAccount());
+        assertEquals(retValue.getParticipant().getFirstName(), "firstName");
+        assertEquals(retValue.getParticipant().getExternalId(), TEST_EXTERNAL_ID);
+        
+        // The persisted events are copied so the synthetic events can be added to them
+        verify(mockStudyActivityEventService).completeRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID,
+                account, persistedEvents);
+        verify(service).getCurrentAdherenceRecords(persistedRecords, persistedEvents, startEventIds);
+        // Reports are saved in a batch by the caller
+        verify(mockReportDao, never()).saveWeeklyAdherenceReport(any());
+    }
+    
+    @Test
+    public void getCurrentAdherenceRecords() {
+        DateTime otherTimestamp = CREATED_ON.plusDays(2);
+        List<StudyActivityEvent> events = ImmutableList.of(createEvent("enrollment", CREATED_ON, 1),
+                createEvent("custom:event1", otherTimestamp, 2));
+        Map<String, String> startEventIds = ImmutableMap.of("guid1", "enrollment", "guid2", "custom:event1",
+                "guid3", "custom:event2");
+        
+        AdherenceRecord current1 = new AdherenceRecord();
+        current1.setInstanceGuid("guid1");
+        // Same instant in a different zone
+        current1.setEventTimestamp(CREATED_ON.withZone(DateTimeZone.forID(TEST_CLIENT_TIME_ZONE)));
+        AdherenceRecord current2 = new AdherenceRecord();
+        current2.setInstanceGuid("guid2");
+        current2.setEventTimestamp(otherTimestamp);
+        AdherenceRecord previousTimestamp = new AdherenceRecord();
+        previousTimestamp.setInstanceGuid("guid2");
+        previousTimestamp.setEventTimestamp(CREATED_ON);
+        AdherenceRecord eventMissing = new AdherenceRecord();
+        eventMissing.setInstanceGuid("guid3");
+        eventMissing.setEventTimestamp(CREATED_ON);
+        AdherenceRecord notInSchedule = new AdherenceRecord();
+        notInSchedule.setInstanceGuid("guid4");
+        notInSchedule.setEventTimestamp(CREATED_ON);
+        
+        List<AdherenceRecord> retValue = service.getCurrentAdherenceRecords(ImmutableList.of(current1,
+                previousTimestamp, current2, eventMissing, notInSchedule), events, startEventIds);
+        assertEquals(retValue, ImmutableList.of(current1, current2));
+        
+        assertTrue(service.getCurrentAdherenceRecords(null, events, startEventIds).isEmpty());
+    }
+
+    @Test
+    public void getWeeklyAdherenceReportForWorker_reusesUnchangedReport() {
+        Account account = mockIncrementalReport();
+        
+        // The first time, there is no persisted state and the report is generated
+        WeeklyAdherenceReport generated = new WeeklyAdherenceReport();
+        doReturn(generated).when(service).generateWeeklyAdherenceReport(
+                TEST_APP_ID, TEST_STUDY_ID, account, MODIFIED_ON, TEST_CLIENT_TIME_ZONE);
+        
+        WeeklyAdherenceReport retValue = service.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, account);
+        assertSame(retValue, generated);
+        
+        CacheKey stateKey = CacheKey.weeklyAdherenceReportState(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        verify(mockCacheProvider).setObject(eq(stateKey), stateCaptor.capture(),
+                eq(BridgeConstants.WEEKLY_ADHERENCE_STATE_EXPIRE_IN_SECONDS));
+        WeeklyAdherenceReportState state = stateCaptor.getValue();
+        assertEquals(state.getStudyModifiedOn(), Long.valueOf(CREATED_ON.getMillis()));
+        assertEquals(state.getAccountModifiedOn(), Long.valueOf(MODIFIED_ON.getMillis()));
+        assertEquals(state.getScheduleModifiedOn(), Long.valueOf(CREATED_ON.getMillis()));
+        assertEquals(state.getEventsModifiedOn(), Long.valueOf(EVENT_TS.getMillis()));
+        assertEquals(state.getAdherenceRecordsModifiedOn(), Long.valueOf(UPLOADED_ON.getMillis()));
+        assertEquals(state.getClientTimeZone(), TEST_CLIENT_TIME_ZONE);
+        assertEquals(state.getLocalDate(), 
+                MODIFIED_ON.withZone(DateTimeZone.forID(TEST_CLIENT_TIME_ZONE)).toLocalDate().toString());
+        assertTrue(state.isSignedIn());
+        
+        // The second time, nothing has changed and the persisted report is returned
+        when(mockCacheProvider.getObject(stateKey, WeeklyAdherenceReportState.class)).thenReturn(state);
+        WeeklyAdherenceReport persisted = new WeeklyAdherenceReport();
+        when(mockReportDao.getWeeklyAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID)).thenReturn(persisted);
+        
+        retValue = service.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, account);
+        assertSame(retValue, persisted);
+        
+        verify(service, times(1)).generateWeeklyAdherenceReport(any(), any(), any(), any(), any());
+    }
+    
+    @Test
+    public void getWeeklyAdherenceReportForWorker_regeneratesChangedReport() {
+        Account account = mockIncrementalReport();
+        
+        WeeklyAdherenceReportState previous = new WeeklyAdherenceReportState();
+        previous.setEventsModifiedOn(CREATED_ON.getMillis());
+        CacheKey stateKey = CacheKey.weeklyAdherenceReportState(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        when(mockCacheProvider.getObject(stateKey, WeeklyAdherenceReportState.class)).thenReturn(previous);
+        
+        WeeklyAdherenceReport generated = new WeeklyAdherenceReport();
+        doReturn(generated).when(service).generateWeeklyAdherenceReport(
+                TEST_APP_ID, TEST_STUDY_ID, account, MODIFIED_ON, TEST_CLIENT_TIME_ZONE);
+        
+        WeeklyAdherenceReport retValue = service.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, account);
+        assertSame(retValue, generated);
+        
+        verify(mockReportDao, never()).getWeeklyAdherenceReport(any(), any(), any());
+        verify(mockCacheProvider).setObject(eq(stateKey), any(WeeklyAdherenceReportState.class), 
+                eq(BridgeConstants.WEEKLY_ADHERENCE_STATE_EXPIRE_IN_SECONDS));
+    }
+    
+    @Test
+    public void getWeeklyAdherenceReportForWorker_regeneratesMissingReport() {
+        Account account = mockIncrementalReport();
+        
+        WeeklyAdherenceReportState state = service.getWeeklyAdherenceReportState(
+                TEST_APP_ID, TEST_STUDY_ID, account, MODIFIED_ON, TEST_CLIENT_TIME_ZONE);
+        CacheKey stateKey = CacheKey.weeklyAdherenceReportState(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        when(mockCacheProvider.getObject(stateKey, WeeklyAdherenceReportState.class)).thenReturn(state);
+        
+        WeeklyAdherenceReport generated = new WeeklyAdherenceReport();
+        doReturn(generated).when(service).generateWeeklyAdherenceReport(
+                TEST_APP_ID, TEST_STUDY_ID, account, MODIFIED_ON, TEST_CLIENT_TIME_ZONE);
+        
+        WeeklyAdherenceReport retValue = service.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, account);
+        assertSame(retValue, generated);
+        
+        verify(mockReportDao).getWeeklyAdherenceReport(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+    }
+    
+    @Test
+    public void getWeeklyAdherenceReportForWorker_seedsMissingTimestamps() {
+        Account account = mockIncrementalReport();
+        when(mockCacheProvider.getObjects(any(), eq(DateTime.class)))
+            .thenReturn(Arrays.asList(CREATED_ON, null, UPLOADED_ON));
+        
+        WeeklyAdherenceReport generated = new WeeklyAdherenceReport();
+        doReturn(generated).when(service).generateWeeklyAdherenceReport(
+                TEST_APP_ID, TEST_STUDY_ID, account, MODIFIED_ON, TEST_CLIENT_TIME_ZONE);
+        
+        WeeklyAdherenceReport retValue = service.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, account);
+        assertSame(retValue, generated);
+        
+        verify(mockCacheProvider).setObject(CacheKey.etag(StudyActivityEvent.class, TEST_USER_ID), MODIFIED_ON);
+        verify(mockCacheProvider, never()).setObject(CacheKey.etag(Schedule2.class, TEST_APP_ID, TEST_STUDY_ID),
+                MODIFIED_ON);
+        verify(mockCacheProvider, never()).setObject(CacheKey.etag(AdherenceRecord.class, TEST_USER_ID), MODIFIED_ON);
+        
+        CacheKey stateKey = CacheKey.weeklyAdherenceReportState(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        verify(mockCacheProvider).setObject(eq(stateKey), stateCaptor.capture(),
+                eq(BridgeConstants.WEEKLY_ADHERENCE_STATE_EXPIRE_IN_SECONDS));
+        WeeklyAdherenceReportState state = stateCaptor.getValue();
+        assertEquals(state.getScheduleModifiedOn(), Long.valueOf(CREATED_ON.getMillis()));
+        assertEquals(state.getEventsModifiedOn(), Long.valueOf(MODIFIED_ON.getMillis()));
+        assertEquals(state.getAdherenceRecordsModifiedOn(), Long.valueOf(UPLOADED_ON.getMillis()));
+    }
+    
+    @Test
+    public void getWeeklyAdherenceReportState_notSignedIn() {
+        Account account = mockIncrementalReport();
+        when(mockRequestInfoService.getRequestInfo(TEST_USER_ID)).thenReturn(null);
+        
+        WeeklyAdherenceReportState state = service.getWeeklyAdherenceReportState(
+                TEST_APP_ID, TEST_STUDY_ID, account, MODIFIED_ON, TEST_CLIENT_TIME_ZONE);
+        assertFalse(state.isSignedIn());
+    }
+    
+    private Account mockIncrementalReport() {
+        Account account = Account.create();
+        account.setAppId(TEST_APP_ID);
+        account.setId(TEST_USER_ID);
+        account.setModifiedOn(MODIFIED_ON);
+        
+        Study study = Study.create();
+        study.setModifiedOn(CREATED_ON);
+        when(mockStudyService.getStudy(TEST_APP_ID, TEST_STUDY_ID, true)).thenReturn(study);
+        when(mockStudyService.getZoneId(TEST_APP_ID, TEST_STUDY_ID, null)).thenReturn(TEST_CLIENT_TIME_ZONE);
+        
+        when(mockCacheProvider.getObjects(ImmutableList.of(
+                CacheKey.etag(Schedule2.class, TEST_APP_ID, TEST_STUDY_ID),
+                CacheKey.etag(StudyActivityEvent.class, TEST_USER_ID),
+                CacheKey.etag(AdherenceRecord.class, TEST_USER_ID)), DateTime.class))
+            .thenReturn(ImmutableList.of(CREATED_ON, EVENT_TS, UPLOADED_ON));
+        
+        RequestInfo info = new RequestInfo.Builder().withSignedInOn(MODIFIED_ON).build();
+        when(mockRequestInfoService.getRequestInfo(TEST_USER_ID)).thenReturn(info);
+        return account;
+    }
+    
     @Test
     public void getWeeklyAdherenceReports() {
         AdherenceReportSearch search = new AdherenceReportSearch();
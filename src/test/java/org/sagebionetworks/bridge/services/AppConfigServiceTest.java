@@ -8,10 +8,12 @@ import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.BridgeConstants.SHARED_APP_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.services.AppConfigService.RESOLVED_REFERENCES_EXPIRE_SECONDS;
 
 import java.util.List;
 import java.util.Optional;
@@ -31,6 +33,8 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestConstants;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.AppConfigDao;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
@@ -108,6 +112,9 @@ public class AppConfigServiceTest {
     @Mock
     private ReferenceResolver mockReferenceResolver;
     
+    @Mock
+    private CacheProvider mockCacheProvider;
+    
     @Captor
     private ArgumentCaptor<AppConfig> appConfigCaptor;
     
@@ -224,6 +231,75 @@ public class AppConfigServiceTest {
         assertEquals(retValue, appConfig2);
     }
     
+    @Test
+    public void getAppConfigForUserCachesResolvedReferences() {
+        CriteriaContext context = new CriteriaContext.Builder()
+                .withClientInfo(ClientInfo.fromUserAgentCache("app/7 (Motorola Flip-Phone; Android/14) BridgeJavaSDK/10"))
+                .withAppId(TEST_APP_ID).build();
+        AppConfig appConfig2 = setupConfigsForUser();
+        appConfig2.setGuid(GUID);
+        appConfig2.setModifiedOn(TIMESTAMP.getMillis());
+        CacheKey cacheKey = CacheKey.resolvedAppConfig(TEST_APP_ID, GUID, TIMESTAMP.getMillis());
+        
+        setupAndTestConfigResolution(() -> service.getAppConfigForUser(context, true));
+        verify(mockCacheProvider).setObject(cacheKey, GUID, RESOLVED_REFERENCES_EXPIRE_SECONDS);
+        verify(mockCacheProvider).addCacheKeyToSet(CacheKey.appConfigList(TEST_APP_ID), cacheKey.toString());
+        
+        // The token is still in Redis, so the references are not resolved again
+        when(mockCacheProvider.getObject(cacheKey, String.class)).thenReturn(GUID);
+        appConfig2.setSurveyReferences(SURVEY_REF_LIST);
+        appConfig2.setAssessmentReferences(ASSESSMENT_REF_LIST);
+        appConfig2.setConfigElements(null);
+        
+        AppConfig retValue = service.getAppConfigForUser(context, true);
+        assertEquals(retValue.getSurveyReferences().get(0).getIdentifier(), "theIdentifier");
+        assertEquals(retValue.getAssessmentReferences().get(0).getOriginSharedId(), "sharedAssessmentId");
+        assertEquals(retValue.getConfigElements().get("clientData"), TestUtils.getClientData());
+        verify(mockSurveyService, times(1)).getSurvey(TEST_APP_ID, SURVEY_KEY, false, false);
+        verify(mockAppConfigElementService, times(1)).getElementRevision(TEST_APP_ID, "clientData", 1);
+        verify(mockCacheProvider, times(1)).setObject(any(), any(), anyInt());
+    }
+    
+    @Test
+    public void getAppConfigForUserResolvesReferencesAfterInvalidation() {
+        CriteriaContext context = new CriteriaContext.Builder()
+                .withClientInfo(ClientInfo.fromUserAgentCache("app/7 (Motorola Flip-Phone; Android/14) BridgeJavaSDK/10"))
+                .withAppId(TEST_APP_ID).build();
+        AppConfig appConfig2 = setupConfigsForUser();
+        appConfig2.setGuid(GUID);
+        appConfig2.setModifiedOn(TIMESTAMP.getMillis());
+        
+        // The token was removed with the AppConfigList set, so the references are resolved on both calls
+        setupAndTestConfigResolution(() -> service.getAppConfigForUser(context, true));
+        appConfig2.setSurveyReferences(SURVEY_REF_LIST);
+        appConfig2.setAssessmentReferences(ASSESSMENT_REF_LIST);
+        setupAndTestConfigResolution(() -> service.getAppConfigForUser(context, true));
+        
+        verify(mockSurveyService, times(2)).getSurvey(TEST_APP_ID, SURVEY_KEY, false, false);
+        verify(mockCacheProvider, times(2)).setObject(
+                CacheKey.resolvedAppConfig(TEST_APP_ID, GUID, TIMESTAMP.getMillis()), GUID,
+                RESOLVED_REFERENCES_EXPIRE_SECONDS);
+    }
+    
+    @Test
+    public void getAppConfigForUserKeepsTokenOfAnotherServer() {
+        CriteriaContext context = new CriteriaContext.Builder()
+                .withClientInfo(ClientInfo.fromUserAgentCache("app/7 (Motorola Flip-Phone; Android/14) BridgeJavaSDK/10"))
+                .withAppId(TEST_APP_ID).build();
+        AppConfig appConfig2 = setupConfigsForUser();
+        appConfig2.setGuid(GUID);
+        appConfig2.setModifiedOn(TIMESTAMP.getMillis());
+        CacheKey cacheKey = CacheKey.resolvedAppConfig(TEST_APP_ID, GUID, TIMESTAMP.getMillis());
+        when(mockCacheProvider.getObject(cacheKey, String.class)).thenReturn("otherToken");
+        
+        setupAndTestConfigResolution(() -> service.getAppConfigForUser(context, true));
+        setupAndTestConfigResolution(() -> service.getAppConfigForUser(context, true));
+        
+        verify(mockSurveyService, times(1)).getSurvey(TEST_APP_ID, SURVEY_KEY, false, false);
+        verify(mockCacheProvider, never()).setObject(any(), any(), anyInt());
+        verify(mockCacheProvider, never()).addCacheKeyToSet(any(), any());
+    }
+    
     private AppConfig setupAndTestConfigResolution(Supplier<AppConfig> supplier) {
         Survey survey = Survey.create();
         survey.setIdentifier("theIdentifier");
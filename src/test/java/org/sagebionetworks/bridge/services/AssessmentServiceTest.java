@@ -50,6 +50,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.AssessmentDao;
 import org.sagebionetworks.bridge.dao.AssessmentResourceDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -85,6 +87,9 @@ public class AssessmentServiceTest extends Mockito {
     @Mock
     Organization mockOrganization;
     
+    @Mock
+    CacheProvider mockCacheProvider;
+    
     @Captor
     ArgumentCaptor<Assessment> assessmentCaptor;
     
@@ -406,6 +411,7 @@ public class AssessmentServiceTest extends Mockito {
         assertEquals(retValue.getModifiedOn(), MODIFIED_ON);
         
         verify(mockDao).updateAssessment(TEST_APP_ID, retValue);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
     }
     
     @Test
@@ -559,6 +565,7 @@ public class AssessmentServiceTest extends Mockito {
         service.updateSharedAssessment(assessment);
         
         verify(mockDao).updateAssessment(SHARED_APP_ID, assessment);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(SHARED_APP_ID));
         
         assertEquals(assessment.getIdentifier(), IDENTIFIER);
         assertEquals(TEST_APP_ID + ":" + TEST_OWNER_ID, assessment.getOwnerId());
@@ -954,6 +961,7 @@ public class AssessmentServiceTest extends Mockito {
         
         Assessment retValue = service.publishAssessment(TEST_APP_ID, TEST_OWNER_ID, null, "oldGuid");
         assertSame(retValue, ASSESSMENT);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
 
         verify(mockDao).publishAssessment(eq(TEST_APP_ID), assessmentCaptor.capture(), 
                 assessmentCaptor.capture(), any(AssessmentConfig.class));
@@ -1229,6 +1237,7 @@ public class AssessmentServiceTest extends Mockito {
         service.deleteAssessment(TEST_APP_ID, TEST_OWNER_ID, GUID);
         
         verify(mockDao).updateAssessment(TEST_APP_ID, assessment);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
         assertTrue(assessment.isDeleted());
         assertEquals(assessment.getModifiedOn(), MODIFIED_ON);
     }
@@ -1266,6 +1275,7 @@ public class AssessmentServiceTest extends Mockito {
         service.deleteAssessmentPermanently(TEST_APP_ID, TEST_OWNER_ID, GUID);
         
         verify(mockDao).deleteAssessment(TEST_APP_ID, ASSESSMENT);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
     }
     
     @Test
@@ -1273,6 +1283,7 @@ public class AssessmentServiceTest extends Mockito {
         when(mockDao.getAssessment(TEST_APP_ID, TEST_OWNER_ID, GUID)).thenReturn(Optional.empty());
         service.deleteAssessmentPermanently(TEST_APP_ID, TEST_OWNER_ID, GUID);
         verify(mockDao, never()).deleteAssessment(any(), any());
+        verify(mockCacheProvider, never()).removeSetOfCacheKeys(any());
     }
         
     // OWNERSHIP VERIFICATION
@@ -7,7 +7,6 @@ import static org.sagebionetworks.bridge.Roles.DEVELOPER;
 import static org.sagebionetworks.bridge.Roles.RESEARCHER;
 import static org.sagebionetworks.bridge.Roles.STUDY_COORDINATOR;
 import static org.sagebionetworks.bridge.TestConstants.ACCOUNT_ID;
-import static org.sagebionetworks.bridge.TestConstants.ACCOUNT_ID_WITH_HEALTHCODE;
 import static org.sagebionetworks.bridge.TestConstants.EMAIL;
 import static org.sagebionetworks.bridge.TestConstants.HEALTH_CODE;
 import static org.sagebionetworks.bridge.TestConstants.MODIFIED_ON;
@@ -27,7 +26,9 @@ import static org.sagebionetworks.bridge.models.accounts.AccountStatus.DISABLED;
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.ENABLED;
 import static org.sagebionetworks.bridge.models.accounts.AccountStatus.UNVERIFIED;
 import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.DEFAULT_PASSWORD_ALGORITHM;
+import static org.sagebionetworks.bridge.models.accounts.PasswordAlgorithm.STORMPATH_HMAC_SHA_256;
 import static org.sagebionetworks.bridge.models.apps.PasswordPolicy.DEFAULT_PASSWORD_POLICY;
+import static org.sagebionetworks.bridge.services.AuthenticationService.PASSWORD_REHASH_ITERATIONS;
 import static org.sagebionetworks.bridge.services.AuthenticationService.ROTATIONS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -46,6 +47,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -69,13 +79,16 @@ import org.sagebionetworks.bridge.dao.AccountSecretDao;
 import org.sagebionetworks.bridge.exceptions.AccountDisabledException;
 import org.sagebionetworks.bridge.exceptions.AuthenticationFailedException;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConsentRequiredException;
 import org.sagebionetworks.bridge.exceptions.EntityAlreadyExistsException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
+import org.sagebionetworks.bridge.exceptions.LimitExceededException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.Metrics;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
 import org.sagebionetworks.bridge.models.accounts.AccountSecret;
@@ -107,10 +120,12 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class AuthenticationServiceTest extends Mockito {
     private static final String IP_ADDRESS = "ip-address";
@@ -215,6 +230,10 @@ public class AuthenticationServiceTest extends Mockito {
     private App app;
 
     private Account account;
+    
+    private ExecutorService executorService;
+    
+    private ThreadPoolExecutor passwordHashExecutorService;
 
     @BeforeMethod
     public void before() {
@@ -228,6 +247,12 @@ public class AuthenticationServiceTest extends Mockito {
         
         account = Account.create();
         account.setId(TEST_USER_ID);
+        
+        executorService = Executors.newFixedThreadPool(2);
+        service.setSessionAssemblyExecutorService(executorService);
+        passwordHashExecutorService = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(10));
+        service.setPasswordHashExecutorService(passwordHashExecutorService);
 
         doReturn(SESSION_TOKEN).when(service).getGuid();
         doReturn(app).when(appService).getApp(TEST_APP_ID);
@@ -238,6 +263,8 @@ public class AuthenticationServiceTest extends Mockito {
     @AfterMethod
     public void after() {
         RequestContext.set(NULL_INSTANCE);
+        executorService.shutdownNow();
+        passwordHashExecutorService.shutdownNow();
     }
     
     void setIpAddress(String ipAddress) {
@@ -266,7 +293,7 @@ public class AuthenticationServiceTest extends Mockito {
             .withClientInfo(ClientInfo.fromUserAgentCache("app/13")).build();
         
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(contextCaptor.capture(), any());
         doReturn(REAUTH_TOKEN).when(service).generateReauthToken();
         doReturn(Environment.PROD).when(config).getEnvironment();
@@ -344,7 +371,7 @@ public class AuthenticationServiceTest extends Mockito {
             .withClientInfo(ClientInfo.fromUserAgentCache("app/13")).build();
         
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(contextCaptor.capture(), any());
         doReturn(REAUTH_TOKEN).when(service).generateReauthToken();
         doReturn(Environment.PROD).when(config).getEnvironment();
@@ -388,7 +415,7 @@ public class AuthenticationServiceTest extends Mockito {
         account.setPasswordAlgorithm(DEFAULT_PASSWORD_ALGORITHM);
         account.setPasswordHash(DEFAULT_PASSWORD_ALGORITHM.generateHash(PASSWORD));
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         UserSession retrieved = service.signIn(app, CONTEXT, EMAIL_PASSWORD_SIGN_IN);
@@ -404,7 +431,7 @@ public class AuthenticationServiceTest extends Mockito {
         account.setPasswordHash(DEFAULT_PASSWORD_ALGORITHM.generateHash(PASSWORD));
         
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
         
         service.signIn(app, CONTEXT, EMAIL_PASSWORD_SIGN_IN);
@@ -418,7 +445,7 @@ public class AuthenticationServiceTest extends Mockito {
         StudyParticipant participant = new StudyParticipant.Builder().copyOf(PARTICIPANT)
                 .withRoles(Sets.newHashSet(Roles.DEVELOPER)).build();
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), eq(account));
         
         // Does not throw consent required exception, despite being unconsented, because user has DEVELOPER role.
@@ -435,7 +462,7 @@ public class AuthenticationServiceTest extends Mockito {
         account.setPasswordAlgorithm(DEFAULT_PASSWORD_ALGORITHM);
         account.setPasswordHash(DEFAULT_PASSWORD_ALGORITHM.generateHash(PASSWORD));
         doReturn(Optional.of(account)).when(accountDao).getAccount(PHONE_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         UserSession retrieved = service.signIn(app, CONTEXT, PHONE_PASSWORD_SIGN_IN);
@@ -451,7 +478,7 @@ public class AuthenticationServiceTest extends Mockito {
         account.setPasswordHash(DEFAULT_PASSWORD_ALGORITHM.generateHash(PASSWORD));
 
         doReturn(Optional.of(account)).when(accountDao).getAccount(PHONE_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
         
         service.signIn(app, CONTEXT, PHONE_PASSWORD_SIGN_IN);
@@ -467,7 +494,7 @@ public class AuthenticationServiceTest extends Mockito {
         
         doReturn(Optional.of(account)).when(accountDao).getAccount(PHONE_PASSWORD_SIGN_IN.getAccountId());
         
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
         
         // Does not throw consent required exception, despite being unconsented, because user has RESEARCHER role. 
@@ -521,7 +548,7 @@ public class AuthenticationServiceTest extends Mockito {
         account.setReauthToken(REAUTH_TOKEN);
         when(cacheProvider.getObject(CACHE_KEY_EMAIL_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         UserSession retSession = service.channelSignIn(ChannelType.EMAIL, CONTEXT, EMAIL_SIGN_IN);
@@ -552,7 +579,7 @@ public class AuthenticationServiceTest extends Mockito {
         when(cacheProvider.getUserSession(SESSION_TOKEN)).thenReturn(null);
 
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         UserSession retSession = service.channelSignIn(ChannelType.EMAIL, CONTEXT, EMAIL_SIGN_IN);
@@ -584,7 +611,7 @@ public class AuthenticationServiceTest extends Mockito {
         when(cacheProvider.getUserSession(SESSION_TOKEN)).thenReturn(cachedSession);
 
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         UserSession retSession = service.channelSignIn(ChannelType.EMAIL, CONTEXT, EMAIL_SIGN_IN);
@@ -652,7 +679,7 @@ public class AuthenticationServiceTest extends Mockito {
 
         when(cacheProvider.getObject(CACHE_KEY_EMAIL_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_SIGN_IN.getAccountId());
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         try {
@@ -669,7 +696,7 @@ public class AuthenticationServiceTest extends Mockito {
         StudyParticipant participant = new StudyParticipant.Builder().withId(TEST_USER_ID)
                 .withRoles(Sets.newHashSet(Roles.ADMIN)).build();
 
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         when(cacheProvider.getObject(CACHE_KEY_EMAIL_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_SIGN_IN.getAccountId());
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
@@ -692,7 +719,7 @@ public class AuthenticationServiceTest extends Mockito {
         doReturn(Optional.of(account)).when(accountDao).getAccount(any());
         doReturn(Optional.of(AccountSecret.create())).when(accountSecretDao)
             .verifySecret(REAUTH, TEST_USER_ID, REAUTH_SIGN_IN.getReauthToken(), ROTATIONS);
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         
         UserSession session = service.reauthenticate(app, CONTEXT, REAUTH_SIGN_IN);
         assertEquals(session.getParticipant().getEmail(), EMAIL);
@@ -716,7 +743,7 @@ public class AuthenticationServiceTest extends Mockito {
         doReturn(Optional.of(account)).when(accountDao).getAccount(any());
         doReturn(Optional.of(AccountSecret.create())).when(accountSecretDao)
             .verifySecret(REAUTH, TEST_USER_ID, REAUTH_SIGN_IN.getReauthToken(), ROTATIONS);
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         
         service.reauthenticate(app, CONTEXT, REAUTH_SIGN_IN);
     }
@@ -733,7 +760,7 @@ public class AuthenticationServiceTest extends Mockito {
         doReturn(Optional.of(AccountSecret.create())).when(accountSecretDao)
             .verifySecret(REAUTH, TEST_USER_ID, REAUTH_SIGN_IN.getReauthToken(), ROTATIONS);
 
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         
         service.reauthenticate(app, CONTEXT, REAUTH_SIGN_IN);
     }
@@ -754,7 +781,7 @@ public class AuthenticationServiceTest extends Mockito {
         doReturn(Optional.of(AccountSecret.create())).when(accountSecretDao)
             .verifySecret(REAUTH, TEST_USER_ID, REAUTH_SIGN_IN.getReauthToken(), ROTATIONS);
         
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         
         UserSession session = service.reauthenticate(app, CONTEXT, REAUTH_SIGN_IN);
         assertEquals(session.getSessionToken(), "existingToken");
@@ -779,7 +806,7 @@ public class AuthenticationServiceTest extends Mockito {
         doReturn(Optional.of(AccountSecret.create())).when(accountSecretDao)
             .verifySecret(AccountSecretType.REAUTH, TEST_USER_ID, REAUTH_SIGN_IN.getReauthToken(), ROTATIONS);
         
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
         
         try {
@@ -878,7 +905,7 @@ public class AuthenticationServiceTest extends Mockito {
         StudyParticipant participant = new StudyParticipant.Builder().withDataGroups(USER_DATA_GROUPS)
                 .withEmail(EMAIL).withHealthCode(HEALTH_CODE).withId(TEST_USER_ID).withLanguages(LANGUAGES)
                 .withFirstName("Test").withLastName("Tester").withPhone(TestConstants.PHONE).build();
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         when(cacheProvider.getObject(CACHE_KEY_PHONE_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(Optional.of(account)).when(accountDao).getAccount(PHONE_SIGN_IN.getAccountId());
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
@@ -909,7 +936,7 @@ public class AuthenticationServiceTest extends Mockito {
 
         when(cacheProvider.getObject(CACHE_KEY_PHONE_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(Optional.of(account)).when(accountDao).getAccount(PHONE_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         // Execute and validate. Just verify that it succeeds and doesn't throw. Details are tested in above tests.
@@ -924,7 +951,7 @@ public class AuthenticationServiceTest extends Mockito {
 
         when(cacheProvider.getObject(CACHE_KEY_PHONE_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(Optional.of(account)).when(accountDao).getAccount(any());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
 
         // Execute and validate. Just verify that it succeeds and doesn't throw. Details are tested in above tests.
@@ -966,7 +993,7 @@ public class AuthenticationServiceTest extends Mockito {
         // Put some stuff in participant to verify session is initialized
         StudyParticipant participant = new StudyParticipant.Builder().withId(TEST_USER_ID)
                 .withEmail(EMAIL).withFirstName("Test").withLastName("Tester").build();
-        doReturn(participant).when(participantService).getParticipant(app, account, false);
+        doReturn(participant).when(participantService).getParticipantForSession(account);
         when(cacheProvider.getObject(CACHE_KEY_PHONE_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), any());
         doReturn(Optional.of(account)).when(accountDao).getAccount(PHONE_SIGN_IN.getAccountId());
@@ -994,21 +1021,27 @@ public class AuthenticationServiceTest extends Mockito {
     
     @Test
     public void languagesArePersistedFromContext() {
-        // This specifically has to be a mock to easily mock the editAccount method on the DAO.
+        // This specifically has to be a mock to verify the edit of the account.
         Account mockAccount = mock(Account.class);
 
         CriteriaContext context = new CriteriaContext.Builder().withLanguages(LANGUAGES)
                 .withUserId(TEST_USER_ID).withAppId(TEST_APP_ID).build();
-        TestUtils.mockEditAccount(accountService, mockAccount);
+        doAnswer(invocation -> {
+            Consumer<Account> accountEdits = invocation.getArgument(1);
+            accountEdits.accept(invocation.getArgument(0));
+            return null;
+        }).when(accountService).editLoadedAccount(any(), any());
         doReturn(Optional.of(mockAccount)).when(accountDao).getAccount(any());
         
         // No languages.
         StudyParticipant participant = new StudyParticipant.Builder().withHealthCode(HEALTH_CODE).build();
-        doReturn(participant).when(participantService).getParticipant(app, mockAccount, false);
+        doReturn(participant).when(participantService).getParticipantForSession(mockAccount);
         
         service.getSession(app, context);
         
-        verify(accountService).editAccount(eq(ACCOUNT_ID_WITH_HEALTHCODE), any());
+        // The account is not read again to edit it
+        verify(accountService).editLoadedAccount(eq(mockAccount), any());
+        verify(accountDao, times(1)).getAccount(any());
         verify(mockAccount).setLanguages(ImmutableList.copyOf(LANGUAGES));
     }
 
@@ -1232,13 +1265,11 @@ public class AuthenticationServiceTest extends Mockito {
         consentedAccount.setPasswordHash(DEFAULT_PASSWORD_ALGORITHM.generateHash(PASSWORD));
 
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipant(app, account,
-                false);
+        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipantForSession(account);
         doReturn(UNCONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), eq(account));
         
         doReturn(Optional.of(consentedAccount)).when(accountDao).getAccount(any());
-        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipant(app, consentedAccount,
-                false);
+        doReturn(PARTICIPANT_WITH_ATTRIBUTES).when(participantService).getParticipantForSession(consentedAccount);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), eq(consentedAccount));
         
         // This would normally throw except that the intentService reports consents were updated
@@ -1256,11 +1287,11 @@ public class AuthenticationServiceTest extends Mockito {
         when(cacheProvider.getObject(CACHE_KEY_EMAIL_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         when(accountDao.getAccount(any())).thenReturn(
                 Optional.of(account), Optional.of(consentedAccount));
-        when(participantService.getParticipant(app, account, false)).thenReturn(
+        when(participantService.getParticipantForSession(account)).thenReturn(
                 PARTICIPANT_WITH_ATTRIBUTES);
         when(consentService.getConsentStatuses(any(), eq(account))).thenReturn(UNCONSENTED_STATUS_MAP);
 
-        when(participantService.getParticipant(app, consentedAccount, false)).thenReturn(
+        when(participantService.getParticipantForSession(consentedAccount)).thenReturn(
                 PARTICIPANT_WITH_ATTRIBUTES);
         when(consentService.getConsentStatuses(any(), eq(consentedAccount))).thenReturn(CONSENTED_STATUS_MAP);
 
@@ -1279,11 +1310,11 @@ public class AuthenticationServiceTest extends Mockito {
         when(cacheProvider.getObject(CACHE_KEY_PHONE_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         when(accountDao.getAccount(any())).thenReturn(
                Optional.of(account), Optional.of(consentedAccount));
-        when(participantService.getParticipant(app, account, false)).thenReturn(
+        when(participantService.getParticipantForSession(account)).thenReturn(
                 PARTICIPANT_WITH_ATTRIBUTES);
         when(consentService.getConsentStatuses(any(), eq(account))).thenReturn(UNCONSENTED_STATUS_MAP);
 
-        when(participantService.getParticipant(app, consentedAccount, false)).thenReturn(
+        when(participantService.getParticipantForSession(consentedAccount)).thenReturn(
                 PARTICIPANT_WITH_ATTRIBUTES);
         when(consentService.getConsentStatuses(any(), eq(consentedAccount))).thenReturn(CONSENTED_STATUS_MAP);
 
@@ -1300,7 +1331,7 @@ public class AuthenticationServiceTest extends Mockito {
         account.setPasswordHash(DEFAULT_PASSWORD_ALGORITHM.generateHash(PASSWORD));
         
         doReturn(Optional.of(account)).when(accountDao).getAccount(EMAIL_PASSWORD_SIGN_IN.getAccountId());
-        doReturn(PARTICIPANT).when(participantService).getParticipant(app, account, false);
+        doReturn(PARTICIPANT).when(participantService).getParticipantForSession(account);
         doReturn(CONSENTED_STATUS_MAP).when(consentService).getConsentStatuses(any(), eq(account));
 
         service.signIn(app, CONTEXT, EMAIL_PASSWORD_SIGN_IN);
@@ -1312,7 +1343,7 @@ public class AuthenticationServiceTest extends Mockito {
     public void consentedEmailSignInDoesNotExecuteIntentToParticipate() {
         when(cacheProvider.getObject(CACHE_KEY_EMAIL_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         when(accountDao.getAccount(any())).thenReturn(Optional.of(account));
-        when(participantService.getParticipant(app, account, false)).thenReturn(PARTICIPANT);
+        when(participantService.getParticipantForSession(account)).thenReturn(PARTICIPANT);
         when(consentService.getConsentStatuses(any(), eq(account))).thenReturn(CONSENTED_STATUS_MAP);
 
         service.channelSignIn(ChannelType.EMAIL, CONTEXT, EMAIL_SIGN_IN);
@@ -1324,7 +1355,7 @@ public class AuthenticationServiceTest extends Mockito {
     public void consentedPhoneSignInDoesNotExecuteIntentToParticipate() {
         when(cacheProvider.getObject(CACHE_KEY_PHONE_SIGNIN, String.class)).thenReturn(TOKEN_UNFORMATTED);
         when(accountDao.getAccount(any())).thenReturn(Optional.of(account));
-        when(participantService.getParticipant(app, account, false)).thenReturn(PARTICIPANT);
+        when(participantService.getParticipantForSession(account)).thenReturn(PARTICIPANT);
         when(consentService.getConsentStatuses(any(), eq(account))).thenReturn(CONSENTED_STATUS_MAP);
 
         service.channelSignIn(ChannelType.PHONE, CONTEXT, PHONE_SIGN_IN);
@@ -1353,7 +1384,7 @@ public class AuthenticationServiceTest extends Mockito {
                 .build();
         
         // Mock pre-reqs.
-        when(participantService.getParticipant(any(), any(Account.class), anyBoolean())).thenReturn(participant);
+        when(participantService.getParticipantForSession(any(Account.class))).thenReturn(participant);
         when(config.getEnvironment()).thenReturn(Environment.LOCAL);
         when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
         when(service.generateReauthToken()).thenReturn(REAUTH_TOKEN);
@@ -1393,7 +1424,7 @@ public class AuthenticationServiceTest extends Mockito {
         Account account = Account.create();
 
         // Mock pre-reqs.
-        when(participantService.getParticipant(any(), any(Account.class), anyBoolean())).thenReturn(PARTICIPANT);
+        when(participantService.getParticipantForSession(any(Account.class))).thenReturn(PARTICIPANT);
         when(config.getEnvironment()).thenReturn(Environment.LOCAL);
         when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
         
@@ -1419,7 +1450,7 @@ public class AuthenticationServiceTest extends Mockito {
         Account account = Account.create();
 
         // Mock pre-reqs.
-        when(participantService.getParticipant(any(), any(Account.class), anyBoolean())).thenReturn(PARTICIPANT);
+        when(participantService.getParticipantForSession(any(Account.class))).thenReturn(PARTICIPANT);
         when(config.getEnvironment()).thenReturn(Environment.LOCAL);
         when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
 
@@ -1431,6 +1462,86 @@ public class AuthenticationServiceTest extends Mockito {
         verify(accountSecretDao, never()).createSecret(any(), any(), any());
     }
 
+    @Test
+    public void getSessionFromAccountRecordsStageTimings() {
+        app.setReauthenticationEnabled(true);
+        Metrics metrics = new Metrics("requestId");
+        RequestContext.set(new RequestContext.Builder().withMetrics(metrics).build());
+        
+        CriteriaContext context = new CriteriaContext.Builder().withAppId(TEST_APP_ID)
+                .withLanguages(LANGUAGES).build();
+        StudyParticipant participant = new StudyParticipant.Builder().copyOf(PARTICIPANT)
+                .withOrgMembership(TEST_ORG_ID).build();
+        
+        when(participantService.getParticipantForSession(account)).thenReturn(participant);
+        when(config.getEnvironment()).thenReturn(Environment.LOCAL);
+        when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
+        when(service.generateReauthToken()).thenReturn(REAUTH_TOKEN);
+        when(sponsorService.getSponsoredStudyIds(TEST_APP_ID, TEST_ORG_ID)).thenReturn(USER_STUDY_IDS);
+        
+        service.getSessionFromAccount(app, context, account);
+        
+        JsonNode stages = metrics.getJson().get("session_stages");
+        assertTrue(stages.has(AuthenticationService.STAGE_PARTICIPANT));
+        assertTrue(stages.has(AuthenticationService.STAGE_LANGUAGES));
+        assertTrue(stages.has(AuthenticationService.STAGE_CONSENT_STATUSES));
+        assertTrue(stages.has(AuthenticationService.STAGE_SPONSORED_STUDIES));
+        assertTrue(stages.has(AuthenticationService.STAGE_REAUTH_TOKEN));
+        assertTrue(stages.has(AuthenticationService.STAGE_TOTAL));
+        
+        // The sponsored studies retrieved concurrently are in the updated request context
+        assertEquals(RequestContext.get().getOrgSponsoredStudies(), USER_STUDY_IDS);
+        assertSame(RequestContext.get().getMetrics(), metrics);
+        verify(accountService).editLoadedAccount(eq(account), any());
+    }
+    
+    @Test
+    public void getSessionFromAccountOnCallerThreadKeepsRequestContext() {
+        // A saturated executor with a caller-runs policy runs the stages on the caller's thread.
+        service.setSessionAssemblyExecutorService(MoreExecutors.newDirectExecutorService());
+        app.setReauthenticationEnabled(true);
+        Metrics metrics = new Metrics("requestId");
+        RequestContext.set(new RequestContext.Builder().withRequestId("requestId").withMetrics(metrics).build());
+        
+        CriteriaContext context = new CriteriaContext.Builder().withAppId(TEST_APP_ID)
+                .withLanguages(LANGUAGES).build();
+        StudyParticipant participant = new StudyParticipant.Builder().copyOf(PARTICIPANT)
+                .withOrgMembership(TEST_ORG_ID).build();
+        
+        when(participantService.getParticipantForSession(account)).thenReturn(participant);
+        when(config.getEnvironment()).thenReturn(Environment.LOCAL);
+        when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
+        when(service.generateReauthToken()).thenReturn(REAUTH_TOKEN);
+        when(sponsorService.getSponsoredStudyIds(TEST_APP_ID, TEST_ORG_ID)).thenReturn(USER_STUDY_IDS);
+        
+        service.getSessionFromAccount(app, context, account);
+        
+        assertEquals(RequestContext.get().getId(), "requestId");
+        assertSame(RequestContext.get().getMetrics(), metrics);
+        assertEquals(RequestContext.get().getOrgSponsoredStudies(), USER_STUDY_IDS);
+        assertTrue(metrics.getJson().get("session_stages").has(AuthenticationService.STAGE_SPONSORED_STUDIES));
+    }
+    
+    @Test
+    public void getSessionFromAccountRethrowsConcurrentStageException() {
+        app.setReauthenticationEnabled(true);
+        
+        CriteriaContext context = new CriteriaContext.Builder().withAppId(TEST_APP_ID).build();
+        
+        when(participantService.getParticipantForSession(account)).thenReturn(PARTICIPANT);
+        when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
+        when(service.generateReauthToken()).thenReturn(REAUTH_TOKEN);
+        doThrow(new BridgeServiceException("Database error")).when(accountSecretDao)
+                .createSecret(AccountSecretType.REAUTH, TEST_USER_ID, REAUTH_TOKEN);
+        
+        try {
+            service.getSessionFromAccount(app, context, account);
+            fail("Should have thrown exception");
+        } catch (BridgeServiceException e) {
+            assertEquals(e.getMessage(), "Database error");
+        }
+    }
+
     @Test
     public void getSessionSucceeds() {
         UserSession session = new UserSession();
@@ -1491,7 +1602,7 @@ public class AuthenticationServiceTest extends Mockito {
         
         StudyParticipant participant = new StudyParticipant.Builder()
                 .withId(TEST_USER_ID).withLanguages(TestConstants.LANGUAGES).build();
-        when(participantService.getParticipant(app, account, false)).thenReturn(participant);
+        when(participantService.getParticipantForSession(account)).thenReturn(participant);
         when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
         
         CriteriaContext context = new CriteriaContext.Builder()
@@ -1502,7 +1613,7 @@ public class AuthenticationServiceTest extends Mockito {
         
         assertEquals(session.getParticipant().getLanguages(), TestConstants.LANGUAGES);
         
-        verify(accountService, never()).editAccount(any(), any());
+        verify(accountService, never()).editLoadedAccount(any(), any());
    }
     
     @Test
@@ -1518,7 +1629,7 @@ public class AuthenticationServiceTest extends Mockito {
         StudyParticipant participant = new StudyParticipant.Builder().copyOf(PARTICIPANT)
                 .withHealthCode(HEALTH_CODE).build();
         
-        when(participantService.getParticipant(app, account, false)).thenReturn(participant);
+        when(participantService.getParticipantForSession(account)).thenReturn(participant);
         when(consentService.getConsentStatuses(any(), any())).thenReturn(CONSENTED_STATUS_MAP);
         
         CriteriaContext context = new CriteriaContext.Builder()
@@ -1529,8 +1640,7 @@ public class AuthenticationServiceTest extends Mockito {
         
         assertEquals(session.getParticipant().getLanguages(), TestConstants.LANGUAGES);
         
-        // Note that the context does not have the healthCode, you must use the participant
-        verify(accountService).editAccount(eq(ACCOUNT_ID_WITH_HEALTHCODE), any());
+        verify(accountService).editLoadedAccount(eq(account), any());
    }
     
    @Test
@@ -1544,7 +1654,7 @@ public class AuthenticationServiceTest extends Mockito {
        when(accountDao.getAccount(accountId)).thenReturn(Optional.of(account));
        
        StudyParticipant participant = new StudyParticipant.Builder().withSynapseUserId("12345").build();
-       when(participantService.getParticipant(any(), eq(account), eq(false))).thenReturn(participant);
+       when(participantService.getParticipantForSession(eq(account))).thenReturn(participant);
        
        UserSession session = service.oauthSignIn(CONTEXT, token);
        
@@ -1583,7 +1693,7 @@ public class AuthenticationServiceTest extends Mockito {
        when(accountDao.getAccount(accountId)).thenReturn(Optional.of(account));
        
        StudyParticipant participant = new StudyParticipant.Builder().withSynapseUserId("12345").build();
-       when(participantService.getParticipant(any(), eq(account), eq(false))).thenReturn(participant);
+       when(participantService.getParticipantForSession(eq(account))).thenReturn(participant);
        
        service.oauthSignIn(CONTEXT, token);
    }
@@ -1935,6 +2045,116 @@ public class AuthenticationServiceTest extends Mockito {
                .withPassword("wrong password").build());
    }
 
+   @Test
+   public void authenticateRecordsPasswordHashMetrics() throws Exception {
+       mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, true);
+       Metrics metrics = new Metrics("request-id");
+       RequestContext.set(new RequestContext.Builder().withMetrics(metrics).build());
+
+       service.authenticate(App.create(), EMAIL_PASSWORD_SIGN_IN);
+
+       assertTrue(metrics.getJson().has("password_hash_queue_millis"));
+       assertTrue(metrics.getJson().has("password_hash_millis"));
+   }
+
+   @Test
+   public void authenticateRejectedWhenPasswordHashExecutorIsFull() throws Exception {
+       mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, true);
+       ThreadPoolExecutor mockExecutor = mock(ThreadPoolExecutor.class);
+       when(mockExecutor.submit(any(Callable.class))).thenThrow(new RejectedExecutionException());
+       when(mockExecutor.getQueue()).thenReturn(new LinkedBlockingQueue<>());
+       service.setPasswordHashExecutorService(mockExecutor);
+
+       try {
+           service.authenticate(App.create(), EMAIL_PASSWORD_SIGN_IN);
+           fail("Should have thrown exception");
+       } catch (LimitExceededException e) {
+           assertEquals(e.getStatusCode(), 429);
+       }
+   }
+
+   @Test
+   public void authenticateRehashesLegacyPassword() throws Exception {
+       Account account = mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, false);
+       account.setPasswordAlgorithm(STORMPATH_HMAC_SHA_256);
+       String legacyHash = STORMPATH_HMAC_SHA_256.generateHash(PASSWORD);
+       account.setPasswordHash(legacyHash);
+       account.setVersion(1);
+       when(config.getInt(PASSWORD_REHASH_ITERATIONS)).thenReturn(1000);
+       when(accountDao.updatePasswordHash(any(), any(), any(), any(), any())).thenReturn(true);
+
+       Account returnVal = service.authenticate(App.create(), EMAIL_PASSWORD_SIGN_IN);
+       
+       // The sign in does not wait for the rehash, and the loaded account is not changed.
+       assertSame(returnVal, account);
+       assertEquals(returnVal.getPasswordAlgorithm(), STORMPATH_HMAC_SHA_256);
+       assertEquals(returnVal.getPasswordHash(), legacyHash);
+       assertEquals(returnVal.getVersion(), 1);
+       
+       passwordHashExecutorService.shutdown();
+       assertTrue(passwordHashExecutorService.awaitTermination(5, TimeUnit.SECONDS));
+       
+       // The new hash is only saved if the stored hash is still the legacy hash.
+       ArgumentCaptor<String> hashCaptor = ArgumentCaptor.forClass(String.class);
+       verify(accountDao).updatePasswordHash(eq(account.getId()), eq(STORMPATH_HMAC_SHA_256), eq(legacyHash),
+               eq(DEFAULT_PASSWORD_ALGORITHM), hashCaptor.capture());
+       assertEquals(hashCaptor.getValue().split("\\$")[0], "1000");
+       assertTrue(DEFAULT_PASSWORD_ALGORITHM.checkHash(hashCaptor.getValue(), PASSWORD));
+       verify(accountDao, never()).updateAccount(any());
+   }
+
+   @Test
+   public void authenticateSucceedsWhenRehashFails() throws Exception {
+       Account account = mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, false);
+       account.setPasswordAlgorithm(STORMPATH_HMAC_SHA_256);
+       String legacyHash = STORMPATH_HMAC_SHA_256.generateHash(PASSWORD);
+       account.setPasswordHash(legacyHash);
+       when(config.getInt(PASSWORD_REHASH_ITERATIONS)).thenReturn(1000);
+       when(accountDao.updatePasswordHash(any(), any(), any(), any(), any()))
+               .thenThrow(new BridgeServiceException("error"));
+
+       Account returnVal = service.authenticate(App.create(), EMAIL_PASSWORD_SIGN_IN);
+       
+       passwordHashExecutorService.shutdown();
+       assertTrue(passwordHashExecutorService.awaitTermination(5, TimeUnit.SECONDS));
+       verify(accountDao).updatePasswordHash(any(), any(), any(), any(), any());
+       assertEquals(returnVal.getPasswordAlgorithm(), STORMPATH_HMAC_SHA_256);
+       assertEquals(returnVal.getPasswordHash(), legacyHash);
+   }
+
+   @Test
+   public void authenticateSkipsRehashWhenPasswordHashExecutorIsFull() throws Exception {
+       Account account = mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, false);
+       account.setPasswordAlgorithm(STORMPATH_HMAC_SHA_256);
+       account.setPasswordHash(STORMPATH_HMAC_SHA_256.generateHash(PASSWORD));
+       
+       // The password check is accepted, but there is no room to rehash.
+       ThreadPoolExecutor mockExecutor = mock(ThreadPoolExecutor.class);
+       when(mockExecutor.submit(any(Callable.class))).thenAnswer(invocation -> {
+           Callable<?> callable = invocation.getArgument(0);
+           return CompletableFuture.completedFuture(callable.call());
+       });
+       doThrow(new RejectedExecutionException()).when(mockExecutor).execute(any());
+       service.setPasswordHashExecutorService(mockExecutor);
+
+       Account returnVal = service.authenticate(App.create(), EMAIL_PASSWORD_SIGN_IN);
+       
+       assertEquals(returnVal.getPasswordAlgorithm(), STORMPATH_HMAC_SHA_256);
+       verify(accountDao, never()).updatePasswordHash(any(), any(), any(), any(), any());
+   }
+
+   @Test
+   public void authenticateDoesNotRehashDefaultAlgorithm() throws Exception {
+       mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, true);
+
+       service.authenticate(App.create(), EMAIL_PASSWORD_SIGN_IN);
+       
+       passwordHashExecutorService.shutdown();
+       assertTrue(passwordHashExecutorService.awaitTermination(5, TimeUnit.SECONDS));
+       verify(accountDao, never()).updatePasswordHash(any(), any(), any(), any(), any());
+       verify(config, never()).getInt(PASSWORD_REHASH_ITERATIONS);
+   }
+
    @Test
    public void reauthenticateSuccess() throws Exception {
        mockGetAccountById(ACCOUNT_ID_WITH_EMAIL, false);
@@ -1,19 +1,24 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
 import java.util.Set;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.NearCache;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.surveys.Survey;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
@@ -26,6 +31,10 @@ public class CacheAdminServiceTest {
     
     private CacheAdminService adminService;
     
+    private NearCache mockNearCache;
+    
+    private TokenBucketRateLimiter mockRateLimiter;
+    
     @BeforeMethod
     public void before() {
         adminService = new CacheAdminService();
@@ -34,6 +43,12 @@ public class CacheAdminServiceTest {
         when(pool.getResource()).thenReturn(createStubJedis());
 
         adminService.setJedisPool(pool);
+        
+        mockNearCache = mock(NearCache.class);
+        adminService.setNearCache(mockNearCache);
+        
+        mockRateLimiter = mock(TokenBucketRateLimiter.class);
+        adminService.setTokenBucketRateLimiter(mockRateLimiter);
     }
     
     @Test
@@ -50,6 +65,25 @@ public class CacheAdminServiceTest {
         adminService.removeItem("foo:App");
         Set<String> set = adminService.listItems();
         assertEquals(set.size(), 1);
+        
+        verify(mockNearCache).invalidate("foo:App");
+    }
+    
+    @Test
+    public void getNearCacheStatistics() {
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("App", ImmutableMap.of("hits", 2L));
+        when(mockNearCache.getStatistics()).thenReturn(stats);
+        
+        assertEquals(adminService.getNearCacheStatistics(), stats);
+    }
+    
+    @Test
+    public void getRateLimiterStatistics() {
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("participant-file-download",
+                ImmutableMap.of("allowed", 2L));
+        when(mockRateLimiter.getStatistics()).thenReturn(stats);
+        
+        assertEquals(adminService.getRateLimiterStatistics(), stats);
     }
     
     @Test(expectedExceptions = BridgeServiceException.class)
@@ -52,6 +52,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.EnrollmentDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -84,6 +86,9 @@ public class EnrollmentServiceTest extends Mockito {
     @Mock
     AlertService alertService;
     
+    @Mock
+    CacheProvider mockCacheProvider;
+    
     @InjectMocks
     @Spy
     EnrollmentService service;
@@ -207,6 +212,7 @@ public class EnrollmentServiceTest extends Mockito {
         
         Account account = Account.create();
         account.setId(TEST_USER_ID);
+        account.setAppId(TEST_APP_ID);
         account.setEnrollments(Sets.newHashSet(otherStudy));
         TestUtils.mockEditAccount(mockAccountService, account);
         
@@ -239,6 +245,9 @@ public class EnrollmentServiceTest extends Mockito {
         // verify new enrollment alert created
         verify(alertService).createAlert(alertCaptor.capture());
         assertNewEnrollmentAlert(alertCaptor.getValue());
+        
+        verify(mockCacheProvider).removeObject(
+                CacheKey.weeklyAdherenceReportState(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID));
     }
     
     @Test
@@ -461,6 +470,7 @@ public class EnrollmentServiceTest extends Mockito {
         
         Account account = Account.create();
         account.setId(TEST_USER_ID);
+        account.setAppId(TEST_APP_ID);
         account.setEnrollments(Sets.newHashSet(otherStudy, existing));
         TestUtils.mockEditAccount(mockAccountService, account);
         
@@ -483,6 +493,9 @@ public class EnrollmentServiceTest extends Mockito {
 
         // verify alerts for this user are deleted
         verify(alertService).deleteAlertsForUserInStudy(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        
+        verify(mockCacheProvider).removeObject(
+                CacheKey.weeklyAdherenceReportState(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID));
     }
     
     @Test
@@ -0,0 +1,205 @@
+package org.sagebionetworks.bridge.services;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
+import static org.sagebionetworks.bridge.TestUtils.getNotificationMessage;
+import static org.sagebionetworks.bridge.TestUtils.getNotificationRegistration;
+import static org.sagebionetworks.bridge.services.NotificationFanOutService.INITIAL_BACKOFF_MILLIS;
+import static org.sagebionetworks.bridge.services.NotificationFanOutService.MAX_ATTEMPTS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.models.notifications.NotificationFanOutResult;
+import org.sagebionetworks.bridge.models.notifications.NotificationRegistration;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.model.EndpointDisabledException;
+import com.amazonaws.services.sns.model.InternalErrorException;
+import com.amazonaws.services.sns.model.PublishRequest;
+import com.amazonaws.services.sns.model.PublishResult;
+import com.amazonaws.services.sns.model.ThrottledException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class NotificationFanOutServiceTest {
+
+    @Mock
+    private AmazonSNS mockSnsClient;
+
+    @Mock
+    private ExecutorService mockExecutorService;
+
+    @Spy
+    private NotificationFanOutService service;
+
+    private NotificationRegistration reg1;
+    private NotificationRegistration reg2;
+
+    @BeforeMethod
+    public void before() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        service.setSnsClient(mockSnsClient);
+        service.setPushNotificationExecutorService(MoreExecutors.newDirectExecutorService());
+        doNothing().when(service).sleep(anyLong());
+
+        reg1 = getNotificationRegistration();
+        reg1.setEndpoint("endpoint1");
+        reg2 = getNotificationRegistration();
+        reg2.setGuid("registrationGuid2");
+        reg2.setEndpoint("endpoint2");
+        reg2.setOsName("Android");
+    }
+
+    @Test
+    public void sendDeliversToAllRegistrations() {
+        when(mockSnsClient.publish(any())).thenReturn(new PublishResult().withMessageId("messageId"));
+
+        NotificationFanOutResult result = service.send(TEST_APP_ID, ImmutableList.of(reg1, reg2),
+                getNotificationMessage()).join();
+
+        assertEquals(result.getDeliveredRegistrations(), ImmutableSet.of("registrationGuid", "registrationGuid2"));
+        assertTrue(result.getFailedRegistrations().isEmpty());
+
+        ArgumentCaptor<PublishRequest> requestCaptor = ArgumentCaptor.forClass(PublishRequest.class);
+        verify(mockSnsClient, times(2)).publish(requestCaptor.capture());
+        List<PublishRequest> requests = requestCaptor.getAllValues();
+        assertEquals(requests.get(0).getTargetArn(), "endpoint1");
+        assertEquals(requests.get(0).getSubject(), "a subject");
+        assertEquals(requests.get(0).getMessage(), "a message");
+        assertEquals(requests.get(1).getTargetArn(), "endpoint2");
+    }
+
+    @Test
+    public void sendReportsFailedRegistrations() {
+        when(mockSnsClient.publish(any())).thenReturn(new PublishResult())
+                .thenThrow(new EndpointDisabledException("disabled"));
+
+        NotificationFanOutResult result = service.send(TEST_APP_ID, ImmutableList.of(reg1, reg2),
+                getNotificationMessage()).join();
+
+        assertEquals(result.getDeliveredRegistrations(), ImmutableSet.of("registrationGuid"));
+        assertEquals(result.getFailedRegistrations(), ImmutableSet.of("registrationGuid2"));
+    }
+
+    @Test
+    public void sendFailsRegistrationsThatCannotBeQueued() {
+        doThrow(new RejectedExecutionException()).when(mockExecutorService).execute(any());
+        service.setPushNotificationExecutorService(mockExecutorService);
+
+        NotificationFanOutResult result = service.send(TEST_APP_ID, ImmutableList.of(reg1, reg2),
+                getNotificationMessage()).join();
+
+        assertTrue(result.getDeliveredRegistrations().isEmpty());
+        assertEquals(result.getFailedRegistrations(), ImmutableSet.of("registrationGuid", "registrationGuid2"));
+        verify(mockSnsClient, never()).publish(any());
+    }
+
+    @Test
+    public void publishRetriesThrottlingWithBackoff() throws Exception {
+        AmazonServiceException throttled = new ThrottledException("throttled");
+        throttled.setErrorCode("Throttling");
+        when(mockSnsClient.publish(any())).thenThrow(throttled).thenThrow(throttled)
+                .thenReturn(new PublishResult());
+
+        assertTrue(service.publish(TEST_APP_ID, reg1, getNotificationMessage()));
+
+        verify(mockSnsClient, times(3)).publish(any());
+        verify(service).sleep(INITIAL_BACKOFF_MILLIS);
+        verify(service).sleep(INITIAL_BACKOFF_MILLIS * 2);
+    }
+
+    @Test
+    public void publishGivesUpAfterMaxAttempts() throws Exception {
+        when(mockSnsClient.publish(any())).thenThrow(new ThrottledException("throttled"));
+
+        assertFalse(service.publish(TEST_APP_ID, reg1, getNotificationMessage()));
+
+        verify(mockSnsClient, times(MAX_ATTEMPTS)).publish(any());
+        verify(service, times(MAX_ATTEMPTS - 1)).sleep(anyLong());
+    }
+
+    @Test
+    public void publishDoesNotRetryServiceErrors() throws Exception {
+        // SNS may have accepted the message, so retrying could deliver it twice.
+        AmazonServiceException error = new InternalErrorException("internal error");
+        error.setErrorType(ErrorType.Service);
+        when(mockSnsClient.publish(any())).thenThrow(error);
+
+        assertFalse(service.publish(TEST_APP_ID, reg1, getNotificationMessage()));
+
+        verify(mockSnsClient).publish(any());
+        verify(service, never()).sleep(anyLong());
+    }
+
+    @Test
+    public void publishDoesNotRetryClientErrors() throws Exception {
+        AmazonServiceException error = new EndpointDisabledException("disabled");
+        error.setErrorType(ErrorType.Client);
+        when(mockSnsClient.publish(any())).thenThrow(error);
+
+        assertFalse(service.publish(TEST_APP_ID, reg1, getNotificationMessage()));
+
+        verify(mockSnsClient).publish(any());
+        verify(service, never()).sleep(anyLong());
+    }
+
+    @Test
+    public void publishStopsWhenInterrupted() throws Exception {
+        when(mockSnsClient.publish(any())).thenThrow(new ThrottledException("throttled"));
+        doThrow(new InterruptedException()).when(service).sleep(anyLong());
+
+        try {
+            assertFalse(service.publish(TEST_APP_ID, reg1, getNotificationMessage()));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            // Clear the interrupt so it does not leak into other tests.
+            Thread.interrupted();
+        }
+        verify(mockSnsClient).publish(any());
+    }
+
+    @Test
+    public void isRetryable() {
+        assertTrue(NotificationFanOutService.isRetryable(new ThrottledException("throttled")));
+
+        AmazonServiceException serviceError = new AmazonServiceException("error");
+        serviceError.setErrorType(ErrorType.Service);
+        serviceError.setErrorCode("InternalError");
+        assertFalse(NotificationFanOutService.isRetryable(serviceError));
+
+        AmazonServiceException throttled = new AmazonServiceException("error");
+        throttled.setErrorType(ErrorType.Client);
+        throttled.setErrorCode("Throttling");
+        assertTrue(NotificationFanOutService.isRetryable(throttled));
+
+        AmazonServiceException clientError = new AmazonServiceException("error");
+        clientError.setErrorType(ErrorType.Client);
+        clientError.setErrorCode("InvalidParameter");
+        assertFalse(NotificationFanOutService.isRetryable(clientError));
+
+        assertFalse(NotificationFanOutService.isRetryable(new AmazonClientException("network", null)));
+    }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.sagebionetworks.bridge.TestUtils.getNotificationTopic;
+import static org.sagebionetworks.bridge.services.NotificationTopicService.TOPIC_PUBLISH_RATE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -27,6 +28,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.NotificationRegistrationDao;
 import org.sagebionetworks.bridge.dao.NotificationTopicDao;
 import org.sagebionetworks.bridge.dao.TopicSubscriptionDao;
@@ -137,6 +139,9 @@ public class NotificationTopicServiceTest {
     @Mock
     private NotificationRegistration mockNotificationRegistration;
     
+    @Mock
+    private BridgeConfig mockBridgeConfig;
+    
     @Captor
     private ArgumentCaptor<PublishRequest> publishRequestCaptor;
 
@@ -146,7 +151,10 @@ public class NotificationTopicServiceTest {
     public void before() {
         MockitoAnnotations.initMocks(this);
         
+        when(mockBridgeConfig.getPropertyAsInt(TOPIC_PUBLISH_RATE)).thenReturn(1000);
+        
         service = new NotificationTopicService();
+        service.setBridgeConfig(mockBridgeConfig);
         service.setNotificationTopicDao(mockTopicDao);
         service.setSnsClient(mockSnsClient);
         service.setNotificationRegistrationDao(mockRegistrationDao);
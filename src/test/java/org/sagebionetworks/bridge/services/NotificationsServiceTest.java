@@ -6,6 +6,7 @@ import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
 import static org.sagebionetworks.bridge.TestUtils.getNotificationMessage;
 import static org.sagebionetworks.bridge.TestUtils.getNotificationRegistration;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doReturn;
@@ -15,6 +16,8 @@ import static org.mockito.Mockito.verify;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.google.common.collect.ImmutableList;
 import org.mockito.ArgumentCaptor;
@@ -43,6 +46,7 @@ import com.amazonaws.services.sns.model.PublishResult;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class NotificationsServiceTest {
     private static final String HEALTH_CODE = "ABC";
@@ -88,7 +92,12 @@ public class NotificationsServiceTest {
         service.setParticipantService(mockParticipantService);
         service.setAppService(mockAppService);
         service.setNotificationRegistrationDao(mockRegistrationDao);
-        service.setSnsClient(mockSnsClient);
+
+        // Publish on the calling thread, so the order of the mocked SNS responses is deterministic.
+        NotificationFanOutService fanOutService = new NotificationFanOutService();
+        fanOutService.setSnsClient(mockSnsClient);
+        fanOutService.setPushNotificationExecutorService(MoreExecutors.newDirectExecutorService());
+        service.setNotificationFanOutService(fanOutService);
 
         Map<String,String> map = Maps.newHashMap();
         map.put(OS_NAME, PLATFORM_ARN);
@@ -261,7 +270,8 @@ public class NotificationsServiceTest {
         
         NotificationMessage message = getNotificationMessage();
         
-        service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message);
+        Set<String> erroredNotifications = service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message).join();
+        assertTrue(erroredNotifications.isEmpty());
         
         verify(mockSnsClient).publish(requestCaptor.capture());
         
@@ -299,14 +309,14 @@ public class NotificationsServiceTest {
             .thenThrow(new InvalidParameterException("bad parameter"));
         
         NotificationMessage message = getNotificationMessage();
-        Set<String> erroredNotifications = service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message);
+        Set<String> erroredNotifications = service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message).join();
         assertEquals(erroredNotifications.size(), 1);
         assertEquals(Iterables.getFirst(erroredNotifications, null), "registrationGuid2");        
     }
     
     // Publish to two devices, where all the devices fail. This should throw an exception as nothing 
     // was successfully returned to the user.
-    @Test(expectedExceptions = BadRequestException.class)
+    @Test
     public void sendNotificationAmazonExceptionConverted() {
         NotificationRegistration reg1 = getNotificationRegistration();
         NotificationRegistration reg2 = getNotificationRegistration();
@@ -317,7 +327,13 @@ public class NotificationsServiceTest {
         doThrow(new InvalidParameterException("bad parameter")).when(mockSnsClient).publish(any());
         
         NotificationMessage message = getNotificationMessage();
-        service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message);
+        CompletableFuture<Set<String>> future = service.sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message);
+        try {
+            future.join();
+            fail("Should have thrown exception.");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof BadRequestException);
+        }
     }
 
     private static NotificationRegistration getSmsNotificationRegistration() {
@@ -7,6 +7,7 @@ import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.joda.time.DateTimeUtils;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -14,9 +15,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.cache.TokenBucketRateLimiter;
 import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.ParticipantFileDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.LimitExceededException;
@@ -25,6 +28,8 @@ import org.sagebionetworks.bridge.models.files.ParticipantFile;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
 import java.net.URL;
 import java.util.ArrayList;
@@ -33,8 +38,8 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -56,6 +61,9 @@ public class ParticipantFileServiceTest {
     @Mock
     AmazonS3 mockS3Client;
 
+    @Mock
+    JedisPool mockJedisPool;
+
     @InjectMocks
     ParticipantFileService service;
 
@@ -73,6 +81,13 @@ public class ParticipantFileServiceTest {
         when(mockConfig.getInt("participant-file.rate-limiter.refill-bytes")).thenReturn(1000);
         service.setConfig(mockConfig);
 
+        // Redis is unavailable, so downloads are limited by the rate limiter's local buckets.
+        when(mockJedisPool.getResource()).thenThrow(new JedisConnectionException("Could not get a resource"));
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter();
+        rateLimiter.setJedisPool(mockJedisPool);
+        service.setTokenBucketRateLimiter(rateLimiter);
+        service.setParticipantFileExecutorService(MoreExecutors.newDirectExecutorService());
+
         when(mockS3Client.generatePresignedUrl(any())).thenAnswer(i -> {
             GeneratePresignedUrlRequest request = i.getArgument(0);
             String filePath = request.getKey();
@@ -139,6 +154,127 @@ public class ParticipantFileServiceTest {
         service.getParticipantFiles("userid", null, 100);
     }
 
+    @Test
+    public void getParticipantFilesUsesStoredSizes() {
+        List<ParticipantFile> files = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ParticipantFile file = ParticipantFile.create();
+            file.setFileId("file" + i);
+            file.setUserId("userid");
+            file.setFileSize(400L);
+            files.add(file);
+        }
+        when(mockFileDao.getParticipantFiles("userid", null, 100))
+                .thenReturn(new ForwardCursorPagedResourceList<>(files, null, true));
+
+        ForwardCursorPagedResourceList<ParticipantFile> result = service.getParticipantFiles("userid", null, 100);
+        assertEquals(result.getItems().get(0).getFileSize(), Long.valueOf(400L));
+        assertEquals(result.getItems().get(1).getFileSize(), Long.valueOf(400L));
+
+        verify(mockS3Client, never()).getObjectMetadata(any(), any());
+        verify(mockFileDao, never()).updateParticipantFileSize(any());
+    }
+
+    @Test(expectedExceptions = LimitExceededException.class)
+    public void getParticipantFilesRateLimitedByStoredSizes() {
+        List<ParticipantFile> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ParticipantFile file = ParticipantFile.create();
+            file.setFileId("file" + i);
+            file.setUserId("userid");
+            file.setFileSize(400L);
+            files.add(file);
+        }
+        when(mockFileDao.getParticipantFiles("userid", null, 100))
+                .thenReturn(new ForwardCursorPagedResourceList<>(files, null, true));
+
+        service.getParticipantFiles("userid", null, 100);
+    }
+
+    @Test
+    public void getParticipantFilesLooksUpMissingSizes() {
+        // Already sized, so not looked up.
+        ParticipantFile sizedFile = ParticipantFile.create();
+        sizedFile.setFileId("sized");
+        sizedFile.setUserId("userid");
+        sizedFile.setCreatedOn(TestConstants.TIMESTAMP.minusDays(2));
+        sizedFile.setFileSize(50L);
+
+        // Upload URL has expired, so the size is saved.
+        ParticipantFile legacyFile = ParticipantFile.create();
+        legacyFile.setFileId("legacy");
+        legacyFile.setUserId("userid");
+        legacyFile.setCreatedOn(TestConstants.TIMESTAMP.minusDays(2));
+
+        // Upload URL can still be used, so the object may change and the size is not saved.
+        ParticipantFile recentFile = ParticipantFile.create();
+        recentFile.setFileId("recent");
+        recentFile.setUserId("userid");
+        recentFile.setCreatedOn(TestConstants.TIMESTAMP);
+
+        // Never uploaded, so the size is 0 and is not saved.
+        ParticipantFile missingFile = ParticipantFile.create();
+        missingFile.setFileId("missing");
+        missingFile.setUserId("userid");
+        missingFile.setCreatedOn(TestConstants.TIMESTAMP.minusDays(2));
+
+        AmazonS3Exception notFoundException = new AmazonS3Exception("404 not found");
+        notFoundException.setStatusCode(404);
+        when(mockS3Client.getObjectMetadata(UPLOAD_BUCKET, "userid/missing")).thenThrow(notFoundException);
+
+        when(mockFileDao.getParticipantFiles("userid", null, 100)).thenReturn(new ForwardCursorPagedResourceList<>(
+                ImmutableList.of(sizedFile, legacyFile, recentFile, missingFile), null, true));
+
+        ForwardCursorPagedResourceList<ParticipantFile> result = service.getParticipantFiles("userid", null, 100);
+        assertEquals(result.getItems().get(0).getFileSize(), Long.valueOf(50L));
+        assertEquals(result.getItems().get(1).getFileSize(), Long.valueOf(100L));
+        assertEquals(result.getItems().get(2).getFileSize(), Long.valueOf(100L));
+        assertEquals(result.getItems().get(3).getFileSize(), Long.valueOf(0L));
+
+        verify(mockS3Client, never()).getObjectMetadata(UPLOAD_BUCKET, "userid/sized");
+        verify(mockFileDao).updateParticipantFileSize(legacyFile);
+        verify(mockFileDao, never()).updateParticipantFileSize(recentFile);
+        verify(mockFileDao, never()).updateParticipantFileSize(missingFile);
+    }
+
+    @Test
+    public void getParticipantFilesErrorSavingSizes() {
+        ParticipantFile legacyFile = ParticipantFile.create();
+        legacyFile.setFileId("legacy");
+        legacyFile.setUserId("userid");
+        legacyFile.setCreatedOn(TestConstants.TIMESTAMP.minusDays(2));
+        when(mockFileDao.getParticipantFiles("userid", null, 100)).thenReturn(
+                new ForwardCursorPagedResourceList<>(ImmutableList.of(legacyFile), null, true));
+        doThrow(new RuntimeException()).when(mockFileDao).updateParticipantFileSize(any());
+
+        // The listing does not fail because the sizes could not be saved.
+        ForwardCursorPagedResourceList<ParticipantFile> result = service.getParticipantFiles("userid", null, 100);
+        assertEquals(result.getItems().get(0).getFileSize(), Long.valueOf(100L));
+    }
+
+    @Test
+    public void getParticipantFilesFileChangedWhileSaving() {
+        ParticipantFile legacyFile = ParticipantFile.create();
+        legacyFile.setFileId("legacy");
+        legacyFile.setUserId("userid");
+        legacyFile.setCreatedOn(TestConstants.TIMESTAMP.minusDays(2));
+        ParticipantFile otherFile = ParticipantFile.create();
+        otherFile.setFileId("other");
+        otherFile.setUserId("userid");
+        otherFile.setCreatedOn(TestConstants.TIMESTAMP.minusDays(2));
+        when(mockFileDao.getParticipantFiles("userid", null, 100)).thenReturn(
+                new ForwardCursorPagedResourceList<>(ImmutableList.of(legacyFile, otherFile), null, true));
+        doThrow(new ConcurrentModificationException("File changed")).when(mockFileDao)
+                .updateParticipantFileSize(legacyFile);
+
+        // The file was re-uploaded after it was read, so its size is not saved, but the listing does not fail and
+        // the other file's size is still saved.
+        ForwardCursorPagedResourceList<ParticipantFile> result = service.getParticipantFiles("userid", null, 100);
+        assertEquals(result.getItems().get(0).getFileSize(), Long.valueOf(100L));
+        assertEquals(result.getItems().get(1).getFileSize(), Long.valueOf(100L));
+        verify(mockFileDao).updateParticipantFileSize(otherFile);
+    }
+
     @Test
     public void getParticipantFile() {
         String downloadUrl = "https://" + UPLOAD_BUCKET + "/test_user/file_id";
@@ -159,7 +295,10 @@ public class ParticipantFileServiceTest {
         assertEquals(result.getDownloadUrl(), downloadUrl);
         assertEquals(result.getAppId(), "api");
         assertEquals(result.getExpiresOn().getMillis(), TestConstants.TIMESTAMP.plusDays(1).getMillis());
+        assertEquals(result.getFileSize(), Long.valueOf(100L));
         assertNull(result.getUploadUrl());
+        // The upload URL has not expired, so the size is not saved.
+        verify(mockFileDao, never()).updateParticipantFileSize(any());
 
         verify(mockS3Client).generatePresignedUrl(requestCaptor.capture());
         GeneratePresignedUrlRequest request = requestCaptor.getValue();
@@ -184,7 +323,9 @@ public class ParticipantFileServiceTest {
                         "RateLimiter should not have rejected download %d of 100 KB with initial of 1 MB", i + 1));
             }
         }
-        verify(mockS3Client, times(10)).getObjectMetadata(UPLOAD_BUCKET, "userid/fileid");
+        // The size is looked up once and saved, and the stored size is used after that.
+        verify(mockS3Client).getObjectMetadata(UPLOAD_BUCKET, "userid/fileid");
+        verify(mockFileDao).updateParticipantFileSize(file);
         service.getParticipantFile("userid", "fileid");
     }
 
@@ -199,8 +340,10 @@ public class ParticipantFileServiceTest {
         file.setUserId("userid");
         when(mockFileDao.getParticipantFile("userid", "fileid")).thenReturn(Optional.of(file));
         // should be allowed because 404 from S3 = 0 bytes uploaded = 0 bytes to download
-        service.getParticipantFile("userid", "fileid");
+        ParticipantFile result = service.getParticipantFile("userid", "fileid");
+        assertEquals(result.getFileSize(), Long.valueOf(0L));
         verify(mockS3Client).getObjectMetadata(UPLOAD_BUCKET, "userid/fileid");
+        verify(mockFileDao, never()).updateParticipantFileSize(any());
     }
 
     @Test(expectedExceptions = AmazonS3Exception.class)
@@ -233,6 +376,7 @@ public class ParticipantFileServiceTest {
         file.setUserId("wrong_user");
         file.setMimeType("dummy-type");
         file.setAppId("wrong_api");
+        file.setFileSize(500L);
         ParticipantFile result = service.createParticipantFile("api", "test_user", file);
         assertEquals(result.getUserId(), "test_user");
         assertEquals(result.getFileId(), "file_id");
@@ -243,6 +387,7 @@ public class ParticipantFileServiceTest {
         assertEquals(result.getCreatedOn().getMillis(), TestConstants.TIMESTAMP.getMillis());
         assertEquals(result.getExpiresOn().getMillis(), TestConstants.TIMESTAMP.plusDays(1).getMillis());
         assertNull(result.getDownloadUrl());
+        assertNull(result.getFileSize());
         
         verify(mockS3Client).deleteObject(eq(UPLOAD_BUCKET), eq("test_user/file_id"));
 
@@ -2,6 +2,7 @@ package org.sagebionetworks.bridge.services;
 
 import static java.lang.Boolean.TRUE;
 import static org.joda.time.DateTimeZone.UTC;
+import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.TEST_USER_GROUP;
 import static org.sagebionetworks.bridge.BridgeUtils.collectExternalIds;
 import static org.sagebionetworks.bridge.RequestContext.NULL_INSTANCE;
@@ -37,16 +38,19 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 
 import org.joda.time.DateTime;
@@ -75,9 +79,11 @@ import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
 import org.sagebionetworks.bridge.exceptions.LimitExceededException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
+import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.AccountSummarySearch;
 import org.sagebionetworks.bridge.models.ClientInfo;
 import org.sagebionetworks.bridge.models.CriteriaContext;
+import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.PagedResourceList;
 import org.sagebionetworks.bridge.models.RequestInfo;
 import org.sagebionetworks.bridge.models.accounts.Account;
@@ -770,6 +776,24 @@ public class ParticipantServiceTest extends Mockito {
         verify(accountService).getPagedAccountSummaries(TEST_APP_ID, search); 
     }
     
+    @Test
+    public void getAccountSummariesByCursor() {
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withPageSize(50)
+                .withEmailFilter("foo").build();
+        
+        participantService.getAccountSummariesByCursor(APP, search, "offsetKey", true);
+        
+        verify(accountService).getAccountSummariesByCursor(TEST_APP_ID, search, "offsetKey", true); 
+    }
+    
+    @Test(expectedExceptions = InvalidEntityException.class)
+    public void getAccountSummariesByCursorWithBadDateRange() {
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withStartTime(END_DATE).withEndTime(START_DATE).build();
+        participantService.getAccountSummariesByCursor(APP, search, null, false);
+    }
+    
     @Test(expectedExceptions = NullPointerException.class)
     public void getPagedAccountSummariesWithBadStudy() {
         participantService.getPagedAccountSummaries(null, AccountSummarySearch.EMPTY_SEARCH);
@@ -1463,6 +1487,32 @@ public class ParticipantServiceTest extends Mockito {
         participantService.getParticipant(APP, (Account) null, false);
     }
 
+    @Test
+    public void getParticipantForSession() {
+        account.setHealthCode(HEALTH_CODE);
+        account.setId(ID);
+        account.setEmail(EMAIL);
+        account.setLanguages(USER_LANGUAGES);
+        account.setOrgMembership(TEST_ORG_ID);
+        
+        StudyParticipant participant = participantService.getParticipantForSession(account);
+        assertEquals(participant.getHealthCode(), HEALTH_CODE);
+        assertEquals(participant.getId(), ID);
+        assertEquals(participant.getEmail(), EMAIL);
+        assertEquals(participant.getLanguages(), USER_LANGUAGES);
+        assertEquals(participant.getOrgMembership(), TEST_ORG_ID);
+        assertNull(participant.isConsented());
+        
+        // The consent status is calculated by the session, not here
+        verify(requestInfoService, never()).getRequestInfo(any());
+        verify(consentService, never()).getConsentStatuses(any(), any());
+    }
+
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void getParticipantForSessionWithoutAccountThrows404() {
+        participantService.getParticipantForSession(null);
+    }
+
     @Test
     public void canGetActivityHistoryV2WithAllValues() {
         mockHealthCodeAndAccountRetrieval();
@@ -1579,9 +1629,10 @@ public class ParticipantServiceTest extends Mockito {
         Set<String> erroredNotifications = ImmutableSet.of("ABC");
         NotificationMessage message = TestUtils.getNotificationMessage();
         
-        when(notificationsService.sendNotificationToUser(any(), any(), any())).thenReturn(erroredNotifications);
+        when(notificationsService.sendNotificationToUser(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(erroredNotifications));
         
-        Set<String> returnedErrors = participantService.sendNotification(APP, ID, message);
+        Set<String> returnedErrors = participantService.sendNotification(APP, ID, message).join();
         assertEquals(returnedErrors, erroredNotifications);
         
         verify(notificationsService).sendNotificationToUser(TEST_APP_ID, HEALTH_CODE, message);
@@ -2117,10 +2168,94 @@ public class ParticipantServiceTest extends Mockito {
         ParticipantRosterRequest request = new ParticipantRosterRequest.Builder().withPassword(PASSWORD).withStudyId(STUDY_ID).build();
 
         participantService.requestParticipantRoster(APP, TEST_USER_ID, request);
-        
+
         verify(sqsClient).sendMessage(any(), any());
     }
-    
+
+    @Test
+    public void getParticipantRosterContentType() {
+        assertEquals(participantService.getParticipantRosterContentType("ndjson"), "application/x-ndjson");
+        assertEquals(participantService.getParticipantRosterContentType("csv"), "text/csv");
+    }
+
+    @Test(expectedExceptions = BadRequestException.class,
+            expectedExceptionsMessageRegExp = "Invalid participant roster format: xml")
+    public void getParticipantRosterContentTypeInvalid() {
+        participantService.getParticipantRosterContentType("xml");
+    }
+
+    @Test
+    public void writeParticipantRosterNdjson() throws Exception {
+        AccountSummary summary1 = new AccountSummary.Builder().withId("user1").withEmail(EMAIL).build();
+        AccountSummary summary2 = new AccountSummary.Builder().withId("user2").withPhone(PHONE).build();
+        mockRosterPages(summary1, summary2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        participantService.writeParticipantRoster(APP, STUDY_ID, "ndjson", out);
+
+        ObjectMapper mapper = BridgeObjectMapper.get();
+        String expected = mapper.writeValueAsString(summary1) + "\n" + mapper.writeValueAsString(summary2) + "\n";
+        assertEquals(out.toString("UTF-8"), expected);
+
+        verify(accountService, times(2)).getAccountSummariesByCursor(eq(TEST_APP_ID), searchCaptor.capture(),
+                any(), eq(false));
+        AccountSummarySearch search = searchCaptor.getValue();
+        assertEquals(search.getEnrolledInStudyId(), STUDY_ID);
+        assertEquals(search.getPageSize(), API_MAXIMUM_PAGE_SIZE);
+    }
+
+    @Test
+    public void writeParticipantRosterCsv() throws Exception {
+        AccountSummary summary1 = new AccountSummary.Builder().withId("user1")
+                .withExternalIds(ImmutableMap.of(STUDY_ID, "extId", "otherStudy", "otherExtId"))
+                .withEmail(EMAIL).withFirstName("Last, First").withLastName("\"Nick\"")
+                .withStatus(AccountStatus.ENABLED).withCreatedOn(CREATED_ON)
+                .withDataGroups(ImmutableSet.of("group1")).build();
+        AccountSummary summary2 = new AccountSummary.Builder().withId("user2").withPhone(PHONE).build();
+        mockRosterPages(summary1, summary2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        participantService.writeParticipantRoster(APP, STUDY_ID, "csv", out);
+
+        String expected = "id,externalId,email,phone,firstName,lastName,status,createdOn,dataGroups\r\n"
+                + "user1,extId," + EMAIL + ",,\"Last, First\",\"\"\"Nick\"\"\",ENABLED," + CREATED_ON + ",group1\r\n"
+                + "user2,,," + PHONE.getNumber() + ",,,,,\r\n";
+        assertEquals(out.toString("UTF-8"), expected);
+    }
+
+    @Test
+    public void writeParticipantRosterNoParticipants() throws Exception {
+        when(accountService.getAccountSummariesByCursor(eq(TEST_APP_ID), any(), isNull(), eq(false)))
+                .thenReturn(new ForwardCursorPagedResourceList<>(ImmutableList.of(), null, true));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        participantService.writeParticipantRoster(APP, STUDY_ID, "csv", out);
+
+        assertEquals(out.toString("UTF-8"), "id,externalId,email,phone,firstName,lastName,status,createdOn,dataGroups\r\n");
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void writeParticipantRosterInvalidFormat() throws Exception {
+        participantService.writeParticipantRoster(APP, STUDY_ID, "xml", new ByteArrayOutputStream());
+    }
+
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void writeParticipantRoster_notStudyCoordinatorNoStudyAccess() throws Exception {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerUserId("id")
+                .withCallerRoles(ImmutableSet.of(Roles.STUDY_COORDINATOR))
+                .withOrgSponsoredStudies(ImmutableSet.of("study1", "study2")).build());
+
+        participantService.writeParticipantRoster(APP, STUDY_ID, "ndjson", new ByteArrayOutputStream());
+    }
+
+    private void mockRosterPages(AccountSummary page1Summary, AccountSummary page2Summary) {
+        when(accountService.getAccountSummariesByCursor(eq(TEST_APP_ID), any(), isNull(), eq(false)))
+                .thenReturn(new ForwardCursorPagedResourceList<>(ImmutableList.of(page1Summary), "offsetKey", true));
+        when(accountService.getAccountSummariesByCursor(eq(TEST_APP_ID), any(), eq("offsetKey"), eq(false)))
+                .thenReturn(new ForwardCursorPagedResourceList<>(ImmutableList.of(page2Summary), null, true));
+    }
+
     @Test
     public void updateParticipantNoteSuccessfulAsAdmin() {
         // RESEARCHER role set in Before method
@@ -2,8 +2,10 @@ package org.sagebionetworks.bridge.services;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.sagebionetworks.bridge.RequestContext.NULL_INSTANCE;
+import static org.sagebionetworks.bridge.BridgeConstants.REPORT_INDEX_EXPIRE_IN_SECONDS;
 import static org.sagebionetworks.bridge.Roles.ADMIN;
 import static org.sagebionetworks.bridge.Roles.STUDY_COORDINATOR;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -31,6 +33,8 @@ import org.testng.annotations.Test;
 import org.sagebionetworks.bridge.BridgeConstants;
 import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.ReportDataDao;
 import org.sagebionetworks.bridge.dao.ReportIndexDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
@@ -46,6 +50,7 @@ import org.sagebionetworks.bridge.models.reports.ReportType;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
@@ -84,9 +89,15 @@ public class ReportServiceTest extends Mockito {
     @Mock
     ReportIndexDao mockReportIndexDao;
     
+    @Mock
+    CacheProvider mockCacheProvider;
+    
     @Captor
     ArgumentCaptor<ReportData> reportDataCaptor;
     
+    @Captor
+    ArgumentCaptor<List<ReportData>> reportDataListCaptor;
+    
     @Captor
     ArgumentCaptor<ReportIndex> reportIndexCaptor;
     
@@ -343,12 +354,159 @@ public class ReportServiceTest extends Mockito {
         verify(mockReportIndexDao, never()).addIndex(any(), any());
     }
     
+    @Test
+    public void saveStudyReports() {
+        ReportData report1 = createReport(LocalDate.parse("2015-02-10"), "First", "Name");
+        ReportData report2 = createReport(LocalDate.parse("2015-02-11"), "Last", "Name");
+        
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, ImmutableList.of(report1, report2));
+        
+        verify(mockReportIndexDao).getIndex(STUDY_REPORT_DATA_KEY);
+        verify(mockReportDataDao).saveReportDataBatch(reportDataListCaptor.capture());
+        List<ReportData> saved = reportDataListCaptor.getValue();
+        assertEquals(saved, ImmutableList.of(report1, report2));
+        assertEquals(saved.get(0).getKey(), STUDY_REPORT_DATA_KEY.getKeyString());
+        assertEquals(saved.get(1).getKey(), STUDY_REPORT_DATA_KEY.getKeyString());
+        
+        verify(mockReportIndexDao).addIndex(STUDY_REPORT_DATA_KEY, null);
+        verify(mockReportDataDao, never()).saveReportData(any());
+    }
+    
+    @Test
+    public void saveStudyReportsDoesNotResaveIndex() {
+        ReportData someData = createReport(LocalDate.parse("2015-02-10"), "First", "Name");
+        when(mockReportIndexDao.getIndex(any())).thenReturn(ReportIndex.create());
+        
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, ImmutableList.of(someData));
+        
+        verify(mockReportDataDao).saveReportDataBatch(any());
+        verify(mockReportIndexDao, never()).addIndex(any(), any());
+    }
+    
+    @Test
+    public void saveParticipantReports() {
+        ReportData report1 = createReport(LocalDate.parse("2015-02-10"), "First", "Name");
+        report1.setStudyIds(USER_STUDY_IDS);
+        ReportData report2 = createReport(LocalDate.parse("2015-02-11"), "Last", "Name");
+        report2.setStudyIds(USER_STUDY_IDS);
+        
+        service.saveParticipantReports(TEST_APP_ID, TEST_USER_ID, IDENTIFIER, HEALTH_CODE,
+                ImmutableList.of(report1, report2));
+        
+        verify(mockReportDataDao).saveReportDataBatch(reportDataListCaptor.capture());
+        List<ReportData> saved = reportDataListCaptor.getValue();
+        assertEquals(saved.get(0).getKey(), PARTICIPANT_REPORT_DATA_KEY.getKeyString());
+        assertEquals(saved.get(1).getKey(), PARTICIPANT_REPORT_DATA_KEY.getKeyString());
+        
+        verify(mockReportIndexDao).addIndex(PARTICIPANT_REPORT_DATA_KEY, USER_STUDY_IDS);
+    }
+    
+    @Test(expectedExceptions = InvalidEntityException.class)
+    public void saveParticipantReportsValidatesStudiesAgainstIndex() {
+        ReportIndex index = ReportIndex.create();
+        index.setStudyIds(USER_STUDY_IDS);
+        index.setPublic(true);
+        when(mockReportIndexDao.getIndex(any())).thenReturn(index);
+        
+        ReportData report1 = createReport(LocalDate.parse("2015-02-10"), "First", "Name");
+        ReportData report2 = createReport(LocalDate.parse("2015-02-11"), "Last", "Name");
+        report2.setStudyIds(ImmutableSet.of("otherStudy"));
+        
+        try {
+            service.saveParticipantReports(TEST_APP_ID, TEST_USER_ID, IDENTIFIER, HEALTH_CODE,
+                    ImmutableList.of(report1, report2));
+        } finally {
+            verify(mockReportDataDao, never()).saveReportDataBatch(any());
+        }
+    }
+    
+    @Test(expectedExceptions = InvalidEntityException.class)
+    public void saveStudyReportsNewIndexRequiresSameStudies() {
+        ReportData report1 = createReport(LocalDate.parse("2015-02-10"), "First", "Name");
+        report1.setStudyIds(USER_STUDY_IDS);
+        ReportData report2 = createReport(LocalDate.parse("2015-02-11"), "Last", "Name");
+        report2.setStudyIds(ImmutableSet.of("otherStudy"));
+        
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, ImmutableList.of(report1, report2));
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class,
+            expectedExceptionsMessageRegExp = "Report records in a batch must have different dates: 2015-02-10")
+    public void saveStudyReportsRejectsDuplicateDates() {
+        ReportData report1 = createReport(LocalDate.parse("2015-02-10"), "First", "Name");
+        ReportData report2 = createReport(LocalDate.parse("2015-02-10"), "Last", "Name");
+        
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, ImmutableList.of(report1, report2));
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void saveStudyReportsRejectsDuplicateDateTimesInDifferentZones() {
+        ReportData report1 = createReport(null, "First", "Name");
+        report1.setDateTime(START_TIME);
+        ReportData report2 = createReport(null, "Last", "Name");
+        report2.setDateTime(START_TIME.withZone(DateTimeZone.UTC));
+        
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, ImmutableList.of(report1, report2));
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class,
+            expectedExceptionsMessageRegExp = "Report records must be saved in batches of 1-100 records")
+    public void saveStudyReportsEmpty() {
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, ImmutableList.of());
+    }
+    
+    @Test(expectedExceptions = BadRequestException.class)
+    public void saveStudyReportsTooMany() {
+        List<ReportData> reports = Lists.newArrayList();
+        LocalDate date = LocalDate.parse("2015-01-01");
+        for (int i = 0; i <= ReportService.MAX_BATCH_SIZE; i++) {
+            reports.add(createReport(date.plusDays(i), "First", "Name"));
+        }
+        service.saveStudyReports(TEST_APP_ID, IDENTIFIER, reports);
+    }
+    
+    @Test
+    public void reportIndexIsCached() {
+        ReportIndex index = ReportIndex.create();
+        index.setIdentifier(IDENTIFIER);
+        when(mockReportIndexDao.getIndex(STUDY_REPORT_DATA_KEY)).thenReturn(index);
+        
+        ReportIndex retrieved = service.getReportIndex(STUDY_REPORT_DATA_KEY);
+        assertSame(retrieved, index);
+        
+        verify(mockCacheProvider).setObject(CacheKey.reportIndex(STUDY_REPORT_DATA_KEY), index,
+                REPORT_INDEX_EXPIRE_IN_SECONDS);
+    }
+    
+    @Test
+    public void reportIndexIsRetrievedFromCache() {
+        ReportIndex index = ReportIndex.create();
+        index.setIdentifier(IDENTIFIER);
+        when(mockCacheProvider.getObject(CacheKey.reportIndex(STUDY_REPORT_DATA_KEY), ReportIndex.class))
+                .thenReturn(index);
+        
+        ReportIndex retrieved = service.getReportIndex(STUDY_REPORT_DATA_KEY);
+        assertSame(retrieved, index);
+        assertEquals(retrieved.getKey(), STUDY_REPORT_DATA_KEY.getIndexKeyString());
+        
+        verify(mockReportIndexDao, never()).getIndex(any());
+    }
+    
+    @Test
+    public void missingReportIndexIsNotCached() {
+        service.saveStudyReport(TEST_APP_ID, IDENTIFIER, createReport(DATE, "First", "Name"));
+        
+        verify(mockReportIndexDao).getIndex(STUDY_REPORT_DATA_KEY);
+        verify(mockCacheProvider, never()).setObject(any(), any(), anyInt());
+    }
+    
     @Test
     public void deleteStudyReport() {
         service.deleteStudyReport(TEST_APP_ID, IDENTIFIER);
         
         verify(mockReportDataDao).deleteReportData(STUDY_REPORT_DATA_KEY);
         verify(mockReportIndexDao).removeIndex(STUDY_REPORT_DATA_KEY);
+        verify(mockCacheProvider).removeObject(CacheKey.reportIndex(STUDY_REPORT_DATA_KEY));
     }
     
     @Test
@@ -631,6 +789,7 @@ public class ReportServiceTest extends Mockito {
         service.updateReportIndex(TEST_APP_ID, ReportType.STUDY, updatedIndex);
         
         verify(mockReportIndexDao).updateIndex(reportIndexCaptor.capture());
+        verify(mockCacheProvider).removeObject(CacheKey.reportIndex(STUDY_REPORT_DATA_KEY));
         
         ReportIndex captured = reportIndexCaptor.getValue();
         assertEquals(captured.getIdentifier(), IDENTIFIER);
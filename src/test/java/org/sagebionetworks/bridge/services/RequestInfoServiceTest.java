@@ -1,9 +1,18 @@
 package org.sagebionetworks.bridge.services;
 
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
+import static org.sagebionetworks.bridge.services.RequestInfoService.CONFIG_KEY_FLUSH_BATCH_SIZE;
+import static org.sagebionetworks.bridge.services.RequestInfoService.CONFIG_KEY_FLUSH_INTERVAL_SECONDS;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import org.joda.time.DateTime;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -12,7 +21,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.dao.RequestInfoDao;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.models.RequestInfo;
 
 public class RequestInfoServiceTest extends Mockito {
@@ -26,17 +37,99 @@ public class RequestInfoServiceTest extends Mockito {
     @Mock
     RequestInfoDao mockRequestInfoDao;
     
+    @Mock
+    BridgeConfig mockBridgeConfig;
+    
+    @Captor
+    ArgumentCaptor<List<RequestInfo>> requestInfosCaptor;
+    
     @BeforeMethod
     public void beforeMethod() {
         MockitoAnnotations.initMocks(this);
+        
+        when(mockBridgeConfig.getInt(CONFIG_KEY_FLUSH_INTERVAL_SECONDS)).thenReturn(5);
+        when(mockBridgeConfig.getInt(CONFIG_KEY_FLUSH_BATCH_SIZE)).thenReturn(2);
+        service.setBridgeConfig(mockBridgeConfig);
     }
 
     @Test
-    public void updateRequestInfo() {
-        RequestInfo info = new RequestInfo.Builder().build();
+    public void updateRequestInfoIsBuffered() {
+        RequestInfo info = new RequestInfo.Builder().withUserId(TEST_USER_ID).build();
         service.updateRequestInfo(info);
         
-        verify(mockRequestInfoDao).updateRequestInfo(info);
+        verify(mockRequestInfoDao, never()).updateRequestInfo(any());
+        verify(mockRequestInfoDao, never()).updateRequestInfos(any());
+        
+        service.flush();
+        
+        verify(mockRequestInfoDao).updateRequestInfos(ImmutableList.of(info));
+    }
+    
+    @Test
+    public void updatesAreMergedForEachUser() {
+        DateTime signedInOn = DateTime.now();
+        DateTime uploadedOn = signedInOn.plusMinutes(1);
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withSignedInOn(signedInOn).withUserAgent("agent1").build());
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID)
+                .withUploadedOn(uploadedOn).withUserAgent("agent2").build());
+        
+        // Reads are served from the pending update.
+        RequestInfo pending = service.getRequestInfo(TEST_USER_ID);
+        assertEquals(pending.getSignedInOn(), signedInOn);
+        assertEquals(pending.getUploadedOn(), uploadedOn);
+        assertEquals(pending.getUserAgent(), "agent2");
+        verify(mockRequestInfoDao, never()).getRequestInfo(any());
+        
+        service.flush();
+        
+        verify(mockRequestInfoDao).updateRequestInfos(requestInfosCaptor.capture());
+        assertEquals(requestInfosCaptor.getValue(), ImmutableList.of(pending));
+        
+        // Once written, reads go to the database again.
+        service.getRequestInfo(TEST_USER_ID);
+        verify(mockRequestInfoDao).getRequestInfo(TEST_USER_ID);
+    }
+    
+    @Test
+    public void flushWritesInBatches() {
+        RequestInfo info1 = new RequestInfo.Builder().withUserId("user1").build();
+        RequestInfo info2 = new RequestInfo.Builder().withUserId("user2").build();
+        RequestInfo info3 = new RequestInfo.Builder().withUserId("user3").build();
+        service.updateRequestInfo(info1);
+        service.updateRequestInfo(info2);
+        service.updateRequestInfo(info3);
+        
+        service.flush();
+        
+        verify(mockRequestInfoDao, times(2)).updateRequestInfos(requestInfosCaptor.capture());
+        List<List<RequestInfo>> batches = requestInfosCaptor.getAllValues();
+        assertEquals(batches.get(0).size(), 2);
+        assertEquals(batches.get(1).size(), 1);
+        
+        // Nothing is left to write.
+        service.flush();
+        verify(mockRequestInfoDao, times(2)).updateRequestInfos(any());
+    }
+    
+    @Test
+    public void flushFallsBackToIndividualWrites() {
+        RequestInfo info1 = new RequestInfo.Builder().withUserId("user1").build();
+        RequestInfo info2 = new RequestInfo.Builder().withUserId("user2").build();
+        service.updateRequestInfo(info1);
+        service.updateRequestInfo(info2);
+        doThrow(new BridgeServiceException("error")).when(mockRequestInfoDao)
+                .updateRequestInfos(argThat(list -> list.size() > 1 || list.contains(info1)));
+        
+        service.flush();
+        
+        verify(mockRequestInfoDao).updateRequestInfos(ImmutableList.of(info1));
+        verify(mockRequestInfoDao).updateRequestInfos(ImmutableList.of(info2));
+        verify(mockRequestInfoDao, never()).updateRequestInfo(any());
+        
+        // The failed record is not retried indefinitely.
+        service.flush();
+        verify(mockRequestInfoDao, times(3)).updateRequestInfos(any());
     }
     
     @Test
@@ -73,7 +166,12 @@ public class RequestInfoServiceTest extends Mockito {
     
     @Test
     public void removeRequestInfo() {
+        service.updateRequestInfo(new RequestInfo.Builder().withUserId(TEST_USER_ID).build());
         service.removeRequestInfo(TEST_USER_ID);
+        
+        // The pending update is discarded.
+        service.flush();
+        verify(mockRequestInfoDao, never()).updateRequestInfos(any());
         verify(mockRequestInfoDao).removeRequestInfo(TEST_USER_ID);
         verify(mockCacheProvider).removeRequestInfo(TEST_USER_ID);
     }
@@ -47,7 +47,9 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.RequestContext;
+import org.sagebionetworks.bridge.cache.CacheKey;
 import org.sagebionetworks.bridge.cache.CacheProvider;
+import org.sagebionetworks.bridge.cache.ViewCache;
 import org.sagebionetworks.bridge.dao.Schedule2Dao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
@@ -88,6 +90,9 @@ public class Schedule2ServiceTest extends Mockito {
     @Mock
     CacheProvider mockCacheProvider;
     
+    @Mock
+    ViewCache mockViewCache;
+    
     @Mock
     StudyActivityEventService mockStudyActivityEventService;
 
@@ -615,6 +620,8 @@ public class Schedule2ServiceTest extends Mockito {
         assertFalse(captured.isDeleted());
         assertFalse(captured.isPublished());
         assertEquals(captured.getVersion(), 2L);
+        
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.timelineList(GUID));
     }
     
     @Test(expectedExceptions = PublishedEntityException.class)
@@ -695,6 +702,7 @@ public class Schedule2ServiceTest extends Mockito {
         assertEquals(scheduleCaptor.getValue().getModifiedOn(), MODIFIED_ON);
         
         verify(mockStudyService).updateStudyEtags(TEST_APP_ID, GUID, MODIFIED_ON);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.timelineList(GUID));
     }
     
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -740,6 +748,7 @@ public class Schedule2ServiceTest extends Mockito {
         verify(mockDao).deleteSchedule(existing);
         
         verify(mockStudyService).removeStudyEtags(TEST_APP_ID, GUID);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.timelineList(GUID));
     }
     
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -789,6 +798,7 @@ public class Schedule2ServiceTest extends Mockito {
         
         verify(mockDao).deleteSchedulePermanently(existing);
         verify(mockStudyService).removeStudyEtags(TEST_APP_ID, GUID);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.timelineList(GUID));
     }
 
     @Test(expectedExceptions = EntityNotFoundException.class)
@@ -1045,6 +1055,32 @@ public class Schedule2ServiceTest extends Mockito {
         assertNotNull(timeline);
     }
     
+    @SuppressWarnings("unchecked")
+    @Test
+    public void getTimelineJson() {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerLanguages(ImmutableList.of("EN", "fr")).build());
+        
+        Schedule2 schedule = new Schedule2();
+        schedule.setGuid(GUID);
+        schedule.setModifiedOn(MODIFIED_ON);
+        
+        CacheKey viewKey = CacheKey.viewKey(Timeline.class, GUID, 
+                Long.toString(MODIFIED_ON.getMillis()), "en,fr");
+        when(mockViewCache.getCacheKey(Timeline.class, GUID, Long.toString(MODIFIED_ON.getMillis()), "en,fr"))
+                .thenReturn(viewKey);
+        when(mockViewCache.getView(eq(viewKey), any())).thenAnswer(invocation -> {
+            com.google.common.base.Supplier<Timeline> supplier = invocation.getArgument(1);
+            assertNotNull(supplier.get());
+            return "{}";
+        });
+        
+        String retValue = service.getTimelineJson(schedule);
+        assertEquals(retValue, "{}");
+        
+        verify(mockCacheProvider).addCacheKeyToSet(CacheKey.timelineList(GUID), viewKey.toString());
+    }
+    
     @Test
     public void getTimelineMetadata() {
         TimelineMetadata meta = new TimelineMetadata();
@@ -1,10 +1,12 @@
 package org.sagebionetworks.bridge.services;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
@@ -20,6 +22,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.util.Arrays;
 import java.util.List;
@@ -48,10 +51,10 @@ import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoScheduledActivity;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.time.DateUtils;
 import org.sagebionetworks.bridge.models.ClientInfo;
-import org.sagebionetworks.bridge.models.ForwardCursorPagedResourceList;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.schedules.Activity;
 import org.sagebionetworks.bridge.models.schedules.ActivityType;
@@ -71,6 +74,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -124,6 +128,9 @@ public class ScheduledActivityServiceTest {
     @Captor
     private ArgumentCaptor<List<ScheduledActivity>> scheduledActivityListCaptor;
     
+    @Captor
+    private ArgumentCaptor<Set<String>> setCaptor;
+    
     @BeforeMethod
     public void before() {
         MockitoAnnotations.initMocks(this);
@@ -202,6 +209,46 @@ public class ScheduledActivityServiceTest {
                 eq(app), eq(HEALTH_CODE), any(DateTime.class));
     }
     
+    @Test
+    public void activitiesRetrievedEventIsDebounced() {
+        service.setActivitiesRetrievedDebounceSeconds(60);
+        ScheduleContext context = createScheduleContext(ENDS_ON).build();
+        service.getScheduledActivities(app, context);
+        service.getScheduledActivitiesV4(app, context);
+        
+        verify(activityEventService, times(1)).publishActivitiesRetrieved(
+                eq(app), eq(HEALTH_CODE), any(DateTime.class));
+    }
+    
+    @Test
+    public void activitiesRetrievedEventNotDebouncedByDefault() {
+        ScheduleContext context = createScheduleContext(ENDS_ON).build();
+        service.getScheduledActivities(app, context);
+        service.getScheduledActivities(app, context);
+        
+        verify(activityEventService, times(2)).publishActivitiesRetrieved(
+                eq(app), eq(HEALTH_CODE), any(DateTime.class));
+    }
+    
+    @Test
+    public void activitiesRetrievedEventRetriedAfterFailure() {
+        service.setActivitiesRetrievedDebounceSeconds(60);
+        doThrow(new BridgeServiceException("error")).doNothing().when(activityEventService)
+                .publishActivitiesRetrieved(eq(app), eq(HEALTH_CODE), any(DateTime.class));
+        ScheduleContext context = createScheduleContext(ENDS_ON).build();
+        try {
+            service.getScheduledActivities(app, context);
+            fail("Should have thrown exception");
+        } catch (BridgeServiceException e) {
+            // expected
+        }
+        service.getScheduledActivities(app, context);
+        service.getScheduledActivities(app, context);
+        
+        verify(activityEventService, times(2)).publishActivitiesRetrieved(
+                eq(app), eq(HEALTH_CODE), any(DateTime.class));
+    }
+    
     @Test
     public void activityHistoryDefaultsDateRange() {
         DateTimeUtils.setCurrentMillisFixed(STARTS_ON.getMillis());
@@ -446,9 +493,7 @@ public class ScheduledActivityServiceTest {
         
         when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb));
         
-        ForwardCursorPagedResourceList<ScheduledActivity> list = new ForwardCursorPagedResourceList<>(createStartedActivities("BBB"+TIME_PORTION), null);
-        when(activityDao.getActivityHistoryV2(HEALTH_CODE, "BBB", NOW, NOW, null, API_MAXIMUM_PAGE_SIZE))
-                .thenReturn(list);        
+        mockGetActivityHistories(createStartedActivities("BBB"+TIME_PORTION));
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertActivityGuids(returnedActivities, "AAA", "BBB");
@@ -524,8 +569,7 @@ public class ScheduledActivityServiceTest {
         
         List<ScheduledActivity> db = Lists.newArrayList(createExpiredActivities("AAA"+TIME_PORTION).get(0),
                 createFinishedActivities("BBB"+TIME_PORTION).get(0));
-        when(activityDao.getActivityHistoryV2(HEALTH_CODE, "BBB", NOW, NOW, null, API_MAXIMUM_PAGE_SIZE))
-                .thenReturn(new ForwardCursorPagedResourceList<>(db, null));
+        mockGetActivityHistories(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertActivityGuids(returnedActivities, "AAA", "BBB", "CCC");
@@ -567,8 +611,7 @@ public class ScheduledActivityServiceTest {
         when(schedulePlanService.getSchedulePlans(ClientInfo.UNKNOWN_CLIENT, TEST_APP_ID, false)).thenReturn(Lists.newArrayList(aaa,bbb,ccc));
         
         List<ScheduledActivity> db = createStartedActivities("AAA"+TIME_PORTION,"CCC"+TIME_PORTION);
-        when(activityDao.getActivityHistoryV2(HEALTH_CODE, "BBB", NOW, NOW, null, API_MAXIMUM_PAGE_SIZE))
-                .thenReturn(new ForwardCursorPagedResourceList<>(db, null));
+        mockGetActivityHistories(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertActivityGuids(returnedActivities, "AAA", "BBB", "CCC");
@@ -580,6 +623,43 @@ public class ScheduledActivityServiceTest {
         assertActivityGuids(saves, "BBB");
     }
     
+    @Test
+    public void unchangedActivitiesAreNotSaved() {
+        ScheduleContext context = createScheduleContext(ENDS_ON).build();
+        
+        // The persisted activities are the same as the newly scheduled activities, other than the time zone.
+        List<ScheduledActivity> db = service.scheduleActivitiesForPlans(context);
+        for (ScheduledActivity activity : db) {
+            activity.setTimeZone(DateTimeZone.forOffsetHours(3));
+        }
+        when(activityDao.getActivities(any(), any())).thenReturn(db);
+        
+        List<ScheduledActivity> returnedActivities = service.getScheduledActivities(app, context);
+        assertFalse(returnedActivities.isEmpty());
+        
+        verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
+        assertTrue(scheduledActivityListCaptor.getValue().isEmpty());
+    }
+    
+    @Test
+    public void hasPersistedChanges() {
+        ScheduledActivity dbActivity = createNewActivities("AAA"+TIME_PORTION).get(0);
+        ScheduledActivity activity = createNewActivities("AAA"+TIME_PORTION).get(0);
+        activity.setTimeZone(DateTimeZone.forOffsetHours(3));
+        assertFalse(service.hasPersistedChanges(activity, dbActivity));
+        
+        activity.setLocalScheduledOn(dbActivity.getLocalScheduledOn().plusDays(1));
+        assertTrue(service.hasPersistedChanges(activity, dbActivity));
+        
+        activity = createNewActivities("AAA"+TIME_PORTION).get(0);
+        activity.setActivity(TestUtils.getActivity2());
+        assertTrue(service.hasPersistedChanges(activity, dbActivity));
+        
+        activity = createNewActivities("AAA"+TIME_PORTION).get(0);
+        activity.setClientData(TestUtils.getClientData());
+        assertTrue(service.hasPersistedChanges(activity, dbActivity));
+    }
+    
     private ScheduledActivity getByGuidPrefix(List<ScheduledActivity> activities, String prefix) {
         for (ScheduledActivity activity : activities) {
             if (activity.getGuid().startsWith(prefix)) {
@@ -637,14 +717,13 @@ public class ScheduledActivityServiceTest {
         List<ScheduledActivity> db = createNewActivities("CCC"+TIME_PORTION);
         db.get(0).setActivity(oldActivity);
         
-        ForwardCursorPagedResourceList<ScheduledActivity> page = new ForwardCursorPagedResourceList<>(db, null);
-        when(activityDao.getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt())).thenReturn(page);
+        mockGetActivityHistories(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertEquals(returnedActivities.size(), 1);
         assertEquals(returnedActivities.get(0).getActivity().getSurvey().getCreatedOn().getMillis(), 5678);
         
-        verify(activityDao).getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt());
+        verify(activityDao).getActivityHistoriesV2(any(), any(), any(), any(), anyInt());
     }
     
     @Test
@@ -702,15 +781,14 @@ public class ScheduledActivityServiceTest {
         }
         db.get(0).setActivity(oldActivity);
         
-        ForwardCursorPagedResourceList<ScheduledActivity> page = new ForwardCursorPagedResourceList<>(db, null);
-        when(activityDao.getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt())).thenReturn(page);
+        mockGetActivityHistories(db);
         
         List<ScheduledActivity> returnedActivities = service.getScheduledActivitiesV4(app, createScheduleContext(NOW).build());
         assertEquals(returnedActivities.size(), 1);
         assertEquals(returnedActivities.get(0).getActivity().getSurvey().getCreatedOn().getMillis(), 1234);
         assertNotNull(returnedActivities.get(0).getClientData());
         
-        verify(activityDao).getActivityHistoryV2(any(), any(), any(), any(), any(), anyInt());
+        verify(activityDao).getActivityHistoriesV2(any(), any(), any(), any(), anyInt());
     }
     
     @Test
@@ -805,8 +883,8 @@ public class ScheduledActivityServiceTest {
         oneTimeActivity.setFinishedOn(NOW.plusMinutes(5).getMillis());
         
         mockAllCallsForDbActivities(ImmutableList.of());
-        when(activityDao.getActivity(context.getStartsOn().getZone(), HEALTH_CODE, guid, false))
-                .thenReturn(oneTimeActivity);
+        when(activityDao.getActivities(eq(context.getStartsOn().getZone()), any()))
+                .thenReturn(ImmutableList.of(oneTimeActivity));
         
         List<ScheduledActivity> scheduledActivities = service.getScheduledActivitiesV4(app, context);
         assertEquals(scheduledActivities.size(), 1);
@@ -814,10 +892,12 @@ public class ScheduledActivityServiceTest {
         assertNotNull(scheduledActivities.get(0).getStartedOn());
         assertNotNull(scheduledActivities.get(0).getFinishedOn());
         
-        verify(activityDao, times(1)).getActivityHistoryV2(HEALTH_CODE, "guidForCCC", context.getStartsOn(), context.getEndsOn(),
-                null, BridgeConstants.API_MAXIMUM_PAGE_SIZE);
+        verify(activityDao, times(1)).getActivityHistoriesV2(HEALTH_CODE, ImmutableSet.of("guidForCCC"),
+                context.getStartsOn(), context.getEndsOn(), BridgeConstants.API_MAXIMUM_PAGE_SIZE);
         // Retrieve any remaining scheduled activity from the DB to ensure state is maintained. 
-        verify(activityDao, times(1)).getActivity(context.getStartsOn().getZone(), HEALTH_CODE, guid, false);
+        verify(activityDao, times(1)).getActivities(eq(context.getStartsOn().getZone()),
+                scheduledActivityListCaptor.capture());
+        assertEquals(toGuids(scheduledActivityListCaptor.getValue()), ImmutableSet.of(guid));
         
         verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
         
@@ -1157,8 +1237,9 @@ public class ScheduledActivityServiceTest {
         List<ScheduledActivity> activities = service.getScheduledActivitiesV4(app, context);
         assertTrue(activities.size() > 0);
         
-        verify(activityDao, times(1)).getActivityHistoryV2(HEALTH_CODE, "AAA", context.getStartsOn(), context.getEndsOn(),
-                null, BridgeConstants.API_MAXIMUM_PAGE_SIZE);
+        verify(activityDao, times(1)).getActivityHistoriesV2(eq(HEALTH_CODE), setCaptor.capture(),
+                eq(context.getStartsOn()), eq(context.getEndsOn()), eq(BridgeConstants.API_MAXIMUM_PAGE_SIZE));
+        assertTrue(setCaptor.getValue().contains("AAA"));
         
         verify(activityDao).saveActivities(scheduledActivityListCaptor.capture());
         List<ScheduledActivity> activitiesOnSave = scheduledActivityListCaptor.getValue();
@@ -1284,32 +1365,27 @@ public class ScheduledActivityServiceTest {
         dbActivity.setLocalScheduledOn(LocalDateTime.parse("2017-02-23T13:00:00.000"));
         // This is the critical line. Without this, the service fails. Also tested in DAO code.
         dbActivity.setTimeZone(context.getStartsOn().getZone());
-        when(mockedActivityDao.getActivity(context.getStartsOn().getZone(), HEALTH_CODE, "AAA:2017-02-23T13:00:00.000", false)).thenReturn(dbActivity);
+        when(mockedActivityDao.getActivities(eq(context.getStartsOn().getZone()), any()))
+                .thenReturn(ImmutableList.of(dbActivity));
         
         service.getScheduledActivitiesV4(app, context);
-        verify(mockedActivityDao).getActivity(context.getStartsOn().getZone(), HEALTH_CODE, "AAA:2017-02-23T13:00:00.000", false);
+        verify(mockedActivityDao).getActivities(eq(context.getStartsOn().getZone()), any());
     }
     
     private void mockAllCallsForDbActivities(List<ScheduledActivity> dbActivities) {
         reset(activityDao);
-        Map<String,List<ScheduledActivity>> map = Maps.newHashMap();
-        for (ScheduledActivity oneActivity : dbActivities) {
-            String guid = oneActivity.getGuid().split(":")[0];
-            if (!map.containsKey(guid)) {
-                map.put(guid, Lists.newArrayList());
-            }
-            map.get(guid).add(oneActivity);
-        }
-        for (String guid : map.keySet()) {
-            mockGetActivitiesV2(guid, map.get(guid));
-        }
-    }
-    
-    private void mockGetActivitiesV2(String activityGuid, List<ScheduledActivity> activities) {
-        ForwardCursorPagedResourceList<ScheduledActivity> list = new ForwardCursorPagedResourceList<>(activities, null);
-
-        when(activityDao.getActivityHistoryV2(eq(HEALTH_CODE), eq(activityGuid), any(), any(), 
-                eq(null), eq(BridgeConstants.API_MAXIMUM_PAGE_SIZE))).thenReturn(list);
+        mockGetActivityHistories(dbActivities);
+    }
+    
+    // Mocks the history query, returning the activities that belong to one of the requested activity GUIDs.
+    private void mockGetActivityHistories(List<ScheduledActivity> activities) {
+        when(activityDao.getActivityHistoriesV2(eq(HEALTH_CODE), any(), any(), any(),
+                eq(BridgeConstants.API_MAXIMUM_PAGE_SIZE))).thenAnswer(invocation -> {
+                    Set<String> activityGuids = invocation.getArgument(1);
+                    return activities.stream()
+                            .filter(activity -> activityGuids.contains(activity.getGuid().split(":")[0]))
+                            .collect(toList());
+                });
     }
     
     private String firstTimeStampFor(int initialTZOffset, int requestTZOffset, Schedule schedule) {
@@ -2,6 +2,7 @@ package org.sagebionetworks.bridge.services;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static java.util.stream.Collectors.toList;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MAXIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.BridgeConstants.API_MINIMUM_PAGE_SIZE;
 import static org.sagebionetworks.bridge.TestConstants.CREATED_ON;
@@ -33,6 +34,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -805,6 +807,42 @@ public class StudyActivityEventServiceTest extends Mockito {
         service.getRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
     }
     
+    @Test
+    public void getPersistedRecentStudyActivityEvents() {
+        Set<String> userIds = ImmutableSet.of(TEST_USER_ID, "otherUserId");
+        Map<String, List<StudyActivityEvent>> map = ImmutableMap.of(TEST_USER_ID, 
+                ImmutableList.of(createEvent("custom:event1", CREATED_ON, 1)));
+        when(mockDao.getRecentStudyActivityEvents(userIds, TEST_STUDY_ID)).thenReturn(map);
+        
+        Map<String, List<StudyActivityEvent>> retValue = service.getPersistedRecentStudyActivityEvents(
+                TEST_STUDY_ID, userIds);
+        assertSame(retValue, map);
+    }
+    
+    @Test
+    public void completeRecentStudyActivityEvents() {
+        StudyActivityEvent event1 = createEvent("timeline_retrieved", TIMELINE_RETRIEVED_TS, null);
+        StudyActivityEvent event2 = createEvent("custom:event1", CREATED_ON, 4);
+        List<StudyActivityEvent> events = Lists.newArrayList(event2, event1);
+        
+        Map<String, DateTime> map = ImmutableMap.of(CREATED_ON_FIELD, CREATED_ON, 
+                INSTALL_LINK_SENT_FIELD, INSTALL_LINK_SENT_TS);
+        when(mockActivityEventService.getActivityEventMap(TEST_APP_ID, HEALTH_CODE)).thenReturn(map);
+        
+        Account account = Account.create();
+        account.setHealthCode(HEALTH_CODE);
+        Enrollment en = Enrollment.create(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
+        en.setEnrolledOn(ENROLLMENT_TS);
+        account.setEnrollments(ImmutableSet.of(en));
+        
+        service.completeRecentStudyActivityEvents(TEST_APP_ID, TEST_STUDY_ID, account, events);
+        
+        // Events are the persisted events, the enrollment event, and the global events, sorted by ID
+        assertEquals(events.stream().map(StudyActivityEvent::getEventId).collect(toList()), ImmutableList.of(
+                CREATED_ON_FIELD, "custom:event1", ENROLLMENT_FIELD, INSTALL_LINK_SENT_FIELD, "timeline_retrieved"));
+        assertEquals(TestUtils.findByEventId(events, ENROLLMENT).getTimestamp(), ENROLLMENT_TS);
+    }
+    
     @Test
     public void getStudyActivityEventHistory() {
         List<StudyActivityEvent> list = new ArrayList<>();
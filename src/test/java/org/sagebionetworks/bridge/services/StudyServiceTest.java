@@ -173,6 +173,19 @@ public class StudyServiceTest extends Mockito {
         assertEquals(retValue, "America/Chicago");
     }
     
+    @Test
+    public void getZoneId_loadedStudy() {
+        Study study = Study.create();
+        study.setStudyTimeZone(TEST_CLIENT_TIME_ZONE);
+        doReturn("America/Chicago").when(service).getDefaultTimeZoneId();
+        
+        assertEquals(service.getZoneId(study, "America/Denver"), "America/Denver");
+        assertEquals(service.getZoneId(study, null), TEST_CLIENT_TIME_ZONE);
+        assertEquals(service.getZoneId(Study.create(), null), "America/Chicago");
+        assertEquals(service.getZoneId((Study)null, null), "America/Chicago");
+        verify(service, never()).getStudy(any(), any(), anyBoolean());
+    }
+    
     @Test
     public void getStudyIds() {
         Study studyA = Study.create();
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -13,6 +14,7 @@ import static org.sagebionetworks.bridge.services.SharedModuleMetadataServiceTes
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
@@ -35,6 +37,8 @@ import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.BridgeUtils;
 import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.SurveyDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoSchedulePlan;
 import org.sagebionetworks.bridge.dynamodb.DynamoSurvey;
@@ -90,6 +94,9 @@ public class SurveyServiceTest {
     @Mock
     AppService mockAppService;
     
+    @Mock
+    CacheProvider mockCacheProvider;
+    
     @Captor
     ArgumentCaptor<GuidCreatedOnVersionHolder> keysCaptor;
     
@@ -122,6 +129,7 @@ public class SurveyServiceTest {
         service.setSchedulePlanService(mockSchedulePlanService);
         service.setSharedModuleMetadataService(mockSharedModuleMetadataService);
         service.setPublishValidator(mockSurveyPublishValidator);
+        service.setCacheProvider(mockCacheProvider);
     }
 
     @Test
@@ -334,6 +342,7 @@ public class SurveyServiceTest {
         
         verify(mockSurveyDao).deleteSurveyPermanently(eq(TEST_APP_ID), keysCaptor.capture());
         assertEquals(keysCaptor.getValue(), survey);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
     }
 
     @Test(expectedExceptions = BadRequestException.class)
@@ -625,6 +634,7 @@ public class SurveyServiceTest {
         
         verify(mockSurveyDao).updateSurvey(eq(TEST_APP_ID), surveyCaptor.capture());
         assertFalse(surveyCaptor.getValue().isDeleted());
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
     }
     
     @Test
@@ -692,6 +702,99 @@ public class SurveyServiceTest {
         service.getSurveyAllVersions(TEST_APP_ID, "GUID", true);
     }
     
+    @Test
+    public void getSurveyCachesPublishedVersion() {
+        Survey survey = makePublishedSurvey();
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, SURVEY_KEYS, true)).thenReturn(survey);
+
+        Survey first = service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+        Survey second = service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+
+        verify(mockSurveyDao, times(1)).getSurvey(TEST_APP_ID, SURVEY_KEYS, true);
+        assertSame(first, survey);
+        assertNotSame(second, survey);
+        assertEquals(second.getAppId(), TEST_APP_ID);
+        assertEquals(second.getGuid(), SURVEY_GUID);
+        assertEquals(second.getCreatedOn(), SURVEY_KEYS.getCreatedOn());
+        assertEquals(second.getIdentifier(), survey.getIdentifier());
+        assertTrue(second.isPublished());
+        assertEquals(second.getElements().size(), survey.getElements().size());
+        assertEquals(second.getElements().get(0).getGuid(), survey.getElements().get(0).getGuid());
+
+        // Each caller gets its own copy.
+        second.setName("Changed name");
+        second.getElements().clear();
+        Survey third = service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+        assertEquals(third.getName(), survey.getName());
+        assertEquals(third.getElements().size(), survey.getElements().size());
+    }
+
+    @Test
+    public void getSurveyCachesPublishedVersionWithElements() {
+        Survey survey = makePublishedSurvey();
+        Survey surveyWithoutElements = makePublishedSurvey();
+        surveyWithoutElements.setElements(ImmutableList.of());
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, SURVEY_KEYS, false)).thenReturn(surveyWithoutElements);
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, SURVEY_KEYS, true)).thenReturn(survey);
+
+        assertSame(service.getSurvey(TEST_APP_ID, SURVEY_KEYS, false, true), surveyWithoutElements);
+        assertTrue(service.getSurvey(TEST_APP_ID, SURVEY_KEYS, false, true).getElements().isEmpty());
+        Survey withElements = service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+        assertEquals(withElements.getElements().size(), survey.getElements().size());
+
+        verify(mockSurveyDao, times(1)).getSurvey(TEST_APP_ID, SURVEY_KEYS, false);
+        verify(mockSurveyDao, times(1)).getSurvey(TEST_APP_ID, SURVEY_KEYS, true);
+    }
+
+    @Test
+    public void getSurveyDoesNotCacheUnpublishedVersion() {
+        Survey survey = makePublishedSurvey();
+        survey.setPublished(false);
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, SURVEY_KEYS, true)).thenReturn(survey);
+
+        service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+        service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+
+        verify(mockSurveyDao, times(2)).getSurvey(TEST_APP_ID, SURVEY_KEYS, true);
+    }
+
+    @Test
+    public void getSurveyDoesNotCacheMostRecentVersion() {
+        // No createdOn, so the most recent version is returned, which can change.
+        GuidCreatedOnVersionHolder keys = new GuidCreatedOnVersionHolderImpl(SURVEY_GUID, 0L);
+        Survey survey = makePublishedSurvey();
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, keys, true)).thenReturn(survey);
+
+        service.getSurvey(TEST_APP_ID, keys, true, true);
+        service.getSurvey(TEST_APP_ID, keys, true, true);
+
+        verify(mockSurveyDao, times(2)).getSurvey(TEST_APP_ID, keys, true);
+    }
+
+    @Test
+    public void getSurveyCachedVersionInOtherApp() {
+        Survey survey = makePublishedSurvey();
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, SURVEY_KEYS, true)).thenReturn(survey);
+        service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+
+        assertNull(service.getSurvey(OTHER_APP, SURVEY_KEYS, true, false));
+        verify(mockSurveyDao, never()).getSurvey(OTHER_APP, SURVEY_KEYS, true);
+    }
+
+    @Test
+    public void deleteSurveyRemovesCachedVersion() {
+        Survey survey = makePublishedSurvey();
+        when(mockSurveyDao.getSurvey(TEST_APP_ID, SURVEY_KEYS, true)).thenReturn(survey);
+        service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+
+        service.deleteSurvey(TEST_APP_ID, SURVEY_KEYS);
+        service.getSurvey(TEST_APP_ID, SURVEY_KEYS, true, true);
+
+        // Once to cache the survey, once to delete it, and once after it is removed from the cache.
+        verify(mockSurveyDao, times(3)).getSurvey(TEST_APP_ID, SURVEY_KEYS, true);
+        verify(mockCacheProvider).removeSetOfCacheKeys(CacheKey.appConfigList(TEST_APP_ID));
+    }
+
     @Test(expectedExceptions = EntityNotFoundException.class)
     public void getSurveyInOtherAppThrowsException() {
         Survey survey = Survey.create();
@@ -915,6 +1018,15 @@ public class SurveyServiceTest {
         return survey;
     }
 
+    private Survey makePublishedSurvey() {
+        Survey survey = new TestSurvey(SurveyServiceTest.class, true);
+        survey.setAppId(TEST_APP_ID);
+        survey.setGuid(SURVEY_GUID);
+        survey.setCreatedOn(SURVEY_KEYS.getCreatedOn());
+        survey.setPublished(true);
+        return survey;
+    }
+
     private Survey makeSurveyWithElements() {
         // Set app ID and identifier. Clear guid and createdOn. (Guid is set by the service. CreatedOn is set by the
         // dao.)
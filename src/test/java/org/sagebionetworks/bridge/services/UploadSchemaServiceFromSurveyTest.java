@@ -15,6 +15,7 @@ import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.models.surveys.DataType;
@@ -44,6 +45,7 @@ public class UploadSchemaServiceFromSurveyTest {
     public void setup() {
         dao = mock(UploadSchemaDao.class);
         svc = new UploadSchemaService();
+        svc.setCacheProvider(mock(CacheProvider.class));
         svc.setUploadSchemaDao(dao);
     }
 
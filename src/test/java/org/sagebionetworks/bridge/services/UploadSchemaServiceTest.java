@@ -3,10 +3,12 @@ package org.sagebionetworks.bridge.services;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
@@ -24,12 +26,15 @@ import java.util.Map;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import org.sagebionetworks.bridge.cache.CacheKey;
+import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.UploadSchemaDao;
 import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
@@ -49,11 +54,13 @@ public class UploadSchemaServiceTest {
     private static final String SCHEMA_ID = "test-schema";
     private static final String SCHEMA_NAME = "My Schema";
     private static final int SCHEMA_REV = 1;
+    private static final CacheKey SCHEMA_ETAG_KEY = CacheKey.etag(UploadSchema.class, TEST_APP_ID);
 
     private UploadSchema svcInputSchema;
     private UploadSchemaDao dao;
     private UploadSchemaService svc;
     private SharedModuleMetadataService mockSharedModuleMetadataService;
+    private CacheProvider mockCacheProvider;
 
     @Captor
     ArgumentCaptor<String> queryCaptor;
@@ -68,7 +75,9 @@ public class UploadSchemaServiceTest {
         svcInputSchema = makeSimpleSchema();
         dao = mock(UploadSchemaDao.class);
         mockSharedModuleMetadataService = mock(SharedModuleMetadataService.class);
+        mockCacheProvider = mock(CacheProvider.class);
         svc = new UploadSchemaService();
+        svc.setCacheProvider(mockCacheProvider);
         svc.setUploadSchemaDao(dao);
         svc.setSharedModuleMetadataService(mockSharedModuleMetadataService);
     }
@@ -114,6 +123,9 @@ public class UploadSchemaServiceTest {
 
         // old schema rev 1, create with rev 3
         createV4TestHelper(3, 3, 1);
+
+        // The app's schema etag is updated by each create.
+        verify(mockCacheProvider, times(4)).setObject(eq(SCHEMA_ETAG_KEY), any(DateTime.class));
     }
 
     private void createV4TestHelper(int expectedRev, int inputRev, Integer oldRev) {
@@ -439,6 +451,7 @@ public class UploadSchemaServiceTest {
         // execute and verify delete call
         svc.deleteUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
         verify(dao).deleteUploadSchemas(ImmutableList.of(schemaToDelete));
+        verify(mockCacheProvider).setObject(eq(SCHEMA_ETAG_KEY), any(DateTime.class));
 
         // verify query args
         verify(mockSharedModuleMetadataService).queryAllMetadata(eq(false), eq(false), queryCaptor.capture(),
@@ -656,25 +669,90 @@ public class UploadSchemaServiceTest {
 
     @Test
     public void getByIdAndRevNoThrowNull() {
-        // mock dao to return null
-        when(dao.getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(null);
+        // mock dao to return no revisions
+        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true)).thenReturn(ImmutableList.of());
 
         // execute and validate
         UploadSchema retVal = svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
         assertNull(retVal);
+
+        // A schema that doesn't exist is indexed too.
+        assertNull(svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV));
+        verify(dao).getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true);
     }
 
     @Test
     public void getByIdAndRevNoThrowSuccess() {
         // mock dao
         UploadSchema daoOutputSchema = makeSimpleSchema();
-        when(dao.getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(
-                daoOutputSchema);
+        daoOutputSchema.setRevision(SCHEMA_REV);
+        UploadSchema otherSchema = makeSimpleSchema();
+        otherSchema.setRevision(SCHEMA_REV + 1);
+        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true)).thenReturn(
+                ImmutableList.of(otherSchema, daoOutputSchema));
 
         // execute and validate
         UploadSchema svcOutputSchema = svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID,
                 SCHEMA_REV);
         assertSame(svcOutputSchema, daoOutputSchema);
+        verify(dao, never()).getUploadSchemaByIdAndRevision(any(), any(), anyInt());
+    }
+
+    @Test
+    public void getByIdAndRevNoThrowReturnsDeletedRevision() {
+        UploadSchema deletedSchema = makeSimpleSchema();
+        deletedSchema.setRevision(SCHEMA_REV);
+        deletedSchema.setDeleted(true);
+        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true)).thenReturn(
+                ImmutableList.of(deletedSchema));
+
+        assertSame(svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV), deletedSchema);
+    }
+
+    @Test
+    public void getByIdAndRevNoThrowIsIndexed() {
+        setupDaoForGetLatest();
+
+        // Revisions are loaded once, and used for both exact and latest lookups.
+        assertEquals(svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, 1).getRevision(), 1);
+        assertEquals(svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, 2).getRevision(), 2);
+        assertNull(svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, 3));
+        ClientInfo clientInfo = new ClientInfo.Builder().withOsName(OS_NAME).withAppVersion(25).build();
+        assertEquals(svc.getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, SCHEMA_ID, clientInfo)
+                .getRevision(), 2);
+
+        verify(dao).getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true);
+    }
+
+    @Test
+    public void getByIdAndRevNoThrowReloadsWhenEtagChanges() {
+        setupDaoForGetLatest();
+
+        svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+
+        // Another server changed the app's schemas.
+        when(mockCacheProvider.getObject(SCHEMA_ETAG_KEY, DateTime.class)).thenReturn(DateTime.now());
+        svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+        svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+
+        verify(dao, times(2)).getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true);
+    }
+
+    @Test
+    public void getByIdAndRevNoThrowReloadsAfterUpdate() {
+        setupDaoForGetLatest();
+        svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+
+        // Update the schema.
+        UploadSchema oldSchema = makeSimpleSchema();
+        oldSchema.setRevision(SCHEMA_REV);
+        when(dao.getUploadSchemaByIdAndRevision(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV)).thenReturn(oldSchema);
+        svc.updateSchemaRevisionV4(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV, makeSimpleSchema());
+        verify(mockCacheProvider).setObject(eq(SCHEMA_ETAG_KEY), any(DateTime.class));
+
+        // The schema is loaded again.
+        svc.getUploadSchemaByIdAndRevNoThrow(TEST_APP_ID, SCHEMA_ID, SCHEMA_REV);
+        verify(dao, times(2)).getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true);
     }
 
     @Test(expectedExceptions = BadRequestException.class)
@@ -731,6 +809,34 @@ public class UploadSchemaServiceTest {
         assertNull(retval);
     }
 
+    @Test
+    public void getLatestSkipsDeletedRevisions() {
+        // Rev 2 would match, but it's deleted.
+        UploadSchema schemaRev1 = makeSimpleSchema();
+        schemaRev1.setRevision(1);
+        UploadSchema schemaRev2 = makeSimpleSchema();
+        schemaRev2.setRevision(2);
+        schemaRev2.setDeleted(true);
+        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true))
+                .thenReturn(ImmutableList.of(schemaRev2, schemaRev1));
+
+        ClientInfo clientInfo = new ClientInfo.Builder().withOsName(OS_NAME).withAppVersion(25).build();
+        UploadSchema retval = svc.getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, SCHEMA_ID,
+                clientInfo);
+        assertEquals(retval.getRevision(), 1);
+    }
+
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void getLatestAllRevisionsDeleted() {
+        UploadSchema deletedSchema = makeSimpleSchema();
+        deletedSchema.setRevision(SCHEMA_REV);
+        deletedSchema.setDeleted(true);
+        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true))
+                .thenReturn(ImmutableList.of(deletedSchema));
+
+        svc.getLatestUploadSchemaRevisionForAppVersion(TEST_APP_ID, SCHEMA_ID, ClientInfo.UNKNOWN_CLIENT);
+    }
+
     private void setupDaoForGetLatest() {
         // Two schemas, rev 1 has min=10. Rev 2 has min=20.
         UploadSchema schemaRev1 = makeSimpleSchema();
@@ -742,8 +848,8 @@ public class UploadSchemaServiceTest {
         schemaRev2.setMinAppVersion(OS_NAME, 20);
 
         // mock dao
-        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, false))
-                .thenReturn(ImmutableList.of(schemaRev1, schemaRev2));
+        when(dao.getUploadSchemaAllRevisionsById(TEST_APP_ID, SCHEMA_ID, true))
+                .thenReturn(ImmutableList.of(schemaRev2, schemaRev1));
     }
 
     @Test
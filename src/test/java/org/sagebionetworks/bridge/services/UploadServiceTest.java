@@ -33,6 +33,7 @@ import static org.sagebionetworks.bridge.services.UploadService.METADATA_KEY_EVE
 import static org.sagebionetworks.bridge.services.UploadService.METADATA_KEY_INSTANCE_GUID;
 import static org.sagebionetworks.bridge.services.UploadService.METADATA_KEY_STARTED_ON;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
@@ -45,6 +46,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import com.amazonaws.HttpMethod;
 import com.amazonaws.services.s3.AmazonS3;
@@ -55,6 +58,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import org.joda.time.DateTime;
@@ -87,6 +91,7 @@ import org.sagebionetworks.bridge.exceptions.BadRequestException;
 import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.ConcurrentModificationException;
 import org.sagebionetworks.bridge.exceptions.NotFoundException;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
 import org.sagebionetworks.bridge.models.ClientInfo;
@@ -103,6 +108,7 @@ import org.sagebionetworks.bridge.models.upload.UploadStatus;
 import org.sagebionetworks.bridge.models.upload.UploadValidationStatus;
 import org.sagebionetworks.bridge.models.upload.UploadView;
 import org.sagebionetworks.bridge.models.upload.UploadViewEx3;
+import org.sagebionetworks.bridge.upload.UploadValidationNotifier;
 import org.sagebionetworks.bridge.validators.AdherenceRecordsSearchValidator;
 
 @SuppressWarnings("ConstantConditions")
@@ -611,40 +617,145 @@ public class UploadServiceTest {
     }
     
     @Test
-    public void pollUploadValidationStatusWhenComplete() throws Exception {
-        UploadRequest uploadRequest = constructUploadRequest();
-        DynamoUpload2 upload = new DynamoUpload2(uploadRequest, HEALTH_CODE);
-        upload.setUploadId(ORIGINAL_UPLOAD_ID);
-        upload.setRecordId(RECORD_ID);
-        upload.setStatus(SUCCEEDED);
-        upload.setValidationMessageList(ImmutableList.of("One validation error"));
-
+    public void getUploadValidationStatusWhenCompleteAlreadyComplete() throws Exception {
+        UploadValidationNotifier notifier = new UploadValidationNotifier();
+        svc.setUploadValidationNotifier(notifier);
+        
+        DynamoUpload2 upload = createUploadWithStatus(SUCCEEDED);
         when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
         when(mockHealthDataService.getRecordById(RECORD_ID)).thenReturn(mockRecord);
         
-        UploadValidationStatus result = svc.pollUploadValidationStatusUntilComplete(ORIGINAL_UPLOAD_ID);
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(
+                ORIGINAL_UPLOAD_ID);
+        assertTrue(future.isDone());
+        UploadValidationStatus result = future.get();
         assertEquals(result.getId(), upload.getUploadId());
         assertEquals(result.getRecord(), mockRecord);
         assertEquals(result.getStatus(), SUCCEEDED);
         assertEquals(result.getMessageList().size(), 1);
         assertEquals(result.getMessageList().get(0), "One validation error");
+        
+        // The listener was removed, so a notification does not read the status again.
+        notifier.notifyValidationComplete(ORIGINAL_UPLOAD_ID);
+        verify(mockUploadDao, times(1)).getUpload(ORIGINAL_UPLOAD_ID);
+    }
+    
+    @Test
+    public void getUploadValidationStatusWhenCompleteWaitsForNotification() throws Exception {
+        UploadValidationNotifier notifier = new UploadValidationNotifier();
+        svc.setUploadValidationNotifier(notifier);
+        
+        DynamoUpload2 upload = createUploadWithStatus(VALIDATION_IN_PROGRESS);
+        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
+        when(mockHealthDataService.getRecordById(RECORD_ID)).thenReturn(mockRecord);
+        
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(
+                ORIGINAL_UPLOAD_ID);
+        assertFalse(future.isDone());
+        
+        // Validation task writes the status, then signals.
+        upload.setStatus(SUCCEEDED);
+        notifier.notifyValidationComplete(ORIGINAL_UPLOAD_ID);
+        
+        assertTrue(future.isDone());
+        assertEquals(future.get().getStatus(), SUCCEEDED);
+        verify(mockUploadDao, times(2)).getUpload(ORIGINAL_UPLOAD_ID);
+    }
+    
+    @Test
+    public void getUploadValidationStatusWhenCompleteRereadsStatusWhenPolled() throws Exception {
+        UploadValidationNotifier notifier = new UploadValidationNotifier();
+        svc.setUploadValidationNotifier(notifier);
+        
+        DynamoUpload2 upload = createUploadWithStatus(VALIDATION_IN_PROGRESS);
+        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
+        when(mockHealthDataService.getRecordById(RECORD_ID)).thenReturn(mockRecord);
+        
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(
+                ORIGINAL_UPLOAD_ID);
+        
+        // Still in progress, so the caller keeps waiting.
+        notifier.pollListeners();
+        assertFalse(future.isDone());
+        
+        // Validation on another server writes the status, which is read on the next poll.
+        upload.setStatus(SUCCEEDED);
+        notifier.pollListeners();
+        
+        assertTrue(future.isDone());
+        assertEquals(future.get().getStatus(), SUCCEEDED);
+        verify(mockUploadDao, times(3)).getUpload(ORIGINAL_UPLOAD_ID);
+        
+        // The listener is removed once the future completes.
+        notifier.pollListeners();
+        verify(mockUploadDao, times(3)).getUpload(ORIGINAL_UPLOAD_ID);
+    }
+    
+    @Test
+    public void getUploadValidationStatusWhenCompleteFailsOnNotification() throws Exception {
+        UploadValidationNotifier notifier = new UploadValidationNotifier();
+        svc.setUploadValidationNotifier(notifier);
+        
+        DynamoUpload2 upload = createUploadWithStatus(VALIDATION_IN_PROGRESS);
+        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload)
+            .thenThrow(new BridgeServiceException("Dynamo is down"));
+        
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(
+                ORIGINAL_UPLOAD_ID);
+        notifier.notifyValidationComplete(ORIGINAL_UPLOAD_ID);
+        
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("Should have thrown exception");
+        } catch (ExecutionException ex) {
+            assertEquals(ex.getCause().getMessage(), "Dynamo is down");
+        }
+    }
+    
+    @Test
+    public void getUploadValidationStatusWhenCompleteCanceled() throws Exception {
+        UploadValidationNotifier notifier = new UploadValidationNotifier();
+        svc.setUploadValidationNotifier(notifier);
+        
+        DynamoUpload2 upload = createUploadWithStatus(VALIDATION_IN_PROGRESS);
+        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
+        
+        CompletableFuture<UploadValidationStatus> future = svc.getUploadValidationStatusWhenComplete(
+                ORIGINAL_UPLOAD_ID);
+        future.cancel(false);
+        
+        // Canceling removes the listener
+        notifier.notifyValidationComplete(ORIGINAL_UPLOAD_ID);
+        verify(mockUploadDao, times(1)).getUpload(ORIGINAL_UPLOAD_ID);
+    }
+    
+    @Test
+    public void getUploadValidationStatusAfterTimeout() throws Exception {
+        DynamoUpload2 upload = createUploadWithStatus(SUCCEEDED);
+        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
+        
+        UploadValidationStatus result = svc.getUploadValidationStatusAfterTimeout(ORIGINAL_UPLOAD_ID);
+        assertEquals(result.getStatus(), SUCCEEDED);
     }
     
     @Test(expectedExceptions = BridgeServiceException.class, 
-            expectedExceptionsMessageRegExp = "Timeout polling validation status for upload anOriginalUploadId")
-    public void pollUploadValidationStatusInProgress() throws Exception {
+            expectedExceptionsMessageRegExp = "Timeout waiting for validation status for upload anOriginalUploadId")
+    public void getUploadValidationStatusAfterTimeoutInProgress() throws Exception {
+        DynamoUpload2 upload = createUploadWithStatus(VALIDATION_IN_PROGRESS);
+        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
+        
+        svc.getUploadValidationStatusAfterTimeout(ORIGINAL_UPLOAD_ID);
+    }
+    
+    private DynamoUpload2 createUploadWithStatus(UploadStatus status) {
         UploadRequest uploadRequest = constructUploadRequest();
         DynamoUpload2 upload = new DynamoUpload2(uploadRequest, HEALTH_CODE);
         upload.setUploadId(ORIGINAL_UPLOAD_ID);
         upload.setRecordId(RECORD_ID);
-        upload.setStatus(VALIDATION_IN_PROGRESS);
+        upload.setStatus(status);
         upload.setValidationMessageList(ImmutableList.of("One validation error"));
-
-        when(mockUploadDao.getUpload(ORIGINAL_UPLOAD_ID)).thenReturn(upload);
-        when(mockHealthDataService.getRecordById(RECORD_ID)).thenReturn(mockRecord);
-        
-        svc.setPollValidationStatusSleepMillis(10); // speed this up
-        svc.pollUploadValidationStatusUntilComplete(ORIGINAL_UPLOAD_ID);
+        return upload;
     }
     
     @Test
@@ -687,6 +798,34 @@ public class UploadServiceTest {
         verify(svc, never()).updateAdherenceWithUploadInfo(any(), any());
     }
 
+    @Test
+    public void uploadCompleteValidationAtCapacity() throws Exception {
+        UploadRequest uploadRequest = constructUploadRequest();
+        DynamoUpload2 upload = new DynamoUpload2(uploadRequest, HEALTH_CODE);
+        upload.setUploadId(ORIGINAL_UPLOAD_ID);
+
+        doThrow(new ServiceUnavailableException("full")).when(mockUploadValidationService).checkCapacity();
+
+        try {
+            svc.uploadComplete(TEST_APP_ID, S3_WORKER, upload, false);
+            fail("Should have thrown exception");
+        } catch (ServiceUnavailableException ex) {
+            // expected exception
+        }
+
+        // The upload isn't marked complete, so it can be completed again later.
+        verify(mockUploadDao, never()).uploadComplete(any(), any());
+        verify(mockUploadValidationService, never()).validateUpload(any(), any());
+    }
+
+    @Test
+    public void getUploadValidationStatistics() {
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("executor", ImmutableMap.of("active", 1L));
+        when(mockUploadValidationService.getStatistics()).thenReturn(stats);
+
+        assertSame(svc.getUploadValidationStatistics(), stats);
+    }
+
     @Test(expectedExceptions = BridgeServiceException.class)
     public void uploadCompleteObjectMetadataException() throws Exception {
         UploadRequest uploadRequest = constructUploadRequest();
@@ -1,49 +1,117 @@
 package org.sagebionetworks.bridge.services;
 
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
 
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
+import org.sagebionetworks.bridge.exceptions.ServiceUnavailableException;
 import org.sagebionetworks.bridge.models.apps.App;
 import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.upload.UploadValidationMetrics;
 import org.sagebionetworks.bridge.upload.UploadValidationTask;
 import org.sagebionetworks.bridge.upload.UploadValidationTaskFactory;
 
 public class UploadValidationServiceTest {
-    @Test
-    public void test() {
-        // UploadValidationService is a simple call-through to the task factory and the async thread pool. As such, our
-        // test strategy is to verify that execution flows through to these dependencies.
+    private App app;
+    private Upload upload;
+    private UploadValidationTask mockTask;
+    private ThreadPoolExecutor mockExecutor;
+    private UploadValidationMetrics mockMetrics;
+    private UploadValidationService svc;
 
+    @BeforeMethod
+    public void before() {
         // inputs
-        App app = TestUtils.getValidApp(UploadValidationServiceTest.class);
-        Upload upload = new DynamoUpload2();
+        app = TestUtils.getValidApp(UploadValidationServiceTest.class);
+        upload = new DynamoUpload2();
 
         // mock task
-        UploadValidationTask mockTask = mock(UploadValidationTask.class);
+        mockTask = mock(UploadValidationTask.class);
 
         // mock task factory
         UploadValidationTaskFactory mockTaskFactory = mock(UploadValidationTaskFactory.class);
         when(mockTaskFactory.newTask(app.getIdentifier(), upload)).thenReturn(mockTask);
 
-        // mock async thread pool
-        ExecutorService mockExecutor = mock(ExecutorService.class);
+        // mock validation thread pool and metrics
+        mockExecutor = mock(ThreadPoolExecutor.class);
+        mockMetrics = mock(UploadValidationMetrics.class);
 
         // set up service
-        UploadValidationService svc = new UploadValidationService();
-        svc.setAsyncExecutorService(mockExecutor);
+        svc = new UploadValidationService();
+        svc.setUploadValidationExecutorService(mockExecutor);
+        svc.setUploadValidationMetrics(mockMetrics);
         svc.setTaskFactory(mockTaskFactory);
+    }
+
+    @Test
+    public void test() {
+        // UploadValidationService is a simple call-through to the task factory and the validation thread pool. As
+        // such, our test strategy is to verify that execution flows through to these dependencies.
 
         // execute
         svc.validateUpload(app.getIdentifier(), upload);
 
         // validate
         verify(mockExecutor).execute(mockTask);
+        verify(mockMetrics, never()).recordRejected();
+    }
+
+    @Test
+    public void validateUploadRejectedRunsOnCallerThread() {
+        doThrow(new RejectedExecutionException()).when(mockExecutor).execute(mockTask);
+
+        svc.validateUpload(app.getIdentifier(), upload);
+
+        verify(mockTask).run();
+        verify(mockMetrics, never()).recordRejected();
+    }
+
+    @Test
+    public void checkCapacity() {
+        when(mockExecutor.getQueue()).thenReturn(new LinkedBlockingQueue<>(1));
+
+        // Does not throw
+        svc.checkCapacity();
+        verify(mockMetrics, never()).recordRejected();
+    }
+
+    @Test
+    public void checkCapacityQueueFull() {
+        ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(1);
+        queue.add(mockTask);
+        when(mockExecutor.getQueue()).thenReturn(queue);
+
+        try {
+            svc.checkCapacity();
+            fail("Should have thrown exception");
+        } catch (ServiceUnavailableException ex) {
+            assertEquals(ex.getStatusCode(), 503);
+        }
+        verify(mockMetrics).recordRejected();
+    }
+
+    @Test
+    public void getStatistics() {
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("executor", ImmutableMap.of("active", 1L));
+        when(mockMetrics.getStatistics()).thenReturn(stats);
+
+        assertSame(svc.getStatistics(), stats);
     }
 }
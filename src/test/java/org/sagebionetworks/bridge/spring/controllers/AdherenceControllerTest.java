@@ -52,6 +52,7 @@ import org.sagebionetworks.bridge.RequestContext;
 import org.sagebionetworks.bridge.TestUtils;
 import org.sagebionetworks.bridge.models.AdherenceReportSearch;
 import org.sagebionetworks.bridge.models.PagedResourceList;
+import org.sagebionetworks.bridge.models.ResourceList;
 import org.sagebionetworks.bridge.models.StatusMessage;
 import org.sagebionetworks.bridge.models.accounts.Account;
 import org.sagebionetworks.bridge.models.accounts.AccountId;
@@ -133,6 +134,7 @@ public class AdherenceControllerTest extends Mockito {
         assertPost(AdherenceController.class, "searchForAdherenceRecords");
         assertDelete(AdherenceController.class, "deleteAdherenceRecord");
         assertGet(AdherenceController.class, "getDetailedParticipantAdherenceReport");
+        assertPost(AdherenceController.class, "getWeeklyAdherenceReportsForWorker");
     }
     
     @Test
@@ -691,6 +693,30 @@ public class AdherenceControllerTest extends Mockito {
         controller.getWeeklyAdherenceReportForWorker(TEST_APP_ID, TEST_STUDY_ID, TEST_USER_ID);
     }
     
+    @Test
+    public void getWeeklyAdherenceReportsForWorker() throws Exception {
+        doReturn(session).when(controller).getAuthenticatedSession(WORKER);
+        
+        List<String> userIds = ImmutableList.of("userA", "userB");
+        mockRequestBody(mockRequest, userIds);
+        
+        List<WeeklyAdherenceReport> reports = ImmutableList.of(new WeeklyAdherenceReport(),
+                new WeeklyAdherenceReport());
+        when(mockService.getWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID, userIds))
+            .thenReturn(reports);
+        
+        ResourceList<WeeklyAdherenceReport> retValue = controller.getWeeklyAdherenceReportsForWorker(
+                TEST_APP_ID, TEST_STUDY_ID);
+        assertEquals(retValue.getItems(), reports);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getWeeklyAdherenceReportsForWorker_rejectsNonWorker() {
+        doThrow(new UnauthorizedException()).when(controller).getAuthenticatedSession(WORKER);
+        
+        controller.getWeeklyAdherenceReportsForWorker(TEST_APP_ID, TEST_STUDY_ID);
+    }
+    
     @Test
     public void getStudyAdherenceReport() {
         doReturn(session).when(controller).getAuthenticatedSession(DEVELOPER, RESEARCHER, STUDY_DESIGNER, STUDY_COORDINATOR);
@@ -0,0 +1,60 @@
+package org.sagebionetworks.bridge.spring.controllers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.TestUtils;
+import org.sagebionetworks.bridge.exceptions.InvalidEntityException;
+import org.sagebionetworks.bridge.models.reports.ReportData;
+
+public class BaseReportControllerTest extends Mockito {
+
+    @Mock
+    private HttpServletRequest mockRequest;
+
+    @Spy
+    private BaseReportController controller = new BaseReportController() {
+    };
+
+    @BeforeMethod
+    private void before() {
+        MockitoAnnotations.initMocks(this);
+        
+        doReturn(mockRequest).when(controller).request();
+    }
+    
+    @Test
+    public void parseReportDataList() throws Exception {
+        String json = TestUtils.createJson("[{'date':'2015-02-12','data':{'field1':'Last'}},"
+                + "{'date':'2015-02-13','data':{'field1':'First'}}]");
+        doReturn(TestUtils.toInputStream(json)).when(mockRequest).getInputStream();
+        
+        List<ReportData> reportData = controller.parseReportDataList();
+        
+        assertEquals(reportData.size(), 2);
+        assertEquals(reportData.get(0).getDate(), "2015-02-12");
+        assertEquals(reportData.get(0).getData().get("field1").textValue(), "Last");
+        assertNull(reportData.get(0).getKey());
+        assertEquals(reportData.get(1).getDate(), "2015-02-13");
+        assertNull(reportData.get(1).getKey());
+    }
+    
+    @Test(expectedExceptions = InvalidEntityException.class)
+    public void parseReportDataListFails() throws Exception {
+        String json = TestUtils.createJson("{'date':'2015-02-12'}"); // not a list
+        doReturn(TestUtils.toInputStream(json)).when(mockRequest).getInputStream();
+        
+        controller.parseReportDataList();
+    }
+}
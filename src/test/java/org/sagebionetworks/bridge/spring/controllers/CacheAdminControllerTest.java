@@ -10,12 +10,14 @@ import static org.sagebionetworks.bridge.TestUtils.assertDelete;
 import static org.sagebionetworks.bridge.TestUtils.assertGet;
 import static org.testng.Assert.assertEquals;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import org.mockito.InjectMocks;
@@ -76,6 +78,8 @@ public class CacheAdminControllerTest extends Mockito {
     public void verifyAnnotations() throws Exception {
         assertCrossOrigin(CacheAdminController.class);
         assertGet(CacheAdminController.class, "listItems");
+        assertGet(CacheAdminController.class, "getNearCacheStatistics");
+        assertGet(CacheAdminController.class, "getRateLimiterStatistics");
         assertDelete(CacheAdminController.class, "removeItem");
     }    
     
@@ -106,6 +110,39 @@ public class CacheAdminControllerTest extends Mockito {
         controller.listItems();
     }
     
+    @Test
+    public void getNearCacheStatistics() throws Exception {
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("App", ImmutableMap.of("hits", 2L));
+        when(mockCacheAdminService.getNearCacheStatistics()).thenReturn(stats);
+        
+        assertEquals(controller.getNearCacheStatistics(), stats);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getNearCacheStatisticsRejectsAppAdmin() throws Exception {
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(ADMIN)).withId(TEST_USER_ID).build());
+        
+        controller.getNearCacheStatistics();
+    }
+    
+    @Test
+    public void getRateLimiterStatistics() throws Exception {
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("participant-file-download",
+                ImmutableMap.of("allowed", 2L));
+        when(mockCacheAdminService.getRateLimiterStatistics()).thenReturn(stats);
+        
+        assertEquals(controller.getRateLimiterStatistics(), stats);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void getRateLimiterStatisticsRejectsAppAdmin() throws Exception {
+        session.setParticipant(new StudyParticipant.Builder()
+                .withRoles(ImmutableSet.of(ADMIN)).withId(TEST_USER_ID).build());
+        
+        controller.getRateLimiterStatistics();
+    }
+    
     @Test
     public void removeItem() throws Exception {
         session.setAppId(TEST_APP_ID);
@@ -55,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -329,6 +330,7 @@ public class ParticipantControllerTest extends Mockito {
         assertPost(ParticipantController.class, "updateIdentifiers");
         assertGet(ParticipantController.class, "getParticipants");
         assertPost(ParticipantController.class, "searchForAccountSummaries");
+        assertPost(ParticipantController.class, "searchForAccountSummariesByCursor");
         assertGet(ParticipantController.class, "getParticipantsForWorker");
         assertPost(ParticipantController.class, "searchForAccountSummariesForWorker");
         assertCreate(ParticipantController.class, "createParticipant");
@@ -1233,9 +1235,11 @@ public class ParticipantControllerTest extends Mockito {
 
     @Test
     public void sendMessage() throws Exception {
+        when(mockParticipantService.sendNotification(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(ImmutableSet.of()));
         mockRequestBody(mockRequest, NOTIFICATION_MESSAGE);
 
-        StatusMessage result = controller.sendNotification(TEST_USER_ID);
+        StatusMessage result = controller.sendNotification(TEST_USER_ID).join();
 
         assertEquals(result.getMessage(), "Message has been sent to external notification service.");
 
@@ -1250,10 +1254,10 @@ public class ParticipantControllerTest extends Mockito {
     public void sendMessageWithSomeErrors() throws Exception {
         Set<String> erroredRegistrations = ImmutableSet.of("123", "456");
         when(mockParticipantService.sendNotification(app, TEST_USER_ID, NOTIFICATION_MESSAGE))
-                .thenReturn(erroredRegistrations);
+                .thenReturn(CompletableFuture.completedFuture(erroredRegistrations));
         mockRequestBody(mockRequest, NOTIFICATION_MESSAGE);
 
-        StatusMessage result = controller.sendNotification(TEST_USER_ID);
+        StatusMessage result = controller.sendNotification(TEST_USER_ID).join();
 
         assertEquals(result.getMessage(),
                 "Message has been sent to external notification service. Some registrations returned errors: 123, 456.");
@@ -1631,6 +1635,23 @@ public class ParticipantControllerTest extends Mockito {
         assertEquals(search, payload);
     }
 
+    @Test
+    public void searchForAccountSummariesByCursor() throws Exception {
+        AccountSummarySearch payload = setAccountSummarySearch();
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of(), "nextKey", true);
+        when(mockParticipantService.getAccountSummariesByCursor(eq(app), any(), eq("offsetKey"), eq(true)))
+                .thenReturn(page);
+
+        ForwardCursorPagedResourceList<AccountSummary> result = controller
+                .searchForAccountSummariesByCursor("offsetKey", true);
+        assertSame(result, page);
+
+        verify(mockParticipantService).getAccountSummariesByCursor(eq(app), searchCaptor.capture(),
+                eq("offsetKey"), eq(true));
+        assertEquals(searchCaptor.getValue(), payload);
+    }
+
     @Test
     public void searchForAccountSummariesForWorker() throws Exception {
         session.setParticipant(new StudyParticipant.Builder().copyOf(session.getParticipant())
@@ -108,6 +108,9 @@ public class ParticipantReportControllerTest extends Mockito {
     @Captor
     ArgumentCaptor<ReportData> reportDataCaptor;
     
+    @Captor
+    ArgumentCaptor<List<ReportData>> reportDataListCaptor;
+    
     @Captor
     ArgumentCaptor<ReportIndex> reportDataIndex;
     
@@ -222,6 +225,26 @@ public class ParticipantReportControllerTest extends Mockito {
         assertNull(reportData.getKey());
     }
     
+    @Test
+    public void saveParticipantReportsForSelf() throws Exception {
+        String json = TestUtils.createJson("[{'date':'2015-02-12','data':{'field1':'First'}},"
+                + "{'date':'2015-02-13','data':{'field1':'Last'}}]");
+        mockRequestBody(mockRequest, json);
+        
+        StatusMessage result = controller.saveParticipantReportsForSelf(REPORT_ID);
+        assertEquals(result.getMessage(), "Report data saved.");
+        
+        verify(mockReportService).saveParticipantReports(eq(session.getAppId()), eq(TEST_USER_ID), eq(REPORT_ID),
+                eq(HEALTH_CODE), reportDataListCaptor.capture());
+        
+        List<ReportData> reportData = reportDataListCaptor.getValue();
+        assertEquals(reportData.size(), 2);
+        assertEquals(reportData.get(0).getDate(), "2015-02-12");
+        assertNull(reportData.get(0).getKey());
+        assertEquals(reportData.get(1).getDate(), "2015-02-13");
+        assertEquals(reportData.get(1).getData().get("field1").asText(), "Last");
+    }
+    
     @Test
     public void getParticipantReportDataNoDatesForSelf() throws Exception {
         doReturn(makeResults(START_DATE, END_DATE)).when(mockReportService).getParticipantReport(session.getAppId(),
@@ -402,6 +425,31 @@ public class ParticipantReportControllerTest extends Mockito {
         assertEquals(reportData.getData().get("field2").asText(), "Name");
     }
     
+    @Test
+    public void saveParticipantReports() throws Exception {
+        String json = TestUtils.createJson("[{'date':'2015-02-12','data':{'field1':'First'}},"
+                + "{'date':'2015-02-13','data':{'field1':'Last'}}]");
+        mockRequestBody(mockRequest, json);
+        when(mockAccountService.getAccount(any())).thenReturn(Optional.of(mockOtherAccount));
+
+        StatusMessage result = controller.saveParticipantReports(OTHER_PARTICIPANT_ID, REPORT_ID);
+        assertEquals(result.getMessage(), "Report data saved.");
+
+        verify(mockReportService).saveParticipantReports(eq(TEST_APP_ID), eq(TEST_USER_ID), eq(REPORT_ID),
+                eq(OTHER_PARTICIPANT_HEALTH_CODE), reportDataListCaptor.capture());
+        List<ReportData> reportData = reportDataListCaptor.getValue();
+        assertEquals(reportData.size(), 2);
+        assertNull(reportData.get(1).getKey());
+        assertEquals(reportData.get(1).getDate(), "2015-02-13");
+    }
+    
+    @Test(expectedExceptions = EntityNotFoundException.class)
+    public void saveParticipantReportsAccountNotFound() throws Exception {
+        when(mockAccountService.getAccount(any())).thenReturn(Optional.empty());
+        
+        controller.saveParticipantReports(OTHER_PARTICIPANT_ID, REPORT_ID);
+    }
+    
     @Test(expectedExceptions = InvalidEntityException.class, 
             expectedExceptionsMessageRegExp = ".*Error parsing JSON in request body, fields:.*")
     public void saveParticipantReportForWorkerBadJson() throws Exception {
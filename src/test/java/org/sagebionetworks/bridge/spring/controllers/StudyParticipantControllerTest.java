@@ -52,7 +52,9 @@ import static org.testng.Assert.assertTrue;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -131,6 +133,8 @@ import org.sagebionetworks.bridge.services.StudyService;
 import org.sagebionetworks.bridge.services.IntegrationTestUserService;
 
 public class StudyParticipantControllerTest extends Mockito {
+    private static final String TIMELINE_JSON = "{\"type\":\"Timeline\"}";
+    
     @Mock
     AppService mockAppService;
     
@@ -255,9 +259,11 @@ public class StudyParticipantControllerTest extends Mockito {
         assertCrossOrigin(StudyParticipantController.class);
         assertGet(StudyParticipantController.class, "getEnrollmentsForUser");
         assertPost(StudyParticipantController.class, "searchForAccountSummaries");
+        assertPost(StudyParticipantController.class, "searchForAccountSummariesByCursor");
         assertCreate(StudyParticipantController.class, "createParticipant");
         assertGet(StudyParticipantController.class, "getParticipant");
         assertPost(StudyParticipantController.class, "requestParticipantRoster");
+        assertGet(StudyParticipantController.class, "downloadParticipantRoster");
         assertGet(StudyParticipantController.class, "getRequestInfo");
         assertPost(StudyParticipantController.class, "updateParticipant");
         assertPost(StudyParticipantController.class, "signOut");
@@ -324,6 +330,35 @@ public class StudyParticipantControllerTest extends Mockito {
         controller.requestParticipantRoster(TEST_STUDY_ID);
     }
     
+    @Test
+    public void downloadParticipantRoster() throws Exception {
+        RequestContext.set(new RequestContext.Builder()
+                .withOrgSponsoredStudies(ImmutableSet.of(TEST_STUDY_ID))
+                .withCallerRoles(ImmutableSet.of(STUDY_COORDINATOR)).build());
+        doReturn(session).when(controller).getAdministrativeSession();
+        
+        ServletOutputStream mockOutputStream = mock(ServletOutputStream.class);
+        when(mockResponse.getOutputStream()).thenReturn(mockOutputStream);
+        when(mockParticipantService.getParticipantRosterContentType("csv")).thenReturn("text/csv");
+        
+        controller.downloadParticipantRoster(TEST_STUDY_ID, "csv");
+        
+        verify(mockResponse).setContentType("text/csv");
+        verify(mockResponse).setHeader("Content-Disposition",
+                "attachment; filename=\"" + TEST_STUDY_ID + "-roster.csv\"");
+        verify(mockParticipantService).writeParticipantRoster(app, TEST_STUDY_ID, "csv", mockOutputStream);
+    }
+    
+    @Test(expectedExceptions = UnauthorizedException.class)
+    public void downloadParticipantRoster_notAssociatedToStudy() throws Exception {
+        RequestContext.set(new RequestContext.Builder()
+                .withOrgSponsoredStudies(ImmutableSet.of("otherStudy"))
+                .withCallerRoles(ImmutableSet.of(STUDY_COORDINATOR)).build());
+        doReturn(session).when(controller).getAdministrativeSession();
+        
+        controller.downloadParticipantRoster(TEST_STUDY_ID, "ndjson");
+    }
+    
     @Test
     public void getActivityEvents() throws Exception {
         RequestContext.set(new RequestContext.Builder()
@@ -611,6 +646,33 @@ public class StudyParticipantControllerTest extends Mockito {
         assertEquals(captured.getEmailFilter(), "emailFilter");
     }
     
+    @Test
+    public void searchForAccountSummariesByCursor() throws Exception {
+        RequestContext.set(new RequestContext.Builder()
+                .withCallerRoles(ImmutableSet.of(ADMIN))
+                .build());
+        
+        ForwardCursorPagedResourceList<AccountSummary> page = new ForwardCursorPagedResourceList<>(
+                ImmutableList.of(), null, true);
+        when(mockParticipantService.getAccountSummariesByCursor(eq(app), any(), eq("offsetKey"), eq(false)))
+                .thenReturn(page);
+        
+        AccountSummarySearch search = new AccountSummarySearch.Builder()
+                .withEmailFilter("emailFilter").build();
+        mockRequestBody(mockRequest, search);
+        
+        ForwardCursorPagedResourceList<AccountSummary> retValue = controller
+                .searchForAccountSummariesByCursor(TEST_STUDY_ID, "offsetKey", false);
+        assertSame(retValue, page);
+        
+        verify(mockParticipantService).getAccountSummariesByCursor(eq(app), searchCaptor.capture(),
+                eq("offsetKey"), eq(false));
+        
+        AccountSummarySearch captured = searchCaptor.getValue();
+        assertEquals(captured.getEnrolledInStudyId(), TEST_STUDY_ID);
+        assertEquals(captured.getEmailFilter(), "emailFilter");
+    }
+    
     @Test
     public void createParticipant() throws Exception {
         RequestContext.set(new RequestContext.Builder()
@@ -1155,7 +1217,7 @@ public class StudyParticipantControllerTest extends Mockito {
                 .build());
         
         when(mockParticipantService.sendNotification(any(), any(), any()))
-            .thenReturn(ImmutableSet.of("This is an error"));
+            .thenReturn(CompletableFuture.completedFuture(ImmutableSet.of("This is an error")));
         
         mockAccountInStudy();
         
@@ -1163,7 +1225,7 @@ public class StudyParticipantControllerTest extends Mockito {
                 .withMessage("message").build();
         mockRequestBody(mockRequest, msg);
         
-        StatusMessage retValue = controller.sendNotification(TEST_STUDY_ID, TEST_USER_ID);
+        StatusMessage retValue = controller.sendNotification(TEST_STUDY_ID, TEST_USER_ID).join();
         assertTrue(retValue.getMessage().contains("This is an error"));
         
         verify(mockParticipantService).sendNotification(eq(app), eq(TEST_USER_ID), messageCaptor.capture());
@@ -1179,7 +1241,7 @@ public class StudyParticipantControllerTest extends Mockito {
                 .build());
         
         when(mockParticipantService.sendNotification(any(), any(), any()))
-            .thenReturn(ImmutableSet.of());
+            .thenReturn(CompletableFuture.completedFuture(ImmutableSet.of()));
         
         mockAccountInStudy();
         
@@ -1187,7 +1249,7 @@ public class StudyParticipantControllerTest extends Mockito {
                 .withMessage("message").build();
         mockRequestBody(mockRequest, msg);
         
-        StatusMessage retValue = controller.sendNotification(TEST_STUDY_ID, TEST_USER_ID);
+        StatusMessage retValue = controller.sendNotification(TEST_STUDY_ID, TEST_USER_ID).join();
         assertEquals(NOTIFY_SUCCESS_MSG, retValue);
     }
     
@@ -1292,12 +1354,13 @@ public class StudyParticipantControllerTest extends Mockito {
         Schedule2 schedule = new Schedule2();
         schedule.setModifiedOn(MODIFIED_ON);
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getTimelineJson(schedule)).thenReturn(TIMELINE_JSON);
         
         when(controller.getDateTime()).thenReturn(CREATED_ON);
         
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 200);
-        assertTrue(retValue.getBody() instanceof Timeline);
+        assertEquals(retValue.getBody(), TIMELINE_JSON);
         
         verify(mockCacheProvider).setObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), MODIFIED_ON.toString());
         verify(mockScheduleService).getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID);
@@ -1355,10 +1418,11 @@ public class StudyParticipantControllerTest extends Mockito {
         Schedule2 schedule = new Schedule2();
         schedule.setModifiedOn(MODIFIED_ON);
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getTimelineJson(schedule)).thenReturn(TIMELINE_JSON);
         
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 200);
-        assertTrue(retValue.getBody() instanceof Timeline);
+        assertEquals(retValue.getBody(), TIMELINE_JSON);
         
         verify(mockCacheProvider).getObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), String.class);
         verify(mockCacheProvider).setObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), MODIFIED_ON.toString());
@@ -1381,10 +1445,11 @@ public class StudyParticipantControllerTest extends Mockito {
         // just make this different so we can verify this is set
         schedule.setModifiedOn(CREATED_ON); 
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getTimelineJson(schedule)).thenReturn(TIMELINE_JSON);
         
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 200);
-        assertTrue(retValue.getBody() instanceof Timeline);
+        assertEquals(retValue.getBody(), TIMELINE_JSON);
         
         verify(mockCacheProvider).getObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), String.class);
         verify(mockCacheProvider).setObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), CREATED_ON.toString());
@@ -1406,10 +1471,11 @@ public class StudyParticipantControllerTest extends Mockito {
         // just make this different so we can verify this is set
         schedule.setModifiedOn(CREATED_ON); 
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getTimelineJson(schedule)).thenReturn(TIMELINE_JSON);
 
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 200);
-        assertTrue(retValue.getBody() instanceof Timeline);
+        assertEquals(retValue.getBody(), TIMELINE_JSON);
         
         verify(mockCacheProvider).getObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), String.class);
         verify(mockCacheProvider).setObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), CREATED_ON.toString());
@@ -1427,10 +1493,11 @@ public class StudyParticipantControllerTest extends Mockito {
         Schedule2 schedule = new Schedule2();
         schedule.setModifiedOn(MODIFIED_ON);
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getTimelineJson(schedule)).thenReturn(TIMELINE_JSON);
         
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 200);
-        assertTrue(retValue.getBody() instanceof Timeline);
+        assertEquals(retValue.getBody(), TIMELINE_JSON);
         
         verify(mockScheduleService).getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID);
         verify(mockCacheProvider).getObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), String.class);
@@ -1456,7 +1523,7 @@ public class StudyParticipantControllerTest extends Mockito {
         schedule.setModifiedOn(MODIFIED_ON);
         when(mockScheduleService.getScheduleForStudy(TEST_STUDY_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
         
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 304);
         assertNull(retValue.getBody());
         
@@ -1477,10 +1544,11 @@ public class StudyParticipantControllerTest extends Mockito {
         Schedule2 schedule = new Schedule2();
         schedule.setModifiedOn(MODIFIED_ON);
         when(mockScheduleService.getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID)).thenReturn(Optional.of(schedule));
+        when(mockScheduleService.getTimelineJson(schedule)).thenReturn(TIMELINE_JSON);
         
-        ResponseEntity<Timeline> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
+        ResponseEntity<String> retValue = controller.getTimelineForSelf(TEST_STUDY_ID);
         assertEquals(retValue.getStatusCodeValue(), 200);
-        assertTrue(retValue.getBody() instanceof Timeline);
+        assertEquals(retValue.getBody(), TIMELINE_JSON);
         
         verify(mockScheduleService).getScheduleForStudy(TEST_APP_ID, TEST_STUDY_ID);
         verify(mockCacheProvider).getObject(scheduleModificationTimestamp(TEST_APP_ID, TEST_STUDY_ID), String.class);
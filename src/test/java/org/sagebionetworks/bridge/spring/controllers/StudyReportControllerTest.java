@@ -101,6 +101,9 @@ public class StudyReportControllerTest extends Mockito {
     @Captor
     ArgumentCaptor<ReportData> reportDataCaptor;
     
+    @Captor
+    ArgumentCaptor<List<ReportData>> reportDataListCaptor;
+    
     @Captor
     ArgumentCaptor<ReportIndex> reportDataIndex;
     
@@ -239,6 +242,24 @@ public class StudyReportControllerTest extends Mockito {
         assertEquals("Name", reportData.getData().get("field2").asText());
     }
 
+    @Test
+    public void saveStudyReports() throws Exception {
+        String json = TestUtils.createJson("[{'date':'2015-02-12','data':{'field1':'First'}},"
+                + "{'date':'2015-02-13','data':{'field1':'Last'}}]");
+        mockRequestBody(mockRequest, json);
+        
+        StatusMessage result = controller.saveStudyReports(REPORT_ID);
+        assertEquals(result, StudyReportController.SAVED_MSG);
+        
+        verify(mockReportService).saveStudyReports(eq(TEST_APP_ID), eq(REPORT_ID), reportDataListCaptor.capture());
+        List<ReportData> reportData = reportDataListCaptor.getValue();
+        assertEquals(reportData.size(), 2);
+        assertEquals(reportData.get(0).getDate(), "2015-02-12");
+        assertNull(reportData.get(0).getKey());
+        assertEquals(reportData.get(1).getDate(), "2015-02-13");
+        assertEquals(reportData.get(1).getData().get("field1").asText(), "Last");
+    }
+
     @Test
     public void deleteStudyReportData() throws Exception {
         StatusMessage result = controller.deleteStudyReport(REPORT_ID);
@@ -11,20 +11,26 @@ import static org.sagebionetworks.bridge.TestConstants.TEST_STUDY_ID;
 import static org.sagebionetworks.bridge.TestConstants.TEST_USER_ID;
 import static org.sagebionetworks.bridge.TestUtils.createJson;
 import static org.sagebionetworks.bridge.TestUtils.mockRequestBody;
+import static org.sagebionetworks.bridge.spring.controllers.UploadController.VALIDATION_STATUS_TIMEOUT_MILLIS;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.net.URL;
 import java.util.EnumSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 import org.mockito.ArgumentCaptor;
@@ -35,12 +41,16 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.testng.annotations.BeforeMethod;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.testng.annotations.Test;
 
 import org.sagebionetworks.bridge.Roles;
+import org.sagebionetworks.bridge.config.BridgeConfig;
 import org.sagebionetworks.bridge.cache.CacheProvider;
 import org.sagebionetworks.bridge.dao.HealthCodeDao;
 import org.sagebionetworks.bridge.dynamodb.DynamoUpload2;
+import org.sagebionetworks.bridge.exceptions.BridgeServiceException;
 import org.sagebionetworks.bridge.exceptions.EntityNotFoundException;
 import org.sagebionetworks.bridge.exceptions.UnauthorizedException;
 import org.sagebionetworks.bridge.json.BridgeObjectMapper;
@@ -104,6 +114,9 @@ public class UploadControllerTest extends Mockito {
     @Mock 
     Metrics mockMetrics;
     
+    @Mock
+    BridgeConfig mockBridgeConfig;
+    
     @Mock
     HttpServletRequest mockRequest;
     
@@ -141,7 +154,12 @@ public class UploadControllerTest extends Mockito {
                 .withStatus(UploadStatus.VALIDATION_FAILED).build();
 
         doReturn(status).when(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        doReturn(status).when(mockUploadService).pollUploadValidationStatusUntilComplete(UPLOAD_ID);
+        doReturn(CompletableFuture.completedFuture(status)).when(mockUploadService)
+                .getUploadValidationStatusWhenComplete(UPLOAD_ID);
+        doReturn(status).when(mockUploadService).getUploadValidationStatusAfterTimeout(UPLOAD_ID);
+        
+        when(mockBridgeConfig.getInt(VALIDATION_STATUS_TIMEOUT_MILLIS)).thenReturn(30000);
+        controller.setBridgeConfig(mockBridgeConfig);
 
         // mock metrics
         doReturn(mockMetrics).when(controller).getMetrics();
@@ -186,7 +204,7 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockWorkerSession).when(controller).getAuthenticatedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, false);
+        String result = controller.uploadComplete(UPLOAD_ID, false);
         validateValidationStatus(result);
 
         // verify back-end calls
@@ -196,7 +214,7 @@ public class UploadControllerTest extends Mockito {
         assertEquals(upload.getHealthCode(), "consented-user-health-code");
 
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
     
     @Test
@@ -208,7 +226,7 @@ public class UploadControllerTest extends Mockito {
         doReturn(TEST_APP_ID).when(mockHealthCodeDao).getAppId(HEALTH_CODE);
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, false);
+        String result = controller.uploadComplete(UPLOAD_ID, false);
         validateValidationStatus(result);
 
         // verify back-end calls
@@ -219,7 +237,7 @@ public class UploadControllerTest extends Mockito {
         assertEquals(upload.getHealthCode(), HEALTH_CODE);
 
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
 
     @Test
@@ -229,7 +247,7 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, false);
+        String result = controller.uploadComplete(UPLOAD_ID, false);
         validateValidationStatus(result);
 
         // verify back-end calls
@@ -239,7 +257,7 @@ public class UploadControllerTest extends Mockito {
         assertEquals("consented-user-health-code", upload.getHealthCode());
 
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
     
     @Test
@@ -253,7 +271,7 @@ public class UploadControllerTest extends Mockito {
 
         // execute and catch exception
         try {
-            controller.uploadComplete(UPLOAD_ID, false, false);
+            controller.uploadComplete(UPLOAD_ID, false);
             fail("Should have thrown exception");
         } catch(UnauthorizedException e) {
             // expected exception
@@ -262,7 +280,30 @@ public class UploadControllerTest extends Mockito {
         // verify back-end calls
         verify(mockUploadService, never()).uploadComplete(any(), any(), any(), anyBoolean());
         verify(mockUploadService, never()).getUploadValidationStatus(any());
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
+    }
+
+    @Test
+    public void getUploadValidationStatistics() throws Exception {
+        doReturn(mockWorkerSession).when(controller).getAuthenticatedSession(SUPERADMIN);
+        Map<String, Map<String, Long>> stats = ImmutableMap.of("executor", ImmutableMap.of("active", 1L));
+        doReturn(stats).when(mockUploadService).getUploadValidationStatistics();
+
+        assertSame(controller.getUploadValidationStatistics(), stats);
+        verify(controller).getAuthenticatedSession(SUPERADMIN);
+    }
+
+    @Test
+    public void uploadCompleteSynchronouslyMapping() throws Exception {
+        PostMapping mapping = UploadController.class.getMethod("uploadCompleteSynchronously", String.class,
+                boolean.class).getAnnotation(PostMapping.class);
+        assertEquals(mapping.params(), new String[] {"synchronous=true"});
+        
+        mapping = UploadController.class.getMethod("uploadComplete", String.class, boolean.class)
+                .getAnnotation(PostMapping.class);
+        assertEquals(mapping.path(), new String[] {"/v3/uploads/{uploadId}/complete",
+                "/api/v1/upload/{uploadId}/complete"});
+        assertEquals(mapping.params(), new String[] {});
     }
 
     @Test
@@ -272,16 +313,74 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, true, false);
-        validateValidationStatus(result);
+        DeferredResult<String> result = controller.uploadCompleteSynchronously(UPLOAD_ID, false);
+        validateValidationStatus((String) result.getResult());
 
         // verify back-end calls
         verify(mockUploadService).uploadComplete(eq("consented-user-app-id"),
                 eq(UploadCompletionClient.APP), any(), eq(false));
-        verify(mockUploadService).pollUploadValidationStatusUntilComplete(UPLOAD_ID);
+        verify(mockUploadService).getUploadValidationStatusWhenComplete(UPLOAD_ID);
         verify(mockUploadService, never()).getUploadValidationStatus(any());
     }
 
+    @Test
+    public void uploadCompleteSynchronousModeWaitsForValidation() throws Exception {
+        doReturn(mockConsentedUserSession).when(controller).getAuthenticatedSession();
+        doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
+        
+        CompletableFuture<UploadValidationStatus> future = new CompletableFuture<>();
+        doReturn(future).when(mockUploadService).getUploadValidationStatusWhenComplete(UPLOAD_ID);
+
+        DeferredResult<String> result = controller.uploadCompleteSynchronously(UPLOAD_ID, false);
+        assertFalse(result.hasResult());
+        
+        // validation completes
+        future.complete(mockUploadService.getUploadValidationStatus(UPLOAD_ID));
+        assertTrue(result.hasResult());
+        validateValidationStatus((String) result.getResult());
+    }
+
+    @Test
+    public void uploadCompleteSynchronousModeFails() throws Exception {
+        doReturn(mockConsentedUserSession).when(controller).getAuthenticatedSession();
+        doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
+        
+        CompletableFuture<UploadValidationStatus> future = new CompletableFuture<>();
+        doReturn(future).when(mockUploadService).getUploadValidationStatusWhenComplete(UPLOAD_ID);
+
+        DeferredResult<String> result = controller.uploadCompleteSynchronously(UPLOAD_ID, false);
+        
+        BridgeServiceException ex = new BridgeServiceException("Dynamo is down");
+        future.completeExceptionally(ex);
+        assertSame(result.getResult(), ex);
+    }
+
+    @Test
+    public void validationStatusTimedOut() throws Exception {
+        CompletableFuture<UploadValidationStatus> future = new CompletableFuture<>();
+        DeferredResult<String> result = new DeferredResult<>();
+        
+        controller.validationStatusTimedOut(UPLOAD_ID, result, future);
+        
+        validateValidationStatus((String) result.getResult());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void validationStatusTimedOutStillInProgress() throws Exception {
+        BridgeServiceException ex = new BridgeServiceException("Timeout waiting for validation status for upload "
+                + UPLOAD_ID);
+        doThrow(ex).when(mockUploadService).getUploadValidationStatusAfterTimeout(UPLOAD_ID);
+        
+        CompletableFuture<UploadValidationStatus> future = new CompletableFuture<>();
+        DeferredResult<String> result = new DeferredResult<>();
+        
+        controller.validationStatusTimedOut(UPLOAD_ID, result, future);
+        
+        assertSame(result.getResult(), ex);
+        assertTrue(future.isCancelled());
+    }
+
     @Test
     public void uploadCompleteRedriveFlag() throws Exception {
         // setup controller
@@ -289,14 +388,14 @@ public class UploadControllerTest extends Mockito {
         doReturn(mockConsentedUserSession).when(controller).getAuthenticatedAndConsentedSession();
 
         // execute and validate
-        String result = controller.uploadComplete(UPLOAD_ID, false, true);
+        String result = controller.uploadComplete(UPLOAD_ID, true);
         validateValidationStatus(result);
 
         // verify back-end calls
         verify(mockUploadService).uploadComplete(eq("consented-user-app-id"),
                 eq(UploadCompletionClient.APP), any(), eq(true));
         verify(mockUploadService).getUploadValidationStatus(UPLOAD_ID);
-        verify(mockUploadService, never()).pollUploadValidationStatusUntilComplete(any());
+        verify(mockUploadService, never()).getUploadValidationStatusWhenComplete(any());
     }
 
     @Test
@@ -8,6 +8,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -123,4 +124,30 @@ public class MetricsFilterTest extends Mockito {
         
         assertEquals("5.6.7.8", node.get("remote_address").textValue());
     }
+
+    @Test
+    public void asyncStartedDefersMetrics() throws Exception {
+        when(mockRequest.getMethod()).thenReturn("GET");
+        when(mockRequest.isAsyncStarted()).thenReturn(true);
+        
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+        
+        JsonNode node = RequestContext.get().getMetrics().getJson();
+        assertEquals("GET", node.get("method").textValue());
+        assertFalse(node.has("end"));
+    }
+
+    @Test
+    public void asyncDispatchCompletesMetrics() throws Exception {
+        when(mockRequest.getDispatcherType()).thenReturn(DispatcherType.ASYNC);
+        when(mockResponse.getStatus()).thenReturn(200);
+        
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+        
+        JsonNode node = RequestContext.get().getMetrics().getJson();
+        assertEquals(200, node.get("status").intValue());
+        assertEquals(TIMESTAMP.toString(), node.get("end").textValue());
+        verify(mockRequest, never()).getMethod();
+        verify(mockRequest, never()).getQueryString();
+    }
 }
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Vector;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.FilterChain;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
@@ -142,6 +143,40 @@ public class RequestFilterTest extends Mockito {
         assertNull(contextCaptor.getAllValues().get(1));
     }
     
+    @Test
+    public void asyncStartedSavesContextForDispatch() throws Exception {
+        when(mockRequest.getHeaderNames()).thenReturn(new Vector<String>().elements());
+        when(filter.generateRequestId()).thenReturn("AAABAAA");
+        when(mockRequest.isAsyncStarted()).thenReturn(true);
+        
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+        
+        verify(filter, times(2)).setRequestContext(contextCaptor.capture());
+        RequestContext context = contextCaptor.getAllValues().get(0);
+        assertEquals(context.getId(), "AAABAAA");
+        assertNull(contextCaptor.getAllValues().get(1));
+        
+        verify(mockRequest).setAttribute(RequestFilter.REQUEST_CONTEXT_ATTRIBUTE, context);
+    }
+    
+    @Test
+    public void asyncDispatchRestoresContext() throws Exception {
+        RequestContext context = new RequestContext.Builder().withRequestId("ABCXZ").build();
+        when(mockRequest.getDispatcherType()).thenReturn(DispatcherType.ASYNC);
+        when(mockRequest.getAttribute(RequestFilter.REQUEST_CONTEXT_ATTRIBUTE)).thenReturn(context);
+        
+        filter.doFilter(mockRequest, mockResponse, mockFilterChain);
+        
+        verify(mockFilterChain).doFilter(requestCaptor.capture(), eq(mockResponse));
+        assertEquals(requestCaptor.getValue().getHeader(BridgeConstants.X_REQUEST_ID_HEADER), "ABCXZ");
+        
+        verify(filter, times(2)).setRequestContext(contextCaptor.capture());
+        assertEquals(contextCaptor.getAllValues().get(0), context);
+        assertNull(contextCaptor.getAllValues().get(1));
+        verify(filter, never()).generateRequestId();
+        verify(mockRequest, never()).setAttribute(eq(RequestFilter.REQUEST_CONTEXT_ATTRIBUTE), any());
+    }
+    
     @Test
     public void getLanguagesFromAcceptLanguageHeader() {
         when(mockRequest.getHeader(ACCEPT_LANGUAGE))
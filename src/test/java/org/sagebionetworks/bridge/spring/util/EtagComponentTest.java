@@ -15,7 +15,9 @@ import static org.testng.Assert.assertNull;
 
 import java.lang.annotation.Annotation;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -146,6 +148,8 @@ public class EtagComponentTest extends Mockito {
     @InjectMocks
     @Spy
     EtagComponent component;
+    
+    Map<CacheKey, DateTime> timestamps;
 
     @BeforeMethod
     public void beforeMethod() throws Throwable {
@@ -166,10 +170,15 @@ public class EtagComponentTest extends Mockito {
         when(mockRequest.getHeader(SESSION_TOKEN_HEADER)).thenReturn("ABC");
         when(mockCacheProvider.getUserSession("ABC")).thenReturn(mockSession);
         
+        timestamps = new HashMap<>();
+        when(mockCacheProvider.getObjects(any(), eq(DateTime.class))).thenAnswer(invocation -> {
+            List<CacheKey> keys = invocation.getArgument(0);
+            return keys.stream().map(timestamps::get).collect(Collectors.toList());
+        });
         CacheKey studyKey = CacheKey.etag(Study.class, TEST_APP_ID, TEST_STUDY_ID);
-        when(mockCacheProvider.getObject(studyKey, DateTime.class)).thenReturn(CREATED_ON);
+        timestamps.put(studyKey, CREATED_ON);
         CacheKey userKey = CacheKey.etag(Account.class, TEST_USER_ID);
-        when(mockCacheProvider.getObject(userKey, DateTime.class)).thenReturn(MODIFIED_ON);
+        timestamps.put(userKey, MODIFIED_ON);
         
         String stringToHash = CREATED_ON.toString() + " " + MODIFIED_ON.toString();
         when(mockMd5DigestUtils.digest(stringToHash.getBytes())).thenReturn("ETAG".getBytes());
@@ -189,7 +198,7 @@ public class EtagComponentTest extends Mockito {
         doReturn(ImmutableMap.of("studyId", TEST_STUDY_ID, "appId", TEST_APP_ID)).when(mockContext).getArgValues();
 
         CacheKey studyKey = CacheKey.etag(Study.class, TEST_APP_ID, TEST_STUDY_ID);
-        when(mockCacheProvider.getObject(studyKey, DateTime.class)).thenReturn(MODIFIED_ON);
+        timestamps.put(studyKey, MODIFIED_ON);
         
         String stringToHash = MODIFIED_ON.toString();
         when(mockMd5DigestUtils.digest(stringToHash.getBytes())).thenReturn("ETAG".getBytes());
@@ -267,7 +276,7 @@ public class EtagComponentTest extends Mockito {
         when(mockRequest.getHeader(IF_NONE_MATCH)).thenReturn(ETAG);
         
         CacheKey userKey = CacheKey.etag(Account.class, TEST_USER_ID);
-        when(mockCacheProvider.getObject(userKey, DateTime.class)).thenReturn(null);
+        timestamps.put(userKey, null);
         
         Object retValue = component.checkEtag(mockJoinPoint);
         assertEquals(retValue, ACCOUNT_ID);
@@ -283,7 +292,7 @@ public class EtagComponentTest extends Mockito {
         doReturn(ImmutableList.of(ORG_KEY_ANN)).when(mockContext).getCacheKeys();
         
         CacheKey orgKey = CacheKey.etag(Organization.class, TEST_ORG_ID);
-        when(mockCacheProvider.getObject(orgKey, DateTime.class)).thenReturn(MODIFIED_ON);
+        timestamps.put(orgKey, MODIFIED_ON);
         
         String stringToHash = MODIFIED_ON.toString();
         when(mockMd5DigestUtils.digest(stringToHash.getBytes())).thenReturn("ETAG".getBytes());
@@ -378,8 +387,7 @@ public class EtagComponentTest extends Mockito {
 
         when(mockRequest.getHeader(IF_NONE_MATCH)).thenReturn(ETAG);
         
-        when(mockCacheProvider.getObject(
-                CacheKey.etag(DateTimeZone.class, TEST_USER_ID), DateTime.class)).thenReturn(MODIFIED_ON);
+        timestamps.put(CacheKey.etag(DateTimeZone.class, TEST_USER_ID), MODIFIED_ON);
         when(mockRequest.getHeader(IF_NONE_MATCH)).thenReturn(ETAG);
         
         when(mockMd5DigestUtils.digest(MODIFIED_ON.toString().getBytes())).thenReturn("ETAG".getBytes());
@@ -399,8 +407,7 @@ public class EtagComponentTest extends Mockito {
         doReturn(ImmutableMap.of("userId", TEST_USER_ID, "clientTimeZone", TEST_CLIENT_TIME_ZONE))
             .when(mockContext).getArgValues();
         
-        when(mockCacheProvider.getObject(
-                CacheKey.etag(DateTimeZone.class, TEST_USER_ID), DateTime.class)).thenReturn(MODIFIED_ON);
+        timestamps.put(CacheKey.etag(DateTimeZone.class, TEST_USER_ID), MODIFIED_ON);
         when(mockRequest.getHeader(IF_NONE_MATCH)).thenReturn(ETAG);
         
         when(mockMd5DigestUtils.digest(MODIFIED_ON.toString().getBytes())).thenReturn("ETAG".getBytes());
@@ -424,8 +431,7 @@ public class EtagComponentTest extends Mockito {
         doReturn(ImmutableMap.of("userId", TEST_USER_ID, "clientTimeZone", TEST_CLIENT_TIME_ZONE))
             .when(mockContext).getArgValues();
 
-        when(mockCacheProvider.getObject(
-                CacheKey.etag(DateTimeZone.class, TEST_USER_ID), DateTime.class)).thenReturn(MODIFIED_ON);
+        timestamps.put(CacheKey.etag(DateTimeZone.class, TEST_USER_ID), MODIFIED_ON);
 
         when(mockMd5DigestUtils.digest(MODIFIED_ON.toString().getBytes())).thenReturn("ETAG".getBytes());
 
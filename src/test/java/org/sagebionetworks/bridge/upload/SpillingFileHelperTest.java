@@ -0,0 +1,136 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SpillingFileHelperTest {
+    private static final byte[] CONTENT = "test data".getBytes(Charsets.UTF_8);
+
+    private SpillingFileHelper fileHelper;
+    private File tmpDir;
+
+    @BeforeMethod
+    public void before() {
+        fileHelper = new SpillingFileHelper(CONTENT.length * 2);
+        tmpDir = fileHelper.createTempDir();
+    }
+
+    @AfterMethod
+    public void after() throws Exception {
+        if (tmpDir.exists()) {
+            fileHelper.deleteDirRecursively(tmpDir);
+        }
+    }
+
+    @Test
+    public void smallFileStaysInMemory() throws Exception {
+        File file = fileHelper.newFile(tmpDir, "small");
+        writeFile(file, CONTENT.length);
+
+        assertFalse(file.exists());
+        assertTrue(fileHelper.fileExists(file));
+        assertEquals(fileHelper.fileSize(file), CONTENT.length);
+        assertEquals(fileHelper.getInMemoryBytes(file), CONTENT);
+        assertEquals(readFile(file), CONTENT);
+    }
+
+    @Test
+    public void largeFileSpillsToDisk() throws Exception {
+        File file = fileHelper.newFile(tmpDir, "large");
+        writeFile(file, CONTENT.length - 1);
+
+        assertTrue(file.exists());
+        assertTrue(fileHelper.fileExists(file));
+        assertEquals(fileHelper.fileSize(file), CONTENT.length);
+        assertNull(fileHelper.getInMemoryBytes(file));
+        assertEquals(readFile(file), CONTENT);
+    }
+
+    @Test
+    public void missingFile() {
+        File file = fileHelper.newFile(tmpDir, "missing");
+        assertFalse(fileHelper.fileExists(file));
+        assertNull(fileHelper.getInMemoryBytes(file));
+    }
+
+    @Test
+    public void deleteDirRemovesOnlyFilesInDir() throws Exception {
+        File otherDir = fileHelper.createTempDir();
+        try {
+            File file = fileHelper.newFile(tmpDir, "file");
+            writeFile(file, CONTENT.length);
+            File otherFile = fileHelper.newFile(otherDir, "file");
+            writeFile(otherFile, CONTENT.length);
+
+            fileHelper.deleteDirRecursively(tmpDir);
+            assertFalse(fileHelper.fileExists(file));
+            assertTrue(fileHelper.fileExists(otherFile));
+            assertEquals(fileHelper.getInMemoryFileCount(), 1);
+        } finally {
+            fileHelper.deleteDirRecursively(otherDir);
+        }
+        assertEquals(fileHelper.getInMemoryFileCount(), 0);
+    }
+
+    @Test
+    public void fileOverBudgetSpillsToDisk() throws Exception {
+        File first = fileHelper.newFile(tmpDir, "first");
+        writeFile(first, CONTENT.length);
+        File second = fileHelper.newFile(tmpDir, "second");
+        writeFile(second, CONTENT.length);
+        assertEquals(fileHelper.getInMemoryByteCount(), CONTENT.length * 2);
+
+        // Under the per-file threshold, but there is no room left in memory
+        File third = fileHelper.newFile(tmpDir, "third");
+        writeFile(third, CONTENT.length);
+
+        assertTrue(third.exists());
+        assertNull(fileHelper.getInMemoryBytes(third));
+        assertEquals(readFile(third), CONTENT);
+        assertEquals(fileHelper.getInMemoryByteCount(), CONTENT.length * 2);
+    }
+
+    @Test
+    public void deleteDirReleasesBudget() throws Exception {
+        File file = fileHelper.newFile(tmpDir, "file");
+        writeFile(file, CONTENT.length);
+        assertEquals(fileHelper.getInMemoryByteCount(), CONTENT.length);
+
+        fileHelper.deleteDirRecursively(tmpDir);
+        assertEquals(fileHelper.getInMemoryByteCount(), 0);
+    }
+
+    @Test
+    public void rewritingFileDoesNotDoubleCount() throws Exception {
+        File file = fileHelper.newFile(tmpDir, "file");
+        writeFile(file, CONTENT.length);
+        writeFile(file, CONTENT.length);
+
+        assertEquals(fileHelper.getInMemoryByteCount(), CONTENT.length);
+        assertEquals(fileHelper.getInMemoryFileCount(), 1);
+    }
+
+    private void writeFile(File file, int threshold) throws Exception {
+        try (OutputStream outputStream = fileHelper.getSpillingOutputStream(file, threshold)) {
+            outputStream.write(CONTENT);
+        }
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        try (InputStream inputStream = fileHelper.getInputStream(file)) {
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Map;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.sagebionetworks.bridge.TestConstants;
+import org.sagebionetworks.bridge.config.BridgeConfig;
+import org.sagebionetworks.bridge.models.upload.Upload;
+import org.sagebionetworks.bridge.services.UploadArchiveService;
+
+public class StreamingUnzipHandlerTest {
+    private static final String APP_ID = "test-app";
+    private static final int IN_MEMORY_THRESHOLD = 20;
+    private static final String OBJECT_ID = "test-object";
+    private static final String UPLOAD_ID = "test-upload";
+    private static final byte[] SMALL_CONTENT = "small data".getBytes(Charsets.UTF_8);
+    private static final byte[] LARGE_CONTENT = "large data, larger than the threshold".getBytes(Charsets.UTF_8);
+
+    @Mock
+    private BridgeConfig mockConfig;
+
+    @Mock
+    private AmazonS3 mockS3Client;
+
+    private UploadValidationContext ctx;
+    private SpillingFileHelper fileHelper;
+    private StreamingUnzipHandler handler;
+    private File tmpDir;
+    private Upload upload;
+    private UploadArchiveService uploadArchiveService;
+
+    @BeforeMethod
+    public void before() {
+        MockitoAnnotations.initMocks(this);
+        when(mockConfig.getPropertyAsInt(StreamingUnzipHandler.CONFIG_KEY_IN_MEMORY_THRESHOLD))
+                .thenReturn(IN_MEMORY_THRESHOLD);
+
+        fileHelper = new SpillingFileHelper(Long.MAX_VALUE);
+        tmpDir = fileHelper.createTempDir();
+
+        // The real archive service unzips. Decryption is mocked as a pass-through.
+        uploadArchiveService = spy(new UploadArchiveService());
+        uploadArchiveService.setMaxZipEntrySize(1000000);
+        uploadArchiveService.setMaxNumZipEntries(1000000);
+        doAnswer(invocation -> invocation.getArgument(1)).when(uploadArchiveService).decrypt(eq(APP_ID),
+                any(InputStream.class));
+
+        handler = new StreamingUnzipHandler();
+        handler.setBridgeConfig(mockConfig);
+        handler.setFileHelper(fileHelper);
+        handler.setS3Client(mockS3Client);
+        handler.setUploadArchiveService(uploadArchiveService);
+
+        upload = Upload.create();
+        upload.setUploadId(UPLOAD_ID);
+        upload.setObjectId(OBJECT_ID);
+        upload.setEncrypted(true);
+        upload.setZipped(true);
+
+        ctx = new UploadValidationContext();
+        ctx.setAppId(APP_ID);
+        ctx.setUpload(upload);
+        ctx.setTempDir(tmpDir);
+    }
+
+    @AfterMethod
+    public void after() throws Exception {
+        if (tmpDir.exists()) {
+            fileHelper.deleteDirRecursively(tmpDir);
+        }
+    }
+
+    @Test
+    public void zippedUpload() throws Exception {
+        byte[] zippedData = uploadArchiveService.zip(ImmutableMap.of("small", SMALL_CONTENT, "large",
+                LARGE_CONTENT));
+        mockS3Object(zippedData);
+
+        handler.handle(ctx);
+
+        // Small files stay in memory, large files are spilled to disk.
+        Map<String, File> unzippedDataFileMap = ctx.getUnzippedDataFileMap();
+        assertEquals(unzippedDataFileMap.size(), 2);
+        File smallFile = unzippedDataFileMap.get("small");
+        assertNotNull(fileHelper.getInMemoryBytes(smallFile));
+        assertFalse(smallFile.exists());
+        assertEquals(readFile(smallFile), SMALL_CONTENT);
+
+        File largeFile = unzippedDataFileMap.get("large");
+        assertNull(fileHelper.getInMemoryBytes(largeFile));
+        assertTrue(largeFile.exists());
+        assertEquals(readFile(largeFile), LARGE_CONTENT);
+
+        // The decrypted archive is complete, including the zip directory after the last entry.
+        assertEquals(readFile(ctx.getDecryptedDataFile()), zippedData);
+        assertNull(ctx.getDataFile());
+    }
+
+    @Test
+    public void unencryptedUpload() throws Exception {
+        upload.setEncrypted(false);
+        byte[] zippedData = uploadArchiveService.zip(ImmutableMap.of("small", SMALL_CONTENT));
+        mockS3Object(zippedData);
+
+        handler.handle(ctx);
+
+        assertEquals(readFile(ctx.getUnzippedDataFileMap().get("small")), SMALL_CONTENT);
+        assertEquals(readFile(ctx.getDecryptedDataFile()), zippedData);
+        verify(uploadArchiveService, never()).decrypt(any(), any(InputStream.class));
+    }
+
+    @Test
+    public void unzippedUpload() throws Exception {
+        upload.setZipped(false);
+        upload.setFilename("upload.json");
+        mockS3Object(SMALL_CONTENT);
+
+        handler.handle(ctx);
+
+        // The decrypted file is the only entry in the map.
+        Map<String, File> unzippedDataFileMap = ctx.getUnzippedDataFileMap();
+        assertEquals(unzippedDataFileMap.size(), 1);
+        assertEquals(unzippedDataFileMap.get("upload.json"), ctx.getDecryptedDataFile());
+        assertEquals(readFile(ctx.getDecryptedDataFile()), SMALL_CONTENT);
+    }
+
+    @Test
+    public void deletingTempDirReleasesInMemoryFiles() throws Exception {
+        mockS3Object(uploadArchiveService.zip(ImmutableMap.of("small", SMALL_CONTENT)));
+
+        handler.handle(ctx);
+        assertTrue(fileHelper.getInMemoryFileCount() > 0);
+
+        fileHelper.deleteDirRecursively(tmpDir);
+        assertEquals(fileHelper.getInMemoryFileCount(), 0);
+    }
+
+    private void mockS3Object(byte[] content) {
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(content));
+        when(mockS3Client.getObject(TestConstants.UPLOAD_BUCKET, OBJECT_ID)).thenReturn(s3Object);
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        try (InputStream inputStream = fileHelper.getInputStream(file)) {
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+}
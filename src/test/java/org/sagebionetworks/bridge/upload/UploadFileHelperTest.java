@@ -4,11 +4,13 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 
 import java.io.File;
+import java.io.OutputStream;
 
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -73,4 +75,28 @@ public class UploadFileHelperTest {
                 TestConstants.MOCK_MD5_HEX_ENCODED);
         assertEquals(metadata.getSSEAlgorithm(), ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
     }
+
+    @Test
+    public void uploadInMemoryFileAsAttachment() throws Exception {
+        // Set up a file that is kept in memory.
+        SpillingFileHelper fileHelper = new SpillingFileHelper(Long.MAX_VALUE);
+        helper.setFileHelper(fileHelper);
+
+        File file = new File(fileHelper.createTempDir(), FILENAME);
+        try (OutputStream outputStream = fileHelper.getSpillingOutputStream(file, 1000)) {
+            outputStream.write(CONTENT);
+        }
+
+        // Execute.
+        try {
+            helper.uploadFileAsAttachment(FILENAME, file);
+        } finally {
+            fileHelper.deleteDirRecursively(file.getParentFile());
+        }
+
+        // Verify. The bytes are uploaded, since the file isn't on disk.
+        verify(mockS3Helper).writeBytesToS3(eq(UploadFileHelper.ATTACHMENT_BUCKET), eq(FILENAME), eq(CONTENT),
+                any(ObjectMetadata.class));
+        verify(mockS3Helper, never()).writeFileToS3(any(), any(), any(), any());
+    }
 }
@@ -327,6 +327,8 @@ public class UploadHandlersEndToEndTest {
         taskFactory.setHandlerList(handlerList);
         taskFactory.setUploadDao(mockUploadDao);
         taskFactory.setHealthDataService(mockHealthDataService);
+        taskFactory.setUploadValidationNotifier(new UploadValidationNotifier());
+        taskFactory.setUploadValidationMetrics(new UploadValidationMetrics());
 
         // create task, execute
         UploadValidationTask task = taskFactory.newTask(TEST_APP_ID, upload);
@@ -58,6 +58,7 @@ public class UploadValidationContextTest {
         original.setUpload(upload);
         original.setSuccess(false);
         original.addMessage("common message");
+        original.recordHandlerTime("common-handler", 10L);
         original.setTempDir(tempDir);
         original.setDataFile(dataFile);
         original.setDecryptedDataFile(decryptedDataFile);
@@ -82,10 +83,12 @@ public class UploadValidationContextTest {
 
         assertEquals(copy.getMessageList().size(), 1);
         assertEquals(copy.getMessageList().get(0), "common message");
+        assertEquals(copy.getHandlerTimeMillis(), ImmutableMap.of("common-handler", 10L));
 
         // modify original and validate copy unchanged
         original.setHealthCode("new-health-code");
         original.addMessage("original message");
+        original.recordHandlerTime("original-handler", 20L);
 
         assertEquals(copy.getHealthCode(), HEALTH_CODE);
         assertEquals(copy.getMessageList().size(), 1);
@@ -99,5 +102,6 @@ public class UploadValidationContextTest {
         assertEquals(original.getMessageList().size(), 2);
         assertEquals(original.getMessageList().get(0), "common message");
         assertEquals(original.getMessageList().get(1), "original message");
+        assertEquals(copy.getHandlerTimeMillis(), ImmutableMap.of("common-handler", 10L));
     }
 }
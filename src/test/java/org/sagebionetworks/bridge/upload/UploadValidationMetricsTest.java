@@ -0,0 +1,77 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.ACTIVE;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.COMPLETED;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.COUNT;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.EXECUTOR;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.MAX_MILLIS;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.QUEUED;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.QUEUE_REMAINING;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.REJECTED;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.THREADS;
+import static org.sagebionetworks.bridge.upload.UploadValidationMetrics.TOTAL_MILLIS;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class UploadValidationMetricsTest {
+    private static final String HANDLER_A = "HandlerA";
+    private static final String HANDLER_B = "HandlerB";
+
+    private ThreadPoolExecutor executor;
+    private UploadValidationMetrics metrics;
+
+    @BeforeMethod
+    public void before() {
+        executor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(10));
+        metrics = new UploadValidationMetrics();
+        metrics.setUploadValidationExecutorService(executor);
+    }
+
+    @AfterMethod
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void executorStatistics() {
+        metrics.recordRejected();
+        metrics.recordRejected();
+
+        Map<String, Long> executorStats = metrics.getStatistics().get(EXECUTOR);
+        assertEquals(executorStats.get(THREADS), Long.valueOf(0L));
+        assertEquals(executorStats.get(ACTIVE), Long.valueOf(0L));
+        assertEquals(executorStats.get(QUEUED), Long.valueOf(0L));
+        assertEquals(executorStats.get(QUEUE_REMAINING), Long.valueOf(10L));
+        assertEquals(executorStats.get(COMPLETED), Long.valueOf(0L));
+        assertEquals(executorStats.get(REJECTED), Long.valueOf(2L));
+    }
+
+    @Test
+    public void handlerHistograms() {
+        metrics.recordHandlerTimes(ImmutableMap.of(HANDLER_A, 5L, HANDLER_B, 150L));
+        metrics.recordHandlerTimes(ImmutableMap.of(HANDLER_A, 10L, HANDLER_B, 90000L));
+        metrics.recordHandlerTimes(ImmutableMap.of(HANDLER_A, 11L));
+
+        Map<String, Map<String, Long>> stats = metrics.getStatistics();
+        assertEquals(stats.size(), 3);
+
+        // Bucket bounds are inclusive
+        assertEquals(stats.get(HANDLER_A), new ImmutableMap.Builder<String, Long>()
+                .put(COUNT, 3L).put(TOTAL_MILLIS, 26L).put(MAX_MILLIS, 11L)
+                .put("le10", 2L).put("le100", 1L).put("le1000", 0L).put("le10000", 0L).put("le60000", 0L)
+                .put("gt60000", 0L).build());
+        assertEquals(stats.get(HANDLER_B), new ImmutableMap.Builder<String, Long>()
+                .put(COUNT, 2L).put(TOTAL_MILLIS, 90150L).put(MAX_MILLIS, 90000L)
+                .put("le10", 0L).put("le100", 0L).put("le1000", 1L).put("le10000", 0L).put("le60000", 0L)
+                .put("gt60000", 1L).build());
+    }
+}
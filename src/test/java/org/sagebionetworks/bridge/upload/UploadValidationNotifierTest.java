@@ -0,0 +1,137 @@
+package org.sagebionetworks.bridge.upload;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class UploadValidationNotifierTest {
+    private static final String UPLOAD_ID = "test-upload";
+    private static final String OTHER_UPLOAD_ID = "other-upload";
+
+    private UploadValidationNotifier notifier;
+
+    @BeforeMethod
+    public void before() {
+        notifier = new UploadValidationNotifier();
+    }
+
+    @Test
+    public void notifiesAllListenersOnce() {
+        Runnable listener1 = mock(Runnable.class);
+        Runnable listener2 = mock(Runnable.class);
+        Runnable otherListener = mock(Runnable.class);
+        notifier.addListener(UPLOAD_ID, listener1);
+        notifier.addListener(UPLOAD_ID, listener2);
+        notifier.addListener(OTHER_UPLOAD_ID, otherListener);
+
+        notifier.notifyValidationComplete(UPLOAD_ID);
+        verify(listener1).run();
+        verify(listener2).run();
+        verify(otherListener, never()).run();
+        assertFalse(notifier.hasListeners(UPLOAD_ID));
+        assertTrue(notifier.hasListeners(OTHER_UPLOAD_ID));
+
+        // Listeners are removed once they are notified
+        notifier.notifyValidationComplete(UPLOAD_ID);
+        verify(listener1, times(1)).run();
+        verify(listener2, times(1)).run();
+    }
+
+    @Test
+    public void removedListenerIsNotNotified() {
+        Runnable listener1 = mock(Runnable.class);
+        Runnable listener2 = mock(Runnable.class);
+        notifier.addListener(UPLOAD_ID, listener1);
+        notifier.addListener(UPLOAD_ID, listener2);
+
+        notifier.removeListener(UPLOAD_ID, listener1);
+        assertTrue(notifier.hasListeners(UPLOAD_ID));
+
+        notifier.removeListener(UPLOAD_ID, listener2);
+        assertFalse(notifier.hasListeners(UPLOAD_ID));
+
+        notifier.notifyValidationComplete(UPLOAD_ID);
+        verify(listener1, never()).run();
+        verify(listener2, never()).run();
+    }
+
+    @Test
+    public void removeListenerNotRegistered() {
+        // does not throw
+        notifier.removeListener(UPLOAD_ID, mock(Runnable.class));
+        assertFalse(notifier.hasListeners(UPLOAD_ID));
+    }
+
+    @Test
+    public void notifyWithoutListeners() {
+        // does not throw
+        notifier.notifyValidationComplete(UPLOAD_ID);
+        assertFalse(notifier.hasListeners(UPLOAD_ID));
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthers() {
+        Runnable listener1 = mock(Runnable.class);
+        Runnable listener2 = mock(Runnable.class);
+        doThrow(new RuntimeException()).when(listener1).run();
+        doThrow(new RuntimeException()).when(listener2).run();
+        notifier.addListener(UPLOAD_ID, listener1);
+        notifier.addListener(UPLOAD_ID, listener2);
+
+        notifier.notifyValidationComplete(UPLOAD_ID);
+        verify(listener1).run();
+        verify(listener2).run();
+    }
+
+    @Test
+    public void pollRunsListenersWithoutRemovingThem() {
+        Runnable listener1 = mock(Runnable.class);
+        Runnable listener2 = mock(Runnable.class);
+        notifier.addListener(UPLOAD_ID, listener1);
+        notifier.addListener(OTHER_UPLOAD_ID, listener2);
+
+        notifier.pollListeners();
+        notifier.pollListeners();
+        verify(listener1, times(2)).run();
+        verify(listener2, times(2)).run();
+        assertTrue(notifier.hasListeners(UPLOAD_ID));
+        assertTrue(notifier.hasListeners(OTHER_UPLOAD_ID));
+    }
+
+    @Test
+    public void pollListenerCanRemoveItself() {
+        Runnable listener = mock(Runnable.class);
+        doAnswer(invocation -> {
+            notifier.removeListener(UPLOAD_ID, listener);
+            return null;
+        }).when(listener).run();
+        notifier.addListener(UPLOAD_ID, listener);
+
+        notifier.pollListeners();
+        assertFalse(notifier.hasListeners(UPLOAD_ID));
+
+        notifier.pollListeners();
+        verify(listener, times(1)).run();
+    }
+
+    @Test
+    public void pollFailingListenerDoesNotStopOthers() {
+        Runnable listener1 = mock(Runnable.class);
+        Runnable listener2 = mock(Runnable.class);
+        doThrow(new RuntimeException()).when(listener1).run();
+        notifier.addListener(UPLOAD_ID, listener1);
+        notifier.addListener(OTHER_UPLOAD_ID, listener2);
+
+        notifier.pollListeners();
+        verify(listener1).run();
+        verify(listener2).run();
+    }
+}
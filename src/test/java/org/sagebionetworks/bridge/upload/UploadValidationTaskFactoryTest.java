@@ -26,6 +26,8 @@ public class UploadValidationTaskFactoryTest {
         UploadDao dao = mock(UploadDao.class);
         FileHelper fileHelper = new FileHelper();
         HealthDataService healthDataService = new HealthDataService();
+        UploadValidationNotifier notifier = new UploadValidationNotifier();
+        UploadValidationMetrics metrics = new UploadValidationMetrics();
 
         // set up task factory
         UploadValidationTaskFactory taskFactory = new UploadValidationTaskFactory();
@@ -33,6 +35,8 @@ public class UploadValidationTaskFactoryTest {
         taskFactory.setHandlerList(handlerList);
         taskFactory.setUploadDao(dao);
         taskFactory.setHealthDataService(healthDataService);
+        taskFactory.setUploadValidationNotifier(notifier);
+        taskFactory.setUploadValidationMetrics(metrics);
 
         // inputs
         App app = TestUtils.getValidApp(UploadValidationTaskFactoryTest.class);
@@ -49,5 +53,7 @@ public class UploadValidationTaskFactoryTest {
         assertSame(task.getHandlerList(), handlerList);
         assertSame(task.getUploadDao(), dao);
         assertSame(task.getHealthDataService(), healthDataService);
+        assertSame(task.getUploadValidationNotifier(), notifier);
+        assertSame(task.getUploadValidationMetrics(), metrics);
     }
 }
@@ -10,13 +10,16 @@ import static org.mockito.Mockito.when;
 import static org.sagebionetworks.bridge.TestConstants.TEST_APP_ID;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 import static org.mockito.Mockito.eq;
 
 import javax.annotation.Nonnull;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
@@ -57,6 +60,8 @@ public class UploadValidationTaskTest {
     private UploadValidationContext ctx;
     private InMemoryFileHelper inMemoryFileHelper;
     private UploadDao mockDao;
+    private UploadValidationNotifier mockNotifier;
+    private UploadValidationMetrics mockMetrics;
     private UploadValidationTask task;
     private Upload upload;
 
@@ -80,6 +85,8 @@ public class UploadValidationTaskTest {
         // Set up other pre-reqs
         inMemoryFileHelper = new InMemoryFileHelper();
         mockDao = mock(UploadDao.class);
+        mockNotifier = mock(UploadValidationNotifier.class);
+        mockMetrics = mock(UploadValidationMetrics.class);
 
         // Set up task. Spy so we can verify some calls.
         task = spy(new UploadValidationTask(ctx));
@@ -87,6 +94,8 @@ public class UploadValidationTaskTest {
         task.setHandlerList(handlerList);
         task.setHealthDataService(healthDataService);
         task.setUploadDao(mockDao);
+        task.setUploadValidationNotifier(mockNotifier);
+        task.setUploadValidationMetrics(mockMetrics);
     }
 
     @Test
@@ -103,6 +112,12 @@ public class UploadValidationTaskTest {
         assertEquals(messageList.get(0), "foo was here");
         assertEquals(messageList.get(1), "bar was here");
         assertEquals(messageList.get(2), "kilroy was here");
+
+        // Each handler's time is recorded, in order, and sent to the metrics
+        Map<String, Long> handlerTimeMillis = ctx.getHandlerTimeMillis();
+        assertEquals(ImmutableList.copyOf(handlerTimeMillis.keySet()), ImmutableList.of(
+                MessageHandler.class.getName(), RecordIdHandler.class.getName()));
+        verify(mockMetrics).recordHandlerTimes(handlerTimeMillis);
     }
 
     @Test
@@ -146,6 +161,10 @@ public class UploadValidationTaskTest {
         assertEquals(messageList.size(), 2);
         assertEquals(messageList.get(0), "foo succeeded");
         assertFalse(Strings.isNullOrEmpty(messageList.get(1)));
+
+        // The failed handler's time is recorded, but not the handlers that didn't run
+        assertEquals(ctx.getHandlerTimeMillis().size(), 2);
+        verify(mockMetrics).recordHandlerTimes(ctx.getHandlerTimeMillis());
     }
 
     // helper test method, encapsulating core setup and validation
@@ -161,6 +180,9 @@ public class UploadValidationTaskTest {
 
         // validate the upload dao write validation status call
         verify(mockDao).writeValidationStatus(upload, expectedStatus, ctx.getMessageList(), expectedRecordId);
+        
+        // Callers waiting on validation are notified
+        verify(mockNotifier).notifyValidationComplete("test-upload");
 
         // Validate that we clean up the temp directory.
         assertTrue(inMemoryFileHelper.isEmpty());
@@ -184,6 +206,25 @@ public class UploadValidationTaskTest {
 
         // verify log helper was called
         verify(task).logWriteValidationStatusException(UploadStatus.SUCCEEDED, toThrow);
+        
+        // Status was not written, so callers continue to wait
+        verifyZeroInteractions(mockNotifier);
+    }
+
+    @Test
+    public void tempDirDeletedWhenTaskThrows() {
+        RuntimeException toThrow = new RuntimeException();
+        doThrow(toThrow).when(mockMetrics).recordHandlerTimes(notNull());
+        
+        try {
+            task.run();
+            fail("expected exception");
+        } catch (RuntimeException ex) {
+            assertSame(ex, toThrow);
+        }
+        
+        // Validate that we clean up the temp directory.
+        assertTrue(inMemoryFileHelper.isEmpty());
     }
 
     // Test handler that makes its presence known only by writing a message to the validation context.